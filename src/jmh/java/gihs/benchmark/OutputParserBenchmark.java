@@ -0,0 +1,131 @@
+package gihs.benchmark;
+
+import gihs.core.output.GenerateOutputParameters;
+import gihs.core.output.GenerateOutputParametersFile;
+import gihs.gem5.output.Gem5Output;
+import gihs.sniper.output.SniperOutput;
+import gihs.zsim.output.ZsimOutput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The OutputParserBenchmark class measures the throughput and the latency of the output parsers of gem5, Sniper and zsim,
+ * once for parsing the statistics file alone and once together with writing the output parameters file.
+ * The allocation rate is measured by running the benchmark with the GC profiler, see {@link OutputParserBenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutputParserBenchmark {
+
+    /**
+     * The hardware simulation whose statistics file is parsed.
+     */
+    @Param({"gem5", "sniper", "zsim"})
+    private String hardwaresimulation;
+
+    /**
+     * The number of simulated cores in the statistics file.
+     */
+    @Param({"1", "16", "128"})
+    private int cores;
+
+    /**
+     * The minimum size of the statistics file in KiB.
+     */
+    @Param({"64", "4096"})
+    private long sizeKiB;
+
+    private Path directory;
+    private Path statisticsFile;
+    private Path outputFile;
+
+    /**
+     * The standard output, which is silenced while the parsers print their results.
+     */
+    private PrintStream standardOutput;
+
+    /**
+     * Generates the statistics file of the trial.
+     *
+     * @throws IOException if the statistics file cannot be written
+     */
+    @Setup(Level.Trial)
+    public void generateStatisticsFile() throws IOException {
+        directory = Files.createTempDirectory("gihs-benchmark");
+        statisticsFile = directory.resolve(hardwaresimulation + "-statistics.txt");
+        outputFile = directory.resolve("generatestatsOutput.json");
+        new StatisticsFileGenerator(cores).generate(hardwaresimulation, sizeKiB * 1024, statisticsFile);
+
+        standardOutput = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * Removes the files of the trial.
+     *
+     * @throws IOException if a file cannot be removed
+     */
+    @TearDown(Level.Trial)
+    public void removeStatisticsFile() throws IOException {
+        System.setOut(standardOutput);
+        Files.deleteIfExists(statisticsFile);
+        Files.deleteIfExists(outputFile);
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Parses the statistics file into the JSON output parameters.
+     *
+     * @return the JSON output parameters
+     */
+    @Benchmark
+    public String generateStatisticsParametersJson() {
+        return createOutput().generateStatisticsParametersJson(statisticsFile.toString());
+    }
+
+    /**
+     * Parses the statistics file and writes the sorted output parameters file, as a run of the general interface does.
+     */
+    @Benchmark
+    public void generateOutputParameters() {
+        new GenerateOutputParametersFile().generateOutputParameters(createOutput(), statisticsFile.toString(), outputFile.toString());
+    }
+
+    /**
+     * Creates the output parser of the hardware simulation.
+     *
+     * @return the output parser
+     */
+    private GenerateOutputParameters createOutput() {
+        switch (hardwaresimulation) {
+            case "gem5":
+                return new Gem5Output();
+            case "sniper":
+                return new SniperOutput();
+            default:
+                return new ZsimOutput();
+        }
+    }
+}
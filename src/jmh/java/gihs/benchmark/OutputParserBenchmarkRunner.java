@@ -0,0 +1,125 @@
+package gihs.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The OutputParserBenchmarkRunner class runs the benchmarks of the output parsers with the GC profiler
+ * and fails if a result is worse than a baseline.
+ * <p>
+ * The results are written in the JSON format of JMH, so the results of one run can be the baseline of the next.
+ * The throughput must not drop and the sampled latency must not rise by more than the tolerance.
+ */
+public class OutputParserBenchmarkRunner {
+
+    /**
+     * Runs the benchmarks.
+     * Possible options include:
+     * -include <arg>   Regular expression of the benchmarks to run (default: OutputParserBenchmark)
+     * -result <arg>    Path of the JSON result file (default: jmh-result.json)
+     * -baseline <arg>  Path of a JSON result file of an earlier run to compare with
+     * -tolerance <arg> Relative change that is not yet a regression (default: 0.10)
+     *
+     * @param args the command line arguments
+     * @throws RunnerException if the benchmarks cannot be run
+     * @throws IOException     if the baseline cannot be read
+     * @throws ParseException  if the command line arguments are invalid
+     */
+    public static void main(String[] args) throws RunnerException, IOException, ParseException {
+        Options options = new Options();
+        options.addOption("include", true, "Regular expression of the benchmarks to run");
+        options.addOption("result", true, "Path of the JSON result file");
+        options.addOption("baseline", true, "Path of a JSON result file of an earlier run to compare with");
+        options.addOption("tolerance", true, "Relative change that is not yet a regression");
+        CommandLine commandLine = new DefaultParser().parse(options, args);
+
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(commandLine.getOptionValue("include", OutputParserBenchmark.class.getSimpleName()))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(commandLine.getOptionValue("result", "jmh-result.json"))
+                .build()).run();
+
+        if (commandLine.hasOption("baseline")) {
+            double tolerance = Double.parseDouble(commandLine.getOptionValue("tolerance", "0.10"));
+            int regressions = compareWithBaseline(results, new File(commandLine.getOptionValue("baseline")), tolerance);
+            if (regressions > 0) {
+                System.err.println(regressions + " benchmark results are worse than the baseline.");
+                System.exit(1);
+            }
+            System.out.println("No benchmark result is worse than the baseline.");
+        }
+    }
+
+    /**
+     * Compares the results with the results of a baseline and reports every regression.
+     *
+     * @param results   the results of this run
+     * @param baseline  the JSON result file of the baseline
+     * @param tolerance the relative change that is not yet a regression
+     * @return the number of regressions
+     * @throws IOException if the baseline cannot be read
+     */
+    private static int compareWithBaseline(Collection<RunResult> results, File baseline, double tolerance) throws IOException {
+        Map<String, Double> baselineScores = new HashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(baseline)) {
+            Map<String, String> params = new TreeMap<>();
+            result.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            baselineScores.put(getKey(result.get("benchmark").asText(), result.get("mode").asText(), params),
+                    result.get("primaryMetric").get("score").asDouble());
+        }
+
+        int regressions = 0;
+        for (RunResult result : results) {
+            Map<String, String> params = new TreeMap<>();
+            for (String param : result.getParams().getParamsKeys()) {
+                params.put(param, result.getParams().getParam(param));
+            }
+            String mode = result.getParams().getMode().shortLabel();
+            String key = getKey(result.getParams().getBenchmark(), mode, params);
+            Double baselineScore = baselineScores.get(key);
+            if (baselineScore == null) {
+                continue;
+            }
+            double score = result.getPrimaryResult().getScore();
+            // A higher throughput is better, a higher latency is worse
+            boolean regression = mode.equals("thrpt")
+                    ? score < baselineScore * (1 - tolerance)
+                    : score > baselineScore * (1 + tolerance);
+            if (regression) {
+                System.err.printf("Regression: %s %.3f (baseline %.3f)%n", key, score, baselineScore);
+                regressions++;
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Gets the key that identifies a benchmark result.
+     *
+     * @param benchmark the full name of the benchmark method
+     * @param mode      the short label of the benchmark mode
+     * @param params    the parameters of the benchmark, sorted by name
+     * @return the key of the result
+     */
+    private static String getKey(String benchmark, String mode, Map<String, String> params) {
+        return benchmark + " " + mode + " " + params;
+    }
+}
@@ -0,0 +1,299 @@
+package gihs.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * The StatisticsFileGenerator class generates statistics files in the formats of gem5 (stats.txt),
+ * Sniper (sim.out) and zsim (zsim.out) for the benchmarks of the output parsers.
+ * <p>
+ * The files contain the statistics that the output parsers read, for the given number of cores, surrounded by
+ * the statistics a real run writes as well. The statistics are written again with new values until the file
+ * reaches the requested size, as in long simulations that dump their statistics many times.
+ * The values are random, but the same arguments always generate the same file.
+ */
+public class StatisticsFileGenerator {
+
+    /**
+     * The number of statistics that the generated files contain per core besides the statistics that are parsed.
+     */
+    private static final int ADDITIONAL_STATISTICS_PER_CORE = 24;
+
+    private final Random random = new Random(42);
+
+    private final int cores;
+
+    /**
+     * Constructs a StatisticsFileGenerator for the given number of cores.
+     *
+     * @param cores the number of simulated cores, between 1 and 128
+     */
+    public StatisticsFileGenerator(int cores) {
+        if (cores < 1 || cores > 128) {
+            throw new IllegalArgumentException("the number of cores must be between 1 and 128, but was " + cores);
+        }
+        this.cores = cores;
+    }
+
+    /**
+     * Generates a statistics file of a hardware simulation.
+     *
+     * @param hardwaresimulationName the name of the hardware simulation: gem5, sniper or zsim
+     * @param targetBytes            the minimum size of the file in bytes
+     * @param file                   the path of the file
+     * @throws IOException if the file cannot be written
+     */
+    public void generate(String hardwaresimulationName, long targetBytes, Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (CountingWriter writer = new CountingWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            do {
+                switch (hardwaresimulationName) {
+                    case "gem5":
+                        writeGem5Dump(writer);
+                        break;
+                    case "sniper":
+                        writeSniperStatistics(writer);
+                        break;
+                    case "zsim":
+                        writeZsimStatistics(writer);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown hardware simulation: " + hardwaresimulationName);
+                }
+            } while (writer.getWrittenChars() < targetBytes);
+        }
+    }
+
+    /**
+     * Writes one statistics dump of gem5 with a Ruby MESI two level cache hierarchy.
+     *
+     * @param writer the writer of the file
+     * @throws IOException if the file cannot be written
+     */
+    private void writeGem5Dump(Writer writer) throws IOException {
+        // The gem5 configuration of the general interface always simulates two cores
+        int l1Controllers = Math.max(cores, 2);
+        long instructions = nextCount(1_000_000);
+
+        writer.write("\n---------- Begin Simulation Statistics ----------\n");
+        writeGem5Statistic(writer, "simSeconds", String.format(Locale.ROOT, "%.6f", random.nextDouble() / 1000), "Number of seconds simulated (Second)");
+        writeGem5Statistic(writer, "simTicks", Long.toString(nextCount(100_000_000)), "Number of ticks simulated (Tick)");
+        writeGem5Statistic(writer, "finalTick", Long.toString(nextCount(100_000_000)), "Number of ticks from beginning of simulation (Tick)");
+        writeGem5Statistic(writer, "simFreq", "1000000000000", "The number of ticks per simulated second ((Tick/Second))");
+        writeGem5Statistic(writer, "hostSeconds", String.format(Locale.ROOT, "%.2f", random.nextDouble() * 10), "Real time elapsed on the host (Second)");
+        writeGem5Statistic(writer, "hostTickRate", Long.toString(nextCount(100_000_000)), "The number of ticks simulated per host second (ticks/s) ((Tick/Second))");
+        writeGem5Statistic(writer, "hostMemory", Long.toString(nextCount(1_000_000_000)), "Number of bytes of host memory used (Byte)");
+        writeGem5Statistic(writer, "simInsts", Long.toString(instructions), "Number of instructions simulated (Count)");
+        writeGem5Statistic(writer, "simOps", Long.toString(instructions + nextCount(100_000)), "Number of ops (including micro ops) simulated (Count)");
+
+        for (int core = 0; core < l1Controllers; core++) {
+            String prefix = "board.processor.start" + core + ".core.";
+            writeGem5Statistic(writer, prefix + "numCycles", Long.toString(nextCount(2_000_000)), "Number of cpu cycles simulated (Cycle)");
+            writeGem5Statistic(writer, prefix + "cpi", String.format(Locale.ROOT, "%.6f", 1 + random.nextDouble()), "CPI: cycles per instruction (core level) ((Cycle/Count))");
+            writeGem5Statistic(writer, prefix + "ipc", String.format(Locale.ROOT, "%.6f", random.nextDouble()), "IPC: instructions per cycle (core level) ((Count/Cycle))");
+            for (int statistic = 0; statistic < ADDITIONAL_STATISTICS_PER_CORE; statistic++) {
+                writeGem5Statistic(writer, prefix + "exec_context.thread_0.numStat" + statistic, Long.toString(nextCount(100_000)), "Number of events (Count)");
+            }
+            String controller = "board.cache_hierarchy.ruby_system.l1_controllers" + core + ".";
+            for (String cache : new String[]{"L1Icache", "L1Dcache"}) {
+                long accesses = nextCount(500_000);
+                writeGem5Statistic(writer, controller + cache + ".m_demand_hits", Long.toString(accesses / 2), "Number of cache demand hits (Unspecified)");
+                writeGem5Statistic(writer, controller + cache + ".m_demand_misses", Long.toString(accesses / 10), "Number of cache demand misses (Unspecified)");
+                writeGem5Statistic(writer, controller + cache + ".m_demand_accesses", Long.toString(accesses), "Number of cache demand accesses (Unspecified)");
+            }
+        }
+        long l2Accesses = nextCount(100_000);
+        writeGem5Statistic(writer, "board.cache_hierarchy.ruby_system.l2_controllers.L2cache.m_demand_hits", Long.toString(l2Accesses / 2), "Number of cache demand hits (Unspecified)");
+        writeGem5Statistic(writer, "board.cache_hierarchy.ruby_system.l2_controllers.L2cache.m_demand_misses", Long.toString(l2Accesses / 4), "Number of cache demand misses (Unspecified)");
+        writeGem5Statistic(writer, "board.cache_hierarchy.ruby_system.l2_controllers.L2cache.m_demand_accesses", Long.toString(l2Accesses), "Number of cache demand accesses (Unspecified)");
+        writer.write("\n---------- End Simulation Statistics   ----------\n");
+    }
+
+    /**
+     * Writes a statistic in the column layout of gem5.
+     *
+     * @param writer      the writer of the file
+     * @param name        the name of the statistic
+     * @param value       the value of the statistic
+     * @param description the description of the statistic
+     * @throws IOException if the file cannot be written
+     */
+    private void writeGem5Statistic(Writer writer, String name, String value, String description) throws IOException {
+        writer.write(String.format("%-86s %24s  # %s\n", name, value, description));
+    }
+
+    /**
+     * Writes the statistics of Sniper with one column per core.
+     *
+     * @param writer the writer of the file
+     * @throws IOException if the file cannot be written
+     */
+    private void writeSniperStatistics(Writer writer) throws IOException {
+        StringBuilder header = new StringBuilder(String.format("%-35s", ""));
+        for (int core = 0; core < cores; core++) {
+            header.append("| Core ").append(core).append(' ');
+        }
+        writer.write(header.toString().stripTrailing() + "\n");
+
+        writeSniperStatistic(writer, "  Instructions", () -> Long.toString(nextCount(1_000_000)));
+        writeSniperStatistic(writer, "  Cycles", () -> Long.toString(nextCount(2_000_000)));
+        writeSniperStatistic(writer, "  IPC", () -> String.format(Locale.ROOT, "%.2f", random.nextDouble() * 2));
+        writeSniperStatistic(writer, "  Time (ns)", () -> Long.toString(nextCount(1_000_000)));
+        writeSniperStatistic(writer, "  Idle time (ns)", () -> Long.toString(nextCount(1_000)));
+        writeSniperStatistic(writer, "  Idle time (%)", () -> String.format(Locale.ROOT, "%.1f%%", random.nextDouble()));
+        writeSniperStatistic(writer, "Branch predictor stats", () -> "");
+        writeSniperStatistic(writer, "  num correct", () -> Long.toString(nextCount(100_000)));
+        writeSniperStatistic(writer, "  num incorrect", () -> Long.toString(nextCount(10_000)));
+        writeSniperStatistic(writer, "  misprediction rate", () -> String.format(Locale.ROOT, "%.2f%%", random.nextDouble() * 10));
+        writeSniperStatistic(writer, "  mpki", () -> String.format(Locale.ROOT, "%.2f", random.nextDouble() * 10));
+        writeSniperStatistic(writer, "TLB Summary", () -> "");
+        for (String tlb : new String[]{"I-TLB", "D-TLB", "L2 TLB"}) {
+            writeSniperCache(writer, tlb);
+        }
+        writeSniperStatistic(writer, "Cache Summary", () -> "");
+        for (String cache : new String[]{"Cache L1-I", "Cache L1-D", "Cache L2"}) {
+            writeSniperCache(writer, cache);
+        }
+        writeSniperStatistic(writer, "DRAM summary", () -> "");
+        writeSniperStatistic(writer, "  num dram accesses", () -> Long.toString(nextCount(10_000)));
+        writeSniperStatistic(writer, "  average dram access latency (ns)", () -> String.format(Locale.ROOT, "%.2f", random.nextDouble() * 100));
+        for (int statistic = 0; statistic < ADDITIONAL_STATISTICS_PER_CORE / 4; statistic++) {
+            writeSniperStatistic(writer, "  num dram event " + statistic, () -> Long.toString(nextCount(10_000)));
+        }
+    }
+
+    /**
+     * Writes the statistics of a Sniper cache or TLB with one column per core.
+     *
+     * @param writer the writer of the file
+     * @param cache  the name of the cache or TLB
+     * @throws IOException if the file cannot be written
+     */
+    private void writeSniperCache(Writer writer, String cache) throws IOException {
+        writeSniperStatistic(writer, "  " + cache, () -> "");
+        writeSniperStatistic(writer, "    num cache accesses", () -> Long.toString(nextCount(500_000)));
+        writeSniperStatistic(writer, "    num cache misses", () -> Long.toString(nextCount(50_000)));
+        writeSniperStatistic(writer, "    miss rate", () -> String.format(Locale.ROOT, "%.2f%%", random.nextDouble() * 20));
+        writeSniperStatistic(writer, "    mpki", () -> String.format(Locale.ROOT, "%.2f", random.nextDouble() * 20));
+    }
+
+    /**
+     * A supplier of the value of a Sniper statistic for one core.
+     */
+    private interface SniperValue {
+        String next();
+    }
+
+    /**
+     * Writes a statistic in the column layout of Sniper.
+     *
+     * @param writer the writer of the file
+     * @param name   the name of the statistic, indented by its level
+     * @param value  the supplier of the value for each core
+     * @throws IOException if the file cannot be written
+     */
+    private void writeSniperStatistic(Writer writer, String name, SniperValue value) throws IOException {
+        StringBuilder line = new StringBuilder(String.format("%-35s", name));
+        for (int core = 0; core < cores; core++) {
+            line.append("| ").append(String.format("%-7s", value.next())).append(' ');
+        }
+        // The indentation of the name marks the blocks of sim.out, so only the padding of the last column is removed
+        writer.write(line.toString().stripTrailing() + "\n");
+    }
+
+    /**
+     * Writes the statistics of zsim with one block per core and cache.
+     *
+     * @param writer the writer of the file
+     * @throws IOException if the file cannot be written
+     */
+    private void writeZsimStatistics(Writer writer) throws IOException {
+        writer.write("# Simulation stats\n");
+        writer.write("root: # Stats\n");
+        writer.write(" contention: # Contention simulation stats\n");
+        writer.write("  domain-0: # Domain stats\n");
+        writer.write("   time: " + nextCount(1_000_000) + " # Weave simulation time\n");
+        writer.write(" time: # Simulator time breakdown\n");
+        writer.write("  init: " + nextCount(1_000_000_000) + "\n");
+        writer.write("  bound: " + nextCount(1_000_000_000) + "\n");
+        writer.write("  weave: " + nextCount(1_000_000_000) + "\n");
+        writer.write(" skylake: # Core stats\n");
+        for (int core = 0; core < cores; core++) {
+            writer.write("  skylake-" + core + ": # Core stats\n");
+            writer.write("   cycles: " + nextCount(2_000_000) + " # Simulated unhalted cycles\n");
+            writer.write("   cCycles: " + nextCount(100_000) + " # Cycles due to contention stalls\n");
+            writer.write("   instrs: " + nextCount(1_000_000) + " # Simulated instructions\n");
+            writer.write("   uops: " + nextCount(1_000_000) + " # Retired micro-ops\n");
+            for (int statistic = 0; statistic < ADDITIONAL_STATISTICS_PER_CORE; statistic++) {
+                writer.write("   event" + statistic + ": " + nextCount(100_000) + " # Core events\n");
+            }
+        }
+        for (String cache : new String[]{"l1d", "l1i", "l2"}) {
+            writer.write(" " + cache + ": # Cache stats\n");
+            int banks = cache.equals("l2") ? 1 : cores;
+            for (int bank = 0; bank < banks; bank++) {
+                writer.write("  " + cache + "-" + bank + ": # Filter cache stats\n");
+                for (String statistic : new String[]{"fhGETS", "fhGETX", "hGETS", "hGETX", "mGETS", "mGETXIM", "mGETXSM", "PUTS", "PUTX", "INV", "INVX", "FWD"}) {
+                    writer.write("   " + statistic + ": " + nextCount(100_000) + " # Cache events\n");
+                }
+                writer.write("   latGETnl: " + nextCount(1_000_000) + " # GET request latency on next level\n");
+                writer.write("   latGETnet: 0 # GET request latency on network to next level\n");
+            }
+        }
+    }
+
+    /**
+     * Gets a random count that fits into the integer values the output parsers expect.
+     *
+     * @param bound the exclusive upper bound of the count
+     * @return the count
+     */
+    private long nextCount(int bound) {
+        return random.nextInt(bound);
+    }
+
+    /**
+     * A writer that counts the characters written to it.
+     */
+    private static class CountingWriter extends BufferedWriter {
+        private long writtenChars;
+
+        private CountingWriter(Writer writer) {
+            super(writer, 1 << 16);
+        }
+
+        @Override
+        public void write(String text) throws IOException {
+            super.write(text);
+            writtenChars += text.length();
+        }
+
+        private long getWrittenChars() {
+            return writtenChars;
+        }
+    }
+
+    /**
+     * Generates a statistics file from the command line.
+     *
+     * @param args the name of the hardware simulation, the number of cores, the minimum size in KiB and the path of the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println("usage: StatisticsFileGenerator <gem5|sniper|zsim> <cores> <size in KiB> <file>");
+            System.exit(1);
+        }
+        new StatisticsFileGenerator(Integer.parseInt(args[1]))
+                .generate(args[0], Long.parseLong(args[2]) * 1024, Paths.get(args[3]));
+    }
+}
@@ -0,0 +1,202 @@
+package gihs.core.comparison;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import gihs.core.managementOFJsonNodeALL.JsonUtil;
+import gihs.core.output.SimulationResult;
+import gihs.core.parser.ParserInterface;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The ComparisonParser class runs the same common configuration on several hardware simulations in parallel
+ * and merges their output parameters into one comparison, see {@link ComparisonReport}.
+ * <p>
+ * The hardware simulations are given as a list instead of a single name:
+ * <pre>
+ * "hardwaresimulation": {"name": ["gem5", "sniper", "zsim"], ...}
+ * </pre>
+ * Every hardware simulation writes its output parameters into its own directory below the statsOutputPath,
+ * named after the hardware simulation, and the comparison is written to {@code comparison.json} in the statsOutputPath.
+ * A hardware simulation that fails is listed in the comparison; the comparison fails only if all of them fail.
+ */
+public class ComparisonParser implements ParserInterface {
+
+    /**
+     * The key path of the hardware simulation name in the input.
+     */
+    private static final String NAME_PATH = "commonParameters.hardwaresimulation.name";
+
+    /**
+     * The factory that creates a new parser for a hardware simulation name.
+     */
+    private final Function<String, ParserInterface> parserFactory;
+
+    /**
+     * Constructs a ComparisonParser with the given parser factory.
+     *
+     * @param parserFactory The factory that creates a new parser for a hardware simulation name, or returns null for an unknown name.
+     */
+    public ComparisonParser(Function<String, ParserInterface> parserFactory) {
+        this.parserFactory = parserFactory;
+    }
+
+    /**
+     * Checks whether an input lists several hardware simulations to compare.
+     *
+     * @param input the input
+     * @return true if the hardware simulation name is a list, otherwise false
+     */
+    public static boolean isComparison(JsonNode input) {
+        return JsonUtil.has(input, NAME_PATH) && JsonUtil.get(input, NAME_PATH).isArray();
+    }
+
+    /**
+     * Parses the input and performs the hardware simulations, blocking until all of them have ended.
+     *
+     * @param input the input JsonNode for the hardware simulations
+     */
+    @Override
+    public void parse(JsonNode input) {
+        try {
+            parseAsync(input).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Parses the input and starts the hardware simulations at the same time, each with its own parser.
+     * Cancelling the returned future cancels all hardware simulations.
+     *
+     * @param input the input JsonNode for the hardware simulations
+     * @return the future of the comparison
+     */
+    @Override
+    public CompletableFuture<SimulationResult> parseAsync(JsonNode input) {
+        String statsOutputPath = JsonUtil.get(input, "commonParameters.hardwaresimulation.statsOutputPath").asText();
+        Set<String> hardwaresimulationNames = new LinkedHashSet<>();
+        JsonUtil.get(input, NAME_PATH).forEach(name -> hardwaresimulationNames.add(name.asText()));
+        if (hardwaresimulationNames.isEmpty()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("'" + NAME_PATH + "' lists no hardware simulation in the JSON file."));
+        }
+
+        Map<String, CompletableFuture<SimulationResult>> runs = new LinkedHashMap<>();
+        Map<String, Long> wallNanoseconds = new ConcurrentHashMap<>();
+        List<CompletableFuture<?>> ends = new ArrayList<>();
+        for (String hardwaresimulationName : hardwaresimulationNames) {
+            long startTime = System.nanoTime();
+            CompletableFuture<SimulationResult> run = runHardwaresimulation(input, hardwaresimulationName, statsOutputPath);
+            runs.put(hardwaresimulationName, run);
+            ends.add(run.handle((result, error) -> wallNanoseconds.put(hardwaresimulationName, System.nanoTime() - startTime)));
+        }
+
+        CompletableFuture<SimulationResult> comparison = CompletableFuture.allOf(ends.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> compare(runs, wallNanoseconds, statsOutputPath));
+        comparison.whenComplete((result, error) -> {
+            if (comparison.isCancelled()) {
+                runs.values().forEach(run -> run.cancel(true));
+            }
+        });
+        return comparison;
+    }
+
+    /**
+     * Checks the input for every hardware simulation of the comparison.
+     *
+     * @param input the input JsonNode for the hardware simulations
+     */
+    @Override
+    public void validate(JsonNode input) {
+        for (JsonNode name : JsonUtil.get(input, NAME_PATH)) {
+            ParserInterface parser = parserFactory.apply(name.asText());
+            if (parser != null) {
+                parser.validate(input);
+            }
+        }
+    }
+
+    /**
+     * Starts one hardware simulation of the comparison in its own directory.
+     *
+     * @param input                  the input of the comparison
+     * @param hardwaresimulationName the name of the hardware simulation
+     * @param statsOutputPath        the statsOutputPath of the comparison
+     * @return the future of the output parameters of the hardware simulation
+     */
+    private CompletableFuture<SimulationResult> runHardwaresimulation(JsonNode input, String hardwaresimulationName, String statsOutputPath) {
+        ParserInterface parser = parserFactory.apply(hardwaresimulationName);
+        if (parser == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                    "Invalid value \"" + hardwaresimulationName + "\" for 'commonParameters.hardwaresimulation.name' in the JSON file."));
+        }
+        String outputPath = statsOutputPath + "/" + hardwaresimulationName;
+        JsonNode hardwaresimulationInput = input.deepCopy();
+        ObjectNode hardwaresimulation = (ObjectNode) JsonUtil.get(hardwaresimulationInput, "commonParameters.hardwaresimulation");
+        hardwaresimulation.put("name", hardwaresimulationName);
+        hardwaresimulation.put("statsOutputPath", outputPath);
+        // Every hardware simulation gets its own working directory, so that their generated files do not collide
+        hardwaresimulation.put("workingPath", outputPath);
+        new File(outputPath).mkdirs();
+        return parser.parseAsync(hardwaresimulationInput);
+    }
+
+    /**
+     * Merges the ended hardware simulations into the comparison and writes it.
+     *
+     * @param runs            the runs of the hardware simulations, which have all ended
+     * @param wallNanoseconds the wall times of the runs
+     * @param statsOutputPath the statsOutputPath of the comparison
+     * @return the comparison
+     * @throws RuntimeException if all hardware simulations failed, the failure of the first one
+     */
+    private SimulationResult compare(Map<String, CompletableFuture<SimulationResult>> runs, Map<String, Long> wallNanoseconds, String statsOutputPath) {
+        ComparisonReport report = new ComparisonReport();
+        RuntimeException firstFailure = null;
+        int completed = 0;
+        for (Map.Entry<String, CompletableFuture<SimulationResult>> run : runs.entrySet()) {
+            long nanoseconds = wallNanoseconds.get(run.getKey());
+            try {
+                report.addResult(run.getKey(), run.getValue().join(), nanoseconds);
+                completed++;
+            } catch (CompletionException | CancellationException e) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                System.err.println("error in " + run.getKey() + ": " + cause.getMessage());
+                report.addFailure(run.getKey(), String.valueOf(cause.getMessage()), nanoseconds);
+                if (firstFailure == null) {
+                    firstFailure = cause instanceof RuntimeException ? (RuntimeException) cause : new CompletionException(cause);
+                }
+            }
+        }
+        if (completed == 0) {
+            throw firstFailure;
+        }
+
+        SimulationResult comparison = report.toSimulationResult();
+        String json = comparison.toJson();
+        System.out.println("---------- comparison ----------\n" + json + "\n---------- END ----------");
+        try {
+            SimulationResult.writeAtomically(json, Paths.get(statsOutputPath, ComparisonReport.COMPARISON_FILE));
+            System.out.println("The comparison was successfully created at path: " + statsOutputPath + "/" + ComparisonReport.COMPARISON_FILE);
+        } catch (IOException e) {
+            System.out.println(e.getMessage() + ": " + statsOutputPath + "/" + ComparisonReport.COMPARISON_FILE);
+        }
+        return comparison;
+    }
+}
@@ -0,0 +1,166 @@
+package gihs.core.comparison;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import gihs.core.output.SimulationResult;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The ComparisonReport class merges the output parameters of several hardware simulations that simulated the same
+ * common configuration into one comparison.
+ * <p>
+ * For every metric, such as "IPC" or "Cache Summary.Cache L2.miss rate", the comparison holds the value of each
+ * hardware simulation and its delta to the reference, which is the first hardware simulation that completed:
+ * <pre>
+ * "IPC": {"Values": {"gem5": 0.22, "zsim": 0.25}, "Delta": {"zsim": 0.03}, "Relative delta": {"zsim": "13.64%"}}
+ * </pre>
+ * Percentages are compared by their numbers, so the delta of two miss rates is in percentage points.
+ * Breakdowns such as "Cores" are not compared.
+ */
+public class ComparisonReport {
+
+    /**
+     * The name of the comparison file in the statsOutputPath.
+     */
+    public static final String COMPARISON_FILE = "comparison.json";
+
+    private static final JsonNodeFactory nodeFactory = JsonNodeFactory.instance;
+
+    private final List<String> hardwaresimulationNames = new ArrayList<>();
+    private final Map<String, SimulationResult> results = new LinkedHashMap<>();
+    private final Map<String, String> failures = new LinkedHashMap<>();
+    private final Map<String, Long> wallNanoseconds = new LinkedHashMap<>();
+
+    /**
+     * Adds the output parameters of a hardware simulation that completed.
+     *
+     * @param hardwaresimulationName the name of the hardware simulation
+     * @param result                 the output parameters
+     * @param nanoseconds            the wall time of the run in nanoseconds
+     * @return this report
+     */
+    public ComparisonReport addResult(String hardwaresimulationName, SimulationResult result, long nanoseconds) {
+        hardwaresimulationNames.add(hardwaresimulationName);
+        results.put(hardwaresimulationName, result);
+        wallNanoseconds.put(hardwaresimulationName, nanoseconds);
+        return this;
+    }
+
+    /**
+     * Adds a hardware simulation that failed.
+     *
+     * @param hardwaresimulationName the name of the hardware simulation
+     * @param errorMessage           the error message of the failure
+     * @param nanoseconds            the wall time of the run in nanoseconds
+     * @return this report
+     */
+    public ComparisonReport addFailure(String hardwaresimulationName, String errorMessage, long nanoseconds) {
+        hardwaresimulationNames.add(hardwaresimulationName);
+        failures.put(hardwaresimulationName, errorMessage);
+        wallNanoseconds.put(hardwaresimulationName, nanoseconds);
+        return this;
+    }
+
+    /**
+     * Creates the comparison of the hardware simulations.
+     *
+     * @return the comparison, with the entries "Simulators", "Reference", "Metrics", "HostNanoseconds",
+     * "WallNanoseconds" and, if a hardware simulation failed, "Failed"
+     */
+    public SimulationResult toSimulationResult() {
+        SimulationResult comparison = new SimulationResult();
+        ArrayNode simulators = nodeFactory.arrayNode();
+        hardwaresimulationNames.forEach(simulators::add);
+        comparison.put("Simulators", simulators);
+
+        String reference = results.isEmpty() ? null : results.keySet().iterator().next();
+        if (reference != null) {
+            comparison.put("Reference", reference);
+        }
+
+        // The metrics of all hardware simulations, sorted by their names
+        TreeSet<String> metricNames = new TreeSet<>();
+        results.values().forEach(result -> result.getOutputParameters().forEach((name, value) -> {
+            if (!name.equals(SimulationResult.HOST_NANOSECONDS) && SimulationResult.toNumber(value) != null) {
+                metricNames.add(name);
+            }
+        }));
+        ObjectNode metrics = nodeFactory.objectNode();
+        for (String metricName : metricNames) {
+            metrics.set(metricName, compareMetric(metricName, reference));
+        }
+        comparison.put("Metrics", metrics);
+
+        ObjectNode hostNanoseconds = nodeFactory.objectNode();
+        results.forEach((name, result) -> {
+            JsonNode value = result.get(SimulationResult.HOST_NANOSECONDS);
+            if (value != null) {
+                hostNanoseconds.set(name, value);
+            }
+        });
+        comparison.put(SimulationResult.HOST_NANOSECONDS, hostNanoseconds);
+
+        ObjectNode wallTimes = nodeFactory.objectNode();
+        wallNanoseconds.forEach(wallTimes::put);
+        comparison.put("WallNanoseconds", wallTimes);
+
+        if (!failures.isEmpty()) {
+            ObjectNode failed = nodeFactory.objectNode();
+            failures.forEach(failed::put);
+            comparison.put("Failed", failed);
+        }
+        return comparison;
+    }
+
+    /**
+     * Compares one metric of the hardware simulations.
+     *
+     * @param metricName the name of the metric
+     * @param reference  the name of the reference hardware simulation
+     * @return the values of the hardware simulations that have the metric under "Values", and their deltas to the reference
+     */
+    private ObjectNode compareMetric(String metricName, String reference) {
+        ObjectNode metric = nodeFactory.objectNode();
+        // The hardware simulations are nested, so that their names cannot collide with "Delta" and "Relative delta"
+        ObjectNode values = metric.putObject("Values");
+        ObjectNode deltas = nodeFactory.objectNode();
+        ObjectNode relativeDeltas = nodeFactory.objectNode();
+        JsonNode referenceValue = results.get(reference).get(metricName);
+        Double referenceNumber = referenceValue == null ? null : SimulationResult.toNumber(referenceValue);
+
+        results.forEach((name, result) -> {
+            JsonNode value = result.get(metricName);
+            Double number = value == null ? null : SimulationResult.toNumber(value);
+            if (number == null) {
+                return;
+            }
+            values.set(name, value);
+            if (name.equals(reference) || referenceNumber == null) {
+                return;
+            }
+            if (value.isIntegralNumber() && referenceValue.isIntegralNumber()) {
+                // Counters are compared exactly
+                deltas.put(name, value.asLong() - referenceValue.asLong());
+            } else {
+                deltas.put(name, SimulationResult.roundToTwoDecimals(number - referenceNumber));
+            }
+            if (referenceNumber != 0) {
+                relativeDeltas.put(name, SimulationResult.roundToTwoDecimals((number - referenceNumber) / Math.abs(referenceNumber) * 100) + "%");
+            }
+        });
+        if (!deltas.isEmpty()) {
+            metric.set("Delta", deltas);
+        }
+        if (!relativeDeltas.isEmpty()) {
+            metric.set("Relative delta", relativeDeltas);
+        }
+        return metric;
+    }
+}
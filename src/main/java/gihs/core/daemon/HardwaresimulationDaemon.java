@@ -0,0 +1,656 @@
+package gihs.core.daemon;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import gihs.core.managementOFJsonNodeALL.JsonUtil;
+import gihs.core.output.SimulationResult;
+import gihs.core.parser.ParserInterface;
+import gihs.core.sweep.ParameterSweep;
+import gihs.core.sweep.SweepPoint;
+import gihs.core.sweep.SweepRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The HardwaresimulationDaemon class keeps one process alive that accepts jobs over HTTP on the loopback interface,
+ * so the JVM, the Docker client, the image index and the warm containers of the pool are set up once for many runs.
+ * <p>
+ * A job has the same JSON input as a run from the command line. The jobs are queued and at most "parallelism"
+ * simulations run at the same time; every point of a parameter sweep takes a slot of the same bound as a single job.
+ * The endpoints are:
+ * <ul>
+ *     <li>POST /jobs with the input as body: submits a job and answers 202 with its ID,</li>
+ *     <li>GET /jobs: lists the jobs without their results,</li>
+ *     <li>GET /jobs/{id}: the state of a job and the result of a completed job;
+ *     with "?wait=&lt;seconds&gt;" the answer waits until the job has ended or the time has elapsed,</li>
+ *     <li>DELETE /jobs/{id}: cancels a queued or running job,</li>
+ *     <li>GET /events: streams every change of the state of a job as one JSON line,</li>
+ *     <li>POST /shutdown: cancels the jobs and stops the daemon.</li>
+ * </ul>
+ * A job names files of the host that are uploaded into a container and paths that are written to, so every request
+ * must prove that it comes from the user of the daemon: it carries the token of the token file, which only the owner
+ * can read, as "Authorization: Bearer &lt;token&gt;". The Host and the Origin of a request must be the loopback interface,
+ * so that a web page cannot reach the daemon through a rebound host name, and a POST must have the Content-Type
+ * "application/json", which a web page cannot send without asking the daemon first.
+ */
+public class HardwaresimulationDaemon {
+
+    /**
+     * The default port of the daemon.
+     */
+    public static final int DEFAULT_PORT = 8642;
+
+    /**
+     * The number of ended jobs that are kept for clients to read their results.
+     */
+    private static final int MAX_ENDED_JOBS = 1000;
+
+    /**
+     * The longest time in seconds that a client may wait for a job to end.
+     */
+    private static final long MAX_WAIT_SECONDS = 600;
+
+    /**
+     * The line that ends the event streams when the daemon stops.
+     */
+    private static final String END_OF_EVENTS = "";
+
+    /**
+     * The host names of the loopback interface that the Host and the Origin of a request may have.
+     */
+    private static final Set<String> LOOPBACK_HOSTS = Set.of("localhost", "127.0.0.1", "[::1]");
+
+    /**
+     * The number of random bytes of a new token.
+     */
+    private static final int TOKEN_BYTES = 32;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpServer server;
+    private final int parallelism;
+    private final ExecutorService jobExecutor;
+
+    /**
+     * The slots of the simulations that run at the same time, shared by the jobs and the points of parameter sweeps.
+     */
+    private final Semaphore simulationSlots;
+    private final Function<JsonNode, ParserInterface> parserFactory;
+    private final Consumer<JsonNode> validator;
+    private final Map<Long, HardwaresimulationJob> jobs = new ConcurrentSkipListMap<>();
+    private final AtomicLong nextJobId = new AtomicLong(1);
+    private final List<BlockingQueue<String>> eventStreams = new CopyOnWriteArrayList<>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    /**
+     * The token that every request must carry.
+     */
+    private final byte[] token;
+
+    /**
+     * Constructs a daemon that listens on a port of the loopback interface.
+     *
+     * @param port          the port, or 0 for any free port
+     * @param parallelism   the maximum number of simulations that run at the same time
+     * @param parserFactory the factory that creates a new parser for the input of a job, or returns null for an unknown hardware simulation name
+     * @param validator     the validation of the input of a job, which throws a RuntimeException for an invalid input
+     * @param tokenFile     the file of the token that the requests must carry, which is created with a new token
+     *                      that only its owner can read if it does not exist
+     * @throws IOException if the token file cannot be read or created, or the port cannot be bound
+     */
+    public HardwaresimulationDaemon(int port, int parallelism, Function<JsonNode, ParserInterface> parserFactory,
+                                    Consumer<JsonNode> validator, Path tokenFile) throws IOException {
+        if (parallelism < 1) {
+            throw new ArithmeticException("the parallelism must be at least 1, but was " + parallelism);
+        }
+        this.token = loadToken(tokenFile).getBytes(StandardCharsets.UTF_8);
+        this.parallelism = parallelism;
+        this.parserFactory = parserFactory;
+        this.validator = validator;
+        this.jobExecutor = Executors.newFixedThreadPool(parallelism, daemonThreads("hardwaresimulation-job-"));
+        // The slots are handed out in order, so a parameter sweep does not starve the jobs that are submitted after it
+        this.simulationSlots = new Semaphore(parallelism, true);
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        // Waiting and streaming clients hold their thread, so every request gets one
+        server.setExecutor(Executors.newCachedThreadPool(daemonThreads("hardwaresimulation-http-")));
+        server.createContext("/jobs", this::handleJobs);
+        server.createContext("/events", this::handleEvents);
+        server.createContext("/shutdown", this::handleShutdown);
+    }
+
+    /**
+     * Reads the token of the token file, or creates the token file with a new token.
+     * The token file must only be readable and writable by its owner.
+     *
+     * @param tokenFile the token file
+     * @return the token
+     * @throws IOException if the token file cannot be read or created, is readable by others or is empty
+     */
+    private static String loadToken(Path tokenFile) throws IOException {
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if (Files.exists(tokenFile)) {
+            if (posix && !Files.getPosixFilePermissions(tokenFile).equals(
+                    EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE))) {
+                throw new IOException("the token file " + tokenFile + " must only be readable and writable by its owner (chmod 600)");
+            }
+            String existingToken = Files.readString(tokenFile, StandardCharsets.UTF_8).trim();
+            if (existingToken.isEmpty()) {
+                throw new IOException("the token file " + tokenFile + " is empty");
+            }
+            return existingToken;
+        }
+        byte[] randomBytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(randomBytes);
+        String newToken = Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
+        Path directory = tokenFile.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        // The file is created with its permissions, so that it is never readable by others
+        if (posix) {
+            Files.createFile(tokenFile, PosixFilePermissions.asFileAttribute(
+                    EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE)));
+        } else {
+            Files.createFile(tokenFile);
+        }
+        Files.writeString(tokenFile, newToken, StandardCharsets.UTF_8);
+        System.out.println("The token of the daemon was written to " + tokenFile);
+        return newToken;
+    }
+
+    /**
+     * Starts accepting jobs.
+     */
+    public void start() {
+        server.start();
+        System.out.println("The daemon accepts jobs at http://" + server.getAddress().getHostString() + ":" + getPort() + "/jobs");
+    }
+
+    /**
+     * Gets the port that the daemon listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Waits until the daemon has stopped.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitShutdown() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * Stops accepting jobs, cancels the queued and running jobs and ends the event streams.
+     */
+    public synchronized void shutdown() {
+        if (stopped.getCount() == 0) {
+            return;
+        }
+        jobs.values().forEach(this::cancel);
+        jobExecutor.shutdownNow();
+        eventStreams.forEach(stream -> stream.offer(END_OF_EVENTS));
+        // The event streams get a second to send their last events
+        server.stop(1);
+        stopped.countDown();
+        System.out.println("The daemon has stopped");
+    }
+
+    /**
+     * Submits a job.
+     *
+     * @param input the input of the job
+     * @return the queued job
+     * @throws RuntimeException if the input is invalid
+     */
+    public HardwaresimulationJob submit(JsonNode input) {
+        if (ParameterSweep.isSweep(input)) {
+            for (SweepPoint sweepPoint : ParameterSweep.expand(input)) {
+                validator.accept(sweepPoint.getInput());
+            }
+        } else {
+            validator.accept(input);
+        }
+        HardwaresimulationJob job = new HardwaresimulationJob(nextJobId.getAndIncrement(), input);
+        jobs.put(job.getId(), job);
+        removeEndedJobs();
+        publish(job);
+        jobExecutor.execute(() -> run(job));
+        return job;
+    }
+
+    /**
+     * Gets a job.
+     *
+     * @param id the ID of the job
+     * @return the job, or null if there is no job with the ID
+     */
+    public HardwaresimulationJob getJob(long id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Cancels a job.
+     *
+     * @param job the job
+     * @return true if the job is cancelled, false if it has already ended otherwise
+     */
+    public boolean cancel(HardwaresimulationJob job) {
+        boolean wasEnded = job.isEnded();
+        boolean cancelled = job.cancel();
+        if (cancelled && !wasEnded) {
+            publish(job);
+        }
+        return cancelled;
+    }
+
+    /**
+     * Runs a job on a thread of the job executor.
+     *
+     * @param job the job
+     */
+    private void run(HardwaresimulationJob job) {
+        if (!job.start()) {
+            // Cancelled while it was queued
+            return;
+        }
+        publish(job);
+        try {
+            job.complete(ParameterSweep.isSweep(job.getInput()) ? runSweep(job) : runParser(job));
+        } catch (CancellationException e) {
+            // The job was cancelled while it was running
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            job.fail(String.valueOf(cause.getMessage()));
+        } catch (RuntimeException e) {
+            job.fail(String.valueOf(e.getMessage()));
+        }
+        if (job.getStatus() != HardwaresimulationJob.Status.CANCELLED) {
+            // A cancelled job was already published when it was cancelled
+            publish(job);
+        }
+    }
+
+    /**
+     * Runs the parser of a job in a slot of the simulations and waits for its result.
+     *
+     * @param job the running job
+     * @return the output parameters of the run
+     */
+    private JsonNode runParser(HardwaresimulationJob job) {
+        ParserInterface parser = parserFactory.apply(job.getInput());
+        if (parser == null) {
+            throw new IllegalArgumentException("Invalid value for 'commonParameters.hardwaresimulation.name' in the JSON file.");
+        }
+        try {
+            simulationSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("The job " + job.getId() + " was cancelled");
+        }
+        try {
+            CompletableFuture<SimulationResult> run = parser.parseAsync(job.getInput());
+            job.setRun(run);
+            return objectMapper.valueToTree(run.join().getOutputParameters());
+        } finally {
+            simulationSlots.release();
+        }
+    }
+
+    /**
+     * Runs the points of a parameter sweep in the slots of the simulations and reads its index.
+     * Cancelling the job cancels the parameter sweep and the runs of its points.
+     *
+     * @param job the running job of the parameter sweep
+     * @return the index of the parameter sweep
+     */
+    private JsonNode runSweep(HardwaresimulationJob job) {
+        JsonNode input = job.getInput();
+        String statsOutputPath = JsonUtil.get(input, "commonParameters.hardwaresimulation.statsOutputPath").asText();
+        SweepRunner sweepRunner = new SweepRunner(parallelism, simulationSlots, parserFactory);
+        // The job cancels this future, which cancels the parameter sweep
+        CompletableFuture<Void> sweepRun = new CompletableFuture<>();
+        sweepRun.whenComplete((ignored, error) -> {
+            if (error != null) {
+                sweepRunner.cancel();
+            }
+        });
+        job.setRun(sweepRun);
+        try {
+            sweepRunner.run(ParameterSweep.expand(input), statsOutputPath);
+        } finally {
+            sweepRun.complete(null);
+        }
+        try {
+            return objectMapper.readTree(new File(statsOutputPath, "sweepIndex.json"));
+        } catch (IOException e) {
+            throw new IllegalStateException("The sweep index cannot be read: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Removes the oldest ended jobs if more than {@link #MAX_ENDED_JOBS} are kept.
+     */
+    private void removeEndedJobs() {
+        long endedJobs = jobs.values().stream().filter(HardwaresimulationJob::isEnded).count();
+        for (HardwaresimulationJob job : jobs.values()) {
+            if (endedJobs <= MAX_ENDED_JOBS) {
+                return;
+            }
+            if (job.isEnded()) {
+                jobs.remove(job.getId());
+                endedJobs--;
+            }
+        }
+    }
+
+    /**
+     * Sends the state of a job to all event streams.
+     *
+     * @param job the job
+     */
+    private void publish(HardwaresimulationJob job) {
+        if (eventStreams.isEmpty()) {
+            return;
+        }
+        String event = job.toJson(job.getStatus() == HardwaresimulationJob.Status.COMPLETED).toString();
+        eventStreams.forEach(stream -> stream.offer(event));
+    }
+
+    /**
+     * Handles the requests of the jobs.
+     *
+     * @param exchange the request and its response
+     * @throws IOException if the response cannot be sent
+     */
+    private void handleJobs(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!authorize(exchange)) {
+                return;
+            }
+            String path = exchange.getRequestURI().getPath().replaceAll("/+$", "");
+            String method = exchange.getRequestMethod();
+            if (path.equals("/jobs")) {
+                if (method.equals("POST")) {
+                    submitJob(exchange);
+                } else if (method.equals("GET")) {
+                    ArrayNode jobList = objectMapper.createArrayNode();
+                    jobs.values().forEach(job -> jobList.add(job.toJson(false)));
+                    sendJson(exchange, 200, jobList);
+                } else {
+                    sendError(exchange, 405, "Use GET or POST for /jobs");
+                }
+                return;
+            }
+
+            HardwaresimulationJob job = getJob(exchange, path);
+            if (job == null) {
+                sendError(exchange, 404, "There is no job " + path.substring("/jobs/".length()));
+            } else if (method.equals("GET")) {
+                long waitSeconds = Math.min(MAX_WAIT_SECONDS, getWaitSeconds(exchange));
+                if (waitSeconds > 0) {
+                    job.await(TimeUnit.SECONDS.toMillis(waitSeconds));
+                }
+                sendJson(exchange, 200, job.toJson(true));
+            } else if (method.equals("DELETE")) {
+                if (cancel(job)) {
+                    sendJson(exchange, 200, job.toJson(false));
+                } else {
+                    sendError(exchange, 409, "The job " + job.getId() + " is " + job.getStatus() + " and cannot be cancelled");
+                }
+            } else {
+                sendError(exchange, 405, "Use GET or DELETE for /jobs/{id}");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Submits the job in the body of a request.
+     *
+     * @param exchange the request and its response
+     * @throws IOException if the response cannot be sent
+     */
+    private void submitJob(HttpExchange exchange) throws IOException {
+        JsonNode input;
+        try (InputStream body = exchange.getRequestBody()) {
+            input = objectMapper.readTree(body);
+        } catch (IOException e) {
+            sendError(exchange, 400, "The job is no valid JSON: " + e.getMessage());
+            return;
+        }
+        HardwaresimulationJob job;
+        try {
+            job = submit(input);
+        } catch (RuntimeException e) {
+            sendError(exchange, 400, "error: " + e.getMessage());
+            return;
+        }
+        exchange.getResponseHeaders().set("Location", "/jobs/" + job.getId());
+        sendJson(exchange, 202, job.toJson(false));
+    }
+
+    /**
+     * Streams the changes of the states of the jobs as JSON lines until the client disconnects or the daemon stops.
+     *
+     * @param exchange the request and its response
+     * @throws IOException if the response cannot be sent
+     */
+    private void handleEvents(HttpExchange exchange) throws IOException {
+        if (!authorize(exchange)) {
+            exchange.close();
+            return;
+        }
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        eventStreams.add(events);
+        try (exchange) {
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+            // A length of 0 sends the response in chunks for as long as it is written
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            while (true) {
+                String event = events.take();
+                if (event.equals(END_OF_EVENTS)) {
+                    return;
+                }
+                out.write((event + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // The client has disconnected
+        } finally {
+            eventStreams.remove(events);
+        }
+    }
+
+    /**
+     * Stops the daemon after answering the request.
+     *
+     * @param exchange the request and its response
+     * @throws IOException if the response cannot be sent
+     */
+    private void handleShutdown(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!authorize(exchange)) {
+                return;
+            }
+            if (!exchange.getRequestMethod().equals("POST")) {
+                sendError(exchange, 405, "Use POST for /shutdown");
+                return;
+            }
+            sendJson(exchange, 200, objectMapper.createObjectNode().put("status", "stopping"));
+        }
+        // The server waits for this request when it stops, so it is stopped from another thread
+        new Thread(this::shutdown, "hardwaresimulation-daemon-shutdown").start();
+    }
+
+    /**
+     * Checks that a request comes from the user of the daemon, and answers it with an error otherwise:
+     * its Host and its Origin, if it has one, are the loopback interface, it carries the token,
+     * and a POST has the Content-Type "application/json".
+     *
+     * @param exchange the request and its response
+     * @return true if the request may be handled, false if it was answered with an error
+     * @throws IOException if the error cannot be sent
+     */
+    private boolean authorize(HttpExchange exchange) throws IOException {
+        Headers headers = exchange.getRequestHeaders();
+        String host = headers.getFirst("Host");
+        if (host == null || !isLoopback(host)) {
+            sendError(exchange, 403, "The Host of a request must be the loopback interface");
+            return false;
+        }
+        String origin = headers.getFirst("Origin");
+        if (origin != null && !isLoopbackOrigin(origin)) {
+            sendError(exchange, 403, "The Origin of a request must be the loopback interface");
+            return false;
+        }
+        String authorization = headers.getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")
+                || !MessageDigest.isEqual(token, authorization.substring("Bearer ".length()).trim().getBytes(StandardCharsets.UTF_8))) {
+            exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+            sendError(exchange, 401, "A request must carry the token of the daemon as \"Authorization: Bearer <token>\"");
+            return false;
+        }
+        String contentType = headers.getFirst("Content-Type");
+        if (exchange.getRequestMethod().equals("POST")
+                && (contentType == null || !contentType.split(";", 2)[0].trim().equalsIgnoreCase("application/json"))) {
+            sendError(exchange, 415, "The Content-Type of a POST must be application/json");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the value of a Host header names the loopback interface, with or without a port.
+     *
+     * @param host the value of the Host header
+     * @return true if the host is the loopback interface, otherwise false
+     */
+    private static boolean isLoopback(String host) {
+        String hostName = host.trim().toLowerCase(Locale.ROOT);
+        int portSeparator = hostName.lastIndexOf(':');
+        if (portSeparator > hostName.lastIndexOf(']')) {
+            hostName = hostName.substring(0, portSeparator);
+        }
+        return LOOPBACK_HOSTS.contains(hostName);
+    }
+
+    /**
+     * Checks whether the value of an Origin header is a page that the loopback interface serves over HTTP.
+     *
+     * @param origin the value of the Origin header
+     * @return true if the origin is the loopback interface, otherwise false
+     */
+    private static boolean isLoopbackOrigin(String origin) {
+        String lowerCaseOrigin = origin.trim().toLowerCase(Locale.ROOT);
+        return lowerCaseOrigin.startsWith("http://") && isLoopback(lowerCaseOrigin.substring("http://".length()));
+    }
+
+    private HardwaresimulationJob getJob(HttpExchange exchange, String path) {
+        try {
+            return jobs.get(Long.parseLong(path.substring("/jobs/".length())));
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the "wait" parameter of the query of a request.
+     *
+     * @param exchange the request
+     * @return the seconds to wait, 0 if the parameter is missing or invalid
+     */
+    private static long getWaitSeconds(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query == null) {
+            return 0;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("wait=")) {
+                try {
+                    return Math.max(0, Long.parseLong(parameter.substring("wait=".length())));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        ObjectNode error = objectMapper.createObjectNode();
+        error.put("error", message);
+        sendJson(exchange, status, error);
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, JsonNode json) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(json);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    /**
+     * Creates daemon threads, which do not keep the program alive once the daemon has stopped.
+     *
+     * @param namePrefix the prefix of the names of the threads
+     * @return the thread factory
+     */
+    private static ThreadFactory daemonThreads(String namePrefix) {
+        AtomicLong threadNumber = new AtomicLong();
+        return task -> {
+            Thread thread = new Thread(task, namePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
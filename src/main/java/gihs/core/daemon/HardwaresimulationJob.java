@@ -0,0 +1,209 @@
+package gihs.core.daemon;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The HardwaresimulationJob class is one run that a client has submitted to the daemon: a single hardware simulation,
+ * a comparison or a parameter sweep, described by the same JSON input as a run from the command line.
+ * <p>
+ * A job is queued until the daemon has a free slot, then running, and finally completed, failed or cancelled.
+ */
+public class HardwaresimulationJob {
+
+    /**
+     * The states of a job.
+     */
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    private final long id;
+    private final JsonNode input;
+    private final long submittedMillis = System.currentTimeMillis();
+    private long startedMillis;
+    private long endedMillis;
+    private Status status = Status.QUEUED;
+    private JsonNode result;
+    private String error;
+
+    /**
+     * The run of the parser or of the parameter sweep of the running job, or null.
+     */
+    private CompletableFuture<?> run;
+
+    /**
+     * The future that completes when the job has ended, in any state.
+     */
+    private final CompletableFuture<Status> ended = new CompletableFuture<>();
+
+    /**
+     * Constructs a queued job.
+     *
+     * @param id    the ID of the job
+     * @param input the validated input of the job
+     */
+    HardwaresimulationJob(long id, JsonNode input) {
+        this.id = id;
+        this.input = input;
+    }
+
+    /**
+     * Gets the ID of the job.
+     *
+     * @return the ID
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the input of the job.
+     *
+     * @return the input
+     */
+    public JsonNode getInput() {
+        return input;
+    }
+
+    /**
+     * Gets the state of the job.
+     *
+     * @return the state
+     */
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Checks whether the job has ended.
+     *
+     * @return true if the job is completed, failed or cancelled, otherwise false
+     */
+    public synchronized boolean isEnded() {
+        return status != Status.QUEUED && status != Status.RUNNING;
+    }
+
+    /**
+     * Starts the job, unless it was cancelled while it was queued.
+     *
+     * @return true if the job is running now, otherwise false
+     */
+    synchronized boolean start() {
+        if (status != Status.QUEUED) {
+            return false;
+        }
+        status = Status.RUNNING;
+        startedMillis = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * Sets the run of the parser or of the parameter sweep of the running job, which is cancelled with the job.
+     *
+     * @param run the run of the parser or of the parameter sweep
+     */
+    synchronized void setRun(CompletableFuture<?> run) {
+        this.run = run;
+        if (status == Status.CANCELLED) {
+            run.cancel(true);
+        }
+    }
+
+    /**
+     * Completes the running job.
+     *
+     * @param result the result of the job
+     */
+    synchronized void complete(JsonNode result) {
+        if (status == Status.RUNNING) {
+            this.result = result;
+            end(Status.COMPLETED);
+        }
+    }
+
+    /**
+     * Fails the running job.
+     *
+     * @param error the error message
+     */
+    synchronized void fail(String error) {
+        if (status == Status.RUNNING) {
+            this.error = error;
+            end(Status.FAILED);
+        }
+    }
+
+    /**
+     * Cancels the job if it is queued or running.
+     *
+     * @return true if the job is cancelled, otherwise false
+     */
+    synchronized boolean cancel() {
+        if (status == Status.CANCELLED) {
+            return true;
+        }
+        if (status == Status.QUEUED || status == Status.RUNNING) {
+            if (run != null) {
+                run.cancel(true);
+            }
+            end(Status.CANCELLED);
+            return true;
+        }
+        return false;
+    }
+
+    private void end(Status endStatus) {
+        status = endStatus;
+        endedMillis = System.currentTimeMillis();
+        run = null;
+        ended.complete(endStatus);
+    }
+
+    /**
+     * Waits until the job has ended or the timeout has elapsed.
+     *
+     * @param timeoutMillis the maximum time to wait in milliseconds
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void await(long timeoutMillis) throws InterruptedException {
+        try {
+            ended.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // The job has not ended yet, its state is reported as it is
+        }
+    }
+
+    /**
+     * Creates the JSON of the job, for example
+     * {"id": 7, "status": "COMPLETED", "submitted": ..., "started": ..., "ended": ..., "result": {...}}.
+     *
+     * @param withResult whether the result of a completed job is included
+     * @return the JSON of the job
+     */
+    public synchronized ObjectNode toJson(boolean withResult) {
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        json.put("id", id);
+        json.put("status", status.name());
+        json.put("submitted", submittedMillis);
+        if (startedMillis != 0) {
+            json.put("started", startedMillis);
+        }
+        if (endedMillis != 0) {
+            json.put("ended", endedMillis);
+        }
+        if (error != null) {
+            json.put("error", error);
+        }
+        if (withResult && result != null) {
+            json.set("result", result);
+        }
+        return json;
+    }
+}
@@ -2,8 +2,19 @@ package gihs.core.generalInterfaceHardwaresimulation;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import gihs.core.comparison.ComparisonParser;
+import gihs.core.daemon.HardwaresimulationDaemon;
+import gihs.core.parser.HardwaresimulationException;
 import gihs.core.parser.ParserInterface;
 import gihs.core.managementOFJsonNodeALL.JsonUtil;
+import gihs.core.managementOfDockerfiles.HardwaresimulationContainerPool;
+import gihs.core.managementOfDockerfiles.HardwaresimulationImageIndex;
+import gihs.core.managementOfDockerfiles.HardwaresimulationResourceScheduler;
+import gihs.core.managementOfResultCache.HardwaresimulationResultCache;
+import gihs.core.managementOfResultStore.HardwaresimulationResultStore;
+import gihs.core.sweep.ParameterSweep;
+import gihs.core.sweep.SweepPoint;
+import gihs.core.sweep.SweepRunner;
 import gihs.gem5.parser.Gem5Parser;
 import gihs.sniper.parser.SniperParser;
 import gihs.zsim.parser.ZsimParser;
@@ -17,8 +28,11 @@ import org.apache.commons.io.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The main class for the general interface of hardware simulation.
@@ -77,19 +91,65 @@ public class GeneralInterfaceHardwaresimulation {
     /**
      * Runs the simulation based on the provided command line arguments.
      * Executes various actions depending on the hardware simulation name.
+     * If the hardware simulation name is a list, the hardware simulations are run in parallel and compared.
+     * If the JSON file contains swept parameters, every point of the parameter sweep is simulated.
+     * In daemon mode, the runs are submitted over HTTP instead, until the daemon is stopped.
      *
      * @param optionsCommandLine The command line arguments.
      *                           Possible options include:
-     *                           -help             Display help
-     *                           -jsonFile <arg>   Path to the JSON file
+     *                           -help               Display help
+     *                           -jsonFile <arg>     Path to the JSON file
+     *                           -daemon             Accept runs over HTTP on the loopback interface instead of a JSON file
+     *                           -port <arg>         Port of the daemon
+     *                           -parallelism <arg>  Maximum number of concurrent simulations of a parameter sweep
+     *                           -poolMinSize <arg>  Minimum number of warm containers per hardware simulation image
+     *                           -poolMaxSize <arg>  Maximum number of containers per hardware simulation image
+     *                           -poolIdleTimeout <arg> Seconds after which an idle container above the minimum is removed
+     *                           -imageIndexTtl <arg> Seconds for which the ID of a hardware simulation image is cached
+     *                           -resultCache <arg>  Directory of the result cache
+     *                           -resultCacheMaxSize <arg> Maximum size of the result cache in MiB, 0 disables the cache
+     *                           -resultStore <arg>  Directory of the result store that every run is appended to
+     *                           -hostCpus <arg>     Number of CPUs that the hardware simulations may use together
+     *                           -hostMemory <arg>   Memory in MiB that the hardware simulations may use together
+     *                           -footprints <arg>   JSON file with the CPUs and the memory of a run per hardware simulation image
      */
     public static void simulationRun(String[] optionsCommandLine) {
         String jsonFilePath;
         JsonNode jsonFileRootNode = null;
+        List<SweepPoint> sweepPoints = null;
+        int parallelism;
+        Integer daemonPort = null;
+        String daemonTokenFile = null;
         try {
-            jsonFilePath = getJsonFilePath(optionsCommandLine);
-            jsonFileRootNode = getJsonFileRootNode(jsonFilePath);
-            JsonUtil.validateJsonInput(jsonFileRootNode, requiredParameters);
+            CommandLine commandLine = getCommandLine(optionsCommandLine);
+            if (commandLine.hasOption("daemon")) {
+                daemonPort = getIntOption(commandLine, "port", HardwaresimulationDaemon.DEFAULT_PORT);
+                daemonTokenFile = commandLine.getOptionValue("daemonToken", "../resources/daemonToken");
+            }
+            jsonFilePath = daemonPort != null ? null : getJsonFilePath(commandLine);
+            parallelism = getParallelism(commandLine);
+            HardwaresimulationContainerPool.configure(
+                    getIntOption(commandLine, "poolMinSize", 0),
+                    getIntOption(commandLine, "poolMaxSize", parallelism),
+                    getIntOption(commandLine, "poolIdleTimeout", 60));
+            HardwaresimulationImageIndex.getInstance().setTimeToLive(getIntOption(commandLine, "imageIndexTtl", 60), TimeUnit.SECONDS);
+            HardwaresimulationResultCache.configure(
+                    commandLine.getOptionValue("resultCache", "../resources/resultCache"),
+                    getIntOption(commandLine, "resultCacheMaxSize", 512) * 1024L * 1024L);
+            HardwaresimulationResultStore.configure(commandLine.getOptionValue("resultStore"));
+            HardwaresimulationResourceScheduler.configure(
+                    getIntOption(commandLine, "hostCpus", 0),
+                    getIntOption(commandLine, "hostMemory", 0) * 1024L * 1024L,
+                    commandLine.getOptionValue("footprints"));
+            // Reads the footprints now, so that an invalid footprint file is reported before any run
+            HardwaresimulationResourceScheduler.getInstance();
+            if (daemonPort == null) {
+                jsonFileRootNode = getJsonFileRootNode(jsonFilePath);
+                sweepPoints = ParameterSweep.expand(jsonFileRootNode);
+                for (SweepPoint sweepPoint : sweepPoints) {
+                    validateInput(sweepPoint.getInput());
+                }
+            }
         } catch (ArithmeticException e) {
             System.err.println("error: " + e.getMessage());
             return; // Exit the method if validation fails
@@ -98,15 +158,21 @@ public class GeneralInterfaceHardwaresimulation {
             return; // Exit the method if validation fails
         }
 
-        String hardwareSimulationName = getHardwareSimulationName(jsonFileRootNode);
+        if (daemonPort != null) {
+            runDaemon(daemonPort, parallelism, daemonTokenFile);
+            return;
+        }
 
-        Map<String, ParserInterface> parserMap = new HashMap<>();
-        parserMap.put("gem5", new Gem5Parser());
-        parserMap.put("sniper", new SniperParser());
-        parserMap.put("zsim", new ZsimParser());
+        if (ParameterSweep.isSweep(jsonFileRootNode)) {
+            // Run every point of the parameter sweep, each with its own parser
+            String statsOutputPath = JsonUtil.get(jsonFileRootNode, "commonParameters.hardwaresimulation.statsOutputPath").asText();
+            new SweepRunner(parallelism, GeneralInterfaceHardwaresimulation::createParser)
+                    .run(sweepPoints, statsOutputPath);
+            return;
+        }
 
-        // Get the parser strategy from the map based on the hardware simulation name.
-        ParserInterface parserStrategy = parserMap.get(hardwareSimulationName);
+        // Get the parser strategy based on the hardware simulation name.
+        ParserInterface parserStrategy = createParser(jsonFileRootNode);
 
         // Check if a valid parser strategy was found.
         if (parserStrategy != null) {
@@ -115,6 +181,9 @@ public class GeneralInterfaceHardwaresimulation {
                 parserStrategy.parse(jsonFileRootNode);
             } catch (NullPointerException e) {
                 System.err.println(e);
+            } catch (HardwaresimulationException e) {
+                System.err.println(e.getMessage());
+                System.exit(1);
             }
         } else {
             // If the hardware simulation name is not recognized, print an error message.
@@ -123,27 +192,127 @@ public class GeneralInterfaceHardwaresimulation {
     }
 
     /**
-     * Retrieves the path to the JSON file from the command line options.
+     * Runs the daemon until it is stopped with POST /shutdown or the thread is interrupted.
      *
-     * @param inputOptions The command line arguments.
-     * @return The path to the JSON file, or null if not specified.
+     * @param port        The port of the daemon.
+     * @param parallelism The maximum number of jobs that run at the same time.
+     * @param tokenFile   The file of the token that the requests to the daemon must carry.
      */
-    private static String getJsonFilePath(String[] inputOptions) {
-        String jsonFilePath = null;
-        Options options = createOptions();
+    private static void runDaemon(int port, int parallelism, String tokenFile) {
+        HardwaresimulationDaemon daemon;
+        try {
+            daemon = new HardwaresimulationDaemon(port, parallelism, GeneralInterfaceHardwaresimulation::createParser,
+                    GeneralInterfaceHardwaresimulation::validateInput, Paths.get(tokenFile));
+        } catch (IOException e) {
+            System.err.println("error: the daemon cannot start on port " + port + ": " + e.getMessage());
+            return;
+        }
+        daemon.start();
+        try {
+            daemon.awaitShutdown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            daemon.shutdown();
+        }
+    }
 
-        CommandLineParser parser = new DefaultParser();
+    /**
+     * Checks that an input has all required parameters and valid values for its hardware simulation.
+     *
+     * @param input The input of the run.
+     * @throws ArithmeticException if a required parameter is missing or a value is invalid.
+     */
+    private static void validateInput(JsonNode input) {
+        JsonUtil.validateJsonInput(input, requiredParameters);
+        ParserInterface parser = createParser(input);
+        if (parser != null) {
+            parser.validate(input);
+        }
+    }
 
-        CommandLine cmd = null;
+    /**
+     * Creates a new parser strategy for an input: a comparison if the hardware simulation name is a list,
+     * otherwise the parser of the hardware simulation.
+     *
+     * @param input The input of the run.
+     * @return The parser strategy, or null if the hardware simulation name is not recognized.
+     */
+    private static ParserInterface createParser(JsonNode input) {
+        if (ComparisonParser.isComparison(input)) {
+            return new ComparisonParser(hardwareSimulationName -> createParserMap().get(hardwareSimulationName));
+        }
+        return createParserMap().get(getHardwareSimulationName(input));
+    }
+
+    /**
+     * Creates a new map of the parser strategies, keyed by the hardware simulation name.
+     *
+     * @return The map of the parser strategies.
+     */
+    private static Map<String, ParserInterface> createParserMap() {
+        Map<String, ParserInterface> parserMap = new HashMap<>();
+        parserMap.put("gem5", new Gem5Parser());
+        parserMap.put("sniper", new SniperParser());
+        parserMap.put("zsim", new ZsimParser());
+        return parserMap;
+    }
+
+    /**
+     * Parses the command line options.
+     *
+     * @param inputOptions The command line arguments.
+     * @return The parsed command line.
+     */
+    private static CommandLine getCommandLine(String[] inputOptions) {
+        CommandLineParser parser = new DefaultParser();
         try {
-            cmd = parser.parse(options, inputOptions);
+            return parser.parse(createOptions(), inputOptions);
         } catch (ParseException e) {
             throw new RuntimeException(e);
         }
+    }
+
+    /**
+     * Retrieves the maximum number of concurrent simulations of a parameter sweep from the command line options.
+     *
+     * @param cmd The parsed command line.
+     * @return The parallelism, or the number of available processors if not specified.
+     */
+    private static int getParallelism(CommandLine cmd) {
+        return getIntOption(cmd, "parallelism", Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Retrieves an integer value from the command line options.
+     *
+     * @param cmd          The parsed command line.
+     * @param option       The name of the option.
+     * @param defaultValue The value to use if the option is not specified.
+     * @return The value of the option, or the default value if not specified.
+     */
+    private static int getIntOption(CommandLine cmd, String option, int defaultValue) {
+        if (!cmd.hasOption(option)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(cmd.getOptionValue(option));
+        } catch (NumberFormatException e) {
+            throw new ArithmeticException("\"" + cmd.getOptionValue(option) + "\" is not a valid value for " + option + ".");
+        }
+    }
+
+    /**
+     * Retrieves the path to the JSON file from the command line options.
+     *
+     * @param cmd The parsed command line.
+     * @return The path to the JSON file, or null if not specified.
+     */
+    private static String getJsonFilePath(CommandLine cmd) {
+        String jsonFilePath = null;
 
         if (cmd.hasOption("help")) {
             try {
-                printHelp(options);
+                printHelp(createOptions());
             } catch (RuntimeException e) {
                 throw new RuntimeException(e);
             }
@@ -204,8 +373,21 @@ public class GeneralInterfaceHardwaresimulation {
     /**
      * Creates the command line options for the program.
      * Possible options include:
-     * -help             Display help
-     * -jsonFile <arg>   Path to the JSON file
+     * -help               Display help
+     * -jsonFile <arg>     Path to the JSON file
+     * -daemon             Accept runs over HTTP on the loopback interface instead of a JSON file
+     * -port <arg>         Port of the daemon
+     * -parallelism <arg>  Maximum number of concurrent simulations of a parameter sweep
+     * -poolMinSize <arg>  Minimum number of warm containers per hardware simulation image
+     * -poolMaxSize <arg>  Maximum number of containers per hardware simulation image
+     * -poolIdleTimeout <arg> Seconds after which an idle container above the minimum is removed
+     * -imageIndexTtl <arg> Seconds for which the ID of a hardware simulation image is cached
+     * -resultCache <arg>  Directory of the result cache
+     * -resultCacheMaxSize <arg> Maximum size of the result cache in MiB, 0 disables the cache
+     * -resultStore <arg>  Directory of the result store that every run is appended to
+     * -hostCpus <arg>     Number of CPUs that the hardware simulations may use together
+     * -hostMemory <arg>   Memory in MiB that the hardware simulations may use together
+     * -footprints <arg>   JSON file with the CPUs and the memory of a run per hardware simulation image
      *
      * @return the Options object containing the command line options
      */
@@ -213,6 +395,20 @@ public class GeneralInterfaceHardwaresimulation {
         Options options = new Options();
         options.addOption("jsonFile", true, "Path to the JSON file");
         options.addOption("help", false, "Display help");
+        options.addOption("daemon", false, "Accept runs over HTTP on the loopback interface instead of a JSON file");
+        options.addOption("port", true, "Port of the daemon");
+        options.addOption("daemonToken", true, "File of the token that the requests to the daemon must carry, created if it does not exist");
+        options.addOption("parallelism", true, "Maximum number of concurrent simulations of a parameter sweep");
+        options.addOption("poolMinSize", true, "Minimum number of warm containers per hardware simulation image");
+        options.addOption("poolMaxSize", true, "Maximum number of containers per hardware simulation image");
+        options.addOption("poolIdleTimeout", true, "Seconds after which an idle container above the minimum is removed");
+        options.addOption("imageIndexTtl", true, "Seconds for which the ID of a hardware simulation image is cached");
+        options.addOption("resultCache", true, "Directory of the result cache");
+        options.addOption("resultCacheMaxSize", true, "Maximum size of the result cache in MiB, 0 disables the cache");
+        options.addOption("resultStore", true, "Directory of the result store that every run is appended to");
+        options.addOption("hostCpus", true, "Number of CPUs that the hardware simulations may use together");
+        options.addOption("hostMemory", true, "Memory in MiB that the hardware simulations may use together");
+        options.addOption("footprints", true, "JSON file with the CPUs and the memory of a run per hardware simulation image");
         return options;
     }
 
@@ -257,5 +453,11 @@ public class GeneralInterfaceHardwaresimulation {
         // Output the execution time
         System.out.println("Execution time: " + executionTime + " nanoseconds");
 
+        // Output the hit rate and the lookup latency of the image index
+        System.out.println(HardwaresimulationImageIndex.getInstance());
+
+        // Output the hits and misses of the result cache
+        System.out.println(HardwaresimulationResultCache.getInstance());
+
     }
 }
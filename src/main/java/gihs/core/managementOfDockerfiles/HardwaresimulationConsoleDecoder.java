@@ -0,0 +1,133 @@
+package gihs.core.managementOfDockerfiles;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The HardwaresimulationConsoleDecoder class decodes the UTF-8 output of a command into lines.
+ * <p>
+ * The output arrives in frames that may end in the middle of a multi-byte character or a line,
+ * so incomplete characters and the incomplete last line are kept until the next frame arrives.
+ */
+class HardwaresimulationConsoleDecoder {
+
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    /**
+     * The bytes that have not been decoded yet, in read mode.
+     */
+    private ByteBuffer pendingBytes = ByteBuffer.allocate(0);
+
+    private final CharBuffer decodedChars = CharBuffer.allocate(8192);
+
+    /**
+     * The incomplete line that has not been terminated yet.
+     */
+    private final StringBuilder currentLine = new StringBuilder();
+
+    private final HardwaresimulationConsoleListener listener;
+
+    /**
+     * Whether the listener has requested to abort the command.
+     */
+    private boolean aborted;
+
+    /**
+     * Constructs a HardwaresimulationConsoleDecoder that passes every complete line to the listener.
+     *
+     * @param listener The listener that receives the lines.
+     */
+    HardwaresimulationConsoleDecoder(HardwaresimulationConsoleListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Decodes the payload of a frame and passes every line it completes to the listener.
+     *
+     * @param payload The payload of the frame.
+     * @return True if the listener has requested to abort the command, otherwise false.
+     */
+    boolean decode(byte[] payload) {
+        ByteBuffer input;
+        if (pendingBytes.hasRemaining()) {
+            input = ByteBuffer.allocate(pendingBytes.remaining() + payload.length);
+            input.put(pendingBytes).put(payload).flip();
+        } else {
+            input = ByteBuffer.wrap(payload);
+        }
+
+        // Decode until only an incomplete character is left, emptying the character buffer whenever it is full
+        CoderResult result;
+        do {
+            result = decoder.decode(input, decodedChars, false);
+            decodedChars.flip();
+            splitLines();
+            decodedChars.clear();
+        } while (result.isOverflow() && !aborted);
+        pendingBytes = input.hasRemaining() ? ByteBuffer.wrap(copyRemaining(input)) : ByteBuffer.allocate(0);
+        return aborted;
+    }
+
+    /**
+     * Passes the incomplete last line to the listener once the command has finished.
+     *
+     * @return True if the listener has requested to abort the command, otherwise false.
+     */
+    boolean finish() {
+        if (!aborted) {
+            decoder.decode(pendingBytes, decodedChars, true);
+            decoder.flush(decodedChars);
+            decodedChars.flip();
+            splitLines();
+            decodedChars.clear();
+            if (!aborted && currentLine.length() > 0) {
+                emitLine();
+            }
+        }
+        return aborted;
+    }
+
+    /**
+     * Appends the decoded characters to the current line and emits every completed line.
+     */
+    private void splitLines() {
+        while (decodedChars.hasRemaining() && !aborted) {
+            char c = decodedChars.get();
+            if (c == '\n') {
+                emitLine();
+            } else {
+                currentLine.append(c);
+            }
+        }
+    }
+
+    /**
+     * Passes the current line without a trailing carriage return to the listener.
+     */
+    private void emitLine() {
+        int length = currentLine.length();
+        if (length > 0 && currentLine.charAt(length - 1) == '\r') {
+            currentLine.setLength(length - 1);
+        }
+        aborted = listener.onLine(currentLine.toString());
+        currentLine.setLength(0);
+    }
+
+    /**
+     * Copies the remaining bytes of a buffer.
+     *
+     * @param buffer The buffer to copy from.
+     * @return The remaining bytes.
+     */
+    private static byte[] copyRemaining(ByteBuffer buffer) {
+        byte[] remaining = new byte[buffer.remaining()];
+        buffer.get(remaining);
+        return remaining;
+    }
+}
@@ -0,0 +1,17 @@
+package gihs.core.managementOfDockerfiles;
+
+/**
+ * The HardwaresimulationConsoleListener interface receives the output of a command in the hardware simulation
+ * console line by line, while the command is still running.
+ */
+@FunctionalInterface
+public interface HardwaresimulationConsoleListener {
+
+    /**
+     * Handles a complete line of the command output, without its line terminator.
+     *
+     * @param line The line of the command output.
+     * @return True if the command should be aborted, otherwise false.
+     */
+    boolean onLine(String line);
+}
@@ -0,0 +1,328 @@
+package gihs.core.managementOfDockerfiles;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The HardwaresimulationContainerPool class keeps pre-started hardwaresimulation containers for every image.
+ * <p>
+ * A run leases a running container instead of creating and starting a new one, and returns it after its
+ * working directories have been cleaned. Idle containers above the minimum size are removed after the idle timeout,
+ * and containers are checked to be running before they are leased and while they are idle.
+ */
+public class HardwaresimulationContainerPool {
+
+    /**
+     * The single instance of the pool that is shared by all parsers.
+     */
+    private static HardwaresimulationContainerPool instance;
+
+    /**
+     * The minimum number of containers that are kept per image once the image has been used.
+     */
+    private static int minSize = 0;
+
+    /**
+     * The maximum number of containers per image, leased and idle together.
+     */
+    private static int maxSize = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The time in seconds after which an idle container above the minimum size is removed.
+     */
+    private static long idleTimeoutSeconds = 60;
+
+    /**
+     * The instance of the HardwaresimulationDocker class for creating, checking and removing containers.
+     */
+    private final HardwaresimulationDocker docker;
+
+    /**
+     * The pools of containers, keyed by the image name.
+     */
+    private final Map<String, ImagePool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * The executor that periodically evicts idle containers and checks their health.
+     */
+    private final ScheduledExecutorService maintenance;
+
+    /**
+     * Whether the pool has been shut down.
+     */
+    private volatile boolean shutdown;
+
+    /**
+     * The pool of containers of a single image.
+     */
+    private static class ImagePool {
+        /**
+         * The idle containers, the most recently returned container first.
+         */
+        private final Deque<IdleContainer> idleContainers = new ArrayDeque<>();
+
+        /**
+         * The number of containers of the image, leased and idle together.
+         */
+        private int size;
+    }
+
+    /**
+     * An idle container together with the time it was returned to the pool.
+     */
+    private static class IdleContainer {
+        private final String containerId;
+        private final long idleSinceNanos;
+
+        private IdleContainer(String containerId) {
+            this.containerId = containerId;
+            this.idleSinceNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Constructs the HardwaresimulationContainerPool and starts the periodic maintenance.
+     * All containers of the pool are removed when the JVM shuts down.
+     */
+    private HardwaresimulationContainerPool() {
+        this.docker = new HardwaresimulationDocker();
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hardwaresimulation-container-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, idleTimeoutSeconds / 2);
+        maintenance.scheduleWithFixedDelay(this::maintain, period, period, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
+    }
+
+    /**
+     * Configures the size and the idle timeout of the pool. Must be called before the pool is used.
+     *
+     * @param minSize            the minimum number of containers that are kept per image
+     * @param maxSize            the maximum number of containers per image
+     * @param idleTimeoutSeconds the time in seconds after which an idle container above the minimum size is removed
+     */
+    public static synchronized void configure(int minSize, int maxSize, long idleTimeoutSeconds) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize || idleTimeoutSeconds < 0) {
+            throw new ArithmeticException("the container pool needs 0 <= minSize <= maxSize, 1 <= maxSize and idleTimeout >= 0");
+        }
+        if (instance != null) {
+            throw new IllegalStateException("the container pool is already in use and cannot be configured anymore");
+        }
+        HardwaresimulationContainerPool.minSize = minSize;
+        HardwaresimulationContainerPool.maxSize = maxSize;
+        HardwaresimulationContainerPool.idleTimeoutSeconds = idleTimeoutSeconds;
+    }
+
+    /**
+     * Gets the single instance of the pool, creating it on first use.
+     *
+     * @return the instance of the pool
+     */
+    public static synchronized HardwaresimulationContainerPool getInstance() {
+        if (instance == null) {
+            instance = new HardwaresimulationContainerPool();
+        }
+        return instance;
+    }
+
+    /**
+     * Leases a running container of the given image.
+     * An idle container is reused if one is available, otherwise a new container is created and started.
+     * If the maximum size is reached, the call waits until a container is returned.
+     *
+     * @param imageName the name of the hardwaresimulation image
+     * @return the ID of the leased container
+     */
+    public String lease(String imageName) {
+        ImagePool pool = pools.computeIfAbsent(imageName, name -> new ImagePool());
+        while (true) {
+            IdleContainer idleContainer;
+            synchronized (pool) {
+                while (pool.idleContainers.isEmpty() && pool.size >= maxSize) {
+                    try {
+                        pool.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while waiting for a container of " + imageName, e);
+                    }
+                }
+                idleContainer = pool.idleContainers.pollFirst();
+                if (idleContainer == null) {
+                    pool.size++;
+                }
+            }
+
+            if (idleContainer == null) {
+                return startContainer(imageName, pool);
+            }
+            // Health check before the container is handed out
+            if (docker.isContainerRunning(idleContainer.containerId)) {
+                return idleContainer.containerId;
+            }
+            removeContainer(pool, idleContainer.containerId);
+        }
+    }
+
+    /**
+     * Returns a leased container to the pool.
+     * The container is removed instead if it is not running anymore or the pool has been shut down.
+     *
+     * @param imageName   the name of the hardwaresimulation image
+     * @param containerId the ID of the leased container
+     */
+    public void release(String imageName, String containerId) {
+        ImagePool pool = pools.get(imageName);
+        if (pool == null) {
+            return;
+        }
+        if (shutdown || !docker.isContainerRunning(containerId)) {
+            removeContainer(pool, containerId);
+            return;
+        }
+        synchronized (pool) {
+            pool.idleContainers.addFirst(new IdleContainer(containerId));
+            pool.notifyAll();
+        }
+    }
+
+    /**
+     * Removes a leased container instead of returning it, for example after a run that was aborted.
+     *
+     * @param imageName   the name of the hardwaresimulation image
+     * @param containerId the ID of the leased container
+     */
+    public void invalidate(String imageName, String containerId) {
+        ImagePool pool = pools.get(imageName);
+        if (pool != null) {
+            removeContainer(pool, containerId);
+        }
+    }
+
+    /**
+     * Removes all idle containers and stops the maintenance. Leased containers are removed when they are returned.
+     */
+    public void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        maintenance.shutdownNow();
+        pools.values().forEach(pool -> {
+            List<IdleContainer> idleContainers;
+            synchronized (pool) {
+                idleContainers = new ArrayList<>(pool.idleContainers);
+                pool.idleContainers.clear();
+            }
+            idleContainers.forEach(idleContainer -> removeContainer(pool, idleContainer.containerId));
+        });
+    }
+
+    /**
+     * Creates and starts a new container for a slot that has already been counted in the pool size.
+     *
+     * @param imageName the name of the hardwaresimulation image
+     * @param pool      the pool of the image
+     * @return the ID of the started container
+     */
+    private String startContainer(String imageName, ImagePool pool) {
+        try {
+            String containerId = docker.createContainer(imageName);
+            docker.startHardwaresimulationContainer(containerId);
+            return containerId;
+        } catch (RuntimeException e) {
+            synchronized (pool) {
+                pool.size--;
+                pool.notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stops and deletes a container and frees its slot in the pool.
+     *
+     * @param pool        the pool of the image
+     * @param containerId the ID of the container
+     */
+    private void removeContainer(ImagePool pool, String containerId) {
+        try {
+            docker.deleteDockerHardwaresimulation(containerId);
+        } catch (RuntimeException e) {
+            System.err.println("Error while removing the container " + containerId + ": " + e.getMessage());
+        }
+        synchronized (pool) {
+            pool.size--;
+            pool.notifyAll();
+        }
+    }
+
+    /**
+     * Evicts idle containers above the minimum size, removes idle containers that are not running anymore
+     * and starts containers until every used image has its minimum size again.
+     */
+    private void maintain() {
+        long idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+        pools.forEach((imageName, pool) -> {
+            try {
+                List<String> candidates = new ArrayList<>();
+                synchronized (pool) {
+                    Iterator<IdleContainer> oldestFirst = pool.idleContainers.descendingIterator();
+                    int removable = pool.size - minSize;
+                    while (oldestFirst.hasNext()) {
+                        IdleContainer idleContainer = oldestFirst.next();
+                        if (removable > 0 && System.nanoTime() - idleContainer.idleSinceNanos >= idleTimeoutNanos) {
+                            oldestFirst.remove();
+                            candidates.add(idleContainer.containerId);
+                            removable--;
+                        }
+                    }
+                }
+                candidates.forEach(containerId -> removeContainer(pool, containerId));
+
+                // Health check of the remaining idle containers
+                List<IdleContainer> idleContainers;
+                synchronized (pool) {
+                    idleContainers = new ArrayList<>(pool.idleContainers);
+                }
+                for (IdleContainer idleContainer : idleContainers) {
+                    if (!docker.isContainerRunning(idleContainer.containerId)) {
+                        boolean stillIdle;
+                        synchronized (pool) {
+                            stillIdle = pool.idleContainers.remove(idleContainer);
+                        }
+                        if (stillIdle) {
+                            removeContainer(pool, idleContainer.containerId);
+                        }
+                    }
+                }
+
+                // Keep the minimum number of warm containers
+                while (!shutdown) {
+                    synchronized (pool) {
+                        if (pool.size >= minSize) {
+                            break;
+                        }
+                        pool.size++;
+                    }
+                    String containerId = startContainer(imageName, pool);
+                    synchronized (pool) {
+                        pool.idleContainers.addLast(new IdleContainer(containerId));
+                        pool.notifyAll();
+                    }
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Error while maintaining the container pool of " + imageName + ": " + e.getMessage());
+            }
+        });
+    }
+}
@@ -1,24 +1,26 @@
 package gihs.core.managementOfDockerfiles;
 
 import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.command.BuildImageCmd;
 import com.github.dockerjava.api.command.BuildImageResultCallback;
-import com.github.dockerjava.api.command.CopyArchiveFromContainerCmd;
 import com.github.dockerjava.api.command.CreateContainerResponse;
 import com.github.dockerjava.api.command.InspectImageResponse;
 import com.github.dockerjava.api.command.RemoveContainerCmd;
 import com.github.dockerjava.api.command.StopContainerCmd;
 import com.github.dockerjava.api.exception.InternalServerErrorException;
+import com.github.dockerjava.api.exception.NotFoundException;
 import com.github.dockerjava.api.model.BuildResponseItem;
 import com.github.dockerjava.api.model.Frame;
 import com.github.dockerjava.api.model.HostConfig;
-import com.github.dockerjava.api.model.Image;
+import com.github.dockerjava.api.model.StreamType;
 import com.github.dockerjava.core.DefaultDockerClientConfig;
 import com.github.dockerjava.core.DockerClientImpl;
-import com.github.dockerjava.core.command.ExecStartResultCallback;
 import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
 import com.github.dockerjava.transport.DockerHttpClient;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 
 
 import java.io.File;
@@ -26,16 +28,33 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.List;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Implementation of the HardwaresimulationDocker class.
  *
  */
 public class HardwaresimulationDocker {
+    /**
+     * The label of an image that stores the SHA-256 hash of the Dockerfile it was built from.
+     */
+    public static final String DOCKERFILE_HASH_LABEL = "gihs.dockerfile.sha256";
+
+    /**
+     * The Docker client that all instances share. It is thread-safe and keeps a pool of HTTP connections,
+     * so creating a parser or a long-running process does not create a new client per instance.
+     */
+    private static DockerClient sharedDockerClient;
+
     private DockerClient dockerClient;
     private String containerId;
 
@@ -43,15 +62,27 @@ public class HardwaresimulationDocker {
      * Constructor for the HardwaresimulationDocker class.
      */
     public HardwaresimulationDocker() {
-        DefaultDockerClientConfig config = DefaultDockerClientConfig.createDefaultConfigBuilder().build();
-        DockerHttpClient httpClient = new ApacheDockerHttpClient.Builder()
-                .dockerHost(config.getDockerHost())
-                .sslConfig(config.getSSLConfig())
-                .maxConnections(100)
-                .connectionTimeout(Duration.ofSeconds(30))
-                .responseTimeout(Duration.ofSeconds(45))
-                .build();
-        dockerClient = DockerClientImpl.getInstance(config, httpClient);
+        dockerClient = getSharedDockerClient();
+    }
+
+    /**
+     * Gets the Docker client that all instances share, creating it on first use.
+     *
+     * @return the Docker client
+     */
+    private static synchronized DockerClient getSharedDockerClient() {
+        if (sharedDockerClient == null) {
+            DefaultDockerClientConfig config = DefaultDockerClientConfig.createDefaultConfigBuilder().build();
+            DockerHttpClient httpClient = new ApacheDockerHttpClient.Builder()
+                    .dockerHost(config.getDockerHost())
+                    .sslConfig(config.getSSLConfig())
+                    .maxConnections(100)
+                    .connectionTimeout(Duration.ofSeconds(30))
+                    .responseTimeout(Duration.ofSeconds(45))
+                    .build();
+            sharedDockerClient = DockerClientImpl.getInstance(config, httpClient);
+        }
+        return sharedDockerClient;
     }
 
     /**
@@ -60,8 +91,9 @@ public class HardwaresimulationDocker {
      * @param imageName the name of the hardwaresimulation image
      */
     private void hardwaresimulationbuildImage(String imageName) {
-        BuildImageCmd buildImageCmd = dockerClient.buildImageCmd(new File("../resources/dockerfiles/" + imageName + "/Dockerfile"))
-                .withTags(Collections.singleton(imageName));
+        BuildImageCmd buildImageCmd = dockerClient.buildImageCmd(getDockerfile(imageName))
+                .withTags(Collections.singleton(imageName))
+                .withLabels(Collections.singletonMap(DOCKERFILE_HASH_LABEL, getDockerfileHash(imageName)));
 
         BuildImageResultCallback callback = new BuildImageResultCallback() {
             @Override
@@ -75,6 +107,7 @@ public class HardwaresimulationDocker {
 
         // Start the build
         buildImageCmd.exec(callback).awaitImageId();
+        HardwaresimulationImageIndex.getInstance().invalidate(imageName);
 
         // Check if the image was created successfully
         InspectImageResponse imageResponse = dockerClient.inspectImageCmd(imageName).exec();
@@ -85,37 +118,158 @@ public class HardwaresimulationDocker {
         }
     }
 
+    /**
+     * Builds the hardwaresimulation image if it does not exist yet or if it was built from a different Dockerfile.
+     *
+     * @param imageName the name of the hardwaresimulation image
+     * @return the ID of the image
+     */
+    public String ensureImageUpToDate(String imageName) {
+        if (!isImageExists(imageName) || !getDockerfileHash(imageName).equals(getImageLabel(imageName, DOCKERFILE_HASH_LABEL))) {
+            hardwaresimulationbuildImage(imageName);
+        }
+        return getImageId(imageName);
+    }
+
+    /**
+     * Gets the ID of the image with the given name.
+     *
+     * @param imageName the name of the image, optionally with a tag
+     * @return the ID of the image, or null if the image does not exist
+     */
+    public String getImageId(String imageName) {
+        String repoTag = imageName.contains(":") ? imageName : imageName + ":latest";
+        return HardwaresimulationImageIndex.getInstance().getImageId(repoTag, this::inspectImageId);
+    }
+
+    /**
+     * Inspects the image with the given repository tag and returns its ID.
+     *
+     * @param repoTag the repository tag of the image
+     * @return the ID of the image, or null if the image does not exist
+     */
+    private String inspectImageId(String repoTag) {
+        try {
+            return dockerClient.inspectImageCmd(repoTag).exec().getId();
+        } catch (NotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the value of a label of the image with the given name.
+     *
+     * @param imageName the name of the image, optionally with a tag
+     * @param label     the name of the label
+     * @return the value of the label, or null if the image or the label does not exist
+     */
+    public String getImageLabel(String imageName, String label) {
+        try {
+            InspectImageResponse imageResponse = dockerClient.inspectImageCmd(imageName).exec();
+            if (imageResponse.getConfig() == null || imageResponse.getConfig().getLabels() == null) {
+                return null;
+            }
+            return imageResponse.getConfig().getLabels().get(label);
+        } catch (NotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Commits the current state of a container as a new image.
+     *
+     * @param containerId the ID of the container
+     * @param repository  the repository of the new image
+     * @param tag         the tag of the new image
+     * @param labels      the labels of the new image
+     * @return the ID of the new image
+     */
+    public String commitContainer(String containerId, String repository, String tag, Map<String, String> labels) {
+        String imageId = dockerClient.commitCmd(containerId)
+                .withRepository(repository)
+                .withTag(tag)
+                .withLabels(labels)
+                .exec();
+        HardwaresimulationImageIndex.getInstance().invalidate(repository);
+        return imageId;
+    }
+
+    /**
+     * Calculates the SHA-256 hash of the Dockerfile of the hardwaresimulation image.
+     *
+     * @param imageName the name of the hardwaresimulation image
+     * @return the hexadecimal SHA-256 hash of the Dockerfile
+     */
+    public String getDockerfileHash(String imageName) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(Files.readAllBytes(getDockerfile(imageName).toPath()));
+            StringBuilder hexHash = new StringBuilder();
+            for (byte b : hash) {
+                hexHash.append(String.format("%02x", b));
+            }
+            return hexHash.toString();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Error reading the Dockerfile of " + imageName + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the Dockerfile of the hardwaresimulation image.
+     *
+     * @param imageName the name of the hardwaresimulation image
+     * @return the Dockerfile
+     */
+    private File getDockerfile(String imageName) {
+        return new File("../resources/dockerfiles/" + imageName + "/Dockerfile");
+    }
+
     /**
      * Creates the hardwaresimulation container with the given image name.
      *
      * @param imageName the name of the hardwaresimulation image
      */
     public void createHardwaresimulationContainer(String imageName) {
+        containerId = createContainer(imageName);
+    }
+
+    /**
+     * Creates a hardwaresimulation container with the given image name and returns its ID.
+     * The image is built first if it does not exist yet.
+     * The container is limited to the CPUs and the memory of the footprint of the image,
+     * see {@link HardwaresimulationResourceScheduler}, and cannot swap.
+     *
+     * @param imageName the name of the hardwaresimulation image
+     * @return the ID of the created container
+     */
+    public String createContainer(String imageName) {
         if (!isImageExists(imageName)) {
             hardwaresimulationbuildImage(imageName);
         }
+        HardwaresimulationResourceScheduler.Footprint footprint = HardwaresimulationResourceScheduler.getInstance().getFootprint(imageName);
         CreateContainerResponse containerResponse = dockerClient.createContainerCmd(imageName)
                 .withTty(true) // Enable TTY mode
-                .withHostConfig(HostConfig.newHostConfig().withPrivileged(true))
+                .withHostConfig(HostConfig.newHostConfig()
+                        .withPrivileged(true)
+                        .withCpuPeriod(HardwaresimulationResourceScheduler.Footprint.CPU_PERIOD)
+                        .withCpuQuota(footprint.getCpuQuota())
+                        .withMemory(footprint.getMemoryBytes())
+                        // The same value as the memory disables the swap, which would make the host thrash
+                        .withMemorySwap(footprint.getMemoryBytes()))
                 .exec();
-        containerId = containerResponse.getId();
-
+        return containerResponse.getId();
     }
 
     /**
      * Checks if the image with the given name exists.
+     * The lookup is answered from the image index if it has a valid entry for the image.
      *
      * @param imageName the name of the image
      * @return true if the image exists, false otherwise
      */
     private boolean isImageExists(String imageName) {
         try {
-            List<Image> images = dockerClient.listImagesCmd().exec();
-            for (Image image : images) {
-                if (Arrays.asList(image.getRepoTags()).contains(imageName + ":latest")) {
-                    return true; // Image found
-                }
-            }
+            return getImageId(imageName) != null;
         } catch (InternalServerErrorException e) {
             // Handle internal server error
             System.err.println("An error message would be generated while inspecting the Docker image : " + e.getMessage());
@@ -156,34 +310,105 @@ public class HardwaresimulationDocker {
      * @return The output of the command as a string.
      */
     public String outputFromHardwaresimulationConsole(String execId) {
-        try {
-            StringBuilder outputBuffer = new StringBuilder();
-
-            // Start the command execution and capture the output
-            dockerClient.execStartCmd(execId).exec(new ExecStartResultCallback() {
-                @Override
-                public void onNext(Frame item) {
-                    if (item != null && item.getPayload() != null) {
-                        outputBuffer.append(new String(item.getPayload()));
+        StringBuilder outputBuffer = new StringBuilder();
+
+        System.out.println("Command output: ");
+        outputFromHardwaresimulationConsole(execId, line -> {
+            System.out.println(line);
+            outputBuffer.append(line).append('\n');
+            return false;
+        });
+
+        // Get the complete output as a string
+        return outputBuffer.toString();
+    }
+
+    /**
+     * Streams the output of the command from the hardware simulation console with the specified execution ID
+     * line by line to the listener, while the command is running.
+     * If the listener requests to abort, the output is no longer read and the call returns immediately.
+     * The command itself keeps running in the container until the container is stopped.
+     *
+     * @param execId   The execution ID of the command.
+     * @param listener The listener that receives every line of the output.
+     * @return True if the listener has aborted the command, otherwise false.
+     */
+    public boolean outputFromHardwaresimulationConsole(String execId, HardwaresimulationConsoleListener listener) {
+        // Standard output and standard error are decoded separately, so that their lines and characters are not mixed
+        Map<StreamType, HardwaresimulationConsoleDecoder> decoders = new EnumMap<>(StreamType.class);
+        AtomicBoolean aborted = new AtomicBoolean(false);
+
+        ResultCallback.Adapter<Frame> callback = new ResultCallback.Adapter<>() {
+            @Override
+            public void onNext(Frame item) {
+                if (item == null || item.getPayload() == null || aborted.get()) {
+                    return;
+                }
+                HardwaresimulationConsoleDecoder decoder = decoders.computeIfAbsent(item.getStreamType(),
+                        streamType -> new HardwaresimulationConsoleDecoder(listener));
+                if (decoder.decode(item.getPayload())) {
+                    aborted.set(true);
+                    try {
+                        // Stop reading the output, which lets awaitCompletion return
+                        close();
+                    } catch (IOException e) {
+                        System.err.println("Error while closing the command output: " + e.getMessage());
                     }
-                    super.onNext(item);
                 }
-            }).awaitCompletion();
-
-            // Get the complete output as a string
-            String output = outputBuffer.toString();
+            }
+        };
 
-            // Print the command output
-            System.out.println("Command output: " + output);
-            return output;
+        try {
+            dockerClient.execStartCmd(execId).exec(callback).awaitCompletion();
         } catch (InterruptedException e) {
             // Handle the interruption
+            Thread.currentThread().interrupt();
             e.printStackTrace();
-            return null;
+            return true;
         }
+
+        if (!aborted.get()) {
+            for (HardwaresimulationConsoleDecoder decoder : decoders.values()) {
+                if (decoder.finish()) {
+                    aborted.set(true);
+                    break;
+                }
+            }
+        }
+        return aborted.get();
     }
 
 
+    /**
+     * Gets the exit code of a command that has finished.
+     *
+     * @param execId The execution ID of the command.
+     * @return The exit code of the command, or null if the command is still running.
+     */
+    public Long getCommandExitCode(String execId) {
+        return dockerClient.inspectExecCmd(execId).exec().getExitCodeLong();
+    }
+
+    /**
+     * Opens a file in the container as a stream, without storing it on the host.
+     * The stream ends with the file and closing it releases the connection to the Docker daemon.
+     *
+     * @param containerId       the ID of the container
+     * @param containerFilePath the path of the file in the container
+     * @return the content of the file
+     * @throws IOException if the archive of the file cannot be read
+     */
+    public InputStream openFileFromContainer(String containerId, String containerFilePath) throws IOException {
+        InputStream archive = dockerClient.copyArchiveFromContainerCmd(containerId, containerFilePath).exec();
+        TarArchiveInputStream tarInput = new TarArchiveInputStream(archive);
+        // Skip the header to reach the actual file data, the stream then ends with the first entry
+        if (tarInput.getNextTarEntry() == null) {
+            tarInput.close();
+            throw new IOException("The archive of " + containerFilePath + " is empty");
+        }
+        return tarInput;
+    }
+
     /**
      * Copies a file from the container to the host.
      *
@@ -192,31 +417,12 @@ public class HardwaresimulationDocker {
      * @param hostFilePath      the path of the file on the host
      */
     public void outputFileFromContainer(String containerId, String containerFilePath, String hostFilePath) {
-        try {
-            CopyArchiveFromContainerCmd copyFromCmd = dockerClient.copyArchiveFromContainerCmd(containerId, containerFilePath);
-
-            try (InputStream inputStream = copyFromCmd.exec()) {
-                try (TarArchiveInputStream tarInput = new TarArchiveInputStream(inputStream)) {
-                    // Skip the header to reach the actual file data
-                    tarInput.getNextTarEntry();
-
-                    try (OutputStream outputStream = new FileOutputStream(hostFilePath)) {
-                        byte[] buffer = new byte[4096];
-                        int bytesRead;
-                        while ((bytesRead = tarInput.read(buffer)) != -1) {
-                            outputStream.write(buffer, 0, bytesRead);
-                        }
-
-                        System.out.println("File copied successfully from container to host.");
-                    } catch (IOException e) {
-                        System.err.println("Error while copying the file to host: " + e.getMessage());
-                    }
-                } catch (IOException e) {
-                    System.err.println("Error reading the tar archive: " + e.getMessage());
-                }
-            } catch (IOException e) {
-                System.err.println("Error executing the copy command: " + e.getMessage());
-            }
+        try (InputStream inputStream = openFileFromContainer(containerId, containerFilePath);
+             OutputStream outputStream = new FileOutputStream(hostFilePath)) {
+            inputStream.transferTo(outputStream);
+            System.out.println("File copied successfully from container to host.");
+        } catch (IOException e) {
+            System.err.println("Error while copying the file to host: " + e.getMessage());
         } catch (Exception e) {
             System.err.println("An unexpected error occurred: " + e.getMessage());
         }
@@ -237,6 +443,84 @@ public class HardwaresimulationDocker {
         System.out.println("File successfully copied from host system to container.");
     }
 
+    /**
+     * Copies all files of a manifest to the container in a single archive and a single request.
+     * The archive is written while it is being sent, so neither the archive nor the in-memory entries are stored on the host.
+     *
+     * @param containerId the ID of the container
+     * @param manifest    the files and their absolute paths in the container
+     */
+    public void inputFilesToContainer(String containerId, HardwaresimulationUploadManifest manifest) {
+        PipedInputStream archive = new PipedInputStream(64 * 1024);
+        IOException[] writeError = new IOException[1];
+        Thread writer;
+        try {
+            PipedOutputStream archiveOutput = new PipedOutputStream(archive);
+            writer = new Thread(() -> {
+                try (TarArchiveOutputStream tarOutput = new TarArchiveOutputStream(archiveOutput)) {
+                    writeArchive(tarOutput, manifest);
+                } catch (IOException e) {
+                    writeError[0] = e;
+                }
+            }, "hardwaresimulation-upload");
+        } catch (IOException e) {
+            throw new RuntimeException("Error creating the archive for the container: " + e.getMessage(), e);
+        }
+        writer.setDaemon(true);
+        writer.start();
+
+        try {
+            // The entries carry absolute paths, so the archive is extracted at the root of the container
+            dockerClient.copyArchiveToContainerCmd(containerId)
+                    .withTarInputStream(archive)
+                    .withRemotePath("/")
+                    .exec();
+        } finally {
+            // Closing the reading end releases the writer if the request failed before the archive was read
+            try {
+                archive.close();
+                writer.join();
+            } catch (IOException e) {
+                System.err.println("Error closing the archive for the container: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (writeError[0] != null) {
+            throw new RuntimeException("Error writing the archive for the container: " + writeError[0].getMessage(), writeError[0]);
+        }
+
+        System.out.println(manifest.getEntries().size() + " files successfully copied from host system to container.");
+    }
+
+    /**
+     * Writes the entries of a manifest into a tar archive.
+     *
+     * @param tarOutput the tar archive
+     * @param manifest  the files and their absolute paths in the container
+     * @throws IOException if a file on the host cannot be read or the archive cannot be written
+     */
+    private void writeArchive(TarArchiveOutputStream tarOutput, HardwaresimulationUploadManifest manifest) throws IOException {
+        tarOutput.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+        tarOutput.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+        for (HardwaresimulationUploadManifest.Entry entry : manifest.getEntries()) {
+            TarArchiveEntry tarEntry = new TarArchiveEntry(entry.containerFilePath.replaceFirst("^/+", ""));
+            tarEntry.setMode(TarArchiveEntry.DEFAULT_FILE_MODE & ~07777 | entry.mode);
+            if (entry.hostFile != null) {
+                tarEntry.setSize(entry.hostFile.length());
+                tarEntry.setModTime(entry.hostFile.lastModified());
+                tarOutput.putArchiveEntry(tarEntry);
+                Files.copy(entry.hostFile.toPath(), tarOutput);
+            } else {
+                tarEntry.setSize(entry.content.length);
+                tarOutput.putArchiveEntry(tarEntry);
+                tarOutput.write(entry.content);
+            }
+            tarOutput.closeArchiveEntry();
+        }
+        tarOutput.finish();
+    }
+
     /**
      * Gets the container ID.
      *
@@ -246,12 +530,45 @@ public class HardwaresimulationDocker {
         return containerId;
     }
 
+    /**
+     * Sets the ID of the container that commands are executed in, for example a container leased from a pool.
+     *
+     * @param containerId the ID of the container
+     */
+    public void setContainerId(String containerId) {
+        this.containerId = containerId;
+    }
+
+    /**
+     * Checks if the container with the given ID exists and is running.
+     *
+     * @param containerId the ID of the container
+     * @return true if the container is running, false otherwise
+     */
+    public boolean isContainerRunning(String containerId) {
+        try {
+            Boolean running = dockerClient.inspectContainerCmd(containerId).exec().getState().getRunning();
+            return Boolean.TRUE.equals(running);
+        } catch (NotFoundException e) {
+            return false;
+        }
+    }
+
     /**
      * Stops the Docker hardwaresimulation container
      *
      *
      */
     public void closeDockerHardwaresimulation() {
+        closeDockerHardwaresimulation(containerId);
+    }
+
+    /**
+     * Stops the Docker hardwaresimulation container with the given container ID
+     *
+     * @param containerId the ID of the container
+     */
+    public void closeDockerHardwaresimulation(String containerId) {
         StopContainerCmd stopCmd = dockerClient.stopContainerCmd(containerId);
         stopCmd.withTimeout(0).exec();
     }
@@ -262,6 +579,15 @@ public class HardwaresimulationDocker {
      *
      */
     public void deleteDockerHardwaresimulation() {
+        deleteDockerHardwaresimulation(containerId);
+    }
+
+    /**
+     * Deletes the Docker hardwaresimulation container with the given container ID
+     *
+     * @param containerId the ID of the container
+     */
+    public void deleteDockerHardwaresimulation(String containerId) {
         RemoveContainerCmd removeCmd = dockerClient.removeContainerCmd(containerId);
         removeCmd.withForce(true).exec();
     }
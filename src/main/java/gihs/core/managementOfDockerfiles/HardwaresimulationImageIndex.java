@@ -0,0 +1,180 @@
+package gihs.core.managementOfDockerfiles;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * The HardwaresimulationImageIndex class caches the IDs of hardwaresimulation images in the process.
+ * <p>
+ * Every image is looked up directly by its repository tag, and the result, including a missing image,
+ * is kept for a configurable time to live. Entries of an image are invalidated when the image is built.
+ * The hit rate and the lookup latency of the index are counted.
+ */
+public class HardwaresimulationImageIndex {
+
+    /**
+     * The single instance of the index that is shared by all HardwaresimulationDocker instances.
+     */
+    private static final HardwaresimulationImageIndex INSTANCE = new HardwaresimulationImageIndex();
+
+    /**
+     * The time to live of an entry in nanoseconds.
+     */
+    private volatile long timeToLiveNanos = TimeUnit.SECONDS.toNanos(60);
+
+    /**
+     * The cached entries, keyed by the repository tag of the image.
+     */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder lookupNanos = new LongAdder();
+    private final LongAdder missNanos = new LongAdder();
+
+    /**
+     * A cached image ID together with the time it expires.
+     */
+    private static class Entry {
+        /**
+         * The ID of the image, or null if the image did not exist.
+         */
+        private final String imageId;
+        private final long expiresAtNanos;
+
+        private Entry(String imageId, long expiresAtNanos) {
+            this.imageId = imageId;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    /**
+     * Gets the single instance of the index.
+     *
+     * @return the instance of the index
+     */
+    public static HardwaresimulationImageIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sets the time to live of the entries.
+     *
+     * @param timeToLive the time to live
+     * @param unit       the unit of the time to live
+     */
+    public void setTimeToLive(long timeToLive, TimeUnit unit) {
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+    }
+
+    /**
+     * Gets the ID of the image with the given repository tag, inspecting the image only if no valid entry is cached.
+     *
+     * @param repoTag      the repository tag of the image, for example "gem5:latest"
+     * @param inspectImage the function that inspects the image and returns its ID, or null if it does not exist
+     * @return the ID of the image, or null if the image does not exist
+     */
+    public String getImageId(String repoTag, Function<String, String> inspectImage) {
+        long startTime = System.nanoTime();
+        Entry entry = entries.get(repoTag);
+        if (entry != null && startTime - entry.expiresAtNanos < 0) {
+            hits.increment();
+            lookupNanos.add(System.nanoTime() - startTime);
+            return entry.imageId;
+        }
+
+        String imageId = inspectImage.apply(repoTag);
+        long endTime = System.nanoTime();
+        entries.put(repoTag, new Entry(imageId, endTime + timeToLiveNanos));
+        misses.increment();
+        missNanos.add(endTime - startTime);
+        lookupNanos.add(endTime - startTime);
+        return imageId;
+    }
+
+    /**
+     * Removes all cached entries of the image with the given name, regardless of their tag.
+     *
+     * @param imageName the name of the image, with or without a tag
+     */
+    public void invalidate(String imageName) {
+        String repository = getRepository(imageName);
+        entries.keySet().removeIf(repoTag -> repoTag.equals(repository) || repoTag.startsWith(repository + ":"));
+    }
+
+    /**
+     * Gets the repository of an image name without its tag or digest. A ':' is only the start of a tag if it follows
+     * the last '/', because the ':' of a registry such as "registry:5000/image" separates its port.
+     *
+     * @param imageName the name of the image, with or without a tag or digest
+     * @return the repository
+     */
+    static String getRepository(String imageName) {
+        int digest = imageName.indexOf('@');
+        String name = digest >= 0 ? imageName.substring(0, digest) : imageName;
+        int tag = name.lastIndexOf(':');
+        return tag > name.lastIndexOf('/') ? name.substring(0, tag) : name;
+    }
+
+    /**
+     * Gets the number of lookups that were answered from the index.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups that had to inspect the image.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the share of lookups that were answered from the index.
+     *
+     * @return the hit rate between 0 and 1, or 0 if there were no lookups
+     */
+    public double getHitRate() {
+        long lookups = getHits() + getMisses();
+        return lookups == 0 ? 0.0 : (double) getHits() / lookups;
+    }
+
+    /**
+     * Gets the average latency of all lookups.
+     *
+     * @return the average lookup latency in nanoseconds, or 0 if there were no lookups
+     */
+    public long getAverageLookupNanos() {
+        long lookups = getHits() + getMisses();
+        return lookups == 0 ? 0 : lookupNanos.sum() / lookups;
+    }
+
+    /**
+     * Gets the average latency of the lookups that had to inspect the image.
+     *
+     * @return the average miss latency in nanoseconds, or 0 if there were no misses
+     */
+    public long getAverageMissNanos() {
+        long misses = getMisses();
+        return misses == 0 ? 0 : missNanos.sum() / misses;
+    }
+
+    /**
+     * Returns a summary of the statistics of the index.
+     *
+     * @return the hits, misses, hit rate and average lookup latencies
+     */
+    @Override
+    public String toString() {
+        return String.format("Image index: %d hits, %d misses, hit rate %.2f%%, average lookup %d ns, average miss %d ns",
+                getHits(), getMisses(), getHitRate() * 100, getAverageLookupNanos(), getAverageMissNanos());
+    }
+}
@@ -0,0 +1,322 @@
+package gihs.core.managementOfDockerfiles;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The HardwaresimulationResourceScheduler class admits hardware simulations only while the host has the CPUs and
+ * the memory that they need, so that parallel runs do not oversubscribe the cores or run the host out of memory.
+ * <p>
+ * Every image has a footprint, the number of CPUs and the memory that one run of it typically uses.
+ * The footprints are read from {@code footprints.json} on the classpath and can be overridden per image by a file
+ * of the same format, for example
+ * <pre>
+ * {"gem5": {"cpus": 1, "memoryMiB": 2048}, "zsim": {"cpus": 4, "memoryMiB": 8192}}
+ * </pre>
+ * An image without a footprint of its own uses the footprint of the longest image name that it starts with,
+ * such as "zsim" for "zsim-ready:...", or otherwise the "default" footprint.
+ * A run waits in {@link #acquire(String)} until its footprint fits into the free budget of the host, in the order
+ * in which the runs arrived, and returns the footprint with {@link #release(String)}.
+ * The containers of the image are limited to the same footprint, see {@link HardwaresimulationDocker#createContainer(String)},
+ * so a run that needs more than its footprint is slowed down or stopped instead of slowing down the other runs.
+ */
+public class HardwaresimulationResourceScheduler {
+
+    /**
+     * The classpath resource with the default footprints.
+     */
+    private static final String DEFAULT_FOOTPRINTS = "/footprints.json";
+
+    /**
+     * The name of the footprint of images without a footprint of their own.
+     */
+    private static final String DEFAULT_IMAGE = "default";
+
+    private static final long MIB = 1024L * 1024L;
+
+    /**
+     * The memory in bytes that is kept free for the host and this program.
+     */
+    private static final long HOST_RESERVED_MEMORY = 1024L * MIB;
+
+    /**
+     * The single instance of the scheduler that is shared by all parsers.
+     */
+    private static HardwaresimulationResourceScheduler instance;
+
+    /**
+     * The number of CPUs that the hardware simulations may use together.
+     */
+    private static double hostCpus = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The memory in bytes that the hardware simulations may use together.
+     */
+    private static long hostMemoryBytes = getDefaultHostMemory();
+
+    /**
+     * The file that overrides the default footprints, or null.
+     */
+    private static String footprintsFile;
+
+    /**
+     * The footprints, keyed by the image name.
+     */
+    private final Map<String, Footprint> footprints;
+
+    /**
+     * The tickets of the waiting runs, in the order in which they arrived.
+     */
+    private final Deque<Long> waitingRuns = new ArrayDeque<>();
+
+    private long nextTicket;
+    private double freeCpus;
+    private long freeMemoryBytes;
+
+    private HardwaresimulationResourceScheduler() {
+        freeCpus = hostCpus;
+        freeMemoryBytes = hostMemoryBytes;
+        footprints = loadFootprints();
+    }
+
+    /**
+     * Configures the budget of the host and the footprints of the images. Must be called before the scheduler is used.
+     *
+     * @param hostCpus        the number of CPUs that the hardware simulations may use together, 0 for all CPUs of the host
+     * @param hostMemoryBytes the memory in bytes that the hardware simulations may use together, 0 for the physical memory
+     *                        of the host without 1 GiB for the host itself
+     * @param footprintsFile  the file that overrides the default footprints, or null
+     */
+    public static synchronized void configure(double hostCpus, long hostMemoryBytes, String footprintsFile) {
+        if (hostCpus < 0 || hostMemoryBytes < 0) {
+            throw new ArithmeticException("the resource scheduler needs hostCpus >= 0 and hostMemory >= 0");
+        }
+        if (instance != null) {
+            throw new IllegalStateException("the resource scheduler is already in use and cannot be configured anymore");
+        }
+        if (hostCpus > 0) {
+            HardwaresimulationResourceScheduler.hostCpus = hostCpus;
+        }
+        if (hostMemoryBytes > 0) {
+            HardwaresimulationResourceScheduler.hostMemoryBytes = hostMemoryBytes;
+        }
+        HardwaresimulationResourceScheduler.footprintsFile = footprintsFile;
+    }
+
+    /**
+     * Gets the single instance of the scheduler, creating it on first use.
+     *
+     * @return the instance of the scheduler
+     */
+    public static synchronized HardwaresimulationResourceScheduler getInstance() {
+        if (instance == null) {
+            instance = new HardwaresimulationResourceScheduler();
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the default memory budget of the host: the physical memory without the memory kept for the host,
+     * but at least half of the physical memory.
+     *
+     * @return the memory budget in bytes
+     */
+    private static long getDefaultHostMemory() {
+        OperatingSystemMXBean operatingSystem = ManagementFactory.getOperatingSystemMXBean();
+        if (operatingSystem instanceof com.sun.management.OperatingSystemMXBean) {
+            long totalMemory = ((com.sun.management.OperatingSystemMXBean) operatingSystem).getTotalMemorySize();
+            if (totalMemory > 0) {
+                return Math.max(totalMemory - HOST_RESERVED_MEMORY, totalMemory / 2);
+            }
+        }
+        return Runtime.getRuntime().maxMemory();
+    }
+
+    /**
+     * Reads the default footprints and the footprints of the configured file, which override them.
+     *
+     * @return the footprints, keyed by the image name
+     */
+    private static Map<String, Footprint> loadFootprints() {
+        Map<String, Footprint> footprints = new HashMap<>();
+        try (InputStream defaults = HardwaresimulationResourceScheduler.class.getResourceAsStream(DEFAULT_FOOTPRINTS)) {
+            if (defaults == null) {
+                throw new IllegalStateException("The footprint file " + DEFAULT_FOOTPRINTS + " is missing");
+            }
+            readFootprints(new ObjectMapper().readTree(defaults), footprints);
+        } catch (IOException e) {
+            throw new IllegalStateException("The footprint file " + DEFAULT_FOOTPRINTS + " cannot be read: " + e.getMessage(), e);
+        }
+        if (footprintsFile != null) {
+            try {
+                readFootprints(new ObjectMapper().readTree(new File(footprintsFile)), footprints);
+            } catch (IOException e) {
+                throw new IllegalStateException("The footprint file " + footprintsFile + " cannot be read: " + e.getMessage(), e);
+            }
+        }
+        if (!footprints.containsKey(DEFAULT_IMAGE)) {
+            footprints.put(DEFAULT_IMAGE, new Footprint(1, 2048 * MIB));
+        }
+        return footprints;
+    }
+
+    /**
+     * Reads the footprints of a footprint file.
+     *
+     * @param json       the content of the footprint file
+     * @param footprints the footprints that the read footprints are put into
+     */
+    private static void readFootprints(JsonNode json, Map<String, Footprint> footprints) {
+        Iterator<Map.Entry<String, JsonNode>> images = json.fields();
+        while (images.hasNext()) {
+            Map.Entry<String, JsonNode> image = images.next();
+            double cpus = image.getValue().path("cpus").asDouble(0);
+            long memoryMiB = image.getValue().path("memoryMiB").asLong(0);
+            if (cpus <= 0 || memoryMiB <= 0) {
+                throw new ArithmeticException("the footprint of " + image.getKey() + " needs cpus > 0 and memoryMiB > 0");
+            }
+            footprints.put(image.getKey(), new Footprint(cpus, memoryMiB * MIB));
+        }
+    }
+
+    /**
+     * Gets the footprint of an image. A footprint that is larger than the budget of the host is reduced to the budget,
+     * so that the image can still run, alone.
+     *
+     * @param imageName the name of the image
+     * @return the footprint
+     */
+    public Footprint getFootprint(String imageName) {
+        Footprint footprint = footprints.get(imageName);
+        if (footprint == null) {
+            String longestPrefix = null;
+            for (String name : footprints.keySet()) {
+                if (imageName.startsWith(name) && (longestPrefix == null || name.length() > longestPrefix.length())) {
+                    longestPrefix = name;
+                }
+            }
+            footprint = footprints.get(longestPrefix == null ? DEFAULT_IMAGE : longestPrefix);
+        }
+        return new Footprint(Math.min(footprint.cpus, hostCpus), Math.min(footprint.memoryBytes, hostMemoryBytes));
+    }
+
+    /**
+     * Waits until the footprint of the image fits into the free budget of the host and takes it from the budget.
+     * The runs are admitted in the order in which they arrived, so that a large footprint is not overtaken forever.
+     *
+     * @param imageName the name of the image
+     * @throws IllegalStateException if the thread is interrupted while waiting
+     */
+    public synchronized void acquire(String imageName) {
+        Footprint footprint = getFootprint(imageName);
+        Long ticket = nextTicket++;
+        waitingRuns.addLast(ticket);
+        try {
+            if (!isAdmissible(ticket, footprint)) {
+                System.out.println("Waiting for " + footprint + " for " + imageName);
+            }
+            while (!isAdmissible(ticket, footprint)) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the resources of " + imageName, e);
+        } finally {
+            waitingRuns.remove(ticket);
+            // The next run may fit now, or may be first in line now
+            notifyAll();
+        }
+        freeCpus -= footprint.cpus;
+        freeMemoryBytes -= footprint.memoryBytes;
+    }
+
+    private boolean isAdmissible(Long ticket, Footprint footprint) {
+        // A small tolerance, so that fractions of CPUs add up to the budget again
+        return ticket.equals(waitingRuns.peekFirst())
+                && footprint.cpus <= freeCpus + 1e-9
+                && footprint.memoryBytes <= freeMemoryBytes;
+    }
+
+    /**
+     * Returns the footprint of an image that was acquired with {@link #acquire(String)} to the budget of the host.
+     *
+     * @param imageName the name of the image
+     */
+    public synchronized void release(String imageName) {
+        Footprint footprint = getFootprint(imageName);
+        freeCpus = Math.min(hostCpus, freeCpus + footprint.cpus);
+        freeMemoryBytes = Math.min(hostMemoryBytes, freeMemoryBytes + footprint.memoryBytes);
+        notifyAll();
+    }
+
+    /**
+     * The CPUs and the memory that one run of an image typically uses.
+     */
+    public static class Footprint {
+
+        /**
+         * The period of the CPU quota of a container in microseconds, the default of Docker.
+         */
+        public static final long CPU_PERIOD = 100_000L;
+
+        private final double cpus;
+        private final long memoryBytes;
+
+        Footprint(double cpus, long memoryBytes) {
+            this.cpus = cpus;
+            this.memoryBytes = memoryBytes;
+        }
+
+        /**
+         * Gets the number of CPUs, which may be a fraction.
+         *
+         * @return the number of CPUs
+         */
+        public double getCpus() {
+            return cpus;
+        }
+
+        /**
+         * Gets the memory.
+         *
+         * @return the memory in bytes
+         */
+        public long getMemoryBytes() {
+            return memoryBytes;
+        }
+
+        /**
+         * Gets the CPU quota of a container per {@link #CPU_PERIOD}.
+         *
+         * @return the CPU quota in microseconds
+         */
+        public long getCpuQuota() {
+            return Math.max(1000L, Math.round(cpus * CPU_PERIOD));
+        }
+
+        /**
+         * Gets the number of parallel jobs that fill the CPUs, for example for make or scons.
+         *
+         * @return the number of CPUs, rounded up
+         */
+        public int getJobs() {
+            return (int) Math.ceil(cpus);
+        }
+
+        @Override
+        public String toString() {
+            return cpus + " CPUs and " + memoryBytes / MIB + " MiB";
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package gihs.core.managementOfDockerfiles;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The HardwaresimulationUploadManifest class lists the files that are uploaded to a container in a single archive.
+ * <p>
+ * Every entry is either a file on the host or content in memory, such as a generated configuration,
+ * together with the absolute path it gets in the container.
+ */
+public class HardwaresimulationUploadManifest {
+
+    /**
+     * The mode of uploaded files that are not executable.
+     */
+    static final int FILE_MODE = 0644;
+
+    /**
+     * The mode of uploaded files that are executable.
+     */
+    static final int EXECUTABLE_MODE = 0755;
+
+    /**
+     * The entries of the manifest in the order in which they are added.
+     */
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * An entry of the manifest.
+     */
+    static class Entry {
+        /**
+         * The absolute path of the file in the container.
+         */
+        final String containerFilePath;
+
+        /**
+         * The file on the host, or null if the content is in memory.
+         */
+        final File hostFile;
+
+        /**
+         * The content in memory, or null if the content is a file on the host.
+         */
+        final byte[] content;
+
+        /**
+         * The mode of the file in the container.
+         */
+        final int mode;
+
+        private Entry(String containerFilePath, File hostFile, byte[] content, int mode) {
+            this.containerFilePath = containerFilePath;
+            this.hostFile = hostFile;
+            this.content = content;
+            this.mode = mode;
+        }
+    }
+
+    /**
+     * Adds a file on the host. The file keeps being executable in the container if it is executable on the host.
+     *
+     * @param hostFilePath      the path of the file on the host
+     * @param containerFilePath the absolute path of the file in the container
+     * @return this manifest
+     */
+    public HardwaresimulationUploadManifest addFile(String hostFilePath, String containerFilePath) {
+        File hostFile = new File(hostFilePath);
+        entries.add(new Entry(containerFilePath, hostFile, null, hostFile.canExecute() ? EXECUTABLE_MODE : FILE_MODE));
+        return this;
+    }
+
+    /**
+     * Adds content from memory, for example a configuration that was generated from the input.
+     *
+     * @param content           the content of the file
+     * @param containerFilePath the absolute path of the file in the container
+     * @return this manifest
+     */
+    public HardwaresimulationUploadManifest addContent(byte[] content, String containerFilePath) {
+        entries.add(new Entry(containerFilePath, null, content, FILE_MODE));
+        return this;
+    }
+
+    /**
+     * Adds text from memory as a UTF-8 encoded file, for example a configuration that was generated from the input.
+     *
+     * @param content           the text of the file
+     * @param containerFilePath the absolute path of the file in the container
+     * @return this manifest
+     */
+    public HardwaresimulationUploadManifest addContent(String content, String containerFilePath) {
+        return addContent(content.getBytes(StandardCharsets.UTF_8), containerFilePath);
+    }
+
+    /**
+     * Gets the entries of the manifest.
+     *
+     * @return the entries in the order in which they were added
+     */
+    List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+}
@@ -0,0 +1,361 @@
+package gihs.core.managementOfResultCache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import gihs.core.managementOFJsonNodeALL.JsonUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * The HardwaresimulationResultCache class stores the output parameters of hardware simulations on disk,
+ * so that a run with the same input, program and hardwaresimulation image is answered without Docker.
+ * <p>
+ * Results are addressed by a SHA-256 key over the canonical input, the content of the program and the binary,
+ * the name of the hardware simulation and the ID and Dockerfile hash of its image. The cache is bounded by
+ * its size on disk and evicts the least recently used results first. Hits, misses and evictions are counted.
+ */
+public class HardwaresimulationResultCache {
+
+    /**
+     * The parameters that only locate files on the host and therefore do not change the result of a run.
+     */
+    private static final String[] LOCATION_PARAMETERS = {
+            "statsOutputPath", "workingPath", "programPath", "binaryPath", "keepStatsFile"
+    };
+
+    /**
+     * The file name extension of the cached results.
+     */
+    private static final String RESULT_EXTENSION = ".json";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * The directory of the cache that the instance is created with.
+     */
+    private static String directory = "../resources/resultCache";
+
+    /**
+     * The maximum size of the cache in bytes that the instance is created with.
+     */
+    private static long maxBytes = 512L * 1024 * 1024;
+
+    /**
+     * The single instance of the cache, created on first use.
+     */
+    private static HardwaresimulationResultCache instance;
+
+    private final Path cacheDirectory;
+    private final long maximumBytes;
+
+    /**
+     * The sizes of the cached results, keyed by their key, from the least to the most recently used.
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The total size of the cached results in bytes.
+     */
+    private long totalBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates the cache and loads the results that earlier processes have stored in its directory.
+     */
+    private HardwaresimulationResultCache() {
+        this.cacheDirectory = Paths.get(directory);
+        this.maximumBytes = maxBytes;
+        if (isEnabled()) {
+            loadEntries();
+        }
+    }
+
+    /**
+     * Configures the directory and the maximum size of the cache. Must be called before the cache is used.
+     *
+     * @param directory the directory in which the results are stored
+     * @param maxBytes  the maximum size of the cache in bytes, 0 disables the cache
+     */
+    public static synchronized void configure(String directory, long maxBytes) {
+        if (maxBytes < 0) {
+            throw new ArithmeticException("the maximum size of the result cache must not be negative");
+        }
+        if (instance != null) {
+            throw new IllegalStateException("the result cache is already in use and cannot be configured anymore");
+        }
+        HardwaresimulationResultCache.directory = directory;
+        HardwaresimulationResultCache.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the single instance of the cache, creating it on first use.
+     *
+     * @return the instance of the cache
+     */
+    public static synchronized HardwaresimulationResultCache getInstance() {
+        if (instance == null) {
+            instance = new HardwaresimulationResultCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Checks whether results are cached at all.
+     *
+     * @return true if the maximum size of the cache is greater than 0, otherwise false
+     */
+    public boolean isEnabled() {
+        return maximumBytes > 0;
+    }
+
+    /**
+     * Creates the key of a run.
+     *
+     * @param input                  the validated input of the run
+     * @param hardwaresimulationName the name of the hardware simulation
+     * @param imageId                the ID of the hardwaresimulation image
+     * @param dockerfileHash         the hash of the Dockerfile of the hardwaresimulation image
+     * @param filePaths              the paths of the program and the binary of the run
+     * @return the hexadecimal SHA-256 key of the run
+     * @throws IOException if the program or the binary cannot be read
+     */
+    public static String createKey(JsonNode input, String hardwaresimulationName, String imageId, String dockerfileHash,
+                                   String... filePaths) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        // Every part ends with a separator, so that different parts never produce the same bytes
+        for (String part : new String[]{hardwaresimulationName, imageId, dockerfileHash,
+                objectMapper.writeValueAsString(canonicalize(withoutLocationParameters(input)))}) {
+            digest.update(part.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        byte[] buffer = new byte[8192];
+        for (String filePath : filePaths) {
+            digest.update(Long.toString(new File(filePath).length()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            try (InputStream file = new DigestInputStream(Files.newInputStream(Paths.get(filePath)), digest)) {
+                while (file.read(buffer) != -1) {
+                    // The digest is updated while the file is read
+                }
+            }
+        }
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Copies the cached result of a run to the output file of the run.
+     *
+     * @param key        the key of the run
+     * @param outputFile the output file of the run
+     * @return true if the result was cached and copied, otherwise false
+     */
+    public synchronized boolean restore(String key, Path outputFile) {
+        if (!entries.containsKey(key)) {
+            misses.increment();
+            return false;
+        }
+        Path resultFile = getResultFile(key);
+        try {
+            if (outputFile.getParent() != null) {
+                Files.createDirectories(outputFile.getParent());
+            }
+            Files.copy(resultFile, outputFile, StandardCopyOption.REPLACE_EXISTING);
+            // The modification time keeps the order of use for the next process
+            Files.setLastModifiedTime(resultFile, FileTime.fromMillis(System.currentTimeMillis()));
+            entries.get(key);
+        } catch (IOException e) {
+            System.err.println("Error restoring the cached result " + key + ": " + e.getMessage());
+            totalBytes -= entries.remove(key);
+            misses.increment();
+            return false;
+        }
+        hits.increment();
+        return true;
+    }
+
+    /**
+     * Stores the result of a run and evicts the least recently used results if the cache grows too large.
+     *
+     * @param key        the key of the run
+     * @param outputFile the output file of the run
+     */
+    public synchronized void store(String key, Path outputFile) {
+        try {
+            long size = Files.size(outputFile);
+            if (size == 0 || size > maximumBytes) {
+                return;
+            }
+            Files.createDirectories(cacheDirectory);
+            // Write the result under a temporary name first, so that no other process sees an incomplete result
+            Path temporaryFile = Files.createTempFile(cacheDirectory, key, ".tmp");
+            Files.copy(outputFile, temporaryFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temporaryFile, getResultFile(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Long previousSize = entries.put(key, size);
+            totalBytes += size - (previousSize == null ? 0 : previousSize);
+            evict();
+        } catch (IOException e) {
+            System.err.println("Error storing the result " + key + " in the result cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the number of runs that were answered from the cache.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of runs that were not cached.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of results that were removed to keep the cache within its maximum size.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns a summary of the statistics of the cache.
+     *
+     * @return the hits, misses, evictions and the size of the cache
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("Result cache: %d hits, %d misses, %d evictions, %d results with %d bytes",
+                getHits(), getMisses(), getEvictions(), entries.size(), totalBytes);
+    }
+
+    /**
+     * Loads the cached results in the order of their last use.
+     */
+    private void loadEntries() {
+        if (!Files.isDirectory(cacheDirectory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(RESULT_EXTENSION))
+                    .sorted(Comparator.comparingLong(file -> file.toFile().lastModified()))
+                    .forEach(file -> {
+                        String fileName = file.getFileName().toString();
+                        long size = file.toFile().length();
+                        entries.put(fileName.substring(0, fileName.length() - RESULT_EXTENSION.length()), size);
+                        totalBytes += size;
+                    });
+        } catch (IOException e) {
+            System.err.println("Error reading the result cache " + cacheDirectory + ": " + e.getMessage());
+        }
+        evict();
+    }
+
+    /**
+     * Removes the least recently used results until the cache is within its maximum size.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maximumBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            try {
+                Files.deleteIfExists(getResultFile(eldest.getKey()));
+            } catch (IOException e) {
+                System.err.println("Error evicting the result " + eldest.getKey() + ": " + e.getMessage());
+            }
+            totalBytes -= eldest.getValue();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Gets the file of a cached result.
+     *
+     * @param key the key of the run
+     * @return the path of the result file
+     */
+    private Path getResultFile(String key) {
+        return cacheDirectory.resolve(key + RESULT_EXTENSION);
+    }
+
+    /**
+     * Copies the input without the parameters that only locate files on the host.
+     *
+     * @param input the input of the run
+     * @return the copy of the input
+     */
+    private static JsonNode withoutLocationParameters(JsonNode input) {
+        JsonNode copy = input.deepCopy();
+        if (JsonUtil.has(copy, "commonParameters.hardwaresimulation")) {
+            JsonNode hardwaresimulation = JsonUtil.get(copy, "commonParameters.hardwaresimulation");
+            if (hardwaresimulation.isObject()) {
+                ((ObjectNode) hardwaresimulation).remove(Arrays.asList(LOCATION_PARAMETERS));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Copies a JSON node with the fields of every object sorted by name, so that equal inputs have equal text.
+     *
+     * @param node the JSON node
+     * @return the canonical copy of the JSON node
+     */
+    private static JsonNode canonicalize(JsonNode node) {
+        if (node.isObject()) {
+            Map<String, JsonNode> sortedFields = new TreeMap<>();
+            node.fields().forEachRemaining(field -> sortedFields.put(field.getKey(), canonicalize(field.getValue())));
+            ObjectNode canonical = JsonNodeFactory.instance.objectNode();
+            sortedFields.forEach(canonical::set);
+            return canonical;
+        }
+        if (node.isArray()) {
+            ArrayNode canonical = JsonNodeFactory.instance.arrayNode();
+            node.forEach(element -> canonical.add(canonicalize(element)));
+            return canonical;
+        }
+        return node;
+    }
+}
@@ -0,0 +1,523 @@
+package gihs.core.managementOfResultStore;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The HardwaresimulationResultQuery class queries the runs of a result store: it filters the runs by their values,
+ * groups them by a column with aggregates such as "avg:IPC", and orders them to keep the top k.
+ * The result is printed as tab-separated values with a header line.
+ * <p>
+ * The runs are scanned column by column through the memory-mapped values files; only the columns of the query
+ * are read. A query without a group keeps at most k runs in memory, a grouped query one state per group.
+ * <p>
+ * Usage, for example:
+ * <pre>
+ * java -cp GeneralInterfaceHardwaresimulation.jar gihs.core.managementOfResultStore.HardwaresimulationResultQuery
+ *     -store ../resources/resultStore -filter "commonParameters.hardwaresimulation.name=gem5"
+ *     -groupBy commonParameters.cache_hierarchy.l2_size -aggregate avg:IPC,max:Cycles -orderBy avg:IPC -desc -top 5
+ * </pre>
+ */
+public class HardwaresimulationResultQuery {
+
+    /**
+     * The pattern of a filter: a column, an operator and a value.
+     */
+    private static final Pattern FILTER_PATTERN = Pattern.compile("^(.+?)(<=|>=|!=|=|<|>)(.*)$");
+
+    /**
+     * The name of the aggregate that counts the runs of a group.
+     */
+    private static final String COUNT = "count";
+
+    private final HardwaresimulationResultStoreReader reader;
+    private final List<String> filters = new ArrayList<>();
+    private final List<String> aggregates = new ArrayList<>();
+    private final List<String> selectedColumns = new ArrayList<>();
+    private String groupBy;
+    private String orderBy;
+    private boolean descending;
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+     * Creates a query of a result store.
+     *
+     * @param reader the reader of the result store
+     */
+    public HardwaresimulationResultQuery(HardwaresimulationResultStoreReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Adds a filter such as "IPC>1.5" or "commonParameters.cache_hierarchy.l2_size=256kB".
+     * The operators are =, !=, &lt;, &lt;=, &gt; and &gt;=; a run without a value of the column never matches.
+     *
+     * @param filter the filter
+     * @return this query
+     */
+    public HardwaresimulationResultQuery filter(String filter) {
+        filters.add(filter);
+        return this;
+    }
+
+    /**
+     * Groups the runs by the values of a column.
+     *
+     * @param column the name of the column
+     * @return this query
+     */
+    public HardwaresimulationResultQuery groupBy(String column) {
+        this.groupBy = column;
+        return this;
+    }
+
+    /**
+     * Adds an aggregate of the groups: "count", or "sum", "avg", "min" or "max" of a numeric column, such as "avg:IPC".
+     *
+     * @param aggregate the aggregate
+     * @return this query
+     */
+    public HardwaresimulationResultQuery aggregate(String aggregate) {
+        aggregates.add(aggregate);
+        return this;
+    }
+
+    /**
+     * Selects the columns that are printed for every run of a query without a group. By default, all columns are printed.
+     *
+     * @param column the name of the column
+     * @return this query
+     */
+    public HardwaresimulationResultQuery select(String column) {
+        selectedColumns.add(column);
+        return this;
+    }
+
+    /**
+     * Orders the runs by a column, or the groups by their group column or an aggregate.
+     * Runs without a value of the column are left out.
+     *
+     * @param column     the name of the column or aggregate
+     * @param descending whether the largest values come first
+     * @return this query
+     */
+    public HardwaresimulationResultQuery orderBy(String column, boolean descending) {
+        this.orderBy = column;
+        this.descending = descending;
+        return this;
+    }
+
+    /**
+     * Keeps only the first k runs or groups.
+     *
+     * @param k the number of runs or groups
+     * @return this query
+     */
+    public HardwaresimulationResultQuery limit(int k) {
+        if (k < 0) {
+            throw new ArithmeticException("the number of runs of a query must not be negative");
+        }
+        this.limit = k;
+        return this;
+    }
+
+    /**
+     * Runs the query and prints its result.
+     *
+     * @param out the stream of the result
+     * @throws IOException              if a column cannot be read
+     * @throws IllegalArgumentException if the query names an unknown column or is invalid
+     */
+    public void run(PrintStream out) throws IOException {
+        IntPredicate filter = compileFilters();
+        if (groupBy != null) {
+            runGrouped(filter, out);
+        } else {
+            runRows(filter, out);
+        }
+    }
+
+    /**
+     * Prints the selected columns of the runs that match the filters.
+     *
+     * @param filter the filter of the runs
+     * @param out    the stream of the result
+     * @throws IOException if a column cannot be read
+     */
+    private void runRows(IntPredicate filter, PrintStream out) throws IOException {
+        List<HardwaresimulationResultStoreReader.Column> columns = new ArrayList<>();
+        for (String name : selectedColumns.isEmpty() ? reader.getColumnNames() : selectedColumns) {
+            columns.add(reader.getColumn(name));
+        }
+        out.println(String.join("\t", selectedColumns.isEmpty() ? reader.getColumnNames() : selectedColumns));
+
+        if (orderBy == null) {
+            int printed = 0;
+            for (int row = 0; row < reader.getRowCount() && printed < limit; row++) {
+                if (filter.test(row)) {
+                    printRow(columns, row, out);
+                    printed++;
+                }
+            }
+            return;
+        }
+
+        HardwaresimulationResultStoreReader.Column orderColumn = reader.getColumn(orderBy);
+        Comparator<Integer> order = rowOrder(orderColumn);
+        // The heap keeps the best k runs with the worst of them on top
+        PriorityQueue<Integer> best = new PriorityQueue<>(order.reversed());
+        for (int row = 0; row < reader.getRowCount(); row++) {
+            if (!orderColumn.isMissing(row) && filter.test(row)) {
+                best.add(row);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+        Integer[] rows = best.toArray(new Integer[0]);
+        Arrays.sort(rows, order);
+        for (int row : rows) {
+            printRow(columns, row, out);
+        }
+    }
+
+    /**
+     * Gets the order of runs by a column.
+     *
+     * @param column the column
+     * @return the order, with the first run first
+     */
+    private Comparator<Integer> rowOrder(HardwaresimulationResultStoreReader.Column column) {
+        Comparator<Integer> order = column.getType() == ResultColumnType.TEXT
+                ? Comparator.comparing(row -> column.getText(column.getCode(row)))
+                : (first, second) -> Double.compare(column.getDouble(first), column.getDouble(second));
+        return descending ? order.reversed() : order;
+    }
+
+    private static void printRow(List<HardwaresimulationResultStoreReader.Column> columns, int row, PrintStream out) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                line.append('\t');
+            }
+            line.append(columns.get(i).format(row));
+        }
+        out.println(line);
+    }
+
+    /**
+     * Prints the aggregates of the groups of the runs that match the filters, in the order in which they were added.
+     * Without aggregates, the runs of every group are counted.
+     *
+     * @param filter the filter of the runs
+     * @param out    the stream of the result
+     * @throws IOException if a column cannot be read
+     */
+    private void runGrouped(IntPredicate filter, PrintStream out) throws IOException {
+        HardwaresimulationResultStoreReader.Column groupColumn = reader.getColumn(groupBy);
+        List<String> header = new ArrayList<>();
+        header.add(groupBy);
+        // The column of a count is null, because a count needs no values
+        List<HardwaresimulationResultStoreReader.Column> aggregateColumns = new ArrayList<>();
+        List<String> functions = new ArrayList<>();
+        for (String aggregate : aggregates.isEmpty() ? List.of(COUNT) : aggregates) {
+            if (aggregate.equals(COUNT)) {
+                functions.add(COUNT);
+                aggregateColumns.add(null);
+                header.add(COUNT);
+                continue;
+            }
+            String[] parts = aggregate.split(":", 2);
+            if (parts.length != 2 || !List.of("sum", "avg", "min", "max").contains(parts[0])) {
+                throw new IllegalArgumentException("The aggregate \"" + aggregate + "\" is not count, sum, avg, min or max of a column");
+            }
+            HardwaresimulationResultStoreReader.Column column = reader.getColumn(parts[1]);
+            if (!column.getType().isNumeric()) {
+                throw new IllegalArgumentException("The column \"" + parts[1] + "\" of the aggregate \"" + aggregate + "\" is not numeric");
+            }
+            functions.add(parts[0]);
+            aggregateColumns.add(column);
+            header.add(aggregate);
+        }
+
+        // The groups by the raw value of their group column, in the order of their first run
+        Map<Long, Group> groups = new LinkedHashMap<>();
+        for (int row = 0; row < reader.getRowCount(); row++) {
+            if (!filter.test(row)) {
+                continue;
+            }
+            long key = groupColumn.getType() == ResultColumnType.TEXT ? groupColumn.getCode(row)
+                    : groupColumn.getType() == ResultColumnType.LONG ? groupColumn.getLong(row)
+                    : Double.doubleToLongBits(groupColumn.getDouble(row));
+            final int firstRow = row;
+            groups.computeIfAbsent(key, ignored -> new Group(firstRow, aggregateColumns.size())).add(row, aggregateColumns);
+        }
+
+        List<String[]> lines = new ArrayList<>();
+        for (Group group : groups.values()) {
+            String[] line = new String[header.size()];
+            line[0] = groupColumn.format(group.firstRow);
+            for (int i = 0; i < aggregateColumns.size(); i++) {
+                line[i + 1] = functions.get(i).equals(COUNT) ? Long.toString(group.count)
+                        : group.format(i, functions.get(i), aggregateColumns.get(i).getType());
+            }
+            lines.add(line);
+        }
+        if (orderBy != null) {
+            int index = header.indexOf(orderBy);
+            if (index < 0) {
+                throw new IllegalArgumentException("The groups can only be ordered by " + String.join(", ", header));
+            }
+            Comparator<String[]> order = index == 0 && groupColumn.getType() == ResultColumnType.TEXT
+                    ? Comparator.comparing(line -> line[0])
+                    : Comparator.comparingDouble(line -> line[index].isEmpty() ? Double.NaN : Double.parseDouble(line[index]));
+            lines.sort(descending ? order.reversed() : order);
+        }
+
+        out.println(String.join("\t", header));
+        for (int i = 0; i < Math.min(limit, lines.size()); i++) {
+            out.println(String.join("\t", lines.get(i)));
+        }
+    }
+
+    /**
+     * Compiles the filters into one predicate of the rows of the runs.
+     *
+     * @return the predicate, which is true if a run matches every filter
+     * @throws IOException if a column cannot be read
+     */
+    private IntPredicate compileFilters() throws IOException {
+        IntPredicate predicate = row -> true;
+        for (String filter : filters) {
+            Matcher matcher = FILTER_PATTERN.matcher(filter);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("The filter \"" + filter + "\" has no operator =, !=, <, <=, > or >=");
+            }
+            predicate = predicate.and(compileFilter(reader.getColumn(matcher.group(1).trim()), matcher.group(2), matcher.group(3).trim()));
+        }
+        return predicate;
+    }
+
+    /**
+     * Compiles a filter of a column.
+     *
+     * @param column   the column
+     * @param operator the operator
+     * @param value    the value to compare with
+     * @return the predicate of the rows of the runs
+     */
+    private static IntPredicate compileFilter(HardwaresimulationResultStoreReader.Column column, String operator, String value) {
+        if (column.getType() == ResultColumnType.TEXT) {
+            // The texts of the dictionary are compared once, so a run is matched by the code of its text
+            int code = column.codeOf(value);
+            if (operator.equals("=")) {
+                return row -> column.getCode(row) == code && code != ResultColumnType.MISSING_CODE;
+            }
+            if (operator.equals("!=")) {
+                return row -> column.getCode(row) != code && !column.isMissing(row);
+            }
+            boolean[] matches = new boolean[column.getDictionarySize()];
+            for (int textCode = 0; textCode < matches.length; textCode++) {
+                matches[textCode] = compare(column.getText(textCode).compareTo(value), operator);
+            }
+            return row -> !column.isMissing(row) && matches[column.getCode(row)];
+        }
+
+        double number;
+        try {
+            number = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The column \"" + column.getName() + "\" is numeric, but \"" + value + "\" is no number");
+        }
+        if (column.getType() == ResultColumnType.LONG && number == Math.rint(number)) {
+            // Counters are compared exactly
+            long counter = (long) number;
+            return row -> !column.isMissing(row) && compare(Long.compare(column.getLong(row), counter), operator);
+        }
+        return row -> !column.isMissing(row) && compare(Double.compare(column.getDouble(row), number), operator);
+    }
+
+    /**
+     * Checks the result of a comparison against an operator.
+     *
+     * @param comparison the result of the comparison, negative, 0 or positive
+     * @param operator   the operator
+     * @return true if the comparison satisfies the operator, otherwise false
+     */
+    private static boolean compare(int comparison, String operator) {
+        switch (operator) {
+            case "=":
+                return comparison == 0;
+            case "!=":
+                return comparison != 0;
+            case "<":
+                return comparison < 0;
+            case "<=":
+                return comparison <= 0;
+            case ">":
+                return comparison > 0;
+            default:
+                return comparison >= 0;
+        }
+    }
+
+    /**
+     * The aggregated values of one group.
+     */
+    private static final class Group {
+
+        private final int firstRow;
+        private long count;
+        private final long[] counts;
+        private final double[] sums;
+        private final long[] longSums;
+        private final double[] minimums;
+        private final double[] maximums;
+
+        Group(int firstRow, int aggregateCount) {
+            this.firstRow = firstRow;
+            counts = new long[aggregateCount];
+            sums = new double[aggregateCount];
+            longSums = new long[aggregateCount];
+            minimums = new double[aggregateCount];
+            maximums = new double[aggregateCount];
+            Arrays.fill(minimums, Double.POSITIVE_INFINITY);
+            Arrays.fill(maximums, Double.NEGATIVE_INFINITY);
+        }
+
+        void add(int row, List<HardwaresimulationResultStoreReader.Column> columns) {
+            count++;
+            for (int i = 0; i < columns.size(); i++) {
+                HardwaresimulationResultStoreReader.Column column = columns.get(i);
+                if (column == null || column.isMissing(row)) {
+                    continue;
+                }
+                double value = column.getDouble(row);
+                counts[i]++;
+                sums[i] += value;
+                if (column.getType() == ResultColumnType.LONG) {
+                    longSums[i] += column.getLong(row);
+                }
+                minimums[i] = Math.min(minimums[i], value);
+                maximums[i] = Math.max(maximums[i], value);
+            }
+        }
+
+        /**
+         * Formats an aggregate of the group.
+         *
+         * @param aggregate the index of the aggregate
+         * @param function  the function of the aggregate
+         * @param type      the type of the column of the aggregate
+         * @return the value as text, or an empty string if no run of the group has a value of the column
+         */
+        String format(int aggregate, String function, ResultColumnType type) {
+            if (counts[aggregate] == 0) {
+                return "";
+            }
+            switch (function) {
+                case "sum":
+                    return type == ResultColumnType.LONG ? Long.toString(longSums[aggregate]) : Double.toString(sums[aggregate]);
+                case "avg":
+                    return Double.toString(type == ResultColumnType.LONG
+                            ? (double) longSums[aggregate] / counts[aggregate]
+                            : sums[aggregate] / counts[aggregate]);
+                case "min":
+                    return formatNumber(minimums[aggregate], type);
+                default:
+                    return formatNumber(maximums[aggregate], type);
+            }
+        }
+
+        private static String formatNumber(double value, ResultColumnType type) {
+            return type == ResultColumnType.LONG ? Long.toString((long) value) : Double.toString(value);
+        }
+    }
+
+    /**
+     * Creates the command line options of the query.
+     *
+     * @return the Options object containing the command line options
+     */
+    private static Options createOptions() {
+        Options options = new Options();
+        options.addOption("store", true, "Directory of the result store");
+        options.addOption("filter", true, "Filter such as \"IPC>1.5\", can be given several times");
+        options.addOption("groupBy", true, "Column to group the runs by");
+        options.addOption("aggregate", true, "Comma-separated aggregates of the groups, such as \"count,avg:IPC,max:Cycles\"");
+        options.addOption("columns", true, "Comma-separated columns to print for every run, by default all columns");
+        options.addOption("orderBy", true, "Column or aggregate to order the runs or groups by");
+        options.addOption("desc", false, "Order the largest values first");
+        options.addOption("top", true, "Number of runs or groups to keep");
+        options.addOption("list", false, "List the columns of the result store");
+        options.addOption("help", false, "Display help");
+        return options;
+    }
+
+    /**
+     * Runs a query that is given by command line options.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        Options options = createOptions();
+        try {
+            CommandLine commandLine = new DefaultParser().parse(options, args);
+            if (commandLine.hasOption("help") || !commandLine.hasOption("store")) {
+                new HelpFormatter().printHelp("HardwaresimulationResultQuery -store <directory>", options);
+                return;
+            }
+            HardwaresimulationResultStoreReader reader = new HardwaresimulationResultStoreReader(Paths.get(commandLine.getOptionValue("store")));
+            if (commandLine.hasOption("list")) {
+                System.out.println(reader.getRowCount() + " runs");
+                reader.getColumnNames().forEach(System.out::println);
+                return;
+            }
+            HardwaresimulationResultQuery query = new HardwaresimulationResultQuery(reader);
+            if (commandLine.hasOption("filter")) {
+                for (String filter : commandLine.getOptionValues("filter")) {
+                    query.filter(filter);
+                }
+            }
+            if (commandLine.hasOption("groupBy")) {
+                query.groupBy(commandLine.getOptionValue("groupBy"));
+            }
+            if (commandLine.hasOption("aggregate")) {
+                for (String aggregate : commandLine.getOptionValue("aggregate").split(",")) {
+                    query.aggregate(aggregate.trim());
+                }
+            }
+            if (commandLine.hasOption("columns")) {
+                for (String column : commandLine.getOptionValue("columns").split(",")) {
+                    query.select(column.trim());
+                }
+            }
+            if (commandLine.hasOption("orderBy")) {
+                query.orderBy(commandLine.getOptionValue("orderBy"), commandLine.hasOption("desc"));
+            }
+            if (commandLine.hasOption("top")) {
+                query.limit(Integer.parseInt(commandLine.getOptionValue("top")));
+            }
+            query.run(System.out);
+        } catch (ParseException | IOException | IllegalArgumentException | ArithmeticException e) {
+            System.err.println("error: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package gihs.core.managementOfResultStore;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import gihs.core.managementOFJsonNodeALL.JsonUtil;
+import gihs.core.output.SimulationResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The HardwaresimulationResultStore class appends the input parameters and the output parameters of every run
+ * to a columnar store on disk, so a campaign of thousands of runs is queried without opening a file per run.
+ * <p>
+ * Every parameter is a column with one fixed-width file: counters as longs, decimals as doubles and texts as codes
+ * of a dictionary. The input parameters are the leaves of "commonParameters.cache_hierarchy" and of the parameters of
+ * the hardware simulation, such as "gem5.processor.isa"; the output parameters are the top-level output parameters of
+ * the result, where a percentage such as "2.5%" is stored as the number 2.5. A column that a run does not have holds
+ * a missing value for it. The store is only appended to; {@link HardwaresimulationResultStoreReader} maps it into
+ * memory for queries.
+ * <p>
+ * Appends are serialized by a lock file, so the runs of a parameter sweep and of several processes can share a store.
+ * The column of the hardware simulation name is written last, so its length is the number of complete runs.
+ */
+public class HardwaresimulationResultStore {
+
+    /**
+     * The column that every run has, whose length is the number of runs.
+     */
+    static final String ROW_COLUMN = "commonParameters.hardwaresimulation.name";
+
+    /**
+     * The groups of input parameters whose leaves are stored, besides those of the hardware simulation.
+     */
+    private static final String[] INPUT_GROUPS = {"commonParameters.cache_hierarchy"};
+
+    private static final String LOCK_FILE = ".lock";
+
+    /**
+     * The number of values that are copied at once when a column is created or converted.
+     */
+    private static final int CHUNK_ROWS = 8192;
+
+    /**
+     * The directory of the store that the instance is created with, or null if no runs are stored.
+     */
+    private static String directory;
+
+    /**
+     * The single instance of the store, created on first use.
+     */
+    private static HardwaresimulationResultStore instance;
+
+    private final Path storeDirectory;
+
+    /**
+     * The open values files of the columns, keyed by their names, so that an append does not open a file per column.
+     * A values file that is replaced gets a new name, so a name always stands for the same file.
+     */
+    private final Map<String, FileChannel> valueChannels = new HashMap<>();
+
+    /**
+     * The dictionaries of the TEXT columns that were read, keyed by the names of their files.
+     */
+    private final Map<String, Dictionary> dictionaries = new HashMap<>();
+
+    /**
+     * Creates the store.
+     */
+    private HardwaresimulationResultStore() {
+        this.storeDirectory = directory == null ? null : Paths.get(directory);
+    }
+
+    /**
+     * Configures the directory of the store. Must be called before the store is used.
+     *
+     * @param directory the directory in which the runs are stored, or null to store no runs
+     */
+    public static synchronized void configure(String directory) {
+        if (instance != null) {
+            throw new IllegalStateException("the result store is already in use and cannot be configured anymore");
+        }
+        HardwaresimulationResultStore.directory = directory;
+    }
+
+    /**
+     * Gets the single instance of the store, creating it on first use.
+     *
+     * @return the instance of the store
+     */
+    public static synchronized HardwaresimulationResultStore getInstance() {
+        if (instance == null) {
+            instance = new HardwaresimulationResultStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Checks whether runs are stored at all.
+     *
+     * @return true if a directory is configured, otherwise false
+     */
+    public boolean isEnabled() {
+        return storeDirectory != null;
+    }
+
+    /**
+     * Appends a run to the store.
+     *
+     * @param input  the validated input of the run
+     * @param result the output parameters of the run
+     * @throws IOException if the store cannot be written
+     */
+    public synchronized void append(JsonNode input, SimulationResult result) throws IOException {
+        Files.createDirectories(storeDirectory);
+        Map<String, JsonNode> values = collectValues(input, result);
+        try (FileChannel lockChannel = FileChannel.open(storeDirectory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = lockChannel.lock();
+            try {
+                appendLocked(values);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Appends the values of a run to the store while the lock file is held.
+     *
+     * @param values the values by the names of their columns
+     * @throws IOException if the store cannot be written
+     */
+    private void appendLocked(Map<String, JsonNode> values) throws IOException {
+        // Another process may have added runs or columns since the last append
+        List<ResultColumn> columns = ResultColumn.readCatalog(storeDirectory);
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            positions.put(columns.get(i).getName(), i);
+        }
+        ResultColumn rowColumn = positions.containsKey(ROW_COLUMN) ? columns.get(positions.get(ROW_COLUMN)) : null;
+        long row = rowColumn == null ? 0 : Files.size(storeDirectory.resolve(rowColumn.getFile())) / rowColumn.getType().getWidth();
+
+        List<Path> replacedFiles = new ArrayList<>();
+        boolean catalogChanged = false;
+        for (Map.Entry<String, JsonNode> value : values.entrySet()) {
+            ResultColumnType type = typeOf(value.getValue());
+            Integer position = positions.get(value.getKey());
+            if (position == null) {
+                positions.put(value.getKey(), columns.size());
+                columns.add(createColumn(value.getKey(), type, row, columns));
+                catalogChanged = true;
+            } else if (columns.get(position).getType() == ResultColumnType.LONG && type == ResultColumnType.DOUBLE) {
+                replacedFiles.add(storeDirectory.resolve(columns.get(position).getFile()));
+                columns.set(position, toDoubleColumn(columns.get(position), row, columns));
+                catalogChanged = true;
+            }
+        }
+        // The values files of the columns that this or another process converted are closed before they are deleted
+        closeReplacedChannels(columns);
+        if (catalogChanged) {
+            ResultColumn.writeCatalog(storeDirectory, columns);
+            for (Path replacedFile : replacedFiles) {
+                Files.deleteIfExists(replacedFile);
+            }
+        }
+
+        for (ResultColumn column : columns) {
+            if (!column.getName().equals(ROW_COLUMN)) {
+                writeValue(column, row, values.get(column.getName()));
+            }
+        }
+        writeValue(columns.get(positions.get(ROW_COLUMN)), row, values.get(ROW_COLUMN));
+    }
+
+    /**
+     * Collects the values of the columns of a run, the hardware simulation name first.
+     *
+     * @param input  the input of the run
+     * @param result the output parameters of the run
+     * @return the values by the names of their columns
+     */
+    private static Map<String, JsonNode> collectValues(JsonNode input, SimulationResult result) {
+        Map<String, JsonNode> values = new LinkedHashMap<>();
+        JsonNode hardwaresimulationName = JsonUtil.get(input, ROW_COLUMN);
+        values.put(ROW_COLUMN, hardwaresimulationName);
+        for (String inputGroup : INPUT_GROUPS) {
+            if (JsonUtil.has(input, inputGroup)) {
+                collectLeaves(JsonUtil.get(input, inputGroup), new StringBuilder(inputGroup), values);
+            }
+        }
+        String name = hardwaresimulationName.asText();
+        if (input.has(name)) {
+            collectLeaves(input.get(name), new StringBuilder(name), values);
+        }
+        result.getOutputParameters().forEach((outputParameter, value) -> {
+            if (typeOf(value) != null) {
+                values.put(outputParameter, value);
+            }
+        });
+        return values;
+    }
+
+    /**
+     * Collects the leaves of a group of input parameters that are numbers, texts or booleans.
+     *
+     * @param group  the group
+     * @param path   the path of the group, which is restored before this method returns
+     * @param values the values by the names of their columns
+     */
+    private static void collectLeaves(JsonNode group, StringBuilder path, Map<String, JsonNode> values) {
+        int pathLength = path.length();
+        group.fields().forEachRemaining(child -> {
+            path.append('.').append(child.getKey());
+            if (child.getValue().isObject()) {
+                collectLeaves(child.getValue(), path, values);
+            } else if (typeOf(child.getValue()) != null) {
+                values.put(path.toString(), child.getValue());
+            }
+            path.setLength(pathLength);
+        });
+    }
+
+    /**
+     * Gets the type of the column of a value.
+     *
+     * @param value the value
+     * @return the type, or null if the value is not stored, such as the breakdown of the output parameters
+     */
+    private static ResultColumnType typeOf(JsonNode value) {
+        if (value.isIntegralNumber() && value.canConvertToLong()) {
+            return ResultColumnType.LONG;
+        } else if (SimulationResult.toNumber(value) != null) {
+            return ResultColumnType.DOUBLE;
+        } else if (value.isTextual() || value.isBoolean()) {
+            return ResultColumnType.TEXT;
+        }
+        return null;
+    }
+
+    /**
+     * Creates a column whose values are missing for the runs that were stored before.
+     *
+     * @param name    the name of the column
+     * @param type    the type of the column
+     * @param rows    the number of runs that were stored before
+     * @param columns the columns of the store
+     * @return the column
+     * @throws IOException if the values file cannot be written
+     */
+    private ResultColumn createColumn(String name, ResultColumnType type, long rows, List<ResultColumn> columns) throws IOException {
+        ResultColumn column = new ResultColumn(name, type, newFileName(columns));
+        try (FileChannel values = FileChannel.open(storeDirectory.resolve(column.getFile()),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer missing = ByteBuffer.allocate(CHUNK_ROWS * type.getWidth());
+            for (long row = 0; row < rows; row += CHUNK_ROWS) {
+                missing.clear();
+                for (long chunkRow = row; chunkRow < Math.min(rows, row + CHUNK_ROWS); chunkRow++) {
+                    putMissing(missing, type);
+                }
+                values.write(missing.flip());
+            }
+        }
+        return column;
+    }
+
+    /**
+     * Copies a LONG column into a new DOUBLE column, once a run has a decimal value for it.
+     *
+     * @param column  the LONG column
+     * @param rows    the number of runs that were stored before
+     * @param columns the columns of the store
+     * @return the DOUBLE column
+     * @throws IOException if the values files cannot be read or written
+     */
+    private ResultColumn toDoubleColumn(ResultColumn column, long rows, List<ResultColumn> columns) throws IOException {
+        ResultColumn doubleColumn = new ResultColumn(column.getName(), ResultColumnType.DOUBLE, newFileName(columns));
+        try (FileChannel longValues = FileChannel.open(storeDirectory.resolve(column.getFile()), StandardOpenOption.READ);
+             FileChannel doubleValues = FileChannel.open(storeDirectory.resolve(doubleColumn.getFile()),
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer chunk = ByteBuffer.allocate(CHUNK_ROWS * Long.BYTES);
+            for (long row = 0; row < rows; row += CHUNK_ROWS) {
+                chunk.clear().limit((int) Math.min(rows - row, CHUNK_ROWS) * Long.BYTES);
+                while (chunk.hasRemaining() && longValues.read(chunk, row * Long.BYTES + chunk.position()) >= 0) {
+                    // Read the whole chunk
+                }
+                chunk.flip();
+                for (int offset = 0; offset < chunk.limit(); offset += Long.BYTES) {
+                    long longValue = chunk.getLong(offset);
+                    chunk.putDouble(offset, longValue == ResultColumnType.MISSING_LONG ? Double.NaN : longValue);
+                }
+                doubleValues.write(chunk);
+            }
+        }
+        return doubleColumn;
+    }
+
+    /**
+     * Gets an unused name for a values file.
+     *
+     * @param columns the columns of the store
+     * @return the name
+     */
+    private static String newFileName(List<ResultColumn> columns) {
+        int next = 0;
+        for (ResultColumn column : columns) {
+            next = Math.max(next, Integer.parseInt(column.getFile().substring(1, column.getFile().indexOf('.'))) + 1);
+        }
+        return "c" + next + ".col";
+    }
+
+    /**
+     * Writes the value of a run into a column, or a missing value if the run has no value of the column.
+     *
+     * @param column the column
+     * @param row    the row of the run
+     * @param value  the value, or null
+     * @throws IOException if the values file cannot be written
+     */
+    private void writeValue(ResultColumn column, long row, JsonNode value) throws IOException {
+        ByteBuffer encoded = ByteBuffer.allocate(column.getType().getWidth());
+        ResultColumnType type = value == null ? null : typeOf(value);
+        if (type == null) {
+            putMissing(encoded, column.getType());
+        } else if (column.getType() == ResultColumnType.TEXT) {
+            encoded.putInt(codeOf(column, value.asText()));
+        } else if (type == ResultColumnType.TEXT) {
+            System.err.println("The text \"" + value.asText() + "\" of the numeric column " + column.getName() + " is not stored");
+            putMissing(encoded, column.getType());
+        } else if (column.getType() == ResultColumnType.LONG) {
+            encoded.putLong(value.asLong());
+        } else {
+            // A percentage such as "2.5%" is stored as its number
+            encoded.putDouble(SimulationResult.toNumber(value));
+        }
+        // A run that was only partially appended before is overwritten
+        FileChannel values = valueChannels.get(column.getFile());
+        if (values == null) {
+            values = FileChannel.open(storeDirectory.resolve(column.getFile()), StandardOpenOption.WRITE);
+            valueChannels.put(column.getFile(), values);
+        }
+        values.write(encoded.flip(), row * column.getType().getWidth());
+    }
+
+    /**
+     * Closes the open values files that are no longer in the catalog, because their columns were converted
+     * by this or another process.
+     *
+     * @param columns the columns of the store
+     * @throws IOException if a values file cannot be closed
+     */
+    private void closeReplacedChannels(List<ResultColumn> columns) throws IOException {
+        Set<String> files = new HashSet<>();
+        for (ResultColumn column : columns) {
+            files.add(column.getFile());
+        }
+        Iterator<Map.Entry<String, FileChannel>> channels = valueChannels.entrySet().iterator();
+        while (channels.hasNext()) {
+            Map.Entry<String, FileChannel> channel = channels.next();
+            if (!files.contains(channel.getKey())) {
+                channel.getValue().close();
+                channels.remove();
+            }
+        }
+    }
+
+    /**
+     * Gets the code of a text in the dictionary of a TEXT column, appending the text if it is new.
+     *
+     * @param column the TEXT column
+     * @param text   the text
+     * @return the code of the text
+     * @throws IOException if the dictionary cannot be read or written
+     */
+    private int codeOf(ResultColumn column, String text) throws IOException {
+        Path dictionaryFile = storeDirectory.resolve(column.getDictionaryFile());
+        Dictionary dictionary = dictionaries.computeIfAbsent(column.getDictionaryFile(), ignored -> new Dictionary());
+        long length = Files.exists(dictionaryFile) ? Files.size(dictionaryFile) : 0;
+        if (length != dictionary.length) {
+            // Another process has appended texts since this process last read the dictionary
+            dictionary.read(column.readDictionary(storeDirectory), length);
+        }
+        Integer code = dictionary.codes.get(text);
+        if (code == null) {
+            column.appendToDictionary(storeDirectory, text);
+            code = dictionary.size++;
+            dictionary.codes.put(text, code);
+            dictionary.length = Files.size(dictionaryFile);
+        }
+        return code;
+    }
+
+    /**
+     * The codes of the texts of a TEXT column, as far as its dictionary file has been read.
+     */
+    private static final class Dictionary {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private int size;
+
+        /**
+         * The length of the dictionary file that the codes were read from.
+         */
+        private long length;
+
+        void read(List<String> texts, long length) {
+            codes.clear();
+            for (int code = 0; code < texts.size(); code++) {
+                codes.putIfAbsent(texts.get(code), code);
+            }
+            size = texts.size();
+            this.length = length;
+        }
+    }
+
+    private static void putMissing(ByteBuffer buffer, ResultColumnType type) {
+        switch (type) {
+            case LONG:
+                buffer.putLong(ResultColumnType.MISSING_LONG);
+                break;
+            case DOUBLE:
+                buffer.putDouble(Double.NaN);
+                break;
+            default:
+                buffer.putInt(ResultColumnType.MISSING_CODE);
+                break;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package gihs.core.managementOfResultStore;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The HardwaresimulationResultStoreReader class reads a result store that {@link HardwaresimulationResultStore} appends to.
+ * <p>
+ * The values files of the columns are mapped into memory when a column is first used, so scanning a column of
+ * a million runs reads the pages of the file and allocates nothing on the heap but the dictionary of a TEXT column.
+ * The runs are those that were completely appended when the reader was opened.
+ */
+public class HardwaresimulationResultStoreReader {
+
+    private final Path directory;
+    private final List<ResultColumn> columns;
+    private final Map<String, ResultColumn> columnsByName = new HashMap<>();
+
+    /**
+     * The columns that are already mapped into memory, by their names.
+     */
+    private final Map<String, Column> mappedColumns = new HashMap<>();
+
+    private final int rowCount;
+
+    /**
+     * Opens a result store.
+     *
+     * @param directory the directory of the store
+     * @throws IOException if the catalog of the store cannot be read
+     */
+    public HardwaresimulationResultStoreReader(Path directory) throws IOException {
+        this.directory = directory;
+        this.columns = ResultColumn.readCatalog(directory);
+        for (ResultColumn column : columns) {
+            columnsByName.put(column.getName(), column);
+        }
+        ResultColumn rowColumn = columnsByName.get(HardwaresimulationResultStore.ROW_COLUMN);
+        rowCount = rowColumn == null ? 0
+                : (int) (Files.size(directory.resolve(rowColumn.getFile())) / rowColumn.getType().getWidth());
+    }
+
+    /**
+     * Gets the number of runs in the store.
+     *
+     * @return the number of runs
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the names of the columns in the order in which they were added.
+     *
+     * @return the names of the columns
+     */
+    public List<String> getColumnNames() {
+        List<String> names = new ArrayList<>();
+        for (ResultColumn column : columns) {
+            names.add(column.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Checks whether the store has a column.
+     *
+     * @param name the name of the column
+     * @return true if the store has the column, otherwise false
+     */
+    public boolean hasColumn(String name) {
+        return columnsByName.containsKey(name);
+    }
+
+    /**
+     * Gets a column, mapping its values file into memory on first use.
+     *
+     * @param name the name of the column
+     * @return the column
+     * @throws IllegalArgumentException if the store has no column with this name
+     * @throws IOException              if the values file or the dictionary of the column cannot be read
+     */
+    public Column getColumn(String name) throws IOException {
+        Column column = mappedColumns.get(name);
+        if (column == null) {
+            ResultColumn resultColumn = columnsByName.get(name);
+            if (resultColumn == null) {
+                throw new IllegalArgumentException("The result store has no column \"" + name + "\"");
+            }
+            column = new Column(resultColumn);
+            mappedColumns.put(name, column);
+        }
+        return column;
+    }
+
+    /**
+     * The Column class gives access to the values of one column by the rows of the runs.
+     */
+    public class Column {
+
+        private final String name;
+        private final ResultColumnType type;
+        private final MappedByteBuffer values;
+
+        /**
+         * The texts of a TEXT column by their codes, otherwise null.
+         */
+        private final String[] dictionary;
+
+        private Column(ResultColumn column) throws IOException {
+            this.name = column.getName();
+            this.type = column.getType();
+            try (FileChannel channel = FileChannel.open(directory.resolve(column.getFile()), StandardOpenOption.READ)) {
+                // A mapping stays valid after its channel is closed
+                values = channel.map(FileChannel.MapMode.READ_ONLY, 0, (long) rowCount * type.getWidth());
+            }
+            dictionary = type == ResultColumnType.TEXT ? column.readDictionary(directory).toArray(new String[0]) : null;
+        }
+
+        /**
+         * Gets the name of the column.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the type of the column.
+         *
+         * @return the type
+         */
+        public ResultColumnType getType() {
+            return type;
+        }
+
+        /**
+         * Checks whether a run has no value in the column.
+         *
+         * @param row the row of the run
+         * @return true if the value is missing, otherwise false
+         */
+        public boolean isMissing(int row) {
+            switch (type) {
+                case LONG:
+                    return getLong(row) == ResultColumnType.MISSING_LONG;
+                case DOUBLE:
+                    return Double.isNaN(getDouble(row));
+                default:
+                    return getCode(row) == ResultColumnType.MISSING_CODE;
+            }
+        }
+
+        /**
+         * Gets the value of a run in a LONG column.
+         *
+         * @param row the row of the run
+         * @return the value, {@link ResultColumnType#MISSING_LONG} if it is missing
+         */
+        public long getLong(int row) {
+            return values.getLong(row * Long.BYTES);
+        }
+
+        /**
+         * Gets the value of a run in a numeric column as a double.
+         *
+         * @param row the row of the run
+         * @return the value, NaN if it is missing or the column is a TEXT column
+         */
+        public double getDouble(int row) {
+            if (type == ResultColumnType.LONG) {
+                long value = getLong(row);
+                return value == ResultColumnType.MISSING_LONG ? Double.NaN : value;
+            }
+            return type == ResultColumnType.DOUBLE ? values.getDouble(row * Double.BYTES) : Double.NaN;
+        }
+
+        /**
+         * Gets the code of the text of a run in a TEXT column.
+         *
+         * @param row the row of the run
+         * @return the code, {@link ResultColumnType#MISSING_CODE} if the text is missing
+         */
+        public int getCode(int row) {
+            return values.getInt(row * Integer.BYTES);
+        }
+
+        /**
+         * Gets the code of a text in the dictionary of a TEXT column.
+         *
+         * @param text the text
+         * @return the code, or {@link ResultColumnType#MISSING_CODE} if no run has the text
+         */
+        public int codeOf(String text) {
+            for (int code = 0; dictionary != null && code < dictionary.length; code++) {
+                if (dictionary[code].equals(text)) {
+                    return code;
+                }
+            }
+            return ResultColumnType.MISSING_CODE;
+        }
+
+        /**
+         * Gets the number of distinct texts of a TEXT column.
+         *
+         * @return the size of the dictionary, 0 for a numeric column
+         */
+        public int getDictionarySize() {
+            return dictionary == null ? 0 : dictionary.length;
+        }
+
+        /**
+         * Gets the text of a code of a TEXT column.
+         *
+         * @param code the code
+         * @return the text
+         */
+        public String getText(int code) {
+            return dictionary[code];
+        }
+
+        /**
+         * Formats the value of a run.
+         *
+         * @param row the row of the run
+         * @return the value as text, or an empty string if it is missing
+         */
+        public String format(int row) {
+            if (isMissing(row)) {
+                return "";
+            }
+            switch (type) {
+                case LONG:
+                    return Long.toString(getLong(row));
+                case DOUBLE:
+                    return Double.toString(getDouble(row));
+                default:
+                    return getText(getCode(row));
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package gihs.core.managementOfResultStore;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ResultColumn class describes one column of the result store: its name, the encoding of its values
+ * and the files that hold them. The columns of a store are listed in its catalog, "columns.json".
+ * <p>
+ * The values file holds one fixed-width value per run. The dictionary file of a TEXT column holds its distinct texts,
+ * each appended once, and a value of the column is the position of its text in the dictionary.
+ */
+class ResultColumn {
+
+    /**
+     * The name of the catalog file in the directory of the store.
+     */
+    static final String CATALOG_FILE = "columns.json";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String name;
+    private final ResultColumnType type;
+
+    /**
+     * The name of the values file in the directory of the store.
+     */
+    private final String file;
+
+    ResultColumn(String name, ResultColumnType type, String file) {
+        this.name = name;
+        this.type = type;
+        this.file = file;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    ResultColumnType getType() {
+        return type;
+    }
+
+    String getFile() {
+        return file;
+    }
+
+    /**
+     * Gets the name of the dictionary file of a TEXT column.
+     *
+     * @return the name of the dictionary file
+     */
+    String getDictionaryFile() {
+        return file + ".dict";
+    }
+
+    /**
+     * Reads the catalog of a store.
+     *
+     * @param directory the directory of the store
+     * @return the columns in the order in which they were added, empty if the store has no catalog yet
+     * @throws IOException if the catalog cannot be read
+     */
+    static List<ResultColumn> readCatalog(Path directory) throws IOException {
+        List<ResultColumn> columns = new ArrayList<>();
+        Path catalog = directory.resolve(CATALOG_FILE);
+        if (!Files.exists(catalog)) {
+            return columns;
+        }
+        for (JsonNode column : objectMapper.readTree(catalog.toFile())) {
+            columns.add(new ResultColumn(column.path("name").asText(),
+                    ResultColumnType.valueOf(column.path("type").asText()), column.path("file").asText()));
+        }
+        return columns;
+    }
+
+    /**
+     * Replaces the catalog of a store atomically, so a reader sees either the old or the new columns.
+     *
+     * @param directory the directory of the store
+     * @param columns   the columns
+     * @throws IOException if the catalog cannot be written
+     */
+    static void writeCatalog(Path directory, List<ResultColumn> columns) throws IOException {
+        ArrayNode catalog = objectMapper.createArrayNode();
+        for (ResultColumn column : columns) {
+            catalog.addObject()
+                    .put("name", column.name)
+                    .put("type", column.type.name())
+                    .put("file", column.file);
+        }
+        Path temporaryFile = Files.createTempFile(directory, CATALOG_FILE, ".tmp");
+        try {
+            Files.writeString(temporaryFile, objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(catalog), StandardCharsets.UTF_8);
+            try {
+                Files.move(temporaryFile, directory.resolve(CATALOG_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, directory.resolve(CATALOG_FILE), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Reads the dictionary of a TEXT column.
+     *
+     * @param directory the directory of the store
+     * @return the texts by their codes
+     * @throws IOException if the dictionary cannot be read
+     */
+    List<String> readDictionary(Path directory) throws IOException {
+        List<String> dictionary = new ArrayList<>();
+        Path dictionaryFile = directory.resolve(getDictionaryFile());
+        if (!Files.exists(dictionaryFile)) {
+            return dictionary;
+        }
+        try (InputStream in = Files.newInputStream(dictionaryFile);
+             DataInputStream texts = new DataInputStream(new BufferedInputStream(in))) {
+            while (true) {
+                dictionary.add(texts.readUTF());
+            }
+        } catch (EOFException e) {
+            // The end of the dictionary
+        }
+        return dictionary;
+    }
+
+    /**
+     * Appends a text to the dictionary of a TEXT column.
+     *
+     * @param directory the directory of the store
+     * @param text      the text
+     * @throws IOException if the dictionary cannot be written
+     */
+    void appendToDictionary(Path directory, String text) throws IOException {
+        try (DataOutputStream texts = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                directory.resolve(getDictionaryFile()), StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+            texts.writeUTF(text);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package gihs.core.managementOfResultStore;
+
+/**
+ * The ResultColumnType enum defines how the values of a column of the result store are encoded.
+ * Every value of a column has the same width, so the value of a run is found by its row alone.
+ */
+public enum ResultColumnType {
+
+    /**
+     * Counters and other integers, stored as 64-bit longs, for example the instructions or the associativity of a cache.
+     */
+    LONG(Long.BYTES),
+
+    /**
+     * Decimals, stored as 64-bit doubles, for example the IPC or a miss rate in percent.
+     */
+    DOUBLE(Double.BYTES),
+
+    /**
+     * Texts, stored as 32-bit codes of a dictionary of the distinct texts of the column, for example the size of a cache.
+     */
+    TEXT(Integer.BYTES);
+
+    /**
+     * The value of a LONG column for a run without the value.
+     */
+    public static final long MISSING_LONG = Long.MIN_VALUE;
+
+    /**
+     * The code of a TEXT column for a run without the value.
+     */
+    public static final int MISSING_CODE = -1;
+
+    private final int width;
+
+    ResultColumnType(int width) {
+        this.width = width;
+    }
+
+    /**
+     * Gets the number of bytes of a value.
+     *
+     * @return the width of a value
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Checks whether the values of the column are numbers.
+     *
+     * @return true for LONG and DOUBLE, otherwise false
+     */
+    public boolean isNumeric() {
+        return this != TEXT;
+    }
+}
@@ -0,0 +1,42 @@
+package gihs.core.output;
+
+/**
+ * The AggregateFunction enum defines how the statistics that match the patterns of an aggregate are combined.
+ */
+public enum AggregateFunction {
+
+    /**
+     * The values are added, for example the cache misses of all cores.
+     */
+    SUM,
+
+    /**
+     * The largest value is taken, for example the cycles of cores that run in parallel.
+     */
+    MAX;
+
+    /**
+     * Combines the aggregated value with another value.
+     *
+     * @param aggregate the aggregated value, NaN if no value was aggregated yet
+     * @param value     the other value
+     * @return the combined value
+     */
+    public double combine(double aggregate, double value) {
+        if (Double.isNaN(aggregate)) {
+            return value;
+        }
+        return this == SUM ? aggregate + value : Math.max(aggregate, value);
+    }
+
+    /**
+     * Combines two counters, with 64-bit arithmetic so that totals beyond the range of an int stay exact.
+     *
+     * @param aggregate the aggregated counter
+     * @param value     the other counter
+     * @return the combined counter
+     */
+    public long combine(long aggregate, long value) {
+        return this == SUM ? aggregate + value : Math.max(aggregate, value);
+    }
+}
@@ -1,18 +1,65 @@
 package gihs.core.output;
 
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
 /**
  * The GenerateOutputParameters interface defines the contract for generating
- * JSON parameters based on a specified file path.
+ * the output parameters of a hardware simulation from its statistics.
  */
 public interface GenerateOutputParameters {
 
+    /**
+     * Generates the output parameters from the statistics data that is read from the specified reader.
+     * The result should contain the mapping of simulation results
+     * with the output parameters for the general interface.
+     * The reader is not closed, so that the caller can read the rest of the statistics.
+     *
+     * @param statistics The reader of the statistics data.
+     * @return The output parameters.
+     */
+    SimulationResult generateSimulationResult(Reader statistics);
+
+    /**
+     * Generates the output parameters from the statistics file at the specified path.
+     *
+     * @param filePath The path to the file containing statistics data.
+     * @return The output parameters.
+     */
+    default SimulationResult generateSimulationResult(String filePath) {
+        try (Reader reader = new FileReader(filePath)) {
+            return generateSimulationResult(reader);
+        } catch (IOException e) {
+            System.err.println("Error reading the file: " + e.getMessage());
+            // As for an unreadable file, the output parameters of empty statistics are generated
+            return generateSimulationResult(new StringReader(""));
+        }
+    }
+
+    /**
+     * Generate a JSON parameter from the statistics data that is read from the specified reader.
+     * The generated JSON parameter should contain the mapping of simulation results
+     * with the output parameters for the general interface, sorted by their names.
+     * The reader is not closed, so that the caller can read the rest of the statistics.
+     *
+     * @param statistics The reader of the statistics data.
+     * @return A formatted JSON string representing the statistics parameters.
+     */
+    default String generateStatisticsParametersJson(Reader statistics) {
+        return generateSimulationResult(statistics).toJson();
+    }
+
     /**
      * Generate a JSON parameter using the specified file path.
      * The generated JSON parameter should contain the mapping of simulation results
-     * with the output parameters for the general interface.
+     * with the output parameters for the general interface, sorted by their names.
      *
      * @param filePath The path to the file containing statistics data.
      * @return A formatted JSON string representing the statistics parameters.
      */
-    String generateStatisticsParametersJson(String filePath);
+    default String generateStatisticsParametersJson(String filePath) {
+        return generateSimulationResult(filePath).toJson();
+    }
 }
@@ -1,77 +1,95 @@
 package gihs.core.output;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import gihs.core.managementOfResultStore.HardwaresimulationResultStore;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Comparator;
-import java.util.Map;
-import java.util.TreeMap;
+import java.io.Reader;
+import java.nio.file.Paths;
 
 /**
  * This class generates an output file containing sorted JSON output parameters.
+ * The output parameters are serialized once, printed and written atomically to the file.
+ * If the result store is enabled, they are also appended to it together with the input parameters of the run.
+ * The output parameters of an intermediate run, such as a window of a sampled simulation, are only written to the file.
  */
 public class GenerateOutputParametersFile {
 
     /**
-     * Generates the output parameters file.
+     * The input parameters of the run, which are appended to the result store together with the output parameters.
+     */
+    private JsonNode input;
+
+    /**
+     * The output parameters that were saved last.
+     */
+    private SimulationResult result;
+
+    /**
+     * Whether the output parameters are only an intermediate result that is neither printed nor appended to the result store.
+     */
+    private boolean intermediate;
+
+    /**
+     * Sets the input parameters of the next run, which are appended to the result store together with the output parameters.
+     * The output parameters of the previous run are forgotten.
      *
-     * @param generateOutputParameters               The instance of GenerateOutputParameters used for generating statistics parameters.
-     * @param generateHardwareSimulationOutputParametersPath The path to the hardware simulation output parameters file.
-     * @param generateJsonPath                       The path to save the generated JSON output parameters file.
+     * @param input The input parameters, or null if the output parameters are not appended to the result store.
      */
-    public void generateOutputParameters(GenerateOutputParameters generateOutputParameters, String generateHardwareSimulationOutputParametersPath, String generateJsonPath) {
-        String jsonOutputParameter = generateOutputParameters.generateStatisticsParametersJson(generateHardwareSimulationOutputParametersPath);
-        String sortedJsonOutputParameter = sortJsonOutputParameter(jsonOutputParameter);
-        System.out.println("---------- outputStats ----------\n" + sortedJsonOutputParameter +"\n---------- END ----------");
-        saveJsonToFile(sortedJsonOutputParameter, generateJsonPath);
+    public void setInput(JsonNode input) {
+        this.input = input;
+        this.result = null;
     }
 
     /**
-     * Sorts the JSON output parameters alphabetically by keys.
+     * Sets whether the output parameters are only an intermediate result, such as those of a window of a sampled
+     * simulation, which are merged into the result of another run. They are then only written to the file,
+     * but neither printed nor appended to the result store.
      *
-     * @param jsonOutputParameter The JSON output parameter to be sorted.
-     * @return The sorted JSON output parameter.
+     * @param intermediate True if the output parameters are an intermediate result, otherwise false.
      */
-    private String sortJsonOutputParameter(String jsonOutputParameter) {
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            ObjectNode jsonObject = objectMapper.readValue(jsonOutputParameter, ObjectNode.class);
-            Map<String, JsonNode> sortedFields = new TreeMap<>(Comparator.naturalOrder());
-            jsonObject.fields().forEachRemaining(entry -> sortedFields.put(entry.getKey(), entry.getValue()));
-            ObjectWriter objectWriter = objectMapper.writer().with(SerializationFeature.INDENT_OUTPUT);
-            return objectWriter.writeValueAsString(sortedFields);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return "";
+    public void setIntermediate(boolean intermediate) {
+        this.intermediate = intermediate;
     }
 
     /**
-     * Saves the JSON output parameter to a file.
+     * Checks whether the output parameters are only an intermediate result.
      *
-     * @param json     The JSON output parameter.
-     * @param filePath The path to save the file.
+     * @return True if the output parameters are neither printed nor appended to the result store, otherwise false.
      */
-    private void saveJsonToFile(String json, String filePath) {
-        try {
-            File file = new File(filePath);
-            if (!file.exists()) {
-                file.getParentFile().mkdirs();
-                file.createNewFile();
-            }
-            FileWriter fileWriter = new FileWriter(filePath);
-            fileWriter.write(json);
-            fileWriter.close();
-            System.out.println("The output file was successfully created at path: " + filePath);
-        } catch (IOException e) {
-            System.out.println(e.getMessage() + ": " + filePath);
-        }
+    public boolean isIntermediate() {
+        return intermediate;
+    }
+
+    /**
+     * Gets the output parameters that were saved last.
+     *
+     * @return The output parameters, or null if none were saved since the input parameters were set.
+     */
+    public SimulationResult getResult() {
+        return result;
+    }
+
+    /**
+     * Generates the output parameters file.
+     *
+     * @param generateOutputParameters               The instance of GenerateOutputParameters used for generating statistics parameters.
+     * @param generateHardwareSimulationOutputParametersPath The path to the hardware simulation output parameters file.
+     * @param generateJsonPath                       The path to save the generated JSON output parameters file.
+     */
+    public void generateOutputParameters(GenerateOutputParameters generateOutputParameters, String generateHardwareSimulationOutputParametersPath, String generateJsonPath) {
+        saveResult(generateOutputParameters.generateSimulationResult(generateHardwareSimulationOutputParametersPath), generateJsonPath);
+    }
+
+    /**
+     * Generates the output parameters file from statistics that are read from a stream instead of a file.
+     *
+     * @param generateOutputParameters The instance of GenerateOutputParameters used for generating statistics parameters.
+     * @param statistics               The reader of the hardware simulation statistics.
+     * @param generateJsonPath         The path to save the generated JSON output parameters file.
+     */
+    public void generateOutputParameters(GenerateOutputParameters generateOutputParameters, Reader statistics, String generateJsonPath) {
+        saveResult(generateOutputParameters.generateSimulationResult(statistics), generateJsonPath);
     }
 
     /**
@@ -80,20 +98,64 @@ public class GenerateOutputParametersFile {
      * @param generateOutputParameters      The GenerateOutputParameters object used to generate statistics parameters.
      * @param generateHardwareSimulationOutputParametersPath The file path for generating hardware simulation output parameters.
      * @param generateJsonPath              The file path for generating the JSON file.
-     * @param hostNanoseconds               The value of host nanoseconds to be added to the JSON.
+     * @param hostNanoseconds               The host nanoseconds to be added to the output parameters.
      */
-    public void generateOutputParameters(GenerateOutputParameters generateOutputParameters, String generateHardwareSimulationOutputParametersPath, String generateJsonPath, String hostNanoseconds) {
-        // Generate statistics parameters in JSON format
-        String jsonOutputParameter = generateOutputParameters.generateStatisticsParametersJson(generateHardwareSimulationOutputParametersPath);
-
-        // Add the value of host nanoseconds and sort the JSON output parameters
-        String sortedJsonOutputParameter = sortJsonOutputParameter(jsonOutputParameter.replaceFirst("}", ", " + hostNanoseconds + "\n}"));
+    public void generateOutputParameters(GenerateOutputParameters generateOutputParameters, String generateHardwareSimulationOutputParametersPath, String generateJsonPath, long hostNanoseconds) {
+        saveResult(generateOutputParameters.generateSimulationResult(generateHardwareSimulationOutputParametersPath)
+                .setHostNanoseconds(hostNanoseconds), generateJsonPath);
+    }
 
-        // Print the sorted JSON output parameters
-        System.out.println("---------- outputStats ----------\n" + sortedJsonOutputParameter + "\n---------- END ----------");
+    /**
+     * Generates output parameters from statistics that are read from a stream instead of a file.
+     *
+     * @param generateOutputParameters The GenerateOutputParameters object used to generate statistics parameters.
+     * @param statistics               The reader of the hardware simulation statistics.
+     * @param generateJsonPath         The file path for generating the JSON file.
+     * @param hostNanoseconds          The host nanoseconds to be added to the output parameters.
+     */
+    public void generateOutputParameters(GenerateOutputParameters generateOutputParameters, Reader statistics, String generateJsonPath, long hostNanoseconds) {
+        saveResult(generateOutputParameters.generateSimulationResult(statistics).setHostNanoseconds(hostNanoseconds), generateJsonPath);
+    }
 
-        // Save the sorted JSON output parameters to the specified file path
-        saveJsonToFile(sortedJsonOutputParameter, generateJsonPath);
+    /**
+     * Saves output parameters that were generated from the statistics of several runs, such as the windows of a sampled simulation.
+     *
+     * @param result           The output parameters.
+     * @param generateJsonPath The path to save the generated JSON output parameters file.
+     */
+    public void saveOutputParameters(SimulationResult result, String generateJsonPath) {
+        saveResult(result, generateJsonPath);
     }
 
+    /**
+     * Serializes the output parameters, which are sorted alphabetically by their names, prints them
+     * and saves them to a file. If the result store is enabled, the run is appended to it.
+     * Intermediate output parameters are only saved to the file.
+     *
+     * @param result   The output parameters.
+     * @param filePath The path to save the file.
+     */
+    private void saveResult(SimulationResult result, String filePath) {
+        this.result = result;
+        String json = result.toJson();
+        if (!intermediate) {
+            System.out.println("---------- outputStats ----------\n" + json + "\n---------- END ----------");
+        }
+        try {
+            SimulationResult.writeAtomically(json, Paths.get(filePath));
+            if (!intermediate) {
+                System.out.println("The output file was successfully created at path: " + filePath);
+            }
+        } catch (IOException e) {
+            System.out.println(e.getMessage() + ": " + filePath);
+        }
+        HardwaresimulationResultStore resultStore = HardwaresimulationResultStore.getInstance();
+        if (resultStore.isEnabled() && input != null && !intermediate) {
+            try {
+                resultStore.append(input, result);
+            } catch (IOException e) {
+                System.err.println("The run could not be appended to the result store: " + e.getMessage());
+            }
+        }
+    }
 }
@@ -0,0 +1,562 @@
+package gihs.core.output;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The MetricPlan class derives the output parameters of a hardware simulation from its statistics,
+ * as declared in the metric definition file of the simulator, for example "metrics/gem5.json" on the classpath.
+ * <p>
+ * A definition file has two parts. "statistics" declares the aggregates of the {@link StatisticsAggregator}
+ * by their name, their function (SUM or MAX, by default SUM) and their patterns. "metrics" declares the derived
+ * output parameters, each with one operation on values that are named by statistics or other metrics:
+ * <ul>
+ *     <li>"sum": the sum of a list of values,</li>
+ *     <li>"ratio": the quotient of two values, rounded to two decimals, as a percentage string if "percent" is true,</li>
+ *     <li>"perKilo": the first value per thousand of the second value, rounded to two decimals, such as the MPKI,</li>
+ *     <li>"scale": a value multiplied by a "factor", which is a number or the name of another value.</li>
+ * </ul>
+ * A metric can be rounded to an integer with "integer": true, and any value can be left out of the output
+ * with "output": false. The output parameters are the statistics followed by the metrics, in the order of the file.
+ * <p>
+ * The definitions are compiled once into a plan in dependency order, which is evaluated over primitive {@link Values}
+ * with one slot for every value, so no JSON is created before the output parameters themselves. Counters and their sums
+ * are evaluated with 64-bit integer arithmetic, so they stay exact beyond the range of an int and of a double's mantissa;
+ * quotients, and scales that are not rounded to an integer, are evaluated as doubles.
+ */
+public class MetricPlan {
+
+    /**
+     * The directory of the metric definition files on the classpath.
+     */
+    private static final String DEFINITIONS_DIRECTORY = "/metrics/";
+
+    private static final JsonNodeFactory nodeFactory = JsonNodeFactory.instance;
+
+    /**
+     * The operations of a metric.
+     */
+    private enum Operation {
+        SUM, RATIO, PER_KILO, SCALE
+    }
+
+    /**
+     * The definition file, which the aggregators of the plan are created from.
+     */
+    private final JsonNode definitions;
+
+    /**
+     * The aggregator of the statistics of the plan.
+     */
+    private final StatisticsAggregator aggregator;
+
+    /**
+     * The names of all values: the statistics, then the metrics in the order of the file.
+     */
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * The slots of the values by their names.
+     */
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    /**
+     * The number of statistics, whose slots come before those of the metrics.
+     */
+    private final int statisticCount;
+
+    /**
+     * Whether a value is an output parameter, by its slot.
+     */
+    private final boolean[] output;
+
+    /**
+     * The metrics in the order of their evaluation, every metric after the values it depends on.
+     */
+    private final List<Metric> evaluationOrder = new ArrayList<>();
+
+    /**
+     * The metrics in the order of the file, by their slot minus the number of statistics.
+     */
+    private final Metric[] metrics;
+
+    /**
+     * Compiles the metric definitions of a simulator.
+     *
+     * @param definitions the content of the metric definition file
+     * @throws IllegalArgumentException if the definitions are invalid, for example if a metric depends on an undefined value
+     */
+    public MetricPlan(JsonNode definitions) {
+        this.definitions = definitions;
+        this.aggregator = newAggregator();
+
+        JsonNode statisticDefinitions = definitions.path("statistics");
+        JsonNode metricDefinitions = definitions.path("metrics");
+        statisticCount = statisticDefinitions.size();
+        output = new boolean[statisticCount + metricDefinitions.size()];
+        for (JsonNode statistic : statisticDefinitions) {
+            addName(statistic);
+        }
+        for (JsonNode metric : metricDefinitions) {
+            addName(metric);
+        }
+
+        metrics = new Metric[metricDefinitions.size()];
+        for (int i = 0; i < metrics.length; i++) {
+            metrics[i] = new Metric(statisticCount + i, metricDefinitions.get(i));
+        }
+        int[] states = new int[metrics.length];
+        for (Metric metric : metrics) {
+            order(metric, states);
+        }
+    }
+
+    /**
+     * Loads and compiles the metric definition file of a simulator from the classpath.
+     *
+     * @param simulator the name of the simulator, such as "gem5"
+     * @return the plan of the simulator
+     * @throws IllegalStateException if the definition file is missing, cannot be read or is invalid
+     */
+    public static MetricPlan load(String simulator) {
+        String resource = DEFINITIONS_DIRECTORY + simulator + ".json";
+        try (InputStream definitions = MetricPlan.class.getResourceAsStream(resource)) {
+            if (definitions == null) {
+                throw new IllegalStateException("The metric definition file " + resource + " is missing");
+            }
+            return new MetricPlan(new ObjectMapper().readTree(definitions));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("The metric definition file " + resource + " cannot be read: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the aggregator of the statistics of the plan.
+     *
+     * @return the aggregator
+     */
+    public StatisticsAggregator getAggregator() {
+        return aggregator;
+    }
+
+    /**
+     * Creates a new aggregator of the statistics of the plan, to which further aggregates can be added.
+     * The accumulators of the new aggregator can be evaluated by the plan, which ignores the further aggregates.
+     *
+     * @return the new aggregator
+     */
+    public StatisticsAggregator newAggregator() {
+        StatisticsAggregator newAggregator = new StatisticsAggregator();
+        for (JsonNode statistic : definitions.path("statistics")) {
+            String[] patterns = new String[statistic.path("patterns").size()];
+            for (int i = 0; i < patterns.length; i++) {
+                patterns[i] = statistic.path("patterns").get(i).asText();
+            }
+            AggregateFunction function = AggregateFunction.valueOf(statistic.path("function").asText(AggregateFunction.SUM.name()));
+            newAggregator.add(statistic.path("name").asText(), function, patterns);
+        }
+        return newAggregator;
+    }
+
+    /**
+     * Gets the slot of a value in the evaluated values.
+     *
+     * @param name the name of the statistic or metric
+     * @return the slot, or -1 if the plan has no value with this name
+     */
+    public int indexOf(String name) {
+        return slots.getOrDefault(name, -1);
+    }
+
+    /**
+     * Evaluates the metrics of the totals of aggregated statistics.
+     * A statistic that no statistic of the simulation matched is taken as 0.
+     *
+     * @param accumulator the aggregated statistics
+     * @return the values of the statistics and metrics by their slots
+     */
+    public Values evaluate(StatisticsAggregator.Accumulator accumulator) {
+        Values values = new Values(output.length);
+        for (int i = 0; i < statisticCount; i++) {
+            if (accumulator.isDecimal(i)) {
+                values.setDouble(i, accumulator.getTotal(i));
+            } else {
+                values.setLong(i, accumulator.getCount(i));
+            }
+        }
+        return evaluate(values);
+    }
+
+    /**
+     * Evaluates the metrics over the values of the statistics.
+     *
+     * @param values the values with the statistics in their slots
+     * @return the values
+     */
+    private Values evaluate(Values values) {
+        for (int i = 0; i < statisticCount; i++) {
+            if (values.isDecimal(i) && Double.isNaN(values.get(i))) {
+                values.setLong(i, 0);
+            }
+        }
+        for (Metric metric : evaluationOrder) {
+            metric.evaluate(values);
+        }
+        return values;
+    }
+
+    /**
+     * Creates the output parameters of evaluated values.
+     *
+     * @param values the values of the statistics and metrics by their slots
+     * @return the output parameters
+     */
+    public ObjectNode toJson(Values values) {
+        ObjectNode outputParameters = nodeFactory.objectNode();
+        for (int slot = 0; slot < output.length; slot++) {
+            if (!output[slot]) {
+                continue;
+            }
+            if (slot < statisticCount) {
+                outputParameters.set(names.get(slot), numberNode(values, slot));
+            } else {
+                outputParameters.set(names.get(slot), metrics[slot - statisticCount].toJson(values));
+            }
+        }
+        return outputParameters;
+    }
+
+    /**
+     * Puts the per-core breakdown of the statistics into the output parameters as the object "Breakdown",
+     * in which every output statistic with a wildcard has an array of its value for every core, controller or bank.
+     * The breakdown is left out if no statistic has one.
+     *
+     * @param accumulator      the aggregated statistics
+     * @param outputParameters the output parameters
+     */
+    public void putBreakdown(StatisticsAggregator.Accumulator accumulator, ObjectNode outputParameters) {
+        ObjectNode breakdownJson = nodeFactory.objectNode();
+        for (int i = 0; i < statisticCount; i++) {
+            int breakdownSize = accumulator.getBreakdownSize(i);
+            if (!output[i] || breakdownSize == 0) {
+                continue;
+            }
+            ArrayNode values = breakdownJson.putArray(names.get(i));
+            for (int index = 0; index < breakdownSize; index++) {
+                if (!accumulator.hasBreakdown(i, index)) {
+                    values.addNull();
+                } else if (accumulator.isDecimal(i)) {
+                    values.add(numberNode(accumulator.getBreakdown(i, index)));
+                } else {
+                    values.add(accumulator.getBreakdownCount(i, index));
+                }
+            }
+        }
+        if (!breakdownJson.isEmpty()) {
+            outputParameters.set("Breakdown", breakdownJson);
+        }
+    }
+
+    /**
+     * Adds the name of a statistic or metric and assigns it the next slot.
+     *
+     * @param definition the definition of the statistic or metric
+     */
+    private void addName(JsonNode definition) {
+        String name = definition.path("name").asText();
+        if (name.isEmpty() || slots.containsKey(name)) {
+            throw new IllegalArgumentException("The name \"" + name + "\" is missing or defined twice");
+        }
+        output[names.size()] = definition.path("output").asBoolean(true);
+        slots.put(name, names.size());
+        names.add(name);
+    }
+
+    /**
+     * Gets the slot of a value that a metric depends on.
+     *
+     * @param name   the name of the value
+     * @param metric the name of the metric
+     * @return the slot of the value
+     */
+    private int slotOf(String name, String metric) {
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            throw new IllegalArgumentException("The metric \"" + metric + "\" depends on the undefined value \"" + name + "\"");
+        }
+        return slot;
+    }
+
+    /**
+     * Adds a metric to the evaluation order after the metrics that it depends on.
+     *
+     * @param metric the metric
+     * @param states the state of every metric: 0 if not visited, 1 while its dependencies are ordered, 2 if ordered
+     */
+    private void order(Metric metric, int[] states) {
+        int index = metric.slot - statisticCount;
+        if (states[index] == 2) {
+            return;
+        }
+        if (states[index] == 1) {
+            throw new IllegalArgumentException("The metric \"" + names.get(metric.slot) + "\" depends on itself");
+        }
+        states[index] = 1;
+        for (int operand : metric.dependencies()) {
+            if (operand >= statisticCount) {
+                order(metrics[operand - statisticCount], states);
+            }
+        }
+        states[index] = 2;
+        evaluationOrder.add(metric);
+    }
+
+    /**
+     * Creates the JSON node of a value: a counter as an integer, a decimal as an integer if it has no fraction.
+     *
+     * @param values the values by their slots
+     * @param slot   the slot of the value
+     * @return the JSON node of the value
+     */
+    private static JsonNode numberNode(Values values, int slot) {
+        return values.isDecimal(slot) ? numberNode(values.get(slot)) : nodeFactory.numberNode(values.getLong(slot));
+    }
+
+    /**
+     * Creates the JSON node of a number, an integer if it has no fraction.
+     *
+     * @param value the number
+     * @return the JSON node of the number, or a null node if the number is NaN
+     */
+    private static JsonNode numberNode(double value) {
+        if (Double.isNaN(value)) {
+            return nodeFactory.nullNode();
+        }
+        if (value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE) {
+            return nodeFactory.numberNode((long) value);
+        }
+        return nodeFactory.numberNode(value);
+    }
+
+    /**
+     * A compiled metric.
+     */
+    private final class Metric {
+
+        private final int slot;
+        private final Operation operation;
+
+        /**
+         * The slots of the values of the operation.
+         */
+        private final int[] operands;
+
+        /**
+         * The constant factor of a scale.
+         */
+        private final double factor;
+
+        /**
+         * The slot of the factor of a scale if it is a value, otherwise -1.
+         */
+        private final int factorSlot;
+
+        private final boolean percent;
+        private final boolean integer;
+
+        Metric(int slot, JsonNode definition) {
+            this.slot = slot;
+            String name = names.get(slot);
+            if (definition.has("sum")) {
+                operation = Operation.SUM;
+                operands = slotsOf(definition.get("sum"), name, -1);
+            } else if (definition.has("ratio")) {
+                operation = Operation.RATIO;
+                operands = slotsOf(definition.get("ratio"), name, 2);
+            } else if (definition.has("perKilo")) {
+                operation = Operation.PER_KILO;
+                operands = slotsOf(definition.get("perKilo"), name, 2);
+            } else if (definition.has("scale")) {
+                operation = Operation.SCALE;
+                operands = new int[]{slotOf(definition.get("scale").asText(), name)};
+            } else {
+                throw new IllegalArgumentException("The metric \"" + name + "\" has no operation: sum, ratio, perKilo or scale");
+            }
+            JsonNode factorDefinition = definition.path("factor");
+            factorSlot = factorDefinition.isTextual() ? slotOf(factorDefinition.asText(), name) : -1;
+            factor = factorDefinition.asDouble(1);
+            percent = definition.path("percent").asBoolean(false);
+            integer = definition.path("integer").asBoolean(false);
+        }
+
+        /**
+         * Gets the slots of the values of an operation.
+         *
+         * @param operandDefinitions the names of the values
+         * @param name               the name of the metric
+         * @param count              the number of values of the operation, or -1 for any number
+         * @return the slots of the values
+         */
+        private int[] slotsOf(JsonNode operandDefinitions, String name, int count) {
+            if (!operandDefinitions.isArray() || (count >= 0 && operandDefinitions.size() != count)) {
+                throw new IllegalArgumentException("The metric \"" + name + "\" needs " + (count >= 0 ? count + " values" : "a list of values"));
+            }
+            int[] operandSlots = new int[operandDefinitions.size()];
+            for (int i = 0; i < operandSlots.length; i++) {
+                operandSlots[i] = slotOf(operandDefinitions.get(i).asText(), name);
+            }
+            return operandSlots;
+        }
+
+        /**
+         * Gets the slots of all values that the metric depends on.
+         *
+         * @return the slots
+         */
+        int[] dependencies() {
+            if (factorSlot < 0) {
+                return operands;
+            }
+            int[] dependencies = Arrays.copyOf(operands, operands.length + 1);
+            dependencies[operands.length] = factorSlot;
+            return dependencies;
+        }
+
+        /**
+         * Evaluates the metric into its slot. A quotient by 0 is 0. A sum of counters is a counter,
+         * as is any metric that is rounded to an integer.
+         *
+         * @param values the values by their slots, with the values of the dependencies already evaluated
+         */
+        void evaluate(Values values) {
+            double value;
+            switch (operation) {
+                case SUM:
+                    if (isSumOfCounters(values)) {
+                        long sum = 0;
+                        for (int operand : operands) {
+                            sum += values.getLong(operand);
+                        }
+                        values.setLong(slot, sum);
+                        return;
+                    }
+                    value = 0;
+                    for (int operand : operands) {
+                        value += values.get(operand);
+                    }
+                    break;
+                case RATIO:
+                    value = values.get(operands[1]) == 0 ? 0 : values.get(operands[0]) / values.get(operands[1]);
+                    value = SimulationResult.roundToTwoDecimals(percent ? value * 100 : value);
+                    break;
+                case PER_KILO:
+                    value = values.get(operands[1]) == 0 ? 0 : SimulationResult.roundToTwoDecimals(values.get(operands[0]) / values.get(operands[1]) * 1000);
+                    break;
+                default:
+                    value = values.get(operands[0]) * (factorSlot < 0 ? factor : values.get(factorSlot));
+                    break;
+            }
+            if (integer) {
+                values.setLong(slot, Math.round(value));
+            } else {
+                values.setDouble(slot, value);
+            }
+        }
+
+        private boolean isSumOfCounters(Values values) {
+            for (int operand : operands) {
+                if (values.isDecimal(operand)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Creates the JSON node of the value of the metric: a percentage as a string such as "2.5%",
+         * a sum or an integer as an integer if it has no fraction, any other value as a decimal.
+         *
+         * @param values the values by their slots
+         * @return the JSON node
+         */
+        JsonNode toJson(Values values) {
+            if (percent) {
+                return nodeFactory.textNode(values.get(slot) + "%");
+            }
+            if (operation == Operation.SUM || integer) {
+                return numberNode(values, slot);
+            }
+            return nodeFactory.numberNode(values.get(slot));
+        }
+    }
+
+    /**
+     * The Values class holds the evaluated statistics and metrics of a plan by their slots,
+     * each a 64-bit counter or a decimal.
+     */
+    public static final class Values {
+
+        /**
+         * The values: the counter itself, or the bits of the double for a decimal value.
+         */
+        private final long[] values;
+
+        private final boolean[] decimals;
+
+        Values(int size) {
+            values = new long[size];
+            decimals = new boolean[size];
+        }
+
+        /**
+         * Gets a value as a double.
+         *
+         * @param slot the slot of the value
+         * @return the value
+         */
+        public double get(int slot) {
+            return decimals[slot] ? Double.longBitsToDouble(values[slot]) : values[slot];
+        }
+
+        /**
+         * Gets a value as a counter, a decimal value rounded.
+         *
+         * @param slot the slot of the value
+         * @return the value
+         */
+        public long getLong(int slot) {
+            return decimals[slot] ? Math.round(Double.longBitsToDouble(values[slot])) : values[slot];
+        }
+
+        /**
+         * Checks whether a value is a decimal rather than a counter.
+         *
+         * @param slot the slot of the value
+         * @return true if the value is a decimal, otherwise false
+         */
+        public boolean isDecimal(int slot) {
+            return decimals[slot];
+        }
+
+        void setLong(int slot, long value) {
+            values[slot] = value;
+            decimals[slot] = false;
+        }
+
+        void setDouble(int slot, double value) {
+            values[slot] = Double.doubleToRawLongBits(value);
+            decimals[slot] = true;
+        }
+    }
+}
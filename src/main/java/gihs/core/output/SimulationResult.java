@@ -0,0 +1,206 @@
+package gihs.core.output;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The SimulationResult class holds the output parameters of one hardware simulation run, sorted by their names.
+ * <p>
+ * The output classes of the hardware simulations produce a SimulationResult instead of a JSON string,
+ * so the output parameters are serialized exactly once, when they are written, through one shared
+ * and preconfigured {@link ObjectWriter}. Nested output parameters, such as "Breakdown", keep their order.
+ */
+public class SimulationResult {
+
+    /**
+     * The name of the output parameter with the time that the hardware simulation took on the host.
+     */
+    public static final String HOST_NANOSECONDS = "HostNanoseconds";
+
+    /**
+     * The shared writer of all results, which indents the output parameters. An ObjectWriter is immutable
+     * and thread-safe, so it is configured only once.
+     */
+    private static final ObjectWriter JSON_WRITER = new ObjectMapper().writer().with(SerializationFeature.INDENT_OUTPUT);
+
+    private static final JsonNodeFactory nodeFactory = JsonNodeFactory.instance;
+
+    /**
+     * The output parameters, sorted by their names.
+     */
+    private final Map<String, JsonNode> outputParameters = new TreeMap<>();
+
+    /**
+     * Constructs an empty SimulationResult.
+     */
+    public SimulationResult() {
+    }
+
+    /**
+     * Constructs a SimulationResult with the output parameters of a JSON object.
+     *
+     * @param outputParameters the output parameters
+     */
+    public SimulationResult(ObjectNode outputParameters) {
+        outputParameters.fields().forEachRemaining(entry -> this.outputParameters.put(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * Puts an output parameter, replacing the value of the name if it is already set.
+     *
+     * @param name  the name of the output parameter
+     * @param value the value
+     * @return this SimulationResult
+     */
+    public SimulationResult put(String name, JsonNode value) {
+        outputParameters.put(name, value);
+        return this;
+    }
+
+    /**
+     * Puts a counter as an output parameter.
+     *
+     * @param name  the name of the output parameter
+     * @param value the counter
+     * @return this SimulationResult
+     */
+    public SimulationResult put(String name, long value) {
+        return put(name, nodeFactory.numberNode(value));
+    }
+
+    /**
+     * Puts a decimal value as an output parameter.
+     *
+     * @param name  the name of the output parameter
+     * @param value the value
+     * @return this SimulationResult
+     */
+    public SimulationResult put(String name, double value) {
+        return put(name, nodeFactory.numberNode(value));
+    }
+
+    /**
+     * Puts a text, such as a percentage, as an output parameter.
+     *
+     * @param name  the name of the output parameter
+     * @param value the text
+     * @return this SimulationResult
+     */
+    public SimulationResult put(String name, String value) {
+        return put(name, nodeFactory.textNode(value));
+    }
+
+    /**
+     * Sets the time that the hardware simulation took on the host.
+     *
+     * @param hostNanoseconds the time in nanoseconds
+     * @return this SimulationResult
+     */
+    public SimulationResult setHostNanoseconds(long hostNanoseconds) {
+        return put(HOST_NANOSECONDS, hostNanoseconds);
+    }
+
+    /**
+     * Gets the value of an output parameter.
+     *
+     * @param name the name of the output parameter
+     * @return the value, or null if the output parameter is not set
+     */
+    public JsonNode get(String name) {
+        return outputParameters.get(name);
+    }
+
+    /**
+     * Gets the output parameters, sorted by their names.
+     *
+     * @return an unmodifiable view of the output parameters
+     */
+    public Map<String, JsonNode> getOutputParameters() {
+        return Collections.unmodifiableMap(outputParameters);
+    }
+
+    /**
+     * Serializes the output parameters as indented JSON.
+     *
+     * @return the JSON, or an empty string if the output parameters cannot be serialized
+     */
+    public String toJson() {
+        try {
+            return JSON_WRITER.writeValueAsString(outputParameters);
+        } catch (JsonProcessingException e) {
+            System.err.println("Error writing JSON: " + e.getMessage());
+            return "";
+        }
+    }
+
+    /**
+     * Rounds a value to two decimal places, the precision of the derived output parameters.
+     *
+     * @param value the value
+     * @return the rounded value
+     */
+    public static double roundToTwoDecimals(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    /**
+     * Gets the number of an output parameter.
+     *
+     * @param value the output parameter
+     * @return the number, the number of a percentage such as "2.5%", or null if the output parameter is no number
+     */
+    public static Double toNumber(JsonNode value) {
+        if (value.isNumber()) {
+            return value.asDouble();
+        }
+        String text = value.asText();
+        if (!value.isTextual() || !text.endsWith("%")) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(text.substring(0, text.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes serialized output parameters to a file atomically: the JSON is written to a temporary file
+     * in the same directory, which then replaces the file. A reader of the file, such as a parameter sweep,
+     * never sees a partially written result.
+     *
+     * @param json     the serialized output parameters
+     * @param filePath the path of the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeAtomically(String json, Path filePath) throws IOException {
+        Path directory = filePath.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporaryFile = Files.createTempFile(directory, filePath.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(temporaryFile, json, StandardCharsets.UTF_8);
+            try {
+                Files.move(temporaryFile, filePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, filePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+}
@@ -0,0 +1,650 @@
+package gihs.core.output;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The StatisticsAggregator class routes the statistics of a hardware simulation to aggregates in a single pass.
+ * <p>
+ * An aggregate combines the statistics that match its patterns with its {@link AggregateFunction}. In a pattern,
+ * "*" stands for the index of a core, controller or bank, for example
+ * "board.cache_hierarchy.ruby_system.l1_controllers*.L1Dcache.m_demand_misses" or "root.l1d.l1d-*.mGETS",
+ * so a configuration with any number of cores is counted completely. Besides the total, the value of every index
+ * of the first "*" is kept as the breakdown of the aggregate.
+ * <p>
+ * The patterns are compiled once: every run of digits in a pattern or a key, and every "*", is normalized to "#",
+ * so a key is looked up in a hash table of the normalized patterns and only the few candidates are compared exactly.
+ * Keys whose normalized length matches no pattern are skipped before the lookup.
+ */
+public class StatisticsAggregator {
+
+    /**
+     * The character that stands for an index in a pattern.
+     */
+    private static final char WILDCARD = '*';
+
+    /**
+     * The character that a run of digits or a wildcard is normalized to.
+     */
+    private static final char NORMALIZED_NUMBER = '#';
+
+    /**
+     * The largest number of a wildcard that is kept in a breakdown, far above the number of cores or caches of a simulation.
+     */
+    private static final int MAX_WILDCARD_NUMBER = 65535;
+
+    /**
+     * The result of {@link Pattern#match} for a key that matches, but whose first wildcard is larger than {@link #MAX_WILDCARD_NUMBER}.
+     */
+    private static final int WILDCARD_NUMBER_TOO_LARGE = -2;
+
+    private final List<String> names = new ArrayList<>();
+    private final List<AggregateFunction> functions = new ArrayList<>();
+
+    /**
+     * Whether the patterns of an aggregate have a wildcard, so that a breakdown is kept.
+     */
+    private final BitSet withBreakdown = new BitSet();
+
+    /**
+     * The compiled patterns keyed by their normalized form.
+     */
+    private final Map<String, List<Pattern>> patterns = new HashMap<>();
+
+    /**
+     * The lengths of the normalized patterns.
+     */
+    private final BitSet normalizedLengths = new BitSet();
+
+    /**
+     * Adds an aggregate.
+     *
+     * @param name     the name of the aggregate, usually the output parameter
+     * @param function the function that combines the matching statistics
+     * @param patterns the patterns of the statistics, in which "*" stands for an index
+     * @return this StatisticsAggregator
+     */
+    public StatisticsAggregator add(String name, AggregateFunction function, String... patterns) {
+        if (names.contains(name)) {
+            throw new IllegalArgumentException("The aggregate " + name + " is already defined");
+        }
+        int aggregate = names.size();
+        names.add(name);
+        functions.add(function);
+        for (String pattern : patterns) {
+            if (pattern.indexOf(WILDCARD) >= 0) {
+                withBreakdown.set(aggregate);
+            }
+            String normalizedPattern = normalize(pattern, 0, pattern.length());
+            this.patterns.computeIfAbsent(normalizedPattern, key -> new ArrayList<>()).add(new Pattern(pattern, aggregate));
+            normalizedLengths.set(normalizedPattern.length());
+        }
+        return this;
+    }
+
+    /**
+     * Gets the names of the aggregates in the order in which they were added.
+     *
+     * @return the names of the aggregates
+     */
+    public List<String> getNames() {
+        return List.copyOf(names);
+    }
+
+    /**
+     * Checks whether an aggregate keeps a breakdown, because its patterns have a wildcard.
+     *
+     * @param aggregate the index of the aggregate
+     * @return true if the aggregate keeps a breakdown, otherwise false
+     */
+    public boolean hasBreakdown(int aggregate) {
+        return withBreakdown.get(aggregate);
+    }
+
+    /**
+     * Creates an accumulator for the statistics of one run or one dump.
+     * An accumulator must only be used by one thread.
+     *
+     * @return the new accumulator
+     */
+    public Accumulator newAccumulator() {
+        return new Accumulator();
+    }
+
+    /**
+     * Creates the weighted sum of accumulators of this aggregator, for example to extrapolate the statistics of the
+     * sampled windows of a run to the whole run. The totals and the breakdowns are summed whatever the function of
+     * their aggregate is, because the accumulators hold separate parts of a run. Counters stay counters and are rounded once.
+     *
+     * @param accumulators the accumulators
+     * @param weights      the weight of every accumulator
+     * @return a new accumulator with the weighted sums
+     */
+    public Accumulator weightedSum(List<Accumulator> accumulators, double[] weights) {
+        Accumulator sum = new Accumulator();
+        Column[] parts = new Column[accumulators.size()];
+        for (int aggregate = 0; aggregate < names.size(); aggregate++) {
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = accumulators.get(i).columns[aggregate];
+            }
+            sum.columns[aggregate].weightedSum(parts, weights);
+        }
+        return sum;
+    }
+
+    /**
+     * Normalizes a key by replacing every run of digits and every wildcard with "#".
+     *
+     * @param key   the key or pattern
+     * @param start the position of the first character of the key
+     * @param end   the position after the last character of the key
+     * @return the normalized key
+     */
+    private static String normalize(CharSequence key, int start, int end) {
+        StringBuilder normalized = new StringBuilder(end - start);
+        appendNormalized(normalized, key, start, end);
+        return normalized.toString();
+    }
+
+    /**
+     * Appends the normalized form of a key.
+     *
+     * @param normalized the builder of the normalized key
+     * @param key        the key or pattern
+     * @param start      the position of the first character of the key
+     * @param end        the position after the last character of the key
+     */
+    private static void appendNormalized(StringBuilder normalized, CharSequence key, int start, int end) {
+        int i = start;
+        while (i < end) {
+            char c = key.charAt(i);
+            if (c == WILDCARD || isDigit(c)) {
+                normalized.append(NORMALIZED_NUMBER);
+                i++;
+                while (i < end && isDigit(key.charAt(i))) {
+                    i++;
+                }
+            } else {
+                normalized.append(c);
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Gets the length of the normalized form of a key without creating it.
+     *
+     * @param key   the key
+     * @param start the position of the first character of the key
+     * @param end   the position after the last character of the key
+     * @return the length of the normalized key
+     */
+    private static int normalizedLength(CharSequence key, int start, int end) {
+        int length = 0;
+        boolean inNumber = false;
+        for (int i = start; i < end; i++) {
+            boolean digit = isDigit(key.charAt(i));
+            if (!digit || !inNumber) {
+                length++;
+            }
+            inNumber = digit;
+        }
+        return length;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * A compiled pattern of an aggregate.
+     */
+    private static final class Pattern {
+
+        private final String pattern;
+        private final int aggregate;
+
+        Pattern(String pattern, int aggregate) {
+            this.pattern = pattern;
+            this.aggregate = aggregate;
+        }
+
+        /**
+         * Matches a key whose normalized form equals the normalized pattern.
+         *
+         * @param key   the key
+         * @param start the position of the first character of the key
+         * @param end   the position after the last character of the key
+         * @return the number of the first wildcard, 0 if the pattern has none, -1 if the key does not match,
+         * or {@link #WILDCARD_NUMBER_TOO_LARGE} if the number of the first wildcard is too large for a breakdown
+         */
+        int match(CharSequence key, int start, int end) {
+            int index = -1;
+            int j = start;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c == WILDCARD) {
+                    long number = 0;
+                    while (j < end && isDigit(key.charAt(j))) {
+                        // The number stops growing once it is too large, so that a long run of digits cannot overflow it
+                        if (number <= MAX_WILDCARD_NUMBER) {
+                            number = number * 10 + (key.charAt(j) - '0');
+                        }
+                        j++;
+                    }
+                    if (index == -1) {
+                        index = number > MAX_WILDCARD_NUMBER ? WILDCARD_NUMBER_TOO_LARGE : (int) number;
+                    }
+                } else if (j >= end || key.charAt(j) != c) {
+                    return -1;
+                } else {
+                    j++;
+                }
+            }
+            // Equal normalized forms have equal lengths, so a digit that follows is part of a longer number
+            if (j != end) {
+                return -1;
+            }
+            return index == WILDCARD_NUMBER_TOO_LARGE ? index : Math.max(index, 0);
+        }
+    }
+
+    /**
+     * The Accumulator class combines the statistics of one run or one dump into the aggregates.
+     * Counters are combined as 64-bit longs, so their totals are exact; an aggregate becomes a decimal
+     * once a statistic with a decimal value is routed to it.
+     */
+    public class Accumulator {
+
+        private final Column[] columns = new Column[names.size()];
+        private final StringBuilder normalizedKey = new StringBuilder();
+
+        Accumulator() {
+            for (int aggregate = 0; aggregate < columns.length; aggregate++) {
+                columns[aggregate] = new Column(functions.get(aggregate), withBreakdown.get(aggregate));
+            }
+        }
+
+        /**
+         * Routes a counter to the aggregates whose patterns match its key.
+         *
+         * @param key   the key of the statistic
+         * @param value the counter
+         * @return true if the key matches a pattern, otherwise false
+         */
+        public boolean accept(CharSequence key, long value) {
+            return accept(key, 0, key.length(), value, false);
+        }
+
+        /**
+         * Routes a decimal statistic to the aggregates whose patterns match its key.
+         *
+         * @param key   the key of the statistic
+         * @param value the value of the statistic
+         * @return true if the key matches a pattern, otherwise false
+         */
+        public boolean accept(CharSequence key, double value) {
+            return accept(key, 0, key.length(), Double.doubleToRawLongBits(value), true);
+        }
+
+        /**
+         * Routes a counter whose key is a part of a character sequence, such as a line, to the aggregates.
+         *
+         * @param key   the character sequence that holds the key
+         * @param start the position of the first character of the key
+         * @param end   the position after the last character of the key
+         * @param value the counter
+         * @return true if the key matches a pattern, otherwise false
+         */
+        public boolean accept(CharSequence key, int start, int end, long value) {
+            return accept(key, start, end, value, false);
+        }
+
+        /**
+         * Routes a decimal statistic whose key is a part of a character sequence, such as a line, to the aggregates.
+         *
+         * @param key   the character sequence that holds the key
+         * @param start the position of the first character of the key
+         * @param end   the position after the last character of the key
+         * @param value the value of the statistic
+         * @return true if the key matches a pattern, otherwise false
+         */
+        public boolean accept(CharSequence key, int start, int end, double value) {
+            return accept(key, start, end, Double.doubleToRawLongBits(value), true);
+        }
+
+        /**
+         * Checks whether a key matches a pattern, without routing a value.
+         *
+         * @param key   the character sequence that holds the key
+         * @param start the position of the first character of the key
+         * @param end   the position after the last character of the key
+         * @return true if the key matches a pattern, otherwise false
+         */
+        public boolean matches(CharSequence key, int start, int end) {
+            List<Pattern> candidates = findCandidates(key, start, end);
+            for (int i = 0; candidates != null && i < candidates.size(); i++) {
+                if (candidates.get(i).match(key, start, end) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Gets the total of an aggregate.
+         *
+         * @param aggregate the index of the aggregate
+         * @return the total, or NaN if no statistic matched the aggregate
+         */
+        public double getTotal(int aggregate) {
+            Column column = columns[aggregate];
+            return column.hasTotal ? column.toDouble(column.total) : Double.NaN;
+        }
+
+        /**
+         * Gets the total of an aggregate as a counter.
+         *
+         * @param aggregate the index of the aggregate
+         * @return the total, rounded if the aggregate is a decimal, or 0 if no statistic matched the aggregate
+         */
+        public long getCount(int aggregate) {
+            Column column = columns[aggregate];
+            return column.hasTotal ? column.toLong(column.total) : 0;
+        }
+
+        /**
+         * Checks whether an aggregate is a decimal rather than a counter.
+         *
+         * @param aggregate the index of the aggregate
+         * @return true if a decimal statistic was routed to the aggregate, otherwise false
+         */
+        public boolean isDecimal(int aggregate) {
+            return columns[aggregate].decimal;
+        }
+
+        /**
+         * Gets the number of indices in the breakdown of an aggregate.
+         *
+         * @param aggregate the index of the aggregate
+         * @return one more than the largest index that a statistic matched, or 0 if the aggregate keeps no breakdown
+         */
+        public int getBreakdownSize(int aggregate) {
+            Column column = columns[aggregate];
+            return column.breakdownSeen == null ? 0 : column.breakdownSeen.length();
+        }
+
+        /**
+         * Gets the value of one index in the breakdown of an aggregate.
+         *
+         * @param aggregate the index of the aggregate
+         * @param index     the number of the first wildcard
+         * @return the value, or NaN if no statistic matched the index
+         */
+        public double getBreakdown(int aggregate, int index) {
+            Column column = columns[aggregate];
+            return column.hasBreakdown(index) ? column.toDouble(column.breakdown[index]) : Double.NaN;
+        }
+
+        /**
+         * Gets the value of one index in the breakdown of an aggregate as a counter.
+         *
+         * @param aggregate the index of the aggregate
+         * @param index     the number of the first wildcard
+         * @return the value, rounded if the aggregate is a decimal, or 0 if no statistic matched the index
+         */
+        public long getBreakdownCount(int aggregate, int index) {
+            Column column = columns[aggregate];
+            return column.hasBreakdown(index) ? column.toLong(column.breakdown[index]) : 0;
+        }
+
+        /**
+         * Checks whether a statistic matched an index in the breakdown of an aggregate.
+         *
+         * @param aggregate the index of the aggregate
+         * @param index     the number of the first wildcard
+         * @return true if a statistic matched the index, otherwise false
+         */
+        public boolean hasBreakdown(int aggregate, int index) {
+            return columns[aggregate].hasBreakdown(index);
+        }
+
+        /**
+         * Gets the difference of these totals since the statistics were previously accumulated,
+         * for the statistics of simulators that dump the totals since the start of the simulation periodically.
+         * An aggregate that is smaller than before was reset, so its value is taken as the difference itself.
+         *
+         * @param previous the previously accumulated statistics, or null for the first dump
+         * @return a new accumulator with the differences of the totals and of the breakdowns
+         */
+        public Accumulator difference(Accumulator previous) {
+            Accumulator difference = new Accumulator();
+            for (int aggregate = 0; aggregate < columns.length; aggregate++) {
+                columns[aggregate].difference(previous == null ? null : previous.columns[aggregate], difference.columns[aggregate]);
+            }
+            return difference;
+        }
+
+        /**
+         * Routes a value to the aggregates whose patterns match its key.
+         *
+         * @param key     the character sequence that holds the key
+         * @param start   the position of the first character of the key
+         * @param end     the position after the last character of the key
+         * @param value   the counter, or the bits of the decimal value
+         * @param decimal whether the value is a decimal
+         * @return true if the key matches a pattern, otherwise false
+         */
+        private boolean accept(CharSequence key, int start, int end, long value, boolean decimal) {
+            List<Pattern> candidates = findCandidates(key, start, end);
+            boolean matched = false;
+            for (int i = 0; candidates != null && i < candidates.size(); i++) {
+                Pattern candidate = candidates.get(i);
+                int index = candidate.match(key, start, end);
+                if (index == WILDCARD_NUMBER_TOO_LARGE) {
+                    System.err.println("The statistic " + key.subSequence(start, end) + " is skipped, because its number is larger than "
+                            + MAX_WILDCARD_NUMBER);
+                } else if (index >= 0) {
+                    columns[candidate.aggregate].add(index, value, decimal);
+                    matched = true;
+                }
+            }
+            return matched;
+        }
+
+        /**
+         * Finds the patterns whose normalized form equals that of a key.
+         *
+         * @param key   the character sequence that holds the key
+         * @param start the position of the first character of the key
+         * @param end   the position after the last character of the key
+         * @return the candidates, or null if there are none
+         */
+        private List<Pattern> findCandidates(CharSequence key, int start, int end) {
+            if (!normalizedLengths.get(normalizedLength(key, start, end))) {
+                return null;
+            }
+            normalizedKey.setLength(0);
+            appendNormalized(normalizedKey, key, start, end);
+            return patterns.get(normalizedKey.toString());
+        }
+    }
+
+    /**
+     * The Column class holds the total and the breakdown of one aggregate of an accumulator.
+     * The values are counters, or the bits of doubles once the aggregate is a decimal.
+     */
+    private static final class Column {
+
+        private final AggregateFunction function;
+        private boolean decimal;
+        private boolean hasTotal;
+        private long total;
+
+        /**
+         * The values of the breakdown by the number of the first wildcard, or null if the aggregate keeps no breakdown.
+         */
+        private long[] breakdown;
+
+        /**
+         * The numbers that a statistic matched, or null if the aggregate keeps no breakdown.
+         */
+        private BitSet breakdownSeen;
+
+        Column(AggregateFunction function, boolean withBreakdown) {
+            this.function = function;
+            if (withBreakdown) {
+                breakdown = new long[0];
+                breakdownSeen = new BitSet();
+            }
+        }
+
+        /**
+         * Adds a value to the total and to the breakdown.
+         *
+         * @param index        the number of the first wildcard
+         * @param value        the counter, or the bits of the decimal value
+         * @param decimalValue whether the value is a decimal
+         */
+        void add(int index, long value, boolean decimalValue) {
+            if (decimalValue && !decimal) {
+                toDecimal();
+            } else if (!decimalValue && decimal) {
+                value = Double.doubleToRawLongBits((double) value);
+            }
+            total = hasTotal ? combine(total, value) : value;
+            hasTotal = true;
+            if (breakdown == null) {
+                return;
+            }
+            if (breakdown.length <= index) {
+                breakdown = Arrays.copyOf(breakdown, Math.max(index + 1, breakdown.length * 2));
+            }
+            breakdown[index] = breakdownSeen.get(index) ? combine(breakdown[index], value) : value;
+            breakdownSeen.set(index);
+        }
+
+        boolean hasBreakdown(int index) {
+            return breakdownSeen != null && breakdownSeen.get(index);
+        }
+
+        /**
+         * Sets this empty column to the weighted sum of columns of the same aggregate.
+         *
+         * @param parts   the columns
+         * @param weights the weight of every column
+         */
+        void weightedSum(Column[] parts, double[] weights) {
+            double totalSum = 0;
+            int breakdownLength = 0;
+            for (int i = 0; i < parts.length; i++) {
+                Column part = parts[i];
+                decimal |= part.decimal;
+                if (part.hasTotal) {
+                    hasTotal = true;
+                    totalSum += part.toDouble(part.total) * weights[i];
+                }
+                if (breakdown != null) {
+                    breakdownSeen.or(part.breakdownSeen);
+                    breakdownLength = Math.max(breakdownLength, part.breakdown.length);
+                }
+            }
+            total = fromDouble(totalSum);
+            if (breakdown == null) {
+                return;
+            }
+            double[] breakdownSums = new double[breakdownLength];
+            for (int i = 0; i < parts.length; i++) {
+                Column part = parts[i];
+                for (int index = part.breakdownSeen.nextSetBit(0); index >= 0; index = part.breakdownSeen.nextSetBit(index + 1)) {
+                    breakdownSums[index] += part.toDouble(part.breakdown[index]) * weights[i];
+                }
+            }
+            breakdown = new long[breakdownLength];
+            for (int index = breakdownSeen.nextSetBit(0); index >= 0; index = breakdownSeen.nextSetBit(index + 1)) {
+                breakdown[index] = fromDouble(breakdownSums[index]);
+            }
+        }
+
+        /**
+         * Writes the difference of this column to the column of a previous accumulator into a column of differences.
+         *
+         * @param previous   the column of the previous accumulator, or null
+         * @param difference the column of the differences
+         */
+        void difference(Column previous, Column difference) {
+            difference.decimal = decimal || (previous != null && previous.decimal);
+            difference.hasTotal = hasTotal;
+            if (hasTotal) {
+                boolean hasPrevious = previous != null && previous.hasTotal;
+                difference.total = difference(total, previous, hasPrevious ? previous.total : 0, hasPrevious, difference.decimal);
+            }
+            if (breakdown == null) {
+                return;
+            }
+            difference.breakdown = new long[breakdown.length];
+            difference.breakdownSeen = (BitSet) breakdownSeen.clone();
+            for (int index = breakdownSeen.nextSetBit(0); index >= 0; index = breakdownSeen.nextSetBit(index + 1)) {
+                boolean hasPrevious = previous != null && previous.hasBreakdown(index);
+                difference.breakdown[index] = difference(breakdown[index], previous, hasPrevious ? previous.breakdown[index] : 0,
+                        hasPrevious, difference.decimal);
+            }
+        }
+
+        /**
+         * Gets the difference of a value to its previous value.
+         *
+         * @param value             the value of this column
+         * @param previous          the previous column
+         * @param previousValue     the previous value
+         * @param hasPrevious       whether there is a previous value
+         * @param decimalDifference whether the difference is a decimal
+         * @return the difference, the value itself if it has no previous value or was reset,
+         * as the bits of a double if the difference is a decimal
+         */
+        private long difference(long value, Column previous, long previousValue, boolean hasPrevious, boolean decimalDifference) {
+            if (!decimalDifference) {
+                return !hasPrevious || value < previousValue ? value : value - previousValue;
+            }
+            double current = toDouble(value);
+            double last = hasPrevious ? previous.toDouble(previousValue) : Double.NaN;
+            return Double.doubleToRawLongBits(Double.isNaN(last) || current < last ? current : current - last);
+        }
+
+        private long combine(long aggregate, long value) {
+            if (decimal) {
+                return Double.doubleToRawLongBits(function.combine(Double.longBitsToDouble(aggregate), Double.longBitsToDouble(value)));
+            }
+            return function.combine(aggregate, value);
+        }
+
+        /**
+         * Converts the counters of the column to decimals.
+         */
+        private void toDecimal() {
+            total = Double.doubleToRawLongBits((double) total);
+            if (breakdown != null) {
+                for (int index = breakdownSeen.nextSetBit(0); index >= 0; index = breakdownSeen.nextSetBit(index + 1)) {
+                    breakdown[index] = Double.doubleToRawLongBits((double) breakdown[index]);
+                }
+            }
+            decimal = true;
+        }
+
+        double toDouble(long value) {
+            return decimal ? Double.longBitsToDouble(value) : value;
+        }
+
+        long toLong(long value) {
+            return decimal ? Math.round(Double.longBitsToDouble(value)) : value;
+        }
+
+        private long fromDouble(double value) {
+            return decimal ? Double.doubleToRawLongBits(value) : Math.round(value);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package gihs.core.output;
+
+import java.util.Arrays;
+
+/**
+ * The StatisticsStore class holds the parsed statistics of a hardware simulation as primitive values
+ * keyed by their path, for example "root.skylake.skylake-0.instrs" or "Cache Summary.Cache L1-D.num cache misses".
+ * <p>
+ * A counter is stored as a 64-bit long, so billions of instructions or cycles are counted exactly,
+ * and any other number as a double. The entries are kept in parallel arrays in the order in which they were put,
+ * and found through an open-addressing hash table of their positions. A key is looked up by its characters,
+ * so its string is only created, once, when the key is put for the first time.
+ */
+public class StatisticsStore {
+
+    /**
+     * The initial number of entries, which grows as needed.
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * The keys of the entries, in the order in which they were put.
+     */
+    private String[] keys = new String[INITIAL_CAPACITY];
+
+    /**
+     * The values of the entries: the long itself, or the bits of the double for a decimal value.
+     */
+    private long[] values = new long[INITIAL_CAPACITY];
+
+    /**
+     * Whether the value of an entry is a decimal.
+     */
+    private boolean[] decimals = new boolean[INITIAL_CAPACITY];
+
+    /**
+     * The hash table of the positions of the entries plus one, 0 for a free slot.
+     * Its length is a power of two and at least twice the number of entries.
+     */
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+
+    private int size;
+
+    /**
+     * Gets the number of statistics.
+     *
+     * @return the number of statistics
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the entry of a key.
+     *
+     * @param key the key
+     * @return the position of the entry, or -1 if the store does not contain the key
+     */
+    public int indexOf(CharSequence key) {
+        return indexOf(key, 0, key.length());
+    }
+
+    /**
+     * Finds the entry of a key that is a part of a character sequence.
+     *
+     * @param key   the character sequence that holds the key
+     * @param start the position of the first character of the key
+     * @param end   the position after the last character of the key
+     * @return the position of the entry, or -1 if the store does not contain the key
+     */
+    public int indexOf(CharSequence key, int start, int end) {
+        int mask = table.length - 1;
+        for (int slot = hash(key, start, end) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int entry = table[slot] - 1;
+            if (equals(keys[entry], key, start, end)) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether the store contains a key.
+     *
+     * @param key the key
+     * @return true if the store contains the key, otherwise false
+     */
+    public boolean containsKey(CharSequence key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Puts a counter, replacing the value of the key if it is already stored.
+     *
+     * @param key   the key
+     * @param value the counter
+     */
+    public void putLong(CharSequence key, long value) {
+        int entry = entryOf(key);
+        values[entry] = value;
+        decimals[entry] = false;
+    }
+
+    /**
+     * Puts a decimal value, replacing the value of the key if it is already stored.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public void putDouble(CharSequence key, double value) {
+        int entry = entryOf(key);
+        values[entry] = Double.doubleToRawLongBits(value);
+        decimals[entry] = true;
+    }
+
+    /**
+     * Gets the key of an entry.
+     *
+     * @param entry the position of the entry
+     * @return the key
+     */
+    public String getKey(int entry) {
+        return keys[entry];
+    }
+
+    /**
+     * Checks whether the value of an entry is a decimal rather than a counter.
+     *
+     * @param entry the position of the entry
+     * @return true if the value is a decimal, otherwise false
+     */
+    public boolean isDecimal(int entry) {
+        return decimals[entry];
+    }
+
+    /**
+     * Gets the value of an entry as a long, a decimal value rounded.
+     *
+     * @param entry the position of the entry
+     * @return the value
+     */
+    public long getLong(int entry) {
+        return decimals[entry] ? Math.round(Double.longBitsToDouble(values[entry])) : values[entry];
+    }
+
+    /**
+     * Gets the value of an entry as a double.
+     *
+     * @param entry the position of the entry
+     * @return the value
+     */
+    public double getDouble(int entry) {
+        return decimals[entry] ? Double.longBitsToDouble(values[entry]) : values[entry];
+    }
+
+    /**
+     * Routes every statistic to the aggregates whose patterns match its key.
+     *
+     * @param accumulator the aggregated statistics
+     */
+    public void accumulate(StatisticsAggregator.Accumulator accumulator) {
+        for (int entry = 0; entry < size; entry++) {
+            if (decimals[entry]) {
+                accumulator.accept(keys[entry], Double.longBitsToDouble(values[entry]));
+            } else {
+                accumulator.accept(keys[entry], values[entry]);
+            }
+        }
+    }
+
+    /**
+     * Finds the entry of a key, or adds an entry for it.
+     *
+     * @param key the key
+     * @return the position of the entry
+     */
+    private int entryOf(CharSequence key) {
+        int entry = indexOf(key);
+        if (entry >= 0) {
+            return entry;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+            decimals = Arrays.copyOf(decimals, size * 2);
+        }
+        if ((size + 1) * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        entry = size++;
+        keys[entry] = key.toString();
+        insert(entry);
+        return entry;
+    }
+
+    /**
+     * Inserts the position of an entry into the hash table.
+     *
+     * @param entry the position of the entry
+     */
+    private void insert(int entry) {
+        int mask = table.length - 1;
+        int slot = spread(keys[entry].hashCode()) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = entry + 1;
+    }
+
+    /**
+     * Rebuilds the hash table with a new length.
+     *
+     * @param length the new length, a power of two
+     */
+    private void rehash(int length) {
+        table = new int[length];
+        for (int entry = 0; entry < size; entry++) {
+            insert(entry);
+        }
+    }
+
+    /**
+     * Calculates the hash of a key like {@link String#hashCode()}, so keys and their strings have equal hashes.
+     * The bits are spread, because the table only uses the low bits.
+     *
+     * @param key   the character sequence that holds the key
+     * @param start the position of the first character of the key
+     * @param end   the position after the last character of the key
+     * @return the hash
+     */
+    private static int hash(CharSequence key, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + key.charAt(i);
+        }
+        return spread(hash);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Compares a stored key with a key that is a part of a character sequence.
+     *
+     * @param storedKey the stored key
+     * @param key       the character sequence that holds the key
+     * @param start     the position of the first character of the key
+     * @param end       the position after the last character of the key
+     * @return true if the keys are equal, otherwise false
+     */
+    private static boolean equals(String storedKey, CharSequence key, int start, int end) {
+        if (storedKey.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (storedKey.charAt(i - start) != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,62 @@
+package gihs.core.parser;
+
+/**
+ * The ErrorMessageMatch class describes an error message that was found in the output of a hardware simulation.
+ */
+public class ErrorMessageMatch {
+
+    /**
+     * The error message that was found.
+     */
+    private final String errorMessage;
+
+    /**
+     * The severity of the error message.
+     */
+    private final ErrorMessageSeverity severity;
+
+    /**
+     * The offset of the first character of the error message in the scanned output.
+     */
+    private final long offset;
+
+    /**
+     * Constructs an ErrorMessageMatch with the found error message, its severity and its position.
+     *
+     * @param errorMessage The error message that was found.
+     * @param severity     The severity of the error message.
+     * @param offset       The offset of the first character of the error message in the scanned output.
+     */
+    public ErrorMessageMatch(String errorMessage, ErrorMessageSeverity severity, long offset) {
+        this.errorMessage = errorMessage;
+        this.severity = severity;
+        this.offset = offset;
+    }
+
+    /**
+     * Gets the error message that was found.
+     *
+     * @return The error message.
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * Gets the severity of the error message.
+     *
+     * @return The severity.
+     */
+    public ErrorMessageSeverity getSeverity() {
+        return severity;
+    }
+
+    /**
+     * Gets the offset of the first character of the error message in the scanned output.
+     *
+     * @return The offset in characters.
+     */
+    public long getOffset() {
+        return offset;
+    }
+}
@@ -0,0 +1,290 @@
+package gihs.core.parser;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * The ErrorMessageMatcher class finds all error messages of a hardware simulation in a single pass over its output.
+ * <p>
+ * The error messages are compiled once into an Aho-Corasick automaton, so scanning the output costs one table lookup
+ * per character, regardless of how many error messages are configured. Every error message has a severity that
+ * decides whether the hardware simulation is aborted or only warned about.
+ */
+public class ErrorMessageMatcher {
+
+    /**
+     * The configured error messages, indexed by their number in the automaton.
+     */
+    private final String[] errorMessages;
+
+    /**
+     * The severities of the configured error messages, indexed by their number in the automaton.
+     */
+    private final ErrorMessageSeverity[] severities;
+
+    /**
+     * The character classes of the ASCII characters. Class 0 stands for every character that no error message contains.
+     */
+    private final int[] asciiClasses = new int[128];
+
+    /**
+     * The character classes of the characters outside of ASCII that an error message contains.
+     */
+    private final Map<Character, Integer> otherClasses = new HashMap<>();
+
+    /**
+     * The number of character classes.
+     */
+    private final int alphabetSize;
+
+    /**
+     * The transitions of the automaton, the next state of a state and a character class is at state * alphabetSize + class.
+     */
+    private final int[] transitions;
+
+    /**
+     * The numbers of the error messages that end in each state, including those reached by failure links.
+     */
+    private final int[][] outputs;
+
+    /**
+     * Constructs an ErrorMessageMatcher that finds the given error messages.
+     *
+     * @param errorMessages The error messages to find, mapped to their severity.
+     * @throws IllegalArgumentException if an error message is empty.
+     */
+    public ErrorMessageMatcher(Map<String, ErrorMessageSeverity> errorMessages) {
+        this.errorMessages = errorMessages.keySet().toArray(new String[0]);
+        this.severities = errorMessages.values().toArray(new ErrorMessageSeverity[0]);
+
+        // Number the distinct characters of the error messages, so that the transition table stays small
+        int classes = 1;
+        int maxStates = 1;
+        for (String errorMessage : this.errorMessages) {
+            if (errorMessage.isEmpty()) {
+                throw new IllegalArgumentException("An error message must not be empty");
+            }
+            maxStates += errorMessage.length();
+            for (int i = 0; i < errorMessage.length(); i++) {
+                char c = errorMessage.charAt(i);
+                if (classOf(c) == 0) {
+                    if (c < asciiClasses.length) {
+                        asciiClasses[c] = classes++;
+                    } else {
+                        otherClasses.put(c, classes++);
+                    }
+                }
+            }
+        }
+        alphabetSize = classes;
+
+        // Build the trie of the error messages
+        int[] table = new int[maxStates * alphabetSize];
+        Arrays.fill(table, -1);
+        List<List<Integer>> outputLists = new ArrayList<>();
+        outputLists.add(new ArrayList<>());
+        int states = 1;
+        for (int number = 0; number < this.errorMessages.length; number++) {
+            String errorMessage = this.errorMessages[number];
+            int state = 0;
+            for (int i = 0; i < errorMessage.length(); i++) {
+                int index = state * alphabetSize + classOf(errorMessage.charAt(i));
+                if (table[index] < 0) {
+                    table[index] = states++;
+                    outputLists.add(new ArrayList<>());
+                }
+                state = table[index];
+            }
+            outputLists.get(state).add(number);
+        }
+
+        // Complete the trie to an automaton in breadth-first order, so the failure state of a state is always done before it
+        int[] failure = new int[states];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < alphabetSize; c++) {
+            if (table[c] < 0) {
+                table[c] = 0;
+            } else {
+                queue.add(table[c]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputLists.get(state).addAll(outputLists.get(failure[state]));
+            for (int c = 0; c < alphabetSize; c++) {
+                int index = state * alphabetSize + c;
+                int fallback = table[failure[state] * alphabetSize + c];
+                if (table[index] < 0) {
+                    table[index] = fallback;
+                } else {
+                    failure[table[index]] = fallback;
+                    queue.add(table[index]);
+                }
+            }
+        }
+
+        transitions = Arrays.copyOf(table, states * alphabetSize);
+        outputs = new int[states][];
+        for (int state = 0; state < states; state++) {
+            outputs[state] = outputLists.get(state).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Creates an ErrorMessageMatcher from a configuration in the input, for example
+     * {"fatal": ["Number of sets must be a power of two"], "warning": ["error"]}.
+     *
+     * @param configuration The configuration with a list of error messages per severity.
+     * @return The ErrorMessageMatcher for the configured error messages.
+     * @throws IllegalArgumentException if the configuration contains an unknown severity.
+     */
+    public static ErrorMessageMatcher fromJson(JsonNode configuration) {
+        Map<String, ErrorMessageSeverity> errorMessages = new LinkedHashMap<>();
+        configuration.fields().forEachRemaining(field -> {
+            ErrorMessageSeverity severity = ErrorMessageSeverity.valueOf(field.getKey().toUpperCase());
+            for (JsonNode errorMessage : field.getValue()) {
+                errorMessages.put(errorMessage.asText(), severity);
+            }
+        });
+        return new ErrorMessageMatcher(errorMessages);
+    }
+
+    /**
+     * Creates a new scanner that finds the error messages in an output that arrives in pieces.
+     *
+     * @return The new scanner, positioned at the start of the output.
+     */
+    public Scanner newScanner() {
+        return new Scanner();
+    }
+
+    /**
+     * Finds all error messages in a text.
+     *
+     * @param text The text to search.
+     * @return The found error messages in the order in which they end in the text.
+     */
+    public List<ErrorMessageMatch> findAll(CharSequence text) {
+        return newScanner().scan(text);
+    }
+
+    /**
+     * Finds all error messages in a character stream, without keeping the stream in memory.
+     *
+     * @param reader The character stream to search.
+     * @return The found error messages in the order in which they end in the stream.
+     * @throws IOException if the stream cannot be read.
+     */
+    public List<ErrorMessageMatch> findAll(Reader reader) throws IOException {
+        Scanner scanner = newScanner();
+        List<ErrorMessageMatch> matches = new ArrayList<>();
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            matches.addAll(scanner.scan(CharBuffer.wrap(buffer, 0, read)));
+        }
+        return matches;
+    }
+
+    /**
+     * Finds all error messages in a UTF-8 encoded byte stream, without keeping the stream in memory.
+     *
+     * @param inputStream The byte stream to search.
+     * @return The found error messages in the order in which they end in the stream.
+     * @throws IOException if the stream cannot be read.
+     */
+    public List<ErrorMessageMatch> findAll(InputStream inputStream) throws IOException {
+        return findAll(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Gets the character class of a character.
+     *
+     * @param c The character.
+     * @return The character class, or 0 if no error message contains the character.
+     */
+    private int classOf(char c) {
+        return c < asciiClasses.length ? asciiClasses[c] : otherClasses.getOrDefault(c, 0);
+    }
+
+    /**
+     * The Scanner class keeps the state of the automaton between the pieces of an output,
+     * so that error messages are also found when they are split across pieces.
+     */
+    public class Scanner {
+
+        /**
+         * The current state of the automaton.
+         */
+        private int state;
+
+        /**
+         * The offset of the next character in the output.
+         */
+        private long offset;
+
+        /**
+         * Finds the error messages that end in the next piece of the output.
+         *
+         * @param text The next piece of the output.
+         * @return The found error messages in the order in which they end.
+         */
+        public List<ErrorMessageMatch> scan(CharSequence text) {
+            List<ErrorMessageMatch> matches = Collections.emptyList();
+            int length = text.length();
+            for (int i = 0; i < length; i++) {
+                state = transitions[state * alphabetSize + classOf(text.charAt(i))];
+                int[] found = outputs[state];
+                if (found.length > 0) {
+                    if (matches.isEmpty()) {
+                        matches = new ArrayList<>();
+                    }
+                    for (int number : found) {
+                        long start = offset + i - errorMessages[number].length() + 1;
+                        matches.add(new ErrorMessageMatch(errorMessages[number], severities[number], start));
+                    }
+                }
+            }
+            offset += length;
+            return matches;
+        }
+
+        /**
+         * Finds the error messages in the next line of the output. Error messages do not span lines,
+         * so the automaton starts over after the line and the offset moves past its line terminator.
+         *
+         * @param line The next line of the output, without its line terminator.
+         * @return The found error messages in the order in which they end.
+         */
+        public List<ErrorMessageMatch> scanLine(CharSequence line) {
+            List<ErrorMessageMatch> matches = scan(line);
+            state = 0;
+            offset++;
+            return matches;
+        }
+
+        /**
+         * Gets the offset of the next character in the output.
+         *
+         * @return The number of characters scanned so far.
+         */
+        public long getOffset() {
+            return offset;
+        }
+    }
+}
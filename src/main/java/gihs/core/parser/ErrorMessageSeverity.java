@@ -0,0 +1,17 @@
+package gihs.core.parser;
+
+/**
+ * The ErrorMessageSeverity enum defines how a run reacts to an error message in the output of a hardware simulation.
+ */
+public enum ErrorMessageSeverity {
+
+    /**
+     * The error message is reported, but the hardware simulation continues.
+     */
+    WARNING,
+
+    /**
+     * The error message aborts the hardware simulation.
+     */
+    FATAL
+}
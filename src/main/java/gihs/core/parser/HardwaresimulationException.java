@@ -0,0 +1,19 @@
+package gihs.core.parser;
+
+/**
+ * The HardwaresimulationException is thrown when a hardware simulation reports one of its configured error messages.
+ * It allows callers that run several simulations in one process to handle a failed run without terminating the program.
+ */
+public class HardwaresimulationException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new HardwaresimulationException with the error message that was encountered.
+     *
+     * @param errorMessage The error message found in the output of the hardware simulation.
+     */
+    public HardwaresimulationException(String errorMessage) {
+        super("The hardware simulation failed with the error message \"" + errorMessage + "\"");
+    }
+}
@@ -1,20 +1,42 @@
 package gihs.core.parser;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import gihs.core.input.GenerateInputParametersFile;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import gihs.core.managementOFJsonNodeALL.JsonUtil;
+import gihs.core.managementOfDockerfiles.HardwaresimulationContainerPool;
 import gihs.core.managementOfDockerfiles.HardwaresimulationDocker;
+import gihs.core.managementOfDockerfiles.HardwaresimulationResourceScheduler;
+import gihs.core.managementOfResultCache.HardwaresimulationResultCache;
+import gihs.core.managementOfResultStore.HardwaresimulationResultStore;
+import gihs.core.output.GenerateOutputParameters;
 import gihs.core.output.GenerateOutputParametersFile;
+import gihs.core.output.SimulationResult;
+import org.apache.commons.io.input.TeeInputStream;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * The ParserInterfaceImplementation class is an implementation of the ParserInterface.
  * It provides the logic to parse and run hardware simulations with Docker.
+ * A parser runs one hardware simulation at a time; asynchronous runs of the same parser wait for each other,
+ * so concurrent runs use one parser each.
  */
 public abstract class ParserAbstract implements ParserInterface {
     /**
@@ -28,11 +50,6 @@ public abstract class ParserAbstract implements ParserInterface {
      */
     protected HardwaresimulationDocker host;
 
-    /**
-     * The instance of the GenerateInputParametersFile class for generating input parameters file.
-     */
-    protected GenerateInputParametersFile generateInputParametersFile;
-
     /**
      * The instance of the GenerateOutputParametersFile class for generating output parameters file.
      */
@@ -43,6 +60,46 @@ public abstract class ParserAbstract implements ParserInterface {
      */
     protected String containerId;
 
+    /**
+     * The name of the image of the container running the hardware simulation.
+     */
+    protected String imageName;
+
+    /**
+     * Whether a command in the container was aborted while still running.
+     */
+    private volatile boolean containerAborted;
+
+    /**
+     * Whether the leased container has already been returned to the pool or removed.
+     */
+    private final AtomicBoolean containerReturned = new AtomicBoolean(true);
+
+    /**
+     * The lock that lets one run of this parser at a time use its state.
+     */
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    /**
+     * The lock that orders the start and the end of an asynchronous run with its cancellation.
+     */
+    private final Object cancelLock = new Object();
+
+    /**
+     * The future of the asynchronous run that is running, or null.
+     */
+    private CompletableFuture<SimulationResult> currentRun;
+
+    /**
+     * The thread of the asynchronous run that is running, or null.
+     */
+    private Thread runThread;
+
+    /**
+     * Whether the running asynchronous run was cancelled.
+     */
+    private volatile boolean cancelled;
+
     /**
      * The path to the directory where the simulation statistics output will be stored.
      */
@@ -69,11 +126,22 @@ public abstract class ParserAbstract implements ParserInterface {
      */
     protected String fileName;
 
+    /**
+     * The "workingPath" variable stores the host directory where generated and retrieved files are stored.
+     */
+    protected String workingPath;
+
+    /**
+     * The "keepStatsFile" variable stores whether the statistics file of the hardware simulation is also
+     * written to the working path while it is streamed into the output parser.
+     */
+    protected boolean keepStatsFile;
+
 
     /**
      * Constructor for the ParserInterfaceImplementation class.
      * Initializes the HardwaresimulationDocker objects
-     * and the GenerateInputParametersFile and GenerateOutputParametersFile objects
+     * and the GenerateOutputParametersFile object
      * for hardware simulation parsing.
      */
     protected ParserAbstract() {
@@ -83,34 +151,132 @@ public abstract class ParserAbstract implements ParserInterface {
         // Create a new instance of the HardwaresimulationDocker class for hosting the simulation with bash
         this.host = new HardwaresimulationDocker();
 
-        // Create a new instance of the GenerateInputParametersFile class for generating input parameters file
-        this.generateInputParametersFile = new GenerateInputParametersFile();
-
         // Create a new instance of the GenerateOutputParametersFile class for generating output parameters file
         this.generateOutputParametersFile = new GenerateOutputParametersFile();
     }
 
     /**
      * Initializes the hardware simulation with the given name.
+     * The run waits until the host has the CPUs and the memory of the image free, see {@link HardwaresimulationResourceScheduler},
+     * and a running container of the image is leased from the container pool.
+     * The resources are returned to the host together with the container.
      *
      * @param hardwaresimulationName the name of the hardware simulation
      */
     protected void init(String hardwaresimulationName) {
-        hardwaresimulation.createHardwaresimulationContainer(hardwaresimulationName);
-        containerId = hardwaresimulation.getContainerId();
-        hardwaresimulation.startHardwaresimulationContainer(containerId);
+        imageName = hardwaresimulationName;
+        HardwaresimulationResourceScheduler.getInstance().acquire(imageName);
+        try {
+            containerId = HardwaresimulationContainerPool.getInstance().lease(imageName);
+        } catch (RuntimeException e) {
+            HardwaresimulationResourceScheduler.getInstance().release(imageName);
+            throw e;
+        }
+        containerReturned.set(false);
+        hardwaresimulation.setContainerId(containerId);
+        checkCancelled();
     }
 
     /**
      * Parses the input string and runs the hardware simulation using Docker.
+     * If the result cache holds the result of an identical run, the result is written without running the hardware simulation.
      *
      * @param input the input string
      */
     @Override
     public void parse(JsonNode input) {
+        run(input);
+    }
 
+    /**
+     * Parses the input string and runs the hardware simulation using Docker on a thread of the {@link ParserExecutor}.
+     * Cancelling the future interrupts the run, removes its container, which stops the running command,
+     * and lets the run fail at its next step. A run that is cancelled before it starts does not start.
+     *
+     * @param input the input string
+     * @return the future of the output parameters of the run
+     */
+    @Override
+    public CompletableFuture<SimulationResult> parseAsync(JsonNode input) {
+        CompletableFuture<SimulationResult> future = new CompletableFuture<>();
+        ParserExecutor.getInstance().execute(() -> {
+            runLock.lock();
+            try {
+                synchronized (cancelLock) {
+                    if (future.isDone()) {
+                        // Cancelled while waiting for the previous run of this parser
+                        return;
+                    }
+                    currentRun = future;
+                    runThread = Thread.currentThread();
+                }
+                SimulationResult result = run(input);
+                if (result == null) {
+                    throw new IllegalStateException("The hardware simulation " + getHardwaresimulationName() + " wrote no output parameters");
+                }
+                future.complete(result);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            } finally {
+                synchronized (cancelLock) {
+                    currentRun = null;
+                    runThread = null;
+                    // The interruption of a cancelled run must not reach the next run on this thread
+                    Thread.interrupted();
+                }
+                runLock.unlock();
+            }
+        });
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                abort(future);
+            }
+        });
+        return future;
+    }
 
+    /**
+     * Aborts an asynchronous run that was cancelled, if it is running.
+     *
+     * @param run the future of the run
+     */
+    private void abort(CompletableFuture<SimulationResult> run) {
+        synchronized (cancelLock) {
+            if (currentRun != run) {
+                return;
+            }
+            cancelled = true;
+            containerAborted = true;
+            runThread.interrupt();
+            // Commands and copies that do not react to the interruption end when their container is removed
+            discardContainer();
+        }
+    }
 
+    /**
+     * Ends the run with a CancellationException if it was cancelled.
+     */
+    protected void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("The run of " + getHardwaresimulationName() + " was cancelled");
+        }
+    }
+
+    /**
+     * Runs the hardware simulation of the input, one run of this parser at a time.
+     *
+     * @param input the input string
+     * @return the output parameters of the run, or null if none were written
+     */
+    private SimulationResult run(JsonNode input) {
+        runLock.lock();
+        try {
+            synchronized (cancelLock) {
+                // Every run starts clean, unless it is an asynchronous run that was cancelled before this point
+                cancelled = currentRun != null && currentRun.isCancelled();
+                containerAborted = cancelled;
+            }
+            checkCancelled();
             statsOutputPath = JsonUtil.get(input, "commonParameters.hardwaresimulation.statsOutputPath").asText();
             programPath = JsonUtil.get(input, "commonParameters.hardwaresimulation.programPath").asText();
             binaryPath = JsonUtil.get(input, "commonParameters.hardwaresimulation.binaryPath").asText();
@@ -124,20 +290,237 @@ public abstract class ParserAbstract implements ParserInterface {
             }
             fileName = new File(programPath).getName();
             command = "./" + fileName.replaceAll("\\.c", "");
+            // An invalid input fails here, before the host resources and a container are acquired
+            validate(input);
+
+            // The working path is optional, runs of a parameter sweep use one directory per point
+            workingPath = JsonUtil.has(input, "commonParameters.hardwaresimulation.workingPath")
+                    ? JsonUtil.get(input, "commonParameters.hardwaresimulation.workingPath").asText()
+                    : "../resources";
+            keepStatsFile = JsonUtil.has(input, "commonParameters.hardwaresimulation.keepStatsFile")
+                    && JsonUtil.get(input, "commonParameters.hardwaresimulation.keepStatsFile").asBoolean();
+
+            HardwaresimulationResultCache resultCache = HardwaresimulationResultCache.getInstance();
+            boolean resultCacheable = resultCache.isEnabled() && isResultCacheable(input);
+            Path outputFile = Paths.get(statsOutputPath, getOutputFileName());
+            String resultCacheKey = resultCacheable ? getResultCacheKey(input) : null;
+            if (resultCacheKey != null && resultCache.restore(resultCacheKey, outputFile)) {
+                System.out.println("The result of an identical run was restored from the result cache at path: " + outputFile);
+                SimulationResult result = readOutputFile(outputFile);
+                appendToResultStore(input, result);
+                return result;
+            }
+
+            // The output parameters are appended to the result store together with the input parameters
+            generateOutputParametersFile.setInput(input);
+
             // Implementation of the parsing and simulation logic using Docker
+            try {
+                simulate(input);
+            } finally {
+                exit();
+            }
+            checkCancelled();
+
+            if (resultCacheable && Files.exists(outputFile)) {
+                // The image is built by the first run, so its ID may only be known now
+                resultCacheKey = resultCacheKey != null ? resultCacheKey : getResultCacheKey(input);
+                if (resultCacheKey != null) {
+                    resultCache.store(resultCacheKey, outputFile);
+                }
+            }
+            return generateOutputParametersFile.getResult();
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    /**
+     * Reads a restored output parameters file.
+     *
+     * @param outputFile the restored output parameters file
+     * @return the output parameters, or null if the file cannot be read
+     */
+    private SimulationResult readOutputFile(Path outputFile) {
+        try {
+            JsonNode outputParameters = new ObjectMapper().readTree(outputFile.toFile());
+            if (outputParameters instanceof ObjectNode) {
+                return new SimulationResult((ObjectNode) outputParameters);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading the restored output parameters file: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Appends a restored run to the result store, so a run is in the store even if it was not simulated.
+     * An intermediate run is not appended, see {@link GenerateOutputParametersFile#setIntermediate(boolean)}.
+     *
+     * @param input  the input of the hardware simulation
+     * @param result the restored output parameters, or null if they cannot be read
+     */
+    private void appendToResultStore(JsonNode input, SimulationResult result) {
+        HardwaresimulationResultStore resultStore = HardwaresimulationResultStore.getInstance();
+        if (!resultStore.isEnabled() || result == null || generateOutputParametersFile.isIntermediate()) {
+            return;
+        }
+        try {
+            resultStore.append(input, result);
+        } catch (IOException e) {
+            System.err.println("The run could not be appended to the result store: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the hardware simulation with the given input and writes its output parameters to the statistics output path.
+     *
+     * @param input the input of the hardware simulation
+     */
+    protected abstract void simulate(JsonNode input);
+
+    /**
+     * Gets the name of the hardware simulation, which is also the name of its image.
+     *
+     * @return the name of the hardware simulation
+     */
+    protected abstract String getHardwaresimulationName();
 
+    /**
+     * Gets the name of the file in the statistics output path that the output parameters are written to.
+     *
+     * @return the name of the output parameters file
+     */
+    protected abstract String getOutputFileName();
+
+    /**
+     * Checks whether the result of a run can be restored from the result cache,
+     * which holds only the output parameters file of a run.
+     *
+     * @param input the input of the run
+     * @return true if the output parameters file is the whole result of the run, otherwise false
+     */
+    protected boolean isResultCacheable(JsonNode input) {
+        return true;
+    }
+
+    /**
+     * Gets the files besides the program and the binary that the result of a run depends on.
+     * Their contents are part of the key of the run in the result cache, so a changed file is simulated again.
+     *
+     * @param input the input of the run
+     * @return the paths of the files, empty by default
+     */
+    protected String[] getResultCacheKeyFiles(JsonNode input) {
+        return new String[0];
+    }
 
+    /**
+     * Creates the key of this run in the result cache from its input, its image, the program, the binary
+     * and the files of {@link #getResultCacheKeyFiles(JsonNode)}.
+     *
+     * @param input the input of the run
+     * @return the key, or null if the run cannot be cached because its image does not exist yet
+     */
+    private String getResultCacheKey(JsonNode input) {
+        String hardwaresimulationName = getHardwaresimulationName();
+        String imageId = hardwaresimulation.getImageId(hardwaresimulationName);
+        if (imageId == null) {
+            return null;
+        }
+        try {
+            String[] keyFiles = getResultCacheKeyFiles(input);
+            String[] filePaths = new String[keyFiles.length + 2];
+            filePaths[0] = programPath;
+            filePaths[1] = binaryPath;
+            System.arraycopy(keyFiles, 0, filePaths, 2, keyFiles.length);
+            return HardwaresimulationResultCache.createKey(input, hardwaresimulationName, imageId,
+                    hardwaresimulation.getDockerfileHash(hardwaresimulationName), filePaths);
+        } catch (IOException e) {
+            System.err.println("Error creating the key of the result cache: " + e.getMessage());
+            return null;
+        }
     }
 
     /**
      * Performs cleanup operations and terminates the hardware simulation.
+     * The working files of the run are removed from the container and the container is returned to the pool.
      */
     protected void exit() {
-        // Close the hardware simulation container
-        hardwaresimulation.closeDockerHardwaresimulation();
+        if (containerId == null) {
+            return;
+        }
+        if (containerAborted) {
+            // Removing the container stops the aborted command and frees its CPU
+            discardContainer();
+            containerId = null;
+            return;
+        }
+        try {
+            // Remove the files of this run, so that the next run starts with clean working directories
+            // The paths are passed as arguments, so that their names are never interpreted by a shell
+            String[] workingFiles = getWorkingFiles();
+            if (workingFiles.length > 0) {
+                String[] removeCommand = new String[workingFiles.length + 3];
+                removeCommand[0] = "rm";
+                removeCommand[1] = "-rf";
+                removeCommand[2] = "--";
+                System.arraycopy(workingFiles, 0, removeCommand, 3, workingFiles.length);
+                host.outputFromHardwaresimulationConsole(hardwaresimulation.command(removeCommand));
+            }
+            // Only the fixed patterns need the shell to expand their wildcards
+            String[] workingFilePatterns = getWorkingFilePatterns();
+            if (workingFilePatterns.length > 0) {
+                host.outputFromHardwaresimulationConsole(hardwaresimulation.command(
+                        new String[]{"sh", "-c", "rm -rf -- " + String.join(" ", workingFilePatterns)}));
+            }
+            if (containerReturned.compareAndSet(false, true)) {
+                try {
+                    HardwaresimulationContainerPool.getInstance().release(imageName, containerId);
+                } finally {
+                    HardwaresimulationResourceScheduler.getInstance().release(imageName);
+                }
+            }
+        } catch (RuntimeException e) {
+            // A container that cannot be cleaned is not reused
+            discardContainer();
+        }
+        containerId = null;
+    }
+
+    /**
+     * Removes the leased container instead of returning it to the pool, unless it was already returned or removed.
+     * A cancelled run and its own thread may both discard the container.
+     */
+    private void discardContainer() {
+        if (containerReturned.compareAndSet(false, true)) {
+            try {
+                HardwaresimulationContainerPool.getInstance().invalidate(imageName, containerId);
+            } finally {
+                HardwaresimulationResourceScheduler.getInstance().release(imageName);
+            }
+        }
+    }
 
-        // Delete the hardware simulation container
-        hardwaresimulation.deleteDockerHardwaresimulation();
+    /**
+     * Gets the files and directories in the container that a run creates and that are removed
+     * before the container is returned to the pool. The paths are removed as they are, without a shell.
+     *
+     * @return The absolute paths of the working files in the container.
+     */
+    protected String[] getWorkingFiles() {
+        return new String[0];
+    }
+
+    /**
+     * Gets the shell patterns of the working files in the container whose names are only known by their wildcards,
+     * such as the numbered statistics files of a hardware simulation. The patterns are expanded by a shell,
+     * so they must be fixed strings and never contain a name from the input.
+     *
+     * @return The absolute shell patterns of the working files in the container.
+     */
+    protected String[] getWorkingFilePatterns() {
+        return new String[0];
     }
 
     /**
@@ -163,40 +546,117 @@ public abstract class ParserAbstract implements ParserInterface {
 
 
     /**
-     * Handles the output console for specific error messages.
+     * Streams the statistics file of the hardware simulation from the container into the output parser and saves the
+     * generated output parameters. The statistics file is only written to the working path if "keepStatsFile" is set.
      *
-     * @param errorMessages An array of error messages to search for in the output console.
-     * @param outputConsole The console output to analyze for error messages.
+     * @param generateOutputParameters The output parser of the hardware simulation.
+     * @param containerFilePath        The path of the statistics file in the container.
+     * @param hostFileName             The name of the statistics file in the working path, if it is kept.
+     * @param generateJsonPath         The path to save the generated JSON output parameters file.
+     * @param hostNanoseconds          The host nanoseconds to add to the output parameters, or null to add none.
      */
-    protected void handleOutputConsole(String [] errorMessages,String outputConsole) {
-        for (String errorMessage : errorMessages) {
-            if (containsErrorMessage(outputConsole, errorMessage)) {
-                exitWithError(errorMessage);
+    protected void generateOutputParametersFromContainer(GenerateOutputParameters generateOutputParameters, String containerFilePath,
+                                                         String hostFileName, String generateJsonPath, Long hostNanoseconds) {
+        checkCancelled();
+        try (InputStream statistics = openStatsFile(containerFilePath, hostFileName);
+             Reader reader = new InputStreamReader(statistics, StandardCharsets.UTF_8)) {
+            if (hostNanoseconds == null) {
+                generateOutputParametersFile.generateOutputParameters(generateOutputParameters, reader, generateJsonPath);
+            } else {
+                generateOutputParametersFile.generateOutputParameters(generateOutputParameters, reader, generateJsonPath, hostNanoseconds);
             }
+            if (keepStatsFile) {
+                // Read what the output parser has skipped, so that the kept file is complete
+                statistics.transferTo(OutputStream.nullOutputStream());
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading the statistics file " + containerFilePath + ": " + e.getMessage());
         }
     }
 
+    /**
+     * Opens the statistics file in the container, copying it to the working path while it is read if "keepStatsFile" is set.
+     *
+     * @param containerFilePath The path of the statistics file in the container.
+     * @param hostFileName      The name of the statistics file in the working path.
+     * @return The content of the statistics file.
+     * @throws IOException if the statistics file cannot be opened.
+     */
+    private InputStream openStatsFile(String containerFilePath, String hostFileName) throws IOException {
+        InputStream statistics = hardwaresimulation.openFileFromContainer(containerId, containerFilePath);
+        if (!keepStatsFile) {
+            return statistics;
+        }
+        File hostFile = new File(workingPath, hostFileName);
+        hostFile.getParentFile().mkdirs();
+        return new TeeInputStream(statistics, new BufferedOutputStream(new FileOutputStream(hostFile)), true);
+    }
 
     /**
-     * Checks if the output console contains a specific error message.
+     * Gets the error messages of a hardware simulation. The input may configure its own error messages
+     * per hardware simulation in "commonParameters.hardwaresimulation.errorMessages", for example
+     * {"zsim": {"fatal": ["Number of sets must be a power of two"], "warning": ["error"]}}.
      *
-     * @param outputConsole The console output to analyze.
-     * @param errorMessage  The error message to search for.
-     * @return True if the error message is present in the output console, otherwise false.
+     * @param input                   The input of the run.
+     * @param hardwaresimulationName  The name of the hardware simulation.
+     * @param defaultErrorMessages    The error messages that are used if the input configures none.
+     * @return The matcher for the error messages of the hardware simulation.
      */
-    private boolean containsErrorMessage(String outputConsole, String errorMessage) {
-        return outputConsole.contains(errorMessage);
+    protected ErrorMessageMatcher getErrorMessages(JsonNode input, String hardwaresimulationName, ErrorMessageMatcher defaultErrorMessages) {
+        String keyPath = "commonParameters.hardwaresimulation.errorMessages." + hardwaresimulationName;
+        return JsonUtil.has(input, keyPath) ? ErrorMessageMatcher.fromJson(JsonUtil.get(input, keyPath)) : defaultErrorMessages;
     }
 
     /**
-     * Prints an error message and exits the program.
+     * Runs a command of the hardware simulation and scans its output for error messages while it runs.
+     * Warnings are reported with their position. On the first fatal error message the command is aborted at once,
+     * the container is discarded and the run fails.
+     *
+     * @param errorMessages The error messages to search for in the output console.
+     * @param commands      The command to execute in the container.
+     */
+    protected void runHardwaresimulationCommand(ErrorMessageMatcher errorMessages, String[] commands) {
+        checkCancelled();
+        ErrorMessageMatcher.Scanner scanner = errorMessages.newScanner();
+        ErrorMessageMatch[] encounteredErrorMessage = new ErrorMessageMatch[1];
+        long[] lineNumber = new long[1];
+
+        System.out.println("Command output: ");
+        host.outputFromHardwaresimulationConsole(hardwaresimulation.command(commands), line -> {
+            System.out.println(line);
+            lineNumber[0]++;
+            for (ErrorMessageMatch match : scanner.scanLine(line)) {
+                if (match.getSeverity() == ErrorMessageSeverity.FATAL) {
+                    encounteredErrorMessage[0] = match;
+                    return true;
+                }
+                System.err.println("Warning: \"" + match.getErrorMessage() + "\" in line " + lineNumber[0]
+                        + " of the command output at offset " + match.getOffset());
+            }
+            return false;
+        });
+
+        if (encounteredErrorMessage[0] != null) {
+            System.err.println("Fatal: \"" + encounteredErrorMessage[0].getErrorMessage() + "\" in line " + lineNumber[0]
+                    + " of the command output at offset " + encounteredErrorMessage[0].getOffset());
+            // The aborted command is still running, so the container must not be reused
+            containerAborted = true;
+            exitWithError(encounteredErrorMessage[0].getErrorMessage());
+        }
+        // A cancelled command returns early, without its output
+        checkCancelled();
+    }
+
+
+    /**
+     * Terminates the hardware simulation and reports the error message to the caller.
      *
-     * @param errorMessage The error message to display.
+     * @param errorMessage The error message to report.
+     * @throws HardwaresimulationException always, carrying the encountered error message.
      */
     private void exitWithError(String errorMessage) {
         exit();
-        System.err.println(errorMessage + " encountered. Exiting the program.");
-        System.exit(1);
+        throw new HardwaresimulationException(errorMessage);
     }
 
 }
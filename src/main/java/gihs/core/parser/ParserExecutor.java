@@ -0,0 +1,94 @@
+package gihs.core.parser;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The ParserExecutor class runs the asynchronous runs of the parsers, one thread per run.
+ * <p>
+ * On a Java runtime with virtual threads, every run gets a virtual thread, so hundreds of runs that wait for Docker
+ * do not hold hundreds of platform threads. On older runtimes, such as the Java 17 that the project is built with,
+ * every run gets a daemon platform thread instead. The number of containers is limited by the container pool either way.
+ */
+public class ParserExecutor implements Executor {
+
+    /**
+     * The instance of the ParserExecutor.
+     */
+    private static ParserExecutor instance;
+
+    private final ExecutorService executorService;
+
+    private final boolean virtualThreads;
+
+    private ParserExecutor() {
+        ExecutorService virtualThreadExecutor = createVirtualThreadExecutor();
+        virtualThreads = virtualThreadExecutor != null;
+        executorService = virtualThreads ? virtualThreadExecutor : createPlatformThreadExecutor();
+    }
+
+    /**
+     * Gets the instance of the ParserExecutor.
+     *
+     * @return the instance
+     */
+    public static synchronized ParserExecutor getInstance() {
+        if (instance == null) {
+            instance = new ParserExecutor();
+        }
+        return instance;
+    }
+
+    /**
+     * Runs a task on its own thread.
+     *
+     * @param task the task
+     */
+    @Override
+    public void execute(Runnable task) {
+        executorService.execute(task);
+    }
+
+    /**
+     * Checks whether the runs are executed on virtual threads.
+     *
+     * @return true if the runtime supports virtual threads, otherwise false
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread per task. The executor is looked up at runtime,
+     * because the project is compiled for a Java version without virtual threads.
+     *
+     * @return the executor, or null if the runtime has no virtual threads
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method newVirtualThreadPerTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            // The runtime has no virtual threads, or only as a preview feature that is not enabled
+            return null;
+        }
+    }
+
+    /**
+     * Creates an executor that starts a daemon platform thread per task and reuses idle threads.
+     *
+     * @return the executor
+     */
+    private static ExecutorService createPlatformThreadExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "hardwaresimulation-run-" + threadNumber.incrementAndGet());
+            // A run that is still waiting for Docker does not keep the program alive
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -1,6 +1,9 @@
 package gihs.core.parser;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import gihs.core.output.SimulationResult;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The ParserInterface defines the contract for hardware simulation parsers.
@@ -14,4 +17,23 @@ public interface ParserInterface {
     * @param input the input JsonNode for the hardware simulation
     */
    public void parse(JsonNode input);
+
+   /**
+    * Parses the input and performs the hardware simulation without blocking the caller.
+    * Cancelling the returned future aborts the run and discards its container.
+    *
+    * @param input the input JsonNode for the hardware simulation
+    * @return the future of the output parameters of the run
+    */
+   public CompletableFuture<SimulationResult> parseAsync(JsonNode input);
+
+   /**
+    * Checks the values of the input that only this hardware simulation knows, before anything is run,
+    * so that an invalid input fails before a container is leased.
+    *
+    * @param input the input JsonNode for the hardware simulation
+    * @throws ArithmeticException if the input has an invalid value
+    */
+   public default void validate(JsonNode input) {
+   }
 }
@@ -0,0 +1,247 @@
+package gihs.core.sweep;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import gihs.core.managementOFJsonNodeALL.JsonUtil;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The ParameterSweep class expands an input JSON with swept parameters into the cartesian product of all values.
+ * <p>
+ * Every leaf below one of the sweepable key paths may be given as a list of values, for example
+ * {@code "l1d_size": ["16KiB", "32KiB", "64KiB"]}, or as a range object, for example
+ * {@code "l1d_assoc": {"from": 2, "to": 16, "factor": 2}} or {@code "l2_size": {"from": 256, "to": 1024, "step": 256, "unit": "KiB"}}.
+ */
+public class ParameterSweep {
+
+    /**
+     * Array of key paths whose leaves may be swept.
+     */
+    private static final String[] SWEEPABLE_PARAMETERS = {
+            "commonParameters.cache_hierarchy",
+            "gem5",
+            "sniper",
+            "zsim"
+    };
+
+    /**
+     * Array of key paths below the sweepable key paths whose leaves are never swept, because their lists are part of
+     * the configuration itself, for example the sampling windows of gem5.
+     */
+    private static final Set<String> UNSWEEPABLE_PARAMETERS = Set.of(
+            "gem5.sampling"
+    );
+
+    /**
+     * The field names that are allowed in a range object.
+     */
+    private static final Set<String> RANGE_FIELDS = Set.of("from", "to", "step", "factor", "unit");
+
+    /**
+     * Checks if the given input JSON contains at least one swept parameter.
+     *
+     * @param rootNode The root JSON node of the configuration.
+     * @return True if at least one leaf is given as a list or a range, otherwise false.
+     */
+    public static boolean isSweep(JsonNode rootNode) {
+        return !findSweptParameters(rootNode).isEmpty();
+    }
+
+    /**
+     * Expands the given input JSON into one point per combination of the swept parameter values.
+     * An input JSON without swept parameters is expanded into exactly one point.
+     *
+     * @param rootNode The root JSON node of the configuration.
+     * @return The list of points of the cartesian product, in a stable order.
+     */
+    public static List<SweepPoint> expand(JsonNode rootNode) {
+        Map<String, List<JsonNode>> sweptParameters = findSweptParameters(rootNode);
+        List<String> keyPaths = new ArrayList<>(sweptParameters.keySet());
+        List<SweepPoint> points = new ArrayList<>();
+
+        // Odometer over the value indices of all swept parameters
+        int[] valueIndices = new int[keyPaths.size()];
+        int pointIndex = 0;
+        do {
+            ObjectNode input = rootNode.deepCopy();
+            Map<String, JsonNode> parameters = new LinkedHashMap<>();
+            for (int i = 0; i < keyPaths.size(); i++) {
+                JsonNode value = sweptParameters.get(keyPaths.get(i)).get(valueIndices[i]);
+                setValue(input, keyPaths.get(i), value);
+                parameters.put(keyPaths.get(i), value);
+            }
+            points.add(new SweepPoint(pointIndex++, input, parameters));
+        } while (nextCombination(valueIndices, keyPaths, sweptParameters));
+
+        return points;
+    }
+
+    /**
+     * Advances the value indices to the next combination of the cartesian product.
+     *
+     * @param valueIndices    The current value index of every swept parameter.
+     * @param keyPaths        The key paths of the swept parameters.
+     * @param sweptParameters The values of every swept parameter.
+     * @return True if a next combination exists, otherwise false.
+     */
+    private static boolean nextCombination(int[] valueIndices, List<String> keyPaths, Map<String, List<JsonNode>> sweptParameters) {
+        for (int i = valueIndices.length - 1; i >= 0; i--) {
+            valueIndices[i]++;
+            if (valueIndices[i] < sweptParameters.get(keyPaths.get(i)).size()) {
+                return true;
+            }
+            valueIndices[i] = 0;
+        }
+        return false;
+    }
+
+    /**
+     * Finds all swept parameters below the sweepable key paths.
+     *
+     * @param rootNode The root JSON node of the configuration.
+     * @return The values of every swept parameter, keyed by their hierarchical key path.
+     */
+    private static Map<String, List<JsonNode>> findSweptParameters(JsonNode rootNode) {
+        Map<String, List<JsonNode>> sweptParameters = new LinkedHashMap<>();
+        for (String sweepableParameter : SWEEPABLE_PARAMETERS) {
+            if (JsonUtil.has(rootNode, sweepableParameter)) {
+                collectSweptParameters(JsonUtil.get(rootNode, sweepableParameter), sweepableParameter, sweptParameters);
+            }
+        }
+        return sweptParameters;
+    }
+
+    /**
+     * Recursively collects the swept parameters of the given JSON node.
+     *
+     * @param node            The JSON node to search in.
+     * @param keyPath         The hierarchical key path of the JSON node.
+     * @param sweptParameters The map where the found swept parameters are stored.
+     */
+    private static void collectSweptParameters(JsonNode node, String keyPath, Map<String, List<JsonNode>> sweptParameters) {
+        if (UNSWEEPABLE_PARAMETERS.contains(keyPath) || isListOfObjects(node)) {
+            return;
+        }
+        if (node.isArray()) {
+            if (node.size() == 0) {
+                throw new ArithmeticException("the " + keyPath + " is swept over an empty list of values");
+            }
+            List<JsonNode> values = new ArrayList<>();
+            node.forEach(values::add);
+            sweptParameters.put(keyPath, values);
+        } else if (isRange(node)) {
+            sweptParameters.put(keyPath, expandRange(node, keyPath));
+        } else if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                collectSweptParameters(field.getValue(), keyPath + "." + field.getKey(), sweptParameters);
+            }
+        }
+    }
+
+    /**
+     * Checks if the given JSON node is a list that contains objects, which is a configuration value and not a list of
+     * swept values.
+     *
+     * @param node The JSON node to check.
+     * @return True if the node is an array with at least one object element, otherwise false.
+     */
+    private static boolean isListOfObjects(JsonNode node) {
+        if (!node.isArray()) {
+            return false;
+        }
+        for (JsonNode element : node) {
+            if (element.isObject()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the given JSON node is a range object.
+     *
+     * @param node The JSON node to check.
+     * @return True if the node has a "from" and a "to" field and no other than the range fields, otherwise false.
+     */
+    private static boolean isRange(JsonNode node) {
+        if (!node.isObject() || !node.has("from") || !node.has("to")) {
+            return false;
+        }
+        Iterator<String> fieldNames = node.fieldNames();
+        while (fieldNames.hasNext()) {
+            if (!RANGE_FIELDS.contains(fieldNames.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Expands a range object into its list of values.
+     * A range with a "factor" grows geometrically, otherwise it grows linearly by "step" (default 1).
+     * If a "unit" is given, every value is written as text with the unit appended, for example "64KiB".
+     *
+     * @param range   The range object.
+     * @param keyPath The hierarchical key path of the range, used for error messages.
+     * @return The list of values of the range.
+     */
+    private static List<JsonNode> expandRange(JsonNode range, String keyPath) {
+        BigDecimal from = range.get("from").decimalValue();
+        BigDecimal to = range.get("to").decimalValue();
+        BigDecimal step = range.has("step") ? range.get("step").decimalValue() : BigDecimal.ONE;
+        BigDecimal factor = range.has("factor") ? range.get("factor").decimalValue() : null;
+        String unit = range.has("unit") ? range.get("unit").asText() : null;
+
+        if (factor != null ? factor.compareTo(BigDecimal.ONE) <= 0 || from.signum() <= 0 : step.signum() <= 0) {
+            throw new ArithmeticException("the " + keyPath + " has a range that does not grow towards \"to\"");
+        }
+
+        List<JsonNode> values = new ArrayList<>();
+        for (BigDecimal value = from; value.compareTo(to) <= 0; value = factor != null ? value.multiply(factor) : value.add(step)) {
+            values.add(toJsonValue(value.stripTrailingZeros(), unit));
+        }
+        if (values.isEmpty()) {
+            throw new ArithmeticException("the " + keyPath + " has an empty range");
+        }
+        return values;
+    }
+
+    /**
+     * Converts a value of a range into a JSON value node.
+     *
+     * @param value The value of the range.
+     * @param unit  The unit to append, or null for a numeric value.
+     * @return The JSON value node.
+     */
+    private static JsonNode toJsonValue(BigDecimal value, String unit) {
+        boolean isIntegral = value.scale() <= 0;
+        if (unit != null) {
+            return JsonNodeFactory.instance.textNode((isIntegral ? value.toBigInteger().toString() : value.toPlainString()) + unit);
+        }
+        return isIntegral ? JsonNodeFactory.instance.numberNode(value.longValueExact()) : JsonNodeFactory.instance.numberNode(value.doubleValue());
+    }
+
+    /**
+     * Sets the value at the specified hierarchical key path.
+     *
+     * @param rootNode The root JSON node to modify.
+     * @param keyPath  The hierarchical key path of the value.
+     * @param value    The value to set.
+     */
+    private static void setValue(ObjectNode rootNode, String keyPath, JsonNode value) {
+        String[] keys = keyPath.split("\\.");
+        ObjectNode parent = (ObjectNode) JsonUtil.get(rootNode, String.join(".", Arrays.copyOf(keys, keys.length - 1)));
+        parent.set(keys[keys.length - 1], value);
+    }
+}
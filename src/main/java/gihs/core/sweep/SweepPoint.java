@@ -0,0 +1,68 @@
+package gihs.core.sweep;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Map;
+
+/**
+ * The SweepPoint class represents one point of the cartesian product of a parameter sweep.
+ * It holds the fully expanded input JSON and the values chosen for the swept parameters.
+ */
+public class SweepPoint {
+
+    /**
+     * The index of the point within the parameter sweep.
+     */
+    private final int index;
+
+    /**
+     * The expanded input JSON of the point, which contains only single values.
+     */
+    private final ObjectNode input;
+
+    /**
+     * The values of the swept parameters, keyed by their hierarchical key path.
+     */
+    private final Map<String, JsonNode> parameters;
+
+    /**
+     * Constructs a SweepPoint with the given index, input and swept parameter values.
+     *
+     * @param index      The index of the point within the parameter sweep.
+     * @param input      The expanded input JSON of the point.
+     * @param parameters The values of the swept parameters, keyed by their hierarchical key path.
+     */
+    public SweepPoint(int index, ObjectNode input, Map<String, JsonNode> parameters) {
+        this.index = index;
+        this.input = input;
+        this.parameters = parameters;
+    }
+
+    /**
+     * Gets the index of the point within the parameter sweep.
+     *
+     * @return The index of the point.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the expanded input JSON of the point.
+     *
+     * @return The expanded input JSON.
+     */
+    public ObjectNode getInput() {
+        return input;
+    }
+
+    /**
+     * Gets the values of the swept parameters.
+     *
+     * @return The swept parameter values, keyed by their hierarchical key path.
+     */
+    public Map<String, JsonNode> getParameters() {
+        return parameters;
+    }
+}
@@ -0,0 +1,237 @@
+package gihs.core.sweep;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import gihs.core.managementOFJsonNodeALL.JsonUtil;
+import gihs.core.output.SimulationResult;
+import gihs.core.parser.ParserInterface;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * The SweepRunner class runs the points of a parameter sweep concurrently with the asynchronous runs of the parsers.
+ * Every point writes its result JSON into its own directory below the statsOutputPath,
+ * and a combined index of all points is written to {@code sweepIndex.json}.
+ * <p>
+ * The points take their slots from a semaphore, which other runs can share, so that a parameter sweep and
+ * other simulations together stay below one bound. A running parameter sweep can be cancelled with {@link #cancel()}.
+ */
+public class SweepRunner {
+
+    /**
+     * The name of the combined index file of a parameter sweep.
+     */
+    private static final String SWEEP_INDEX_FILE = "sweepIndex.json";
+
+    /**
+     * The objectMapper used for reading the results and writing the index.
+     */
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * The maximum number of points that are simulated at the same time.
+     */
+    private final int parallelism;
+
+    /**
+     * The slots of the simulations, one of which every point holds until it is completed.
+     */
+    private final Semaphore simulationSlots;
+
+    /**
+     * The factory that creates a new parser for the input of a point.
+     */
+    private final Function<JsonNode, ParserInterface> parserFactory;
+
+    /**
+     * The runs of the parsers of the started points.
+     */
+    private final List<CompletableFuture<SimulationResult>> simulations = new CopyOnWriteArrayList<>();
+
+    /**
+     * Whether the parameter sweep was cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * The thread that starts the points and may wait for a slot, or null if no points are being started.
+     */
+    private Thread startingThread;
+
+    /**
+     * Constructs a SweepRunner with the given parallelism and parser factory.
+     *
+     * @param parallelism   The maximum number of points that are simulated at the same time.
+     * @param parserFactory The factory that creates a new parser for the input of a point, or returns null for an unknown hardware simulation name.
+     */
+    public SweepRunner(int parallelism, Function<JsonNode, ParserInterface> parserFactory) {
+        this(parallelism, new Semaphore(parallelism), parserFactory);
+    }
+
+    /**
+     * Constructs a SweepRunner whose points take their slots from a semaphore that is shared with other runs.
+     *
+     * @param parallelism     The maximum number of simulations of the shared semaphore, which is written to the index.
+     * @param simulationSlots The slots of the simulations, which a point takes when it starts and returns when it is completed.
+     * @param parserFactory   The factory that creates a new parser for the input of a point, or returns null for an unknown hardware simulation name.
+     */
+    public SweepRunner(int parallelism, Semaphore simulationSlots, Function<JsonNode, ParserInterface> parserFactory) {
+        if (parallelism < 1) {
+            throw new ArithmeticException("the parallelism must be at least 1, but was " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.simulationSlots = simulationSlots;
+        this.parserFactory = parserFactory;
+    }
+
+    /**
+     * Cancels the parameter sweep: no further points are started and the runs of the started points are cancelled.
+     */
+    public void cancel() {
+        cancelled = true;
+        synchronized (this) {
+            if (startingThread != null) {
+                // The points are started on this thread, which may wait for a slot
+                startingThread.interrupt();
+            }
+        }
+        simulations.forEach(simulation -> simulation.cancel(true));
+    }
+
+    /**
+     * Runs all points of the parameter sweep and writes the combined index.
+     *
+     * @param points          The points of the parameter sweep.
+     * @param statsOutputPath The directory where the point directories and the combined index are stored.
+     * @throws CancellationException if the parameter sweep was cancelled, then no index is written
+     */
+    public void run(List<SweepPoint> points, String statsOutputPath) {
+        List<CompletableFuture<ObjectNode>> runs = new ArrayList<>();
+        synchronized (this) {
+            startingThread = Thread.currentThread();
+        }
+        try {
+            for (SweepPoint point : points) {
+                if (cancelled) {
+                    break;
+                }
+                String pointOutputPath = statsOutputPath + "/point-" + point.getIndex();
+                ObjectNode hardwaresimulation = (ObjectNode) JsonUtil.get(point.getInput(), "commonParameters.hardwaresimulation");
+                hardwaresimulation.put("statsOutputPath", pointOutputPath);
+                // Every point gets its own working directory, so that the generated files of concurrent runs do not collide
+                hardwaresimulation.put("workingPath", pointOutputPath);
+                new File(pointOutputPath).mkdirs();
+                writeJson(point.getInput(), new File(pointOutputPath, "input.json"));
+
+                // A point holds a slot from its start until it is completed
+                try {
+                    simulationSlots.acquire();
+                } catch (InterruptedException e) {
+                    if (cancelled) {
+                        break;
+                    }
+                    Thread.currentThread().interrupt();
+                    simulations.forEach(simulation -> simulation.cancel(true));
+                    return;
+                }
+                if (cancelled) {
+                    simulationSlots.release();
+                    break;
+                }
+                CompletableFuture<ObjectNode> run = runPoint(point, pointOutputPath);
+                run.whenComplete((indexEntry, error) -> simulationSlots.release());
+                runs.add(run);
+            }
+        } finally {
+            synchronized (this) {
+                startingThread = null;
+                if (cancelled) {
+                    // An interrupt of the cancellation that arrived after the last slot was taken is cleared
+                    Thread.interrupted();
+                }
+            }
+        }
+        if (cancelled) {
+            // A point that was started while the sweep was cancelled is cancelled as well
+            simulations.forEach(simulation -> simulation.cancel(true));
+            throw new CancellationException("The parameter sweep was cancelled");
+        }
+
+        ArrayNode pointsIndex = objectMapper.createArrayNode();
+        for (CompletableFuture<ObjectNode> run : runs) {
+            pointsIndex.add(run.join());
+        }
+        if (cancelled) {
+            throw new CancellationException("The parameter sweep was cancelled");
+        }
+
+        ObjectNode sweepIndex = objectMapper.createObjectNode();
+        sweepIndex.put("points", points.size());
+        sweepIndex.put("parallelism", parallelism);
+        sweepIndex.set("runs", pointsIndex);
+        writeJson(sweepIndex, new File(statsOutputPath, SWEEP_INDEX_FILE));
+        System.out.println("The sweep index was successfully created at path: " + statsOutputPath + "/" + SWEEP_INDEX_FILE);
+    }
+
+    /**
+     * Starts a single point of the parameter sweep.
+     *
+     * @param point           The point to simulate.
+     * @param pointOutputPath The directory of the point.
+     * @return The future of the index entry of the point, which completes normally also if the point fails.
+     */
+    private CompletableFuture<ObjectNode> runPoint(SweepPoint point, String pointOutputPath) {
+        ObjectNode indexEntry = objectMapper.createObjectNode();
+        indexEntry.put("point", point.getIndex());
+        indexEntry.put("statsOutputPath", pointOutputPath);
+        ObjectNode parameters = indexEntry.putObject("parameters");
+        point.getParameters().forEach(parameters::set);
+
+        ParserInterface parserStrategy = parserFactory.apply(point.getInput());
+
+        long startTime = System.nanoTime();
+        CompletableFuture<SimulationResult> simulation = parserStrategy == null
+                ? CompletableFuture.failedFuture(new IllegalArgumentException("Invalid value for 'commonParameters.hardwaresimulation.name' in the JSON file."))
+                : parserStrategy.parseAsync(point.getInput());
+        simulations.add(simulation);
+        return simulation.handle((result, error) -> {
+            if (error == null) {
+                indexEntry.put("status", "completed");
+                indexEntry.set("result", objectMapper.valueToTree(result.getOutputParameters()));
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                System.err.println("error in point " + point.getIndex() + ": " + cause.getMessage());
+                indexEntry.put("status", "failed");
+                indexEntry.put("error", String.valueOf(cause.getMessage()));
+            }
+            indexEntry.put("executionNanoseconds", System.nanoTime() - startTime);
+            return indexEntry;
+        });
+    }
+
+    /**
+     * Writes the given JSON node formatted to a file.
+     *
+     * @param json The JSON node to write.
+     * @param file The file to write to.
+     */
+    private void writeJson(JsonNode json, File file) {
+        try {
+            objectMapper.writer().with(SerializationFeature.INDENT_OUTPUT).writeValue(file, json);
+        } catch (IOException e) {
+            System.err.println(e.getMessage() + ": " + file.getPath());
+        }
+    }
+}
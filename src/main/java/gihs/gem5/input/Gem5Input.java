@@ -9,6 +9,11 @@ import gihs.core.managementOFJsonNodeALL.JsonUtil;
  * for the Gem5 simulator based on the provided JSON data.
  */
 public class Gem5Input extends GenerateInputParametersAbstract {
+    /**
+     * The key path of the period of the statistics dumps in simulated nanoseconds.
+     */
+    private static final String DUMP_PERIOD_PATH = "gem5.statistics.dumpPeriod";
+
     /**
      * Constructs a new instance of the Gem5Input class.
      *
@@ -18,6 +23,31 @@ public class Gem5Input extends GenerateInputParametersAbstract {
         super(parametersFormInputJSON);
     }
 
+    /**
+     * Checks the gem5 values of an input that are written into the generated configuration,
+     * including the windows of a sampled simulation, see {@link Gem5Sampling}. A sampled simulation dumps its
+     * statistics per phase, so it cannot also dump them periodically.
+     *
+     * @param input The input JSON node.
+     * @throws ArithmeticException if a value is invalid.
+     * @throws IllegalStateException if the SimPoint files of a sampled simulation cannot be read.
+     */
+    public static void validate(JsonNode input) {
+        if (JsonUtil.has(input, DUMP_PERIOD_PATH)) {
+            JsonNode dumpPeriod = JsonUtil.get(input, DUMP_PERIOD_PATH);
+            if (!dumpPeriod.isNumber() || !(dumpPeriod.asDouble() > 0)) {
+                throw new ArithmeticException("the " + DUMP_PERIOD_PATH + " must be a positive number of nanoseconds, but was " + dumpPeriod);
+            }
+        }
+        if (Gem5Sampling.isSampled(input)) {
+            if (JsonUtil.has(input, DUMP_PERIOD_PATH)) {
+                throw new ArithmeticException("the " + DUMP_PERIOD_PATH + " cannot be combined with gem5.sampling");
+            }
+            // Reading the sampling checks its values and its windows
+            Gem5Sampling.fromInput(input);
+        }
+    }
+
     /**
      * Generates input code for the Gem5 simulator based on the provided JSON data.
      *
@@ -35,6 +65,7 @@ public class Gem5Input extends GenerateInputParametersAbstract {
 
 
         cfgCodeBuilder = new StringBuilder();
+        cfgCodeBuilder.append("import m5\n");
         cfgCodeBuilder.append("from gem5.utils.requires import requires\n");
         cfgCodeBuilder.append("from gem5.components.boards.simple_board import SimpleBoard\n");
         cfgCodeBuilder.append("from gem5.components.memory.single_channel import SingleChannelDDR3_1600\n");
@@ -78,7 +109,19 @@ public class Gem5Input extends GenerateInputParametersAbstract {
 
         cfgCodeBuilder.append("board.set_se_binary_workload(binary)\n\n");
 
+        if (Gem5Sampling.isSampled(parametersFormInputJSON)) {
+            // The workload is fast-forwarded and only its windows are simulated in detail, see Gem5Sampling.
+            // Its statistics are dumped per phase, so the validated input has no dump period
+            cfgCodeBuilder.append(Gem5Sampling.fromInput(parametersFormInputJSON).generateSimulationCode());
+            return cfgCodeBuilder.toString();
+        }
         cfgCodeBuilder.append("simulator = Simulator(board=board)\n");
+        if (JsonUtil.has(parametersFormInputJSON, DUMP_PERIOD_PATH)) {
+            // The statistics are dumped every period of simulated nanoseconds, which needs the instantiated simulation
+            double dumpPeriod = JsonUtil.get(parametersFormInputJSON, DUMP_PERIOD_PATH).asDouble();
+            cfgCodeBuilder.append("simulator._instantiate()\n");
+            cfgCodeBuilder.append("m5.stats.periodicStatDump(m5.ticks.fromSeconds(" + dumpPeriod + " * 1e-9))\n");
+        }
         cfgCodeBuilder.append("simulator.run()\n");
 
         return cfgCodeBuilder.toString();
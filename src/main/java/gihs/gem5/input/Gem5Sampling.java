@@ -0,0 +1,487 @@
+package gihs.gem5.input;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import gihs.core.managementOFJsonNodeALL.JsonUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Gem5Sampling class describes a sampled simulation of gem5, which is configured in "gem5.sampling".
+ * <p>
+ * The starting cores of the switchable processor fast-forward through the workload, and the switch cores simulate
+ * the measurement windows in detail, each after an optional detailed warm-up. The windows are given in one of three modes:
+ * <ul>
+ *     <li>"periodic": a window of "window" instructions at the end of every "period" instructions (SMARTS),
+ *     optionally at most "maxWindows" windows.</li>
+ *     <li>"simpoint": the representative intervals of "interval" instructions and their weights, read from "simpointFile"
+ *     with the lines "&lt;interval&gt; &lt;weight&gt;", or from the SimPoint output files "simpointFile" with the lines
+ *     "&lt;interval&gt; &lt;cluster&gt;" and "weightsFile" with the lines "&lt;weight&gt; &lt;cluster&gt;".</li>
+ *     <li>"windows": the windows listed in "windows" as {"start": ..., "instructions": ..., "weight": ...}.</li>
+ * </ul>
+ * A window without a weight is weighted by its instructions. If "totalInstructions" is set, the simulation ends after
+ * the last window and the windows are extrapolated to that number of instructions; otherwise the workload is
+ * fast-forwarded to its end, which counts its instructions. With "parallel", every window is simulated in its own container.
+ * The statistics are dumped after every phase, and the phases are logged to {@value #SAMPLING_LOG_FILE} in the output directory of gem5.
+ */
+public class Gem5Sampling {
+
+    /**
+     * The name of the file in the output directory of gem5 that logs the phase of every statistics dump.
+     */
+    public static final String SAMPLING_LOG_FILE = "gem5Sampling.json";
+
+    /**
+     * The key path of the sampling in the input.
+     */
+    private static final String KEY_PATH = "gem5.sampling";
+
+    /**
+     * The modes of the sampling.
+     */
+    public enum Mode {
+        PERIODIC, SIMPOINT, WINDOWS
+    }
+
+    private final Mode mode;
+    private final long warmup;
+    private final long period;
+    private final long window;
+    private final Long maxWindows;
+    private final List<Window> windows;
+    private final Long totalInstructions;
+    private final boolean parallel;
+
+    private Gem5Sampling(JsonNode sampling) {
+        String modeName = sampling.path("mode").asText("periodic");
+        try {
+            mode = Mode.valueOf(modeName.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ArithmeticException("the " + KEY_PATH + ".mode must be \"periodic\", \"simpoint\" or \"windows\", but was \"" + modeName + "\"");
+        }
+        Long warmupInstructions = getOptionalInstructions(sampling, KEY_PATH, "warmup", true);
+        warmup = warmupInstructions == null ? 0 : warmupInstructions;
+        totalInstructions = getOptionalInstructions(sampling, KEY_PATH, "totalInstructions", false);
+        parallel = sampling.path("parallel").asBoolean(false);
+
+        if (mode == Mode.PERIODIC) {
+            period = getInstructions(sampling, KEY_PATH, "period", false);
+            window = getInstructions(sampling, KEY_PATH, "window", false);
+            maxWindows = getOptionalInstructions(sampling, KEY_PATH, "maxWindows", false);
+            if (window > period) {
+                throw new ArithmeticException("the " + KEY_PATH + ".window must not be longer than the " + KEY_PATH + ".period");
+            }
+            windows = null;
+        } else {
+            period = 0;
+            window = 0;
+            maxWindows = null;
+            windows = mode == Mode.SIMPOINT ? readSimpoints(sampling) : readWindows(sampling);
+            if (windows.isEmpty()) {
+                throw new ArithmeticException("the " + KEY_PATH + " has no window");
+            }
+            windows.sort(Comparator.comparingLong(Window::getStart));
+            for (int i = 1; i < windows.size(); i++) {
+                if (windows.get(i).start < windows.get(i - 1).start + windows.get(i - 1).instructions) {
+                    throw new ArithmeticException("the windows of " + KEY_PATH + " overlap at instruction " + windows.get(i).start);
+                }
+            }
+        }
+        if (parallel && totalInstructions == null) {
+            throw new ArithmeticException("parallel windows need " + KEY_PATH + ".totalInstructions, because no window runs to the end of the workload");
+        }
+    }
+
+    /**
+     * Checks whether an input asks for a sampled simulation.
+     *
+     * @param input the input
+     * @return true if "gem5.sampling" is set, otherwise false
+     */
+    public static boolean isSampled(JsonNode input) {
+        return JsonUtil.has(input, KEY_PATH);
+    }
+
+    /**
+     * Gets the files that the sampling of an input reads its windows from, which are the "simpointFile" and the
+     * "weightsFile" of the "simpoint" mode.
+     *
+     * @param input the input
+     * @return the paths of the files, empty if the input is not sampled or reads no files
+     */
+    public static String[] getInputFiles(JsonNode input) {
+        if (!isSampled(input)) {
+            return new String[0];
+        }
+        JsonNode sampling = JsonUtil.get(input, KEY_PATH);
+        List<String> files = new ArrayList<>();
+        for (String file : new String[]{"simpointFile", "weightsFile"}) {
+            if (sampling.hasNonNull(file)) {
+                files.add(sampling.get(file).asText());
+            }
+        }
+        return files.toArray(new String[0]);
+    }
+
+    /**
+     * Reads the sampling of an input.
+     *
+     * @param input the input
+     * @return the sampling
+     * @throws ArithmeticException if the sampling has an invalid value
+     */
+    public static Gem5Sampling fromInput(JsonNode input) {
+        if (JsonUtil.has(input, "gem5.statistics.dumpPeriod")) {
+            throw new ArithmeticException("the gem5.statistics.dumpPeriod cannot be combined with " + KEY_PATH);
+        }
+        return new Gem5Sampling(JsonUtil.get(input, KEY_PATH));
+    }
+
+    /**
+     * Gets a required number of instructions.
+     *
+     * @param node        the node of the number
+     * @param keyPath     the key path of the node, for the error messages
+     * @param name        the name of the number
+     * @param zeroAllowed whether the number may be zero
+     * @return the number
+     */
+    private static long getInstructions(JsonNode node, String keyPath, String name, boolean zeroAllowed) {
+        Long instructions = getOptionalInstructions(node, keyPath, name, zeroAllowed);
+        if (instructions == null) {
+            throw new ArithmeticException("the " + keyPath + "." + name + " either does not exist or has a null value");
+        }
+        return instructions;
+    }
+
+    /**
+     * Gets an optional number of instructions.
+     *
+     * @param node        the node of the number
+     * @param keyPath     the key path of the node, for the error messages
+     * @param name        the name of the number
+     * @param zeroAllowed whether the number may be zero
+     * @return the number, or null if it is not set
+     */
+    private static Long getOptionalInstructions(JsonNode node, String keyPath, String name, boolean zeroAllowed) {
+        JsonNode value = node.get(name);
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        if (!value.canConvertToLong() || value.asLong() < 0 || (!zeroAllowed && value.asLong() == 0)) {
+            throw new ArithmeticException("the " + keyPath + "." + name + " must be a " + (zeroAllowed ? "non-negative" : "positive")
+                    + " number of instructions, but was " + value);
+        }
+        return value.asLong();
+    }
+
+    /**
+     * Reads the representative intervals of the SimPoint files.
+     *
+     * @param sampling the sampling
+     * @return the windows of the intervals
+     */
+    private static List<Window> readSimpoints(JsonNode sampling) {
+        long interval = getInstructions(sampling, KEY_PATH, "interval", false);
+        if (!sampling.hasNonNull("simpointFile")) {
+            throw new ArithmeticException("the " + KEY_PATH + ".simpointFile either does not exist or has a null value");
+        }
+        String simpointFile = sampling.get("simpointFile").asText();
+        List<String[]> simpoints = readColumns(simpointFile);
+        Map<String, Double> clusterWeights = null;
+        if (sampling.hasNonNull("weightsFile")) {
+            clusterWeights = new HashMap<>();
+            for (String[] weight : readColumns(sampling.get("weightsFile").asText())) {
+                clusterWeights.put(weight[1], parseNumber(weight[0], sampling.get("weightsFile").asText()));
+            }
+        }
+
+        List<Window> windows = new ArrayList<>();
+        for (String[] simpoint : simpoints) {
+            long index = (long) parseNumber(simpoint[0], simpointFile);
+            Double weight = clusterWeights == null ? Double.valueOf(parseNumber(simpoint[1], simpointFile)) : clusterWeights.get(simpoint[1]);
+            if (weight == null) {
+                throw new ArithmeticException("the cluster " + simpoint[1] + " of " + simpointFile + " has no weight");
+            }
+            windows.add(new Window(index * interval, interval, weight));
+        }
+        return windows;
+    }
+
+    /**
+     * Reads the lines of a SimPoint file, each with two columns separated by whitespace.
+     * Empty lines and lines starting with "#" are skipped.
+     *
+     * @param file the path of the file
+     * @return the columns of every line
+     */
+    private static List<String[]> readColumns(String file) {
+        List<String[]> lines = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] columns = line.split("\\s+");
+                if (columns.length < 2) {
+                    throw new ArithmeticException("the line \"" + line + "\" of " + file + " does not have two columns");
+                }
+                lines.add(columns);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("The SimPoint file " + file + " cannot be read: " + e.getMessage(), e);
+        }
+        return lines;
+    }
+
+    private static double parseNumber(String number, String file) {
+        try {
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw new ArithmeticException("\"" + number + "\" in " + file + " is not a number");
+        }
+    }
+
+    /**
+     * Reads the windows that are listed in the input.
+     *
+     * @param sampling the sampling
+     * @return the windows
+     */
+    private static List<Window> readWindows(JsonNode sampling) {
+        if (!sampling.path("windows").isArray()) {
+            throw new ArithmeticException("the " + KEY_PATH + ".windows must be a list of windows");
+        }
+        List<Window> windows = new ArrayList<>();
+        for (JsonNode window : sampling.get("windows")) {
+            long start = getInstructions(window, KEY_PATH + ".windows", "start", true);
+            long instructions = getInstructions(window, KEY_PATH + ".windows", "instructions", false);
+            windows.add(new Window(start, instructions, window.hasNonNull("weight") ? window.get("weight").asDouble() : null));
+        }
+        return windows;
+    }
+
+    /**
+     * Gets the mode of the sampling.
+     *
+     * @return the mode
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Gets the number of instructions that the windows are extrapolated to.
+     *
+     * @return the number of instructions, or null if the workload runs to its end and its instructions are counted
+     */
+    public Long getTotalInstructions() {
+        return totalInstructions;
+    }
+
+    /**
+     * Checks whether every window is simulated in its own container.
+     *
+     * @return true if the windows are simulated in parallel, otherwise false
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Gets the windows of the sampling, the periodic windows up to the total instructions or the maximum number of windows.
+     *
+     * @return the windows, sorted by their start
+     * @throws IllegalStateException if the periodic windows have neither total instructions nor a maximum number of windows
+     */
+    public List<Window> getWindows() {
+        if (mode != Mode.PERIODIC) {
+            return Collections.unmodifiableList(windows);
+        }
+        if (totalInstructions == null && maxWindows == null) {
+            throw new IllegalStateException("The periodic windows end with the workload, so they are not known in advance");
+        }
+        List<Window> periodicWindows = new ArrayList<>();
+        for (long index = 0; maxWindows == null || index < maxWindows; index++) {
+            long start = index * period + period - window;
+            if (totalInstructions != null && start >= totalInstructions) {
+                break;
+            }
+            periodicWindows.add(new Window(start, window, null));
+        }
+        return periodicWindows;
+    }
+
+    /**
+     * Creates the sampling of a single window, which is simulated in its own container.
+     * Its simulation ends after the window.
+     *
+     * @param window the window
+     * @return the sampling of the window for "gem5.sampling"
+     */
+    public ObjectNode toWindowSampling(Window window) {
+        JsonNodeFactory nodeFactory = JsonNodeFactory.instance;
+        ObjectNode windowNode = nodeFactory.objectNode()
+                .put("start", window.start)
+                .put("instructions", window.instructions);
+        if (window.weight != null) {
+            windowNode.put("weight", window.weight);
+        }
+        ArrayNode windowNodes = nodeFactory.arrayNode().add(windowNode);
+        ObjectNode sampling = nodeFactory.objectNode()
+                .put("mode", "windows")
+                .put("warmup", warmup);
+        if (totalInstructions != null) {
+            sampling.put("totalInstructions", totalInstructions);
+        }
+        sampling.set("windows", windowNodes);
+        return sampling;
+    }
+
+    /**
+     * Generates the part of the gem5 configuration that creates the simulator and runs the sampled simulation.
+     * The configuration must have defined the board and the switchable processor.
+     *
+     * @return the generated code
+     */
+    public String generateSimulationCode() {
+        StringBuilder code = new StringBuilder();
+        code.append("import json\n");
+        code.append("import os\n");
+        code.append("from gem5.simulate.exit_event import ExitEvent\n\n");
+
+        code.append("# Sampled simulation: the starting cores fast-forward, the switch cores warm up and measure the windows\n");
+        code.append("sampling_exited = [False]\n");
+        code.append("sampling_phases = []\n");
+        code.append("sampling_weights = []\n\n\n");
+
+        code.append("def sampling_on_max_insts():\n");
+        code.append("    while True:\n");
+        code.append("        yield True\n\n\n");
+
+        code.append("def sampling_on_exit():\n");
+        code.append("    while True:\n");
+        code.append("        sampling_exited[0] = True\n");
+        code.append("        yield True\n\n\n");
+
+        code.append("simulator = Simulator(board=board, on_exit_event={\n");
+        code.append("    ExitEvent.MAX_INSTS: sampling_on_max_insts(),\n");
+        code.append("    ExitEvent.EXIT: sampling_on_exit()\n");
+        code.append("})\n");
+        code.append("simulator._instantiate()\n\n\n");
+
+        code.append("def sampling_run(phase, instructions):\n");
+        code.append("    # Runs a phase of the given instructions, or to the end of the workload for None, and dumps its statistics\n");
+        code.append("    if sampling_exited[0] or (instructions is not None and instructions <= 0):\n");
+        code.append("        return False\n");
+        code.append("    if instructions is not None:\n");
+        code.append("        simulator.schedule_max_insts(instructions)\n");
+        code.append("    simulator.run()\n");
+        code.append("    m5.stats.dump()\n");
+        code.append("    m5.stats.reset()\n");
+        code.append("    sampling_phases.append(phase)\n");
+        code.append("    return True\n\n\n");
+
+        code.append("def sampling_windows():\n");
+        if (mode == Mode.PERIODIC) {
+            code.append("    index = 0\n");
+            code.append(maxWindows == null ? "    while True:\n" : "    while index < " + maxWindows + ":\n");
+            code.append("        start = index * " + period + " + " + (period - window) + "\n");
+            if (totalInstructions != null) {
+                code.append("        if start >= " + totalInstructions + ":\n");
+                code.append("            return\n");
+            }
+            code.append("        yield start, " + window + ", None\n");
+            code.append("        index += 1\n\n\n");
+        } else {
+            for (Window samplingWindow : windows) {
+                code.append("    yield " + samplingWindow.start + ", " + samplingWindow.instructions + ", " + toPython(samplingWindow.weight) + "\n");
+            }
+            code.append("\n\n");
+        }
+
+        code.append("sampling_position = 0\n");
+        code.append("for sampling_start, sampling_instructions, sampling_weight in sampling_windows():\n");
+        code.append("    sampling_detailed_start = max(sampling_position, sampling_start - " + warmup + ")\n");
+        code.append("    sampling_run(\"fastForward\", sampling_detailed_start - sampling_position)\n");
+        code.append("    if sampling_exited[0]:\n");
+        code.append("        break\n");
+        code.append("    processor.switch()\n");
+        code.append("    sampling_run(\"warmup\", sampling_start - sampling_detailed_start)\n");
+        code.append("    if sampling_run(\"window\", sampling_instructions):\n");
+        code.append("        sampling_weights.append(sampling_weight)\n");
+        code.append("    if sampling_exited[0]:\n");
+        code.append("        break\n");
+        code.append("    processor.switch()\n");
+        code.append("    sampling_position = sampling_start + sampling_instructions\n");
+        if (totalInstructions == null) {
+            code.append("# The rest of the workload is fast-forwarded to count its instructions\n");
+            code.append("sampling_run(\"fastForward\", None)\n");
+        }
+        code.append("\n");
+
+        code.append("with open(os.path.join(m5.options.outdir, \"" + SAMPLING_LOG_FILE + "\"), \"w\") as sampling_log:\n");
+        code.append("    json.dump({\"phases\": sampling_phases, \"weights\": sampling_weights}, sampling_log)\n");
+        return code.toString();
+    }
+
+    private static String toPython(Object value) {
+        return value == null ? "None" : value.toString();
+    }
+
+    /**
+     * A measurement window of the sampling.
+     */
+    public static final class Window {
+
+        private final long start;
+        private final long instructions;
+        private final Double weight;
+
+        Window(long start, long instructions, Double weight) {
+            this.start = start;
+            this.instructions = instructions;
+            this.weight = weight;
+        }
+
+        /**
+         * Gets the instruction at which the measurement starts.
+         *
+         * @return the number of instructions before the window
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * Gets the number of measured instructions.
+         *
+         * @return the number of instructions of the window
+         */
+        public long getInstructions() {
+            return instructions;
+        }
+
+        /**
+         * Gets the weight of the window.
+         *
+         * @return the weight, or null if the window is weighted by its instructions
+         */
+        public Double getWeight() {
+            return weight;
+        }
+    }
+}
@@ -1,17 +1,20 @@
 package gihs.gem5.output;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import gihs.core.output.GenerateOutputParametersAbstract;
+import gihs.core.output.MetricPlan;
+import gihs.core.output.SimulationResult;
+import gihs.core.output.StatisticsAggregator;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Reader;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * The Gem5Output class implements the GenerateOutputParameters interface
@@ -19,160 +22,265 @@ import java.util.Map;
  * based on a file containing simulation data.
  */
 public class Gem5Output extends GenerateOutputParametersAbstract {
-    private static final double NANOSECONDS_IN_SECOND = 1.0e9;
-    private Map<String, String> parameterMap = new HashMap<>();
-
     /**
-     * Constructs a Gem5Output object and initializes the parameter map with additional entries.
+     * The plan of the output parameters, compiled once from the metric definition file "metrics/gem5.json".
      */
-    public Gem5Output() {
-        parameterMap.put("simInsts", "Instructions");
-        parameterMap.put("board.processor.start0.core.numCycles", "Cycles");
-        parameterMap.put("simSeconds", "Time (ns)");
-        parameterMap.put("hostSeconds","HostNanoseconds");
-        parameterMap.put("board.cache_hierarchy.ruby_system.l1_controllers0.L1Icache.m_demand_accesses", "Cache Summary.Cache L1-I.num cache accesses");
-        parameterMap.put("board.cache_hierarchy.ruby_system.l1_controllers1.L1Icache.m_demand_accesses", "Cache Summary.Cache L1-I.num cache accesses");
-        parameterMap.put("board.cache_hierarchy.ruby_system.l1_controllers0.L1Icache.m_demand_misses", "Cache Summary.Cache L1-I.num cache misses");
-        parameterMap.put("board.cache_hierarchy.ruby_system.l1_controllers1.L1Icache.m_demand_misses", "Cache Summary.Cache L1-I.num cache misses");
-        parameterMap.put("board.cache_hierarchy.ruby_system.l1_controllers0.L1Dcache.m_demand_accesses", "Cache Summary.Cache L1-D.num cache accesses");
-        parameterMap.put("board.cache_hierarchy.ruby_system.l1_controllers1.L1Dcache.m_demand_accesses", "Cache Summary.Cache L1-D.num cache accesses");
-        parameterMap.put("board.cache_hierarchy.ruby_system.l1_controllers0.L1Dcache.m_demand_misses", "Cache Summary.Cache L1-D.num cache misses");
-        parameterMap.put("board.cache_hierarchy.ruby_system.l1_controllers1.L1Dcache.m_demand_misses", "Cache Summary.Cache L1-D.num cache misses");
-        parameterMap.put("board.cache_hierarchy.ruby_system.l2_controllers.L2cache.m_demand_accesses", "Cache Summary.Cache L2.num cache accesses");
-        parameterMap.put("board.cache_hierarchy.ruby_system.l2_controllers.L2cache.m_demand_misses", "Cache Summary.Cache L2.num cache misses");
-    }
+    private static final MetricPlan METRIC_PLAN = MetricPlan.load("gem5");
 
     /**
-     * Generate a JSON string representing the statistics parameters based on the specified file path.
-     *
-     * @param filePath The path to the file containing statistics data.
-     * @return A formatted JSON string representing the statistics parameters.
+     * The reader of the statistics of the metric plan.
      */
-    @Override
-    public String generateStatisticsParametersJson(String filePath) {
-        ObjectNode jsonStatsFromSimulation = generateStatisticsJson(filePath);
-        ObjectNode resultStatsJson = objectMapper.createObjectNode();
-
-        parameterMap.forEach((key, outputParameter) -> {
-            if (jsonStatsFromSimulation.has(key)) {
-                JsonNode value = jsonStatsFromSimulation.get(key);
-                if (outputParameter.equals("Cycles") || outputParameter.equals("Instructions")) {
-                    resultStatsJson.put(outputParameter, value.asInt());
-                } else {
-                    resultStatsJson.set(outputParameter, value);
-                }
-            }
-        });
-
-
+    private final Gem5StatisticsReader statisticsReader = new Gem5StatisticsReader(METRIC_PLAN.getAggregator());
 
-        // num cache misses = l1_controllers0.L1Icache.m_demand_misses + l1_controllers1.L1Icache.m_demand_misses
-        addKeysWithSameValue(getKeysWithSameValue(parameterMap, "Cache Summary.Cache L1-I.num cache misses"), "Cache Summary.Cache L1-I.num cache misses", jsonStatsFromSimulation, resultStatsJson);
-        addKeysWithSameValue(getKeysWithSameValue(parameterMap, "Cache Summary.Cache L1-D.num cache misses"), "Cache Summary.Cache L1-D.num cache misses", jsonStatsFromSimulation, resultStatsJson);
-        addKeysWithSameValue(getKeysWithSameValue(parameterMap, "Cache Summary.Cache L2.num cache misses"), "Cache Summary.Cache L2.num cache misses", jsonStatsFromSimulation, resultStatsJson);
+    /**
+     * The path of the time series file, or null if no time series is written.
+     */
+    private final String timeSeriesPath;
 
+    /**
+     * The log of the sampled simulation, or null if the simulation was not sampled.
+     */
+    private final Gem5SamplingLog samplingLog;
 
-// Num cache accesses
-        addKeysWithSameValue(getKeysWithSameValue(parameterMap, "Cache Summary.Cache L1-I.num cache accesses"),
-                "Cache Summary.Cache L1-I.num cache accesses", jsonStatsFromSimulation, resultStatsJson);
-        addKeysWithSameValue(getKeysWithSameValue(parameterMap, "Cache Summary.Cache L1-D.num cache accesses"),
-                "Cache Summary.Cache L1-D.num cache accesses", jsonStatsFromSimulation, resultStatsJson);
-        addKeysWithSameValue(getKeysWithSameValue(parameterMap, "Cache Summary.Cache L2.num cache accesses"),
-                "Cache Summary.Cache L2.num cache accesses", jsonStatsFromSimulation, resultStatsJson);
+    /**
+     * The number of instructions that the windows of a sampled simulation are extrapolated to,
+     * or null to count the instructions of all phases.
+     */
+    private final Long totalInstructions;
 
-        // Calculate cache miss rates
-        calculateRate("Cache Summary.Cache L2.num cache accesses", "Cache Summary.Cache L2.num cache misses",
-                "Cache Summary.Cache L2.miss rate", resultStatsJson);
-        calculateRate("Cache Summary.Cache L1-D.num cache accesses", "Cache Summary.Cache L1-D.num cache misses",
-                "Cache Summary.Cache L1-D.miss rate", resultStatsJson);
-        calculateRate("Cache Summary.Cache L1-I.num cache accesses", "Cache Summary.Cache L1-I.num cache misses",
-                "Cache Summary.Cache L1-I.miss rate", resultStatsJson);
+    /**
+     * Constructs a Gem5Output object that generates the output parameters of the statistics file.
+     */
+    public Gem5Output() {
+        this(null);
+    }
 
-        // Calculate MPKI
-        calculateMPKI("Instructions", "Cache Summary.Cache L2.num cache misses", "Cache Summary.Cache L2.mpki",
-                resultStatsJson);
-        calculateMPKI("Instructions", "Cache Summary.Cache L1-D.num cache misses", "Cache Summary.Cache L1-D.mpki",
-                resultStatsJson);
-        calculateMPKI("Instructions", "Cache Summary.Cache L1-I.num cache misses", "Cache Summary.Cache L1-I.mpki",
-                resultStatsJson);
+    /**
+     * Constructs a Gem5Output object that also writes the output parameters of every statistics dump as a time series.
+     * The statistics file then contains a dump per period, each with the totals since the start of the simulation.
+     * The output parameters are taken from the last dump, and every dump is written as one interval:
+     * a JSON line with the output parameters of the difference to the previous dump.
+     *
+     * @param timeSeriesPath The path of the time series file in the JSON Lines format, or null to write no time series.
+     */
+    public Gem5Output(String timeSeriesPath) {
+        this.timeSeriesPath = timeSeriesPath;
+        this.samplingLog = null;
+        this.totalInstructions = null;
+    }
 
-        // Calculate IPC
-        resultStatsJson.put("IPC", roundToTwoDecimals(divideNumbers("Instructions", "Cycles", resultStatsJson)));
+    /**
+     * Constructs a Gem5Output object for a sampled simulation, whose statistics file contains a dump per phase.
+     * The output parameters are extrapolated from the measured windows, see {@link #generateSampledResult(List, List, Long)}.
+     *
+     * @param samplingLog       The log of the sampled simulation with the phase of every dump.
+     * @param totalInstructions The number of instructions that the windows are extrapolated to, or null to count
+     *                          the instructions of all phases.
+     */
+    public Gem5Output(Gem5SamplingLog samplingLog, Long totalInstructions) {
+        this.timeSeriesPath = null;
+        this.samplingLog = samplingLog;
+        this.totalInstructions = totalInstructions;
+    }
 
+    /**
+     * Generates the output parameters based on the specified statistics data.
+     *
+     * @param statistics The reader of the statistics data.
+     * @return The output parameters.
+     */
+    @Override
+    public SimulationResult generateSimulationResult(Reader statistics) {
+        if (samplingLog != null) {
+            return generateSampledResult(List.of(statistics), List.of(samplingLog), totalInstructions);
+        }
+        return new SimulationResult(timeSeriesPath == null
+                ? generateResultStatsJson(generateStatistics(statistics))
+                : generateTimeSeries(statistics));
+    }
 
+    /**
+     * Derives the output parameters from the aggregated statistics of the simulation with the metric plan:
+     * the counters, the miss rates, the MPKI and the IPC. The values of every core and controller follow as the breakdown.
+     *
+     * @param statisticsFromSimulation The aggregated statistics of the simulation.
+     * @return The output parameters.
+     */
+    private ObjectNode generateResultStatsJson(StatisticsAggregator.Accumulator statisticsFromSimulation) {
+        return generateResultStatsJson(statisticsFromSimulation, METRIC_PLAN.evaluate(statisticsFromSimulation));
+    }
 
+    /**
+     * Creates the output parameters of the evaluated metric plan, followed by the breakdown.
+     *
+     * @param statisticsFromSimulation The aggregated statistics of the simulation.
+     * @param values                   The values of the metric plan.
+     * @return The output parameters.
+     */
+    private ObjectNode generateResultStatsJson(StatisticsAggregator.Accumulator statisticsFromSimulation, MetricPlan.Values values) {
+        ObjectNode resultStatsJson = METRIC_PLAN.toJson(values);
+        METRIC_PLAN.putBreakdown(statisticsFromSimulation, resultStatsJson);
+        return resultStatsJson;
+    }
 
+    /**
+     * Reads every dump of the statistics, writes the output parameters of each interval between two dumps
+     * to the time series file and generates the output parameters of the last dump.
+     * A statistic that is smaller than in the previous dump was reset, so its value is taken as the interval itself.
+     *
+     * @param statistics The reader of the statistics data.
+     * @return The output parameters of the last dump.
+     */
+    private ObjectNode generateTimeSeries(Reader statistics) {
+        StatisticsAggregator.Accumulator lastDump = null;
+        int timeIndex = METRIC_PLAN.indexOf("Time (ns)");
+        double endTime = 0;
 
-        // Multiply the value of "Time (ns)" in resultJson by NANOSECONDS_IN_SECOND
-        resultStatsJson.put("Time (ns)", findPropertyValue(resultStatsJson, "Time (ns)").asDouble() * NANOSECONDS_IN_SECOND);
-        // Multiply the value of "HostNanoseconds" in resultJson by NANOSECONDS_IN_SECOND
-        resultStatsJson.put("HostNanoseconds", findPropertyValue(resultStatsJson, "HostNanoseconds").asDouble() * NANOSECONDS_IN_SECOND);
+        File timeSeriesFile = new File(timeSeriesPath);
+        if (timeSeriesFile.getParentFile() != null) {
+            timeSeriesFile.getParentFile().mkdirs();
+        }
+        BufferedReader reader = new BufferedReader(statistics);
+        try (Writer timeSeries = new BufferedWriter(new FileWriter(timeSeriesFile))) {
+            StatisticsAggregator.Accumulator dump;
+            int interval = 0;
+            while ((dump = statisticsReader.readNextDump(reader)) != null) {
+                StatisticsAggregator.Accumulator intervalStats = dump.difference(lastDump);
+                lastDump = dump;
 
-        String outputResultJson = "";
-        try {
-            outputResultJson = objectMapper.writer().with(SerializationFeature.INDENT_OUTPUT).writeValueAsString(resultStatsJson);
-        } catch (JsonProcessingException e) {
-            System.err.println("Error processing JSON for output: " + e.getMessage());
+                ObjectNode intervalJson = objectMapper.createObjectNode();
+                intervalJson.put("Interval", interval++);
+                MetricPlan.Values values = METRIC_PLAN.evaluate(intervalStats);
+                intervalJson.setAll(generateResultStatsJson(intervalStats, values));
+                endTime += values.get(timeIndex);
+                intervalJson.put("End time (ns)", endTime);
+                timeSeries.write(objectMapper.writeValueAsString(intervalJson));
+                timeSeries.write('\n');
+            }
+            System.out.println("The time series file with " + interval + " intervals was successfully created at path: " + timeSeriesPath);
+        } catch (IOException e) {
+            System.err.println("Error writing the time series file " + timeSeriesPath + ": " + e.getMessage());
         }
 
-        return outputResultJson;
+        return generateResultStatsJson(lastDump == null ? METRIC_PLAN.getAggregator().newAccumulator() : lastDump);
     }
 
     /**
-     * Generate a JSON string based on the statistics data in the specified file.
+     * Extrapolates the measured windows of sampled simulations to the whole workload.
+     * <p>
+     * Every window i with the statistics s_i, the instructions n_i and the weight w_i estimates the statistics per
+     * instruction as s_i / n_i. The output parameters are the weighted mean of these estimates multiplied by the total
+     * instructions T, that is the sum of s_i * T * w_i / (n_i * sum(w)). A window without a weight is weighted by its
+     * instructions, so periodic windows are scaled by T / sum(n). Ratios such as the IPC and the miss rates are derived
+     * from the extrapolated counters. The host time is the time of all phases, and "Sampling.*" describes the sampling,
+     * for unweighted windows with the relative error of the CPI at a confidence of 95%.
      *
-     * @param filePath The path to the file containing statistics data.
-     * @return A JSON string representing the statistics data.
+     * @param statistics        The readers of the statistics files of the sampled simulations, with a dump per phase.
+     * @param samplingLogs      The logs of the sampled simulations in the same order.
+     * @param totalInstructions The number of instructions of the workload, or null to count the instructions of all phases.
+     * @return The extrapolated output parameters.
      */
-    private ObjectNode generateStatisticsJson(String filePath) {
-        ObjectNode jsonOutputParameter = objectMapper.createObjectNode();
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // Trim leading and trailing spaces
-                line = line.trim();
-                // Remove comments
-                int commentIndex = line.indexOf("#");
-                if (commentIndex != -1) {
-                    line = line.substring(0, commentIndex).trim();
-                }
-                // Skip empty lines
-                if (line.isEmpty()) {
-                    continue;
-                }
-                // Split line into key and value parts
-                String[] parts = line.split("\\s+", 2);
-                if (parts.length == 2) {
-                    String key = parts[0].trim();
-                    String value = parts[1].trim();
-                    jsonOutputParameter.put(key, value);
+    public SimulationResult generateSampledResult(List<Reader> statistics, List<Gem5SamplingLog> samplingLogs, Long totalInstructions) {
+        int instructionsIndex = METRIC_PLAN.indexOf("Instructions");
+        int cyclesIndex = METRIC_PLAN.indexOf("Cycles");
+        int hostNanosecondsIndex = METRIC_PLAN.indexOf(SimulationResult.HOST_NANOSECONDS);
+        List<StatisticsAggregator.Accumulator> windows = new ArrayList<>();
+        List<Double> windowInstructions = new ArrayList<>();
+        List<Double> windowWeights = new ArrayList<>();
+        List<Double> windowCpis = new ArrayList<>();
+        boolean weighted = false;
+        double countedInstructions = 0;
+        double hostNanoseconds = 0;
+
+        for (int run = 0; run < statistics.size(); run++) {
+            Gem5SamplingLog samplingLog = samplingLogs.get(run);
+            BufferedReader reader = new BufferedReader(statistics.get(run));
+            int window = 0;
+            try {
+                // gem5 dumps the statistics once more when it exits, which belongs to no phase
+                for (String phase : samplingLog.getPhases()) {
+                    StatisticsAggregator.Accumulator dump = statisticsReader.readNextDump(reader);
+                    if (dump == null) {
+                        break;
+                    }
+                    MetricPlan.Values values = METRIC_PLAN.evaluate(dump);
+                    double instructions = values.get(instructionsIndex);
+                    countedInstructions += instructions;
+                    hostNanoseconds += values.get(hostNanosecondsIndex);
+                    if (!Gem5SamplingLog.WINDOW.equals(phase)) {
+                        continue;
+                    }
+                    Double weight = samplingLog.getWeight(window++);
+                    if (instructions > 0) {
+                        windows.add(dump);
+                        windowInstructions.add(instructions);
+                        windowWeights.add(weight == null ? instructions : weight);
+                        windowCpis.add(values.get(cyclesIndex) / instructions);
+                        weighted |= weight != null;
+                    }
                 }
+            } catch (IOException e) {
+                System.err.println("Error reading the file: " + e.getMessage());
             }
-        } catch (IOException e) {
-            System.err.println("Error reading the file: " + e.getMessage());
+        }
+        if (windows.isEmpty()) {
+            System.err.println("The sampled simulation has measured no window");
+            return new SimulationResult(generateResultStatsJson(METRIC_PLAN.getAggregator().newAccumulator()));
         }
 
-        return jsonOutputParameter;
+        double total = totalInstructions != null ? totalInstructions : countedInstructions;
+        double weightSum = windowWeights.stream().mapToDouble(Double::doubleValue).sum();
+        double measuredInstructions = windowInstructions.stream().mapToDouble(Double::doubleValue).sum();
+        double[] factors = new double[windows.size()];
+        for (int i = 0; i < factors.length; i++) {
+            factors[i] = total * windowWeights.get(i) / (windowInstructions.get(i) * weightSum);
+        }
+        ObjectNode resultStatsJson = generateResultStatsJson(METRIC_PLAN.getAggregator().weightedSum(windows, factors));
+
+        resultStatsJson.put("Sampling.Windows", windows.size());
+        resultStatsJson.put("Sampling.Measured instructions", Math.round(measuredInstructions));
+        resultStatsJson.put("Sampling.Total instructions", Math.round(total));
+        if (total > 0) {
+            resultStatsJson.put("Sampling.Measured fraction", SimulationResult.roundToTwoDecimals(measuredInstructions / total * 100) + "%");
+        }
+        if (!weighted && windows.size() > 1) {
+            resultStatsJson.put("Sampling.CPI relative error (95%)", SimulationResult.roundToTwoDecimals(cpiRelativeError(windowCpis) * 100) + "%");
+        }
+        return new SimulationResult(resultStatsJson).setHostNanoseconds(Math.round(hostNanoseconds));
     }
 
     /**
-     * Adds keys with the same value to the given ObjectNode and stores the sum of values under the targetValue in the resultObject.
+     * Gets the relative half width of the 95% confidence interval of the mean CPI of equally sized windows,
+     * the error bound of periodic sampling.
      *
-     * @param keys         The keys with the same value from the parameterMap.
-     * @param targetValue  The key to store the sum of values in the resultObject.
-     * @param jsonObject   The ObjectNode from which the values are retrieved.
-     * @param resultObject The ObjectNode where the result is stored.
+     * @param cpis The CPI of every window.
+     * @return The half width of the confidence interval divided by the mean CPI.
      */
-    @Override
-    protected void addKeysWithSameValue(List<String> keys, String targetValue, ObjectNode jsonObject, ObjectNode resultObject) {
-        int sum = keys.stream()
-                .map(e -> jsonObject.get(e).asInt())
-                .mapToInt(Integer::intValue)
-                .sum();
-
-        resultObject.set(targetValue, objectMapper.valueToTree(sum));
+    private static double cpiRelativeError(List<Double> cpis) {
+        double mean = cpis.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+        if (mean == 0) {
+            return 0;
+        }
+        double squaredDeviations = cpis.stream().mapToDouble(cpi -> (cpi - mean) * (cpi - mean)).sum();
+        double standardDeviation = Math.sqrt(squaredDeviations / (cpis.size() - 1));
+        return 1.96 * standardDeviation / (mean * Math.sqrt(cpis.size()));
     }
 
-
+    /**
+     * Reads the statistics of the aggregates from the first dump of the statistics data.
+     *
+     * @param statistics The reader of the statistics data.
+     * @return The aggregated statistics, without values if the statistics data cannot be read.
+     */
+    private StatisticsAggregator.Accumulator generateStatistics(Reader statistics) {
+        try {
+            StatisticsAggregator.Accumulator dump = statisticsReader.readNextDump(new BufferedReader(statistics));
+            if (dump != null) {
+                return dump;
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading the file: " + e.getMessage());
+        }
+        return METRIC_PLAN.getAggregator().newAccumulator();
+    }
 }
@@ -0,0 +1,73 @@
+package gihs.gem5.output;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Gem5SamplingLog class holds the log of a sampled gem5 simulation, which names the phase of every statistics dump
+ * ("fastForward", "warmup" or "window") and the weight of every measured window, for example
+ * {"phases": ["fastForward", "warmup", "window", ...], "weights": [0.25, null, ...]}.
+ * A window without a weight is weighted by its instructions.
+ */
+public class Gem5SamplingLog {
+
+    /**
+     * The phase of a measured window.
+     */
+    public static final String WINDOW = "window";
+
+    private final List<String> phases;
+    private final List<Double> weights;
+
+    /**
+     * Constructs a Gem5SamplingLog.
+     *
+     * @param phases  the phase of every statistics dump
+     * @param weights the weight of every measured window, null for a window that is weighted by its instructions
+     */
+    public Gem5SamplingLog(List<String> phases, List<Double> weights) {
+        this.phases = phases;
+        this.weights = weights;
+    }
+
+    /**
+     * Reads the log that a sampled gem5 simulation has written.
+     *
+     * @param log the content of the log
+     * @return the log
+     * @throws IOException if the log cannot be read
+     */
+    public static Gem5SamplingLog read(InputStream log) throws IOException {
+        JsonNode json = new ObjectMapper().readTree(log);
+        List<String> phases = new ArrayList<>();
+        json.path("phases").forEach(phase -> phases.add(phase.asText()));
+        List<Double> weights = new ArrayList<>();
+        json.path("weights").forEach(weight -> weights.add(weight.isNumber() ? weight.asDouble() : null));
+        return new Gem5SamplingLog(phases, weights);
+    }
+
+    /**
+     * Gets the phase of every statistics dump.
+     *
+     * @return the phases in the order of the dumps
+     */
+    public List<String> getPhases() {
+        return Collections.unmodifiableList(phases);
+    }
+
+    /**
+     * Gets the weight of a measured window.
+     *
+     * @param window the number of the window in the order of the dumps
+     * @return the weight, or null if the window is weighted by its instructions
+     */
+    public Double getWeight(int window) {
+        return window < weights.size() ? weights.get(window) : null;
+    }
+}
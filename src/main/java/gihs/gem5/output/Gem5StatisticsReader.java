@@ -0,0 +1,167 @@
+package gihs.gem5.output;
+
+import gihs.core.output.StatisticsAggregator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * The Gem5StatisticsReader class reads only the required statistics from a gem5 stats.txt file in a single pass.
+ * <p>
+ * Every line is routed to the aggregates of a {@link StatisticsAggregator}, whose patterns are compiled once,
+ * so the tens of thousands of other statistics of a dump are skipped without being stored and the statistics of
+ * every core, controller or bank are counted, however many there are. The values are kept as primitives.
+ */
+public class Gem5StatisticsReader {
+
+    /**
+     * The line that starts a dump of the statistics.
+     */
+    private static final String BEGIN_DUMP = "---------- Begin Simulation Statistics";
+
+    /**
+     * The line that ends a dump of the statistics.
+     */
+    private static final String END_DUMP = "---------- End Simulation Statistics";
+
+    /**
+     * The most digits of a counter that always fit into a long.
+     */
+    private static final int MAX_LONG_DIGITS = 18;
+
+    /**
+     * The aggregates of the required statistics.
+     */
+    private final StatisticsAggregator aggregator;
+
+    /**
+     * Constructs a Gem5StatisticsReader that reads the statistics of the given aggregates.
+     *
+     * @param aggregator the aggregates of the statistics to read
+     */
+    public Gem5StatisticsReader(StatisticsAggregator aggregator) {
+        this.aggregator = aggregator;
+    }
+
+    /**
+     * Reads the required statistics of the next dump of the statistics into the aggregates.
+     * A file without dump markers is read as a single dump.
+     *
+     * @param reader the reader of the statistics file
+     * @return the aggregated statistics of the dump, in which statistics that have no number, such as "nan", are left out,
+     * or null if there is no further dump
+     * @throws IOException if the statistics file cannot be read
+     */
+    public StatisticsAggregator.Accumulator readNextDump(BufferedReader reader) throws IOException {
+        StatisticsAggregator.Accumulator accumulator = aggregator.newAccumulator();
+        String line;
+        // Skip the rest of the previous dump up to the start of the next one
+        while ((line = reader.readLine()) != null && !line.startsWith(BEGIN_DUMP)) {
+            if (!line.startsWith(END_DUMP) && accumulate(line, accumulator)) {
+                // The file has no dump markers, so this line already belongs to the dump
+                break;
+            }
+        }
+        if (line == null) {
+            return null;
+        }
+
+        line = reader.readLine();
+        while (line != null && !line.startsWith(END_DUMP)) {
+            accumulate(line, accumulator);
+            line = reader.readLine();
+        }
+        return accumulator;
+    }
+
+    /**
+     * Routes the statistic of a line to the aggregates whose patterns match its key.
+     *
+     * @param line        the line of the statistics file
+     * @param accumulator the aggregated statistics of the dump
+     * @return true if the line holds a required statistic, otherwise false
+     */
+    private static boolean accumulate(String line, StatisticsAggregator.Accumulator accumulator) {
+        int keyStart = skipSpaces(line, 0);
+        int keyEnd = skipToken(line, keyStart);
+        if (!accumulator.matches(line, keyStart, keyEnd)) {
+            return false;
+        }
+        int valueStart = skipSpaces(line, keyEnd);
+        int valueEnd = skipToken(line, valueStart);
+        if (isCounter(line, valueStart, valueEnd)) {
+            accumulator.accept(line, keyStart, keyEnd, Long.parseLong(line, valueStart, valueEnd, 10));
+            return true;
+        }
+        double value = parseValue(line, valueStart, valueEnd);
+        if (!Double.isNaN(value)) {
+            accumulator.accept(line, keyStart, keyEnd, value);
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a value is a counter, an integer that fits into a long, such as "simInsts 5000000000".
+     *
+     * @param line       the line of the statistics file
+     * @param valueStart the position of the value
+     * @param valueEnd   the position after the value
+     * @return true if the value is a counter, otherwise false
+     */
+    private static boolean isCounter(String line, int valueStart, int valueEnd) {
+        int digitsStart = valueStart < valueEnd && line.charAt(valueStart) == '-' ? valueStart + 1 : valueStart;
+        if (valueEnd == digitsStart || valueEnd - digitsStart > MAX_LONG_DIGITS) {
+            return false;
+        }
+        for (int i = digitsStart; i < valueEnd; i++) {
+            if (line.charAt(i) < '0' || line.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a decimal value.
+     *
+     * @param line       the line of the statistics file
+     * @param valueStart the position of the value
+     * @param valueEnd   the position after the value
+     * @return the value, or NaN if the value is no number, such as "nan" or "inf"
+     */
+    private static double parseValue(String line, int valueStart, int valueEnd) {
+        try {
+            return Double.parseDouble(line.substring(valueStart, valueEnd));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Skips the whitespace of a line.
+     *
+     * @param line  the line
+     * @param index the position to start at
+     * @return the position of the next character that is no whitespace
+     */
+    private static int skipSpaces(String line, int index) {
+        while (index < line.length() && Character.isWhitespace(line.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Skips a token of a line, which ends at whitespace or at a comment.
+     *
+     * @param line  the line
+     * @param index the position of the token
+     * @return the position after the token
+     */
+    private static int skipToken(String line, int index) {
+        while (index < line.length() && !Character.isWhitespace(line.charAt(index)) && line.charAt(index) != '#') {
+            index++;
+        }
+        return index;
+    }
+}
@@ -1,9 +1,33 @@
 package gihs.gem5.parser;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import gihs.core.managementOFJsonNodeALL.JsonUtil;
+import gihs.core.managementOfDockerfiles.HardwaresimulationUploadManifest;
+import gihs.core.parser.ErrorMessageMatcher;
+import gihs.core.parser.ErrorMessageSeverity;
 import gihs.core.parser.ParserAbstract;
+import gihs.core.output.SimulationResult;
 import gihs.gem5.input.Gem5Input;
+import gihs.gem5.input.Gem5Sampling;
 import gihs.gem5.output.Gem5Output;
+import gihs.gem5.output.Gem5SamplingLog;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * The Gem5Parser class is responsible for parsing and running the Gem5 hardware simulation with input and output.
@@ -11,48 +35,253 @@ import gihs.gem5.output.Gem5Output;
 public class Gem5Parser extends ParserAbstract {
 
     /**
-     * Array of error messages that indicate various configuration issues.
+     * The error messages that indicate various configuration issues, compiled once for all Gem5 runs.
+     */
+    protected static final ErrorMessageMatcher ERROR_MESSAGES = new ErrorMessageMatcher(Map.of(
+            "AttributeError", ErrorMessageSeverity.FATAL,
+            "Number of leaves must be non-zero and a power of 2", ErrorMessageSeverity.FATAL,
+            "Exception", ErrorMessageSeverity.FATAL
+    ));
+
+    /**
+     * The name of the file in the statistics output path that the time series of the statistics dumps is written to.
+     */
+    private static final String TIME_SERIES_FILE_NAME = "generatestatsTimeSeriesGem5.jsonl";
+
+    /**
+     * The name of the statistics file of gem5.
+     */
+    private static final String STATS_FILE_NAME = "gem5Stats.txt";
+
+    /**
+     * The prefix of the directories in the working path in which the windows of a parallel sampled simulation are run.
      */
-    protected static final String[] ERROR_MESSAGES = {
-            "AttributeError",
-            "Number of leaves must be non-zero and a power of 2",
-            "Exception"
-            };
+    private static final String WINDOW_DIRECTORY_PREFIX = "gem5Window";
 
 
+    /**
+     * Checks the gem5 values of the input, see {@link Gem5Input#validate(JsonNode)}.
+     *
+     * @param input the input value
+     */
+    @Override
+    public void validate(JsonNode input) {
+        Gem5Input.validate(input);
+    }
+
     /**
      * Parses the input and runs the Gem5 hardware simulation using Docker.
      *
      * @param input the input value
      */
     @Override
-    public void parse(JsonNode input) {
+    protected void simulate(JsonNode input) {
 
-        super.parse(input);
+        String gem5Stats = STATS_FILE_NAME;
+        Gem5Sampling sampling = Gem5Sampling.isSampled(input) ? Gem5Sampling.fromInput(input) : null;
+        if (sampling != null && sampling.isParallel()) {
+            simulateWindowsInParallel(input, sampling);
+            return;
+        }
 
-        String generateHardwaresimulationInputParametersPath = "../resources/generateGem5Parameter.py";
+        init("gem5");
 
-        String gem5Stats = "gem5Stats.txt";
 
-        init("gem5");
+        // The generated configuration goes straight from memory into the container, together with the binary
+        host.inputFilesToContainer(containerId, new HardwaresimulationUploadManifest()
+                .addContent(new Gem5Input(input).generateInputCode(), "/usr/local/src/gem5/configs/learning_gem5/part1/generateGem5Parameter.py")
+                .addFile(binaryPath, "/usr/local/src/gem5/" + new File(binaryPath).getName()));
+        runHardwaresimulationCommand(getErrorMessages(input, "gem5", ERROR_MESSAGES), new String[]{"build/X86/gem5.opt", "--stats-file=" + gem5Stats, "configs/learning_gem5/part1/generateGem5Parameter.py"});
+        //host.outputFromHardwaresimulationConsole( hardwaresimulation.command(new String[]{"cat", "m5out/" + gem5Stats}));
 
 
-        generateInputParametersFile.generateInputParameters(new Gem5Input(input), generateHardwaresimulationInputParametersPath);
+        // With periodic statistics dumps, every dump is also written as an interval of a time series next to the output parameters
+        Gem5Output gem5Output = hasTimeSeries(input) ? new Gem5Output(statsOutputPath + "/" + TIME_SERIES_FILE_NAME) : new Gem5Output();
+        if (sampling != null) {
+            // A sampled simulation dumps its statistics per phase, which are extrapolated from its windows
+            gem5Output = new Gem5Output(readSamplingLog(), sampling.getTotalInstructions());
+        }
+        generateOutputParametersFromContainer(gem5Output, "usr/local/src/gem5/m5out/" + gem5Stats, gem5Stats, statsOutputPath + "/" + getOutputFileName(), null);
 
-        host.inputFileTOContainer(containerId, generateHardwaresimulationInputParametersPath, "usr/local/src/gem5/configs/learning_gem5/part1/");
-        host.inputFileTOContainer(containerId, binaryPath, "usr/local/src/gem5/");
-        String outputConsole = host.outputFromHardwaresimulationConsole(hardwaresimulation.command(new String[]{"build/X86/gem5.opt", "--stats-file=" + gem5Stats, "configs/learning_gem5/part1/generateGem5Parameter.py"}));
-        //host.outputFromHardwaresimulationConsole( hardwaresimulation.command(new String[]{"cat", "m5out/" + gem5Stats}));
+    }
+
+    /**
+     * Reads the log of the phases of a sampled simulation. The log is copied to the working path for this
+     * and removed again afterwards unless "keepStatsFile" is set.
+     *
+     * @return the log, without phases if it cannot be read
+     */
+    private Gem5SamplingLog readSamplingLog() {
+        File samplingLogFile = new File(workingPath, Gem5Sampling.SAMPLING_LOG_FILE);
+        samplingLogFile.getParentFile().mkdirs();
+        hardwaresimulation.outputFileFromContainer(containerId, "/usr/local/src/gem5/m5out/" + Gem5Sampling.SAMPLING_LOG_FILE, samplingLogFile.getPath());
+        try (InputStream samplingLog = new FileInputStream(samplingLogFile)) {
+            return Gem5SamplingLog.read(samplingLog);
+        } catch (IOException e) {
+            System.err.println("Error reading the sampling log " + samplingLogFile + ": " + e.getMessage());
+            return new Gem5SamplingLog(List.of(), List.of());
+        } finally {
+            if (!keepStatsFile) {
+                samplingLogFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Simulates every window of a sampled simulation in its own container at the same time and extrapolates the windows.
+     * Every window is the run of its own parser in its own directory below the working path, which keeps its
+     * statistics file and its sampling log there. The directories are removed after the merge unless "keepStatsFile" is set.
+     * A window that fails is left out; the run fails only if all windows fail.
+     * The output parameters of the windows are intermediate, only the merged output parameters are printed and
+     * appended to the result store.
+     *
+     * @param input    the input of the run
+     * @param sampling the sampling of the run
+     */
+    private void simulateWindowsInParallel(JsonNode input, Gem5Sampling sampling) {
+        List<Gem5Sampling.Window> windows = sampling.getWindows();
+        List<File> windowDirectories = new ArrayList<>();
+        List<CompletableFuture<SimulationResult>> windowRuns = new ArrayList<>();
+        for (int i = 0; i < windows.size(); i++) {
+            File windowDirectory = new File(workingPath, WINDOW_DIRECTORY_PREFIX + i);
+            windowDirectory.mkdirs();
+            JsonNode windowInput = input.deepCopy();
+            ((ObjectNode) JsonUtil.get(windowInput, "gem5")).set("sampling", sampling.toWindowSampling(windows.get(i)));
+            ObjectNode hardwaresimulation = (ObjectNode) JsonUtil.get(windowInput, "commonParameters.hardwaresimulation");
+            hardwaresimulation.put("statsOutputPath", windowDirectory.getPath());
+            hardwaresimulation.put("workingPath", windowDirectory.getPath());
+            hardwaresimulation.put("keepStatsFile", true);
+            windowDirectories.add(windowDirectory);
+            Gem5Parser windowParser = new Gem5Parser();
+            windowParser.generateOutputParametersFile.setIntermediate(true);
+            windowRuns.add(windowParser.parseAsync(windowInput));
+        }
+        System.out.println("Simulating " + windows.size() + " windows of gem5 in parallel");
 
-        handleOutputConsole(ERROR_MESSAGES,outputConsole);
+        try {
+            CompletableFuture.allOf(windowRuns.toArray(new CompletableFuture<?>[0])).get();
+        } catch (InterruptedException e) {
+            windowRuns.forEach(windowRun -> windowRun.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new CancellationException("The run of " + getHardwaresimulationName() + " was cancelled");
+        } catch (ExecutionException e) {
+            // The failed windows are reported and left out below
+        }
+        checkCancelled();
 
+        List<Reader> statistics = new ArrayList<>();
+        List<Gem5SamplingLog> samplingLogs = new ArrayList<>();
+        RuntimeException firstFailure = null;
+        try {
+            for (int i = 0; i < windowRuns.size(); i++) {
+                try {
+                    windowRuns.get(i).join();
+                } catch (CompletionException e) {
+                    System.err.println("error in window " + i + " of gem5: " + e.getCause().getMessage());
+                    if (firstFailure == null) {
+                        firstFailure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+                    }
+                    continue;
+                }
+                File windowDirectory = windowDirectories.get(i);
+                try (InputStream samplingLog = new FileInputStream(new File(windowDirectory, Gem5Sampling.SAMPLING_LOG_FILE))) {
+                    Gem5SamplingLog windowSamplingLog = Gem5SamplingLog.read(samplingLog);
+                    statistics.add(Files.newBufferedReader(new File(windowDirectory, STATS_FILE_NAME).toPath(), StandardCharsets.UTF_8));
+                    samplingLogs.add(windowSamplingLog);
+                } catch (IOException e) {
+                    System.err.println("Error reading the statistics of window " + i + " of gem5: " + e.getMessage());
+                }
+            }
+            if (statistics.isEmpty()) {
+                throw firstFailure != null ? firstFailure : new IllegalStateException("No window of gem5 wrote its statistics");
+            }
+            SimulationResult result = new Gem5Output().generateSampledResult(statistics, samplingLogs, sampling.getTotalInstructions());
+            generateOutputParametersFile.saveOutputParameters(result, statsOutputPath + "/" + getOutputFileName());
+        } finally {
+            for (Reader reader : statistics) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing the statistics of a window of gem5: " + e.getMessage());
+                }
+            }
+            if (!keepStatsFile) {
+                windowDirectories.forEach(FileUtils::deleteQuietly);
+            }
+        }
+    }
 
-        host.outputFileFromContainer(containerId, "usr/local/src/gem5/m5out/" + gem5Stats, "../resources/" + gem5Stats);
+    /**
+     * Checks whether the statistics of a run are dumped periodically, so that a time series is written.
+     * A sampled run dumps its statistics per phase instead and writes no time series.
+     *
+     * @param input the input of the run
+     * @return true if "gem5.statistics.dumpPeriod" is set and "gem5.sampling" is not, otherwise false
+     */
+    private static boolean hasTimeSeries(JsonNode input) {
+        return JsonUtil.has(input, "gem5.statistics.dumpPeriod") && !Gem5Sampling.isSampled(input);
+    }
 
-        generateOutputParametersFile.generateOutputParameters(new Gem5Output(), "../resources/" + gem5Stats, statsOutputPath + "/generatestatsOutputGem5.json");
+    /**
+     * Checks whether the result of a run can be restored from the result cache.
+     * The cache only holds the output parameters, so runs that write a time series are not cached, and neither are
+     * sampled runs that keep their statistics file, such as the windows of a parallel sampled simulation, whose
+     * statistics files are merged afterwards.
+     *
+     * @param input the input of the run
+     * @return true if the run writes no time series and is no sampled run that keeps its statistics file, otherwise false
+     */
+    @Override
+    protected boolean isResultCacheable(JsonNode input) {
+        boolean keepsStatsFile = JsonUtil.has(input, "commonParameters.hardwaresimulation.keepStatsFile")
+                && JsonUtil.get(input, "commonParameters.hardwaresimulation.keepStatsFile").asBoolean();
+        return !hasTimeSeries(input) && !(Gem5Sampling.isSampled(input) && keepsStatsFile);
+    }
 
-        exit();
+    /**
+     * Gets the files that the result of a run depends on besides the program and the binary, which are the
+     * SimPoint files of a sampled simulation, see {@link Gem5Sampling#getInputFiles(JsonNode)}.
+     *
+     * @param input the input of the run
+     * @return the paths of the SimPoint files, empty if the run reads none
+     */
+    @Override
+    protected String[] getResultCacheKeyFiles(JsonNode input) {
+        return Gem5Sampling.getInputFiles(input);
+    }
 
+    /**
+     * Gets the name of the Gem5 hardware simulation.
+     *
+     * @return The name of the hardware simulation and its image.
+     */
+    @Override
+    protected String getHardwaresimulationName() {
+        return "gem5";
+    }
+
+    /**
+     * Gets the name of the file that the Gem5 output parameters are written to.
+     *
+     * @return The name of the output parameters file.
+     */
+    @Override
+    protected String getOutputFileName() {
+        return "generatestatsOutputGem5.json";
+    }
+
+    /**
+     * Gets the files that a Gem5 run creates in the container: the generated configuration, the binary and the m5out directory.
+     *
+     * @return The absolute paths of the working files in the container.
+     */
+    @Override
+    protected String[] getWorkingFiles() {
+        return new String[]{
+                "/usr/local/src/gem5/configs/learning_gem5/part1/generateGem5Parameter.py",
+                "/usr/local/src/gem5/" + new File(binaryPath).getName(),
+                "/usr/local/src/gem5/m5out"
+        };
     }
 
 
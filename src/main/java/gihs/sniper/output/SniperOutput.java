@@ -1,19 +1,21 @@
 package gihs.sniper.output;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import gihs.core.output.GenerateOutputParametersAbstract;
-import gihs.core.managementOFJsonNodeALL.JsonUtil;
+import gihs.core.output.MetricPlan;
+import gihs.core.output.SimulationResult;
+import gihs.core.output.StatisticsAggregator;
+import gihs.core.output.StatisticsStore;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
+import java.io.Reader;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Paths;
+import java.sql.SQLException;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -22,14 +24,35 @@ import java.util.Map;
  * based on a given file path.
  */
 public class SniperOutput extends GenerateOutputParametersAbstract {
+    /**
+     * The plan of the output parameters of the statistics database, compiled once from the metric definition file
+     * "metrics/sniper.json". It also converts the elapsed time, which Sniper counts in femtoseconds, to nanoseconds.
+     */
+    private static final MetricPlan METRIC_PLAN = MetricPlan.load("sniper");
+
     // Map of parameter names to be included in the output JSON
     private Map<String, String> parameterMap = new HashMap<>();
 
+    /**
+     * The frequency of the simulated cores in GHz if the statistics are read from sim.stats.sqlite3, otherwise 0.
+     */
+    private final double frequency;
 
     /**
-     * Constructs a SniperOutput object and initializes the parameter map with additional entries.
+     * Constructs a SniperOutput object that reads the statistics from sim.out.
      */
     public SniperOutput() {
+        this(0);
+    }
+
+    /**
+     * Constructs a SniperOutput object that reads the statistics from the database sim.stats.sqlite3 instead of sim.out.
+     * The database holds the time of each core, so the frequency is needed to count the cycles.
+     *
+     * @param frequency The frequency of the simulated cores in GHz, or 0 to read the statistics from sim.out.
+     */
+    public SniperOutput(double frequency) {
+        this.frequency = frequency;
         parameterMap.put("Time (ns)", "Time (ns)");
         parameterMap.put("Instructions", "Instructions");
         parameterMap.put("Cycles", "Cycles");
@@ -51,148 +74,173 @@ public class SniperOutput extends GenerateOutputParametersAbstract {
 
 
     /**
-     * Generate a JSON parameter that uses a specified file path.
-     * The generated JSON parameter should contain the mapping of simulation results
+     * Generates the output parameters from the statistics data of sim.out that is read from the specified reader.
+     * The output parameters contain the mapping of simulation results
      * with the output parameters for the general interface.
      *
-     * @param filePath The path to the file containing statistics data.
-     * @return A formatted JSON string representing the statistics parameters.
+     * @param statistics The reader of the statistics data.
+     * @return The output parameters.
      */
     @Override
-    public String generateStatisticsParametersJson(String filePath) {
-        JsonNode generateHardwaresimulationOutputParametersJson = objectMapper.createObjectNode();
-        ObjectNode resultJson = objectMapper.createObjectNode();
-        String outputResultJson = "";
-        String generateHardwaresimulationOutputParameters = generateStatisticsParametersJsonSniper(filePath);
-        try {
-            generateHardwaresimulationOutputParametersJson = objectMapper.readTree(generateHardwaresimulationOutputParameters);
-        } catch (JsonProcessingException e) {
-            System.err.println("Error parsing JSON: " + e.getMessage());
-
-        }
-
+    public SimulationResult generateSimulationResult(Reader statistics) {
+        SimulationResult result = new SimulationResult();
+        StatisticsStore statisticsFromSimulation = generateStatisticsSniper(statistics);
 
-        JsonNode finalGenerateHardwaresimulationOutputParametersJson = generateHardwaresimulationOutputParametersJson;
-        // Iterate through the parameterMap and add parameters to the resultJson
+        // Iterate through the parameterMap and add parameters to the result
         parameterMap.forEach((key, outputParameter) -> {
-            if (JsonUtil.has(finalGenerateHardwaresimulationOutputParametersJson, outputParameter)) {
-                JsonNode value = JsonUtil.get(finalGenerateHardwaresimulationOutputParametersJson, key);
-                //Adds a percent symbol (%) to the value of a parameter that ends with "rate".
-                if (outputParameter.endsWith("rate")) {
-                    String valueWithPercent = value.asText() + "%";
-                    resultJson.put(outputParameter, valueWithPercent);
-                } else {
-                    resultJson.set(outputParameter, value);
-                }
+            int entry = statisticsFromSimulation.indexOf(key);
+            if (entry < 0) {
+                return;
+            }
+            //Adds a percent symbol (%) to the value of a parameter that ends with "rate".
+            if (outputParameter.endsWith("rate")) {
+                String value = statisticsFromSimulation.isDecimal(entry)
+                        ? Double.toString(statisticsFromSimulation.getDouble(entry))
+                        : Long.toString(statisticsFromSimulation.getLong(entry));
+                result.put(outputParameter, value + "%");
+            } else if (statisticsFromSimulation.isDecimal(entry)) {
+                result.put(outputParameter, statisticsFromSimulation.getDouble(entry));
+            } else {
+                result.put(outputParameter, statisticsFromSimulation.getLong(entry));
             }
         });
+        return result;
+    }
 
-
-        try {
-            // Convert the resultJson to a formatted JSON string
-            ObjectWriter objectWriter = objectMapper.writer().with(SerializationFeature.INDENT_OUTPUT);
-            outputResultJson = objectWriter.writeValueAsString(resultJson);
-        } catch (JsonProcessingException e) {
-            System.err.println("Error writing JSON: " + e.getMessage());
+    /**
+     * Generates the output parameters from the statistics file at the specified path.
+     * If the SniperOutput reads the database, the file is sim.stats.sqlite3, otherwise sim.out.
+     *
+     * @param filePath The path to the file containing statistics data.
+     * @return The output parameters.
+     */
+    @Override
+    public SimulationResult generateSimulationResult(String filePath) {
+        if (frequency <= 0) {
+            try (Reader reader = new FileReader(filePath)) {
+                return generateSimulationResult(reader);
+            } catch (IOException e) {
+                System.err.println("Error reading the file: " + e.getMessage());
+                return generateSimulationResult(new StringReader(""));
+            }
         }
 
-        return outputResultJson;
+        try (SniperStatisticsDatabase database = new SniperStatisticsDatabase(Paths.get(filePath))) {
+            return new SimulationResult(generateStatisticsJsonFromDatabase(database));
+        } catch (SQLException e) {
+            System.err.println("Error reading the statistics database " + filePath + ": " + e.getMessage());
+            return new SimulationResult();
+        }
     }
 
     /**
-     * Generates the statistics parameters in JSON format specific to Sniper
-     * based on the given file path.
+     * Generates the output parameters of the region of interest from the statistics database:
+     * the difference between the snapshots "roi-end" and "roi-begin", summed over all cores.
+     * The value of every core is added under "Breakdown", as for gem5 and zsim.
      *
-     * @param filePath the path of the file containing the statistics data
-     * @return the JSON representation of the Sniper-specific statistics parameters
+     * @param database The statistics database of Sniper.
+     * @return The output parameters.
+     * @throws SQLException if the database cannot be read
      */
-    private String generateStatisticsParametersJsonSniper(String filePath) {
-        ObjectNode statistics = objectMapper.createObjectNode();
-        ObjectNode newStatistics = objectMapper.createObjectNode();
+    private ObjectNode generateStatisticsJsonFromDatabase(SniperStatisticsDatabase database) throws SQLException {
+        List<String> snapshots = database.getSnapshots();
+        // Without a region of interest the whole run from the first to the last snapshot is used
+        String begin = snapshots.contains("roi-begin") ? "roi-begin" : (snapshots.isEmpty() ? "" : snapshots.get(0));
+        String end = snapshots.contains("roi-end") ? "roi-end" : (snapshots.isEmpty() ? "" : snapshots.get(snapshots.size() - 1));
+
+        // Every statistic of every core is routed to the statistics of the metric plan, such as "L1-D.loads.*"
+        StatisticsAggregator.Accumulator statistics = METRIC_PLAN.getAggregator().newAccumulator();
+        statistics.accept("frequency", frequency);
+        Map<String, Long> beginValues = database.getValues(begin);
+        database.getValues(end).forEach((statistic, value) ->
+                statistics.accept(statistic, value - beginValues.getOrDefault(statistic, 0L)));
+
+        ObjectNode resultJson = METRIC_PLAN.toJson(METRIC_PLAN.evaluate(statistics));
+        METRIC_PLAN.putBreakdown(statistics, resultJson);
+        return resultJson;
+    }
 
-        int i = 0;
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+    /**
+     * Reads the statistics of sim.out into a store, keyed by the path of their blocks, for example
+     * "Cache Summary.Cache L1-D.num cache misses". A line without an indentation starts a block, a line that is indented
+     * by two spaces and has no value starts an inner block of the block, and a line that is indented by four spaces
+     * is an element of the inner block. Lines indented by two spaces outside of a block, such as "Instructions",
+     * are on the top level. Counters are stored as longs, percentages and other decimals as doubles.
+     *
+     * @param statisticsData the reader of the statistics data
+     * @return the statistics, without values if the statistics data cannot be read
+     */
+    private StatisticsStore generateStatisticsSniper(Reader statisticsData) {
+        StatisticsStore statistics = new StatisticsStore();
+        StringBuilder key = new StringBuilder();
+        String blockKey = "";
+        String innerBlockKey = "";
+        try {
+            BufferedReader reader = new BufferedReader(statisticsData);
             String line;
             while ((line = reader.readLine()) != null) {
-                if (line.contains("|") && !line.contains("Core 0")) {
-                    String[] parts = line.split("\\|");
-                    if (parts.length == 2) {
-                        String key = parts[0];
-                        String value = parts[1].trim();
-                        // Check if the key already exists in the statistics object, and add an index if necessary
-                        key = statistics.has(key) ? key + i++ : key;
-                        statistics.set(key, parseValue(value));
-                    }
+                // Only the statistics of a single core have exactly one value
+                int separator = line.indexOf('|');
+                if (separator < 0 || line.indexOf('|', separator + 1) >= 0 || line.contains("Core 0")) {
+                    continue;
+                }
+                int indentation = 0;
+                while (indentation < separator && line.charAt(indentation) == ' ') {
+                    indentation++;
+                }
+                if (indentation == separator || !Character.isLetter(line.charAt(indentation))) {
+                    continue;
+                }
+                String name = line.substring(indentation, separator).trim();
+                String value = line.substring(separator + 1).trim();
+
+                key.setLength(0);
+                if (indentation == 0) {
+                    // New block
+                    blockKey = name;
+                    innerBlockKey = "";
+                    continue;
+                } else if (indentation == 2 && blockKey.isEmpty()) {
+                    key.append(name);
+                } else if (indentation == 2 && value.isEmpty()) {
+                    // New inner block
+                    innerBlockKey = name;
+                    continue;
+                } else if (indentation == 2 && innerBlockKey.isEmpty()) {
+                    key.append(blockKey).append('.').append(name);
+                } else if (indentation == 4 && !innerBlockKey.isEmpty()) {
+                    // Element in inner Block
+                    key.append(blockKey).append('.').append(innerBlockKey).append('.').append(name);
+                } else {
+                    continue;
                 }
+                putValue(statistics, key, value);
             }
-
-            newStatistics = getSniperJson(statistics);
         } catch (IOException e) {
             System.err.println("Error reading file: " + e.getMessage());
-
-        }
-
-        try {
-            return new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(newStatistics);
-        } catch (JsonProcessingException e) {
-            System.err.println("Error writing JSON: " + e.getMessage());
-
-            return null;
         }
+        return statistics;
     }
 
     /**
-     * Generates the Sniper-specific statistics parameters in JSON format based on the given statistics.
+     * Puts a value of sim.out into the store: a percentage or a decimal as a double, a counter as a long.
+     * Values that are no numbers are left out.
      *
-     * @param statistics The statistics object containing the raw data.
-     * @return The JSON representation of the Sniper-specific statistics parameters.
+     * @param statistics the statistics
+     * @param key        the key of the value
+     * @param value      the value
      */
-    private ObjectNode getSniperJson(ObjectNode statistics) {
-        ObjectNode newStatistics = objectMapper.createObjectNode();
-
-        // Iterate over the fields (key-value pairs) in the input statistics JSON object
-        Iterator<Map.Entry<String, JsonNode>> iterator = statistics.fields();
-        // Main Block 1: Outer Block
-        ObjectNode block = objectMapper.createObjectNode();
-        // Main Block 2: Inner Block
-        ObjectNode innerBlock = objectMapper.createObjectNode();
-        String key = null;
-        String blockKey = "";
-        String innerBlockKey = "";
-
-        while (iterator.hasNext()) {
-            Map.Entry<String, JsonNode> entry = iterator.next();
-            key = keyWithoutNumber(entry.getKey());
-            JsonNode value = entry.getValue();
-
-            // New inner block or element
-            if (key.matches("  [a-zA-Z].*")) {
-                if (blockKey.length() != 0) {
-                    if (value.toString().equals("null")) {
-                        innerBlock = objectMapper.createObjectNode();
-                        innerBlockKey = key.trim();
-                    }
-                    if (innerBlockKey.length() == 0) {
-                        block.set(key.trim(), value);
-                    } else {
-                        block.set(innerBlockKey.trim(), innerBlock);
-                    }
-                } else {
-                    newStatistics.set(key.trim(), value);
-                }
-            } else if (key.matches("[a-zA-Z].*")) {
-                // New block
-                blockKey = key.trim();
-                block = objectMapper.createObjectNode();
-                innerBlock = objectMapper.createObjectNode();
-                innerBlockKey = "";
-                newStatistics.set(blockKey, block);
-            } else if (key.matches("    [a-zA-Z].*")) {
-                // Element in inner Block
-                innerBlock.set(key.trim(), value);
+    private static void putValue(StatisticsStore statistics, CharSequence key, String value) {
+        try {
+            if (value.endsWith("%")) {
+                statistics.putDouble(key, Double.parseDouble(value.substring(0, value.length() - 1)));
+            } else if (value.contains(".")) {
+                statistics.putDouble(key, Double.parseDouble(value));
+            } else if (!value.isEmpty()) {
+                statistics.putLong(key, Long.parseLong(value));
             }
+        } catch (NumberFormatException e) {
+            System.err.println("Skipping the statistic " + key + " with the value " + value + ": " + e.getMessage());
         }
-        return newStatistics;
     }
-
 }
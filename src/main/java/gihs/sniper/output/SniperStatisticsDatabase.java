@@ -0,0 +1,95 @@
+package gihs.sniper.output;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The SniperStatisticsDatabase class reads the statistics that Sniper writes to sim.stats.sqlite3.
+ * <p>
+ * Sniper stores every snapshot of its statistics, such as "roi-begin" and "roi-end", in the table "prefixes",
+ * every statistic as an object and a metric, such as "L1-D" and "load-misses", in the table "names",
+ * and the value of a statistic per snapshot and core in the table "values".
+ */
+public class SniperStatisticsDatabase implements AutoCloseable {
+
+    /**
+     * The query of the values of every statistic in one snapshot for every core.
+     */
+    private static final String VALUES_QUERY = "SELECT n.objectname, n.metricname, v.core, v.value FROM \"values\" v"
+            + " JOIN names n ON n.nameid = v.nameid"
+            + " JOIN prefixes p ON p.prefixid = v.prefixid"
+            + " WHERE p.prefixname = ?";
+
+    private final Connection connection;
+
+    /**
+     * The prepared query of the values, which is reused for every snapshot.
+     */
+    private final PreparedStatement valuesStatement;
+
+    /**
+     * Opens the statistics database of Sniper.
+     *
+     * @param databaseFile the path of sim.stats.sqlite3
+     * @throws SQLException if the database cannot be opened
+     */
+    public SniperStatisticsDatabase(Path databaseFile) throws SQLException {
+        this.connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.toAbsolutePath());
+        this.valuesStatement = connection.prepareStatement(VALUES_QUERY);
+    }
+
+    /**
+     * Gets the names of the snapshots in the order in which Sniper has written them.
+     *
+     * @return the names of the snapshots
+     * @throws SQLException if the database cannot be read
+     */
+    public List<String> getSnapshots() throws SQLException {
+        List<String> snapshots = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT prefixname FROM prefixes ORDER BY prefixid");
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                snapshots.add(resultSet.getString(1));
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Gets the values of every statistic in a snapshot for every core.
+     *
+     * @param snapshot the name of the snapshot, for example "roi-end"
+     * @return the values keyed by the object, the metric and the core of the statistic,
+     * for example "performance_model.instruction_count.0", empty if there is no such snapshot
+     * @throws SQLException if the database cannot be read
+     */
+    public Map<String, Long> getValues(String snapshot) throws SQLException {
+        Map<String, Long> values = new HashMap<>();
+        valuesStatement.setString(1, snapshot);
+        try (ResultSet resultSet = valuesStatement.executeQuery()) {
+            while (resultSet.next()) {
+                values.put(resultSet.getString(1) + "." + resultSet.getString(2) + "." + resultSet.getInt(3), resultSet.getLong(4));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Closes the database.
+     *
+     * @throws SQLException if the database cannot be closed
+     */
+    @Override
+    public void close() throws SQLException {
+        valuesStatement.close();
+        connection.close();
+    }
+}
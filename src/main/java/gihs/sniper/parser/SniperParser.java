@@ -1,26 +1,38 @@
 package gihs.sniper.parser;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import gihs.core.managementOFJsonNodeALL.JsonUtil;
+import gihs.core.managementOfDockerfiles.HardwaresimulationUploadManifest;
+import gihs.core.parser.ErrorMessageMatcher;
+import gihs.core.parser.ErrorMessageSeverity;
 import gihs.core.parser.ParserAbstract;
 import gihs.sniper.input.SniperInput;
 import gihs.sniper.output.SniperOutput;
 
+import java.io.File;
+import java.util.Map;
+
 /**
  * The SniperParser class is responsible for parsing and running the Sniper hardware simulation with input and output
  */
 public class SniperParser extends ParserAbstract {
 
     /**
-     *   Array of error messages that indicate various configuration issues.
+     *   The error messages that indicate various configuration issues, compiled once for all Sniper runs.
      *
      */
-    private static final String[] ERROR_MESSAGES = {
-            "Invalid cache configuration",
-            "Caches of non-power of 2 size",
-            "*** Configuration error ***",
-            "Error",
-            "ERROR"
-    };
+    private static final ErrorMessageMatcher ERROR_MESSAGES = new ErrorMessageMatcher(Map.of(
+            "Invalid cache configuration", ErrorMessageSeverity.FATAL,
+            "Caches of non-power of 2 size", ErrorMessageSeverity.FATAL,
+            "*** Configuration error ***", ErrorMessageSeverity.FATAL,
+            "Error", ErrorMessageSeverity.FATAL,
+            "ERROR", ErrorMessageSeverity.FATAL
+    ));
+
+    /**
+     * The name of the database in which Sniper stores every snapshot of its statistics for every core.
+     */
+    private static final String STATISTICS_DATABASE_FILE_NAME = "sim.stats.sqlite3";
 
 
     /**
@@ -29,33 +41,108 @@ public class SniperParser extends ParserAbstract {
      * @param input the input value
      */
     @Override
-    public void parse(JsonNode input) {
-        super.parse(input);
+    protected void simulate(JsonNode input) {
         String SniperCfg = "SniperSilvermont.cfg";
         String SniperOut = "SniperSilvermont.out";
 
         init("sniper");
 
-        generateInputParametersFile.generateInputParameters(new SniperInput(input), "../resources/"+SniperCfg);
-
-        host.inputFileTOContainer(containerId, "../resources/"+SniperCfg, "usr/local/src/sniper/config/");
-        host.inputFileTOContainer(containerId, binaryPath, "/usr/local/src/sniper/");
+        // The generated configuration goes straight from memory into the container, together with the binary
+        host.inputFilesToContainer(containerId, new HardwaresimulationUploadManifest()
+                .addContent(new SniperInput(input).generateInputCode(), "/usr/local/src/sniper/config/" + SniperCfg)
+                .addFile(binaryPath, "/usr/local/src/sniper/" + new File(binaryPath).getName()));
         // Capture the start time
         long startTime = System.nanoTime();
-        String outputConsole=  host.outputFromHardwaresimulationConsole(hardwaresimulation.command(new String[]{"./run-sniper", "-c", "SniperSilvermont", command}));
+        runHardwaresimulationCommand(getErrorMessages(input, "sniper", ERROR_MESSAGES), new String[]{"./run-sniper", "-c", "SniperSilvermont", command});
         // Capture the end time
         long endTime = System.nanoTime();
 
         // Calculate the execution time (difference between end time and start time)
         long executionTime = endTime - startTime;
         // host.outputFromHardwaresimulationConsole(hardwaresimulation.command(new String[]{"cat", "sim.out"}));
-        handleOutputConsole(ERROR_MESSAGES,outputConsole);
 
-        host.outputFileFromContainer(containerId, "usr/local/src/sniper/sim.out", "../resources/"+SniperOut);
+        if (readsStatisticsDatabase(input)) {
+            generateOutputParametersFromDatabase(input, executionTime);
+        } else {
+            generateOutputParametersFromContainer(new SniperOutput(), "usr/local/src/sniper/sim.out", SniperOut, statsOutputPath + "/" + getOutputFileName(), executionTime);
+        }
+    }
+    /**
+     * Generates the output parameters from the statistics database sim.stats.sqlite3 of Sniper.
+     * SQLite needs a file, so the database is copied to the working path first
+     * and removed again afterwards unless "keepStatsFile" is set.
+     *
+     * @param input           the input of the run
+     * @param hostNanoseconds the host nanoseconds to add to the output parameters
+     */
+    private void generateOutputParametersFromDatabase(JsonNode input, long hostNanoseconds) {
+        File databaseFile = new File(workingPath, STATISTICS_DATABASE_FILE_NAME);
+        databaseFile.getParentFile().mkdirs();
+        hardwaresimulation.outputFileFromContainer(containerId, "/usr/local/src/sniper/" + STATISTICS_DATABASE_FILE_NAME, databaseFile.getPath());
+        if (!databaseFile.exists()) {
+            return;
+        }
+        // The frequency is given in GHz, like for the configuration of Sniper
+        double frequency = Double.parseDouble(JsonUtil.get(input, "commonParameters.board.frequency").asText().replaceAll("[^0-9.]", ""));
+        generateOutputParametersFile.generateOutputParameters(new SniperOutput(frequency), databaseFile.getPath(),
+                statsOutputPath + "/" + getOutputFileName(), hostNanoseconds);
+        if (!keepStatsFile) {
+            databaseFile.delete();
+        }
+    }
 
-        generateOutputParametersFile.generateOutputParameters(new SniperOutput(), "../resources/"+SniperOut, statsOutputPath + "/generatestatsOutputSniper.json","\"HostNanoseconds\" : "+executionTime);
+    /**
+     * Checks whether the output parameters of a run are read from the statistics database instead of sim.out.
+     *
+     * @param input the input of the run
+     * @return true if "sniper.statistics.database" is set to true, otherwise false
+     */
+    private static boolean readsStatisticsDatabase(JsonNode input) {
+        return JsonUtil.has(input, "sniper.statistics.database") && JsonUtil.get(input, "sniper.statistics.database").asBoolean();
+    }
 
-        exit();
+    /**
+     * Gets the name of the Sniper hardware simulation.
+     *
+     * @return The name of the hardware simulation and its image.
+     */
+    @Override
+    protected String getHardwaresimulationName() {
+        return "sniper";
     }
 
+    /**
+     * Gets the name of the file that the Sniper output parameters are written to.
+     *
+     * @return The name of the output parameters file.
+     */
+    @Override
+    protected String getOutputFileName() {
+        return "generatestatsOutputSniper.json";
+    }
+
+    /**
+     * Gets the files that a Sniper run creates in the container: the generated configuration and the binary.
+     *
+     * @return The absolute paths of the working files in the container.
+     */
+    @Override
+    protected String[] getWorkingFiles() {
+        return new String[]{
+                "/usr/local/src/sniper/config/SniperSilvermont.cfg",
+                "/usr/local/src/sniper/" + new File(binaryPath).getName()
+        };
+    }
+
+    /**
+     * Gets the patterns of the sim.* results that a Sniper run creates in the container.
+     *
+     * @return The absolute shell patterns of the working files in the container.
+     */
+    @Override
+    protected String[] getWorkingFilePatterns() {
+        return new String[]{"/usr/local/src/sniper/sim.*"};
+    }
+
+
 }
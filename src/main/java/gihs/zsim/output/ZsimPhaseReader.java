@@ -0,0 +1,163 @@
+package gihs.zsim.output;
+
+import gihs.core.output.StatisticsAggregator;
+import io.jhdf.HdfFile;
+import io.jhdf.api.Dataset;
+import io.jhdf.object.datatype.ArrayDataType;
+import io.jhdf.object.datatype.CompoundDataType;
+import io.jhdf.object.datatype.DataType;
+
+import java.io.Closeable;
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The ZsimPhaseReader class reads the periodic statistics of zsim from its HDF5 output (zsim.h5) phase by phase.
+ * <p>
+ * zsim appends one row to the dataset "stats/root" every "statsPhaseInterval" phases. A row is a compound of the
+ * statistics tree, in which a group of equal elements such as the cores "skylake-0", "skylake-1" is an array.
+ * Only one row is read at a time, so the memory does not grow with the number of phases.
+ * The statistics of a row are walked along the data type of the dataset and routed to the aggregates of a
+ * {@link StatisticsAggregator}, addressed like in zsim.out, for example "root.skylake.skylake-0.instrs".
+ */
+public class ZsimPhaseReader implements Closeable {
+
+    /**
+     * The path of the dataset with the periodic statistics in the HDF5 file.
+     */
+    private static final String STATISTICS_DATASET = "stats/root";
+
+    /**
+     * The name of the root of the statistics.
+     */
+    private static final String ROOT = "root";
+
+    private final HdfFile hdfFile;
+    private final Dataset statistics;
+
+    /**
+     * The aggregates of the statistics to read.
+     */
+    private final StatisticsAggregator aggregator;
+
+    /**
+     * The index of the next row of the dataset.
+     */
+    private int nextRow;
+
+    /**
+     * Opens the HDF5 file of zsim.
+     *
+     * @param statisticsFile the path of the HDF5 file
+     * @param aggregator     the aggregates of the statistics to read
+     */
+    public ZsimPhaseReader(Path statisticsFile, StatisticsAggregator aggregator) {
+        HdfFile file = new HdfFile(statisticsFile);
+        try {
+            this.statistics = file.getDatasetByPath(STATISTICS_DATASET);
+        } catch (RuntimeException e) {
+            // The reader is never returned, so nobody else could close the file
+            file.close();
+            throw e;
+        }
+        this.hdfFile = file;
+        this.aggregator = aggregator;
+    }
+
+    /**
+     * Gets the number of rows of statistics in the file.
+     *
+     * @return the number of rows
+     */
+    public int getRowCount() {
+        return statistics.isEmpty() ? 0 : statistics.getDimensions()[0];
+    }
+
+    /**
+     * Reads the statistics of the next row into the aggregates.
+     * The values are the totals since the start of the simulation, as zsim writes them.
+     *
+     * @return the aggregated statistics of the row, or null if there is no further row
+     */
+    public StatisticsAggregator.Accumulator readNextRow() {
+        if (nextRow >= getRowCount()) {
+            return null;
+        }
+        // A slice of one row, whose first dimension is then removed from every statistic
+        Object row = index(statistics.getData(new long[]{nextRow++}, new int[]{1}), 0);
+
+        StatisticsAggregator.Accumulator accumulator = aggregator.newAccumulator();
+        accumulate(statistics.getDataType(), row, new StringBuilder(ROOT), ROOT, accumulator);
+        return accumulator;
+    }
+
+    /**
+     * Closes the HDF5 file.
+     */
+    @Override
+    public void close() {
+        hdfFile.close();
+    }
+
+    /**
+     * Routes the statistics of a node of the statistics tree to the aggregates, guided by the data type of the node.
+     * A group is a compound, whose members are its children, and a group of equal elements is an array of compounds,
+     * whose elements are named after the group and their index. Histograms, arrays of numbers, are not routed.
+     *
+     * @param dataType    the data type of the node
+     * @param node        the node
+     * @param path        the path of the node, which is restored before this method returns
+     * @param name        the name of the node
+     * @param accumulator the aggregated statistics of the row
+     */
+    private static void accumulate(DataType dataType, Object node, StringBuilder path, String name, StatisticsAggregator.Accumulator accumulator) {
+        int pathLength = path.length();
+        if (dataType instanceof CompoundDataType && node instanceof Map) {
+            for (CompoundDataType.CompoundDataMember member : ((CompoundDataType) dataType).getMembers()) {
+                path.append('.').append(member.getName());
+                accumulate(member.getDataType(), ((Map<?, ?>) node).get(member.getName()), path, member.getName(), accumulator);
+                path.setLength(pathLength);
+            }
+        } else if (dataType instanceof ArrayDataType && ((ArrayDataType) dataType).getBaseType() instanceof CompoundDataType) {
+            DataType elementType = ((ArrayDataType) dataType).getBaseType();
+            int elements = ((ArrayDataType) dataType).getArrayTypeDimensions()[0];
+            for (int i = 0; i < elements; i++) {
+                path.append('.').append(name).append('-').append(i);
+                accumulate(elementType, index(node, i), path, name + "-" + i, accumulator);
+                path.setLength(pathLength);
+            }
+        } else if (node instanceof BigInteger && ((BigInteger) node).bitLength() > 63) {
+            // An unsigned 64-bit counter above the range of a long would wrap to a negative long
+            accumulator.accept(path, ((BigInteger) node).doubleValue());
+        } else if (node instanceof Long || node instanceof Integer || node instanceof Short || node instanceof Byte
+                || node instanceof BigInteger) {
+            // Counters, which zsim writes as unsigned 64-bit integers, stay exact as longs
+            accumulator.accept(path, ((Number) node).longValue());
+        } else if (node instanceof Number) {
+            accumulator.accept(path, ((Number) node).doubleValue());
+        }
+    }
+
+    /**
+     * Indexes the first dimension of a node of the statistics tree.
+     * An array of compounds is read as a compound of arrays, so a compound is indexed in each of its members.
+     *
+     * @param node  the node, an array or a compound
+     * @param index the index in the first dimension
+     * @return the node at the index
+     */
+    private static Object index(Object node, int index) {
+        if (node instanceof Map) {
+            Map<String, Object> element = new HashMap<>();
+            ((Map<?, ?>) node).forEach((name, member) -> element.put((String) name, index(member, index)));
+            return element;
+        }
+        if (node != null && node.getClass().isArray()) {
+            return Array.get(node, index);
+        }
+        throw new IndexOutOfBoundsException("A single statistic has no index " + index);
+    }
+}
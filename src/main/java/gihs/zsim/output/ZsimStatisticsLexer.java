@@ -0,0 +1,220 @@
+package gihs.zsim.output;
+
+import gihs.core.output.StatisticsStore;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * The ZsimStatisticsLexer class reads the statistics of zsim (zsim.out) into a {@link StatisticsStore} in a single pass.
+ * <p>
+ * Every line of zsim.out is "name: value # description" or, for a group of statistics, "name: # description".
+ * The depth of a statistic is the number of spaces it is indented by, and it is stored by its path of group names,
+ * for example "root.skylake.skylake-0.instrs". The lines are scanned by hand in a reused character buffer, so no string
+ * is created for a line, and counters are stored as primitive longs. If a name occurs twice in the same group,
+ * the first statistic is kept. Values that are no numbers are left out.
+ */
+public class ZsimStatisticsLexer {
+
+    /**
+     * The initial size of the character buffer, which grows for longer lines.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The most digits of a counter that always fit into a long.
+     */
+    private static final int MAX_LONG_DIGITS = 18;
+
+    /**
+     * The path of the current group, for example "root.skylake.skylake-0".
+     */
+    private final StringBuilder path = new StringBuilder();
+
+    /**
+     * The paths of the groups that were read, to find a group that occurs twice. They are looked up
+     * by the characters of the current path like the statistics, so no string is created for a line.
+     */
+    private StatisticsStore groupPaths;
+
+    /**
+     * The length of the path of each group from the root to the current line.
+     */
+    private int[] pathLengths = new int[16];
+
+    /**
+     * The indentation of each group from the root to the current line.
+     */
+    private int[] indentations = new int[16];
+
+    /**
+     * Whether each group from the root to the current line is a duplicate, whose statistics are left out.
+     */
+    private boolean[] duplicates = new boolean[16];
+
+    /**
+     * The number of groups from the root to the current line.
+     */
+    private int depth;
+
+    private StatisticsStore store;
+
+    /**
+     * Reads the statistics into a store, for example with the counter 21505 under "root.skylake.skylake-0.instrs".
+     *
+     * @param statistics the reader of the statistics, which is not closed
+     * @return the statistics by their path
+     * @throws IOException if the statistics cannot be read
+     */
+    public StatisticsStore parse(Reader statistics) throws IOException {
+        store = new StatisticsStore();
+        path.setLength(0);
+        groupPaths = new StatisticsStore();
+        pathLengths[0] = 0;
+        indentations[0] = -1;
+        duplicates[0] = false;
+        depth = 1;
+
+        char[] buffer = new char[BUFFER_SIZE];
+        int lineStart = 0;
+        int length = 0;
+        int scanned = 0;
+        while (true) {
+            int lineEnd = -1;
+            for (int i = scanned; i < length; i++) {
+                if (buffer[i] == '\n') {
+                    lineEnd = i;
+                    break;
+                }
+            }
+            if (lineEnd >= 0) {
+                lexLine(buffer, lineStart, lineEnd);
+                lineStart = lineEnd + 1;
+                scanned = lineStart;
+                continue;
+            }
+
+            // The rest of the buffer is an incomplete line, which is moved to the front before more is read
+            scanned = length - lineStart;
+            System.arraycopy(buffer, lineStart, buffer, 0, scanned);
+            length = scanned;
+            lineStart = 0;
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int read = statistics.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                lexLine(buffer, 0, length);
+                return store;
+            }
+            length += read;
+        }
+    }
+
+    /**
+     * Adds the statistic of a line to the store.
+     *
+     * @param line  the buffer that holds the line
+     * @param start the position of the first character of the line
+     * @param end   the position after the last character of the line
+     */
+    private void lexLine(char[] line, int start, int end) {
+        if (end > start && line[end - 1] == '\r') {
+            end--;
+        }
+        int nameStart = start;
+        while (nameStart < end && line[nameStart] == ' ') {
+            nameStart++;
+        }
+        int colon = nameStart;
+        while (colon < end && line[colon] != ':' && line[colon] != '#') {
+            colon++;
+        }
+        if (colon == nameStart || colon == end || line[colon] != ':') {
+            // An empty line, a comment or no statistic
+            return;
+        }
+        int nameEnd = colon;
+        while (line[nameEnd - 1] == ' ') {
+            nameEnd--;
+        }
+        int valueStart = colon + 1;
+        while (valueStart < end && (line[valueStart] == ' ' || line[valueStart] == '\t')) {
+            valueStart++;
+        }
+        int valueEnd = valueStart;
+        while (valueEnd < end && line[valueEnd] != ' ' && line[valueEnd] != '\t' && line[valueEnd] != '#') {
+            valueEnd++;
+        }
+
+        // The groups that are indented as deep as this line or deeper are complete
+        int indentation = nameStart - start;
+        while (indentations[depth - 1] >= indentation) {
+            depth--;
+        }
+        path.setLength(pathLengths[depth - 1]);
+        if (path.length() > 0) {
+            path.append('.');
+        }
+        path.append(line, nameStart, nameEnd - nameStart);
+        boolean duplicate = duplicates[depth - 1] || store.containsKey(path) || groupPaths.containsKey(path);
+
+        if (valueStart == valueEnd) {
+            // A group of statistics, whose statistics are left out if it is a duplicate
+            if (!duplicate) {
+                groupPaths.putLong(path, 0);
+            }
+            pushGroup(duplicate, indentation);
+        } else if (!duplicate) {
+            putValue(line, valueStart, valueEnd);
+        }
+    }
+
+    /**
+     * Makes the group of the current path the current group of the following lines.
+     *
+     * @param duplicate   whether the group is a duplicate
+     * @param indentation the indentation of the group
+     */
+    private void pushGroup(boolean duplicate, int indentation) {
+        if (depth == pathLengths.length) {
+            pathLengths = Arrays.copyOf(pathLengths, depth * 2);
+            indentations = Arrays.copyOf(indentations, depth * 2);
+            duplicates = Arrays.copyOf(duplicates, depth * 2);
+        }
+        pathLengths[depth] = path.length();
+        indentations[depth] = indentation;
+        duplicates[depth] = duplicate;
+        depth++;
+    }
+
+    /**
+     * Puts the value of the statistic of the current path into the store: a counter as a long, another number as a double.
+     *
+     * @param line  the buffer that holds the value
+     * @param start the position of the first character of the value
+     * @param end   the position after the last character of the value
+     */
+    private void putValue(char[] line, int start, int end) {
+        boolean negative = line[start] == '-';
+        int digitsStart = negative ? start + 1 : start;
+        if (end > digitsStart && end - digitsStart <= MAX_LONG_DIGITS) {
+            long counter = 0;
+            int i = digitsStart;
+            while (i < end && line[i] >= '0' && line[i] <= '9') {
+                counter = counter * 10 + (line[i] - '0');
+                i++;
+            }
+            if (i == end) {
+                store.putLong(path, negative ? -counter : counter);
+                return;
+            }
+        }
+        try {
+            store.putDouble(path, Double.parseDouble(new String(line, start, end - start)));
+        } catch (NumberFormatException e) {
+            // Text, such as the name of a phase, is no statistic
+        }
+    }
+}
@@ -1,56 +1,176 @@
 package gihs.zsim.parser;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import gihs.core.managementOFJsonNodeALL.JsonUtil;
+import gihs.core.managementOfDockerfiles.HardwaresimulationUploadManifest;
+import gihs.core.parser.ErrorMessageMatcher;
+import gihs.core.parser.ErrorMessageSeverity;
 import gihs.core.parser.ParserAbstract;
 import gihs.zsim.input.ZsimInput;
 import gihs.zsim.output.ZsimOutput;
 
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public class ZsimParser extends ParserAbstract {
 
     /**
-     * Array of error messages that indicate various configuration issues.
+     * The error messages that indicate various configuration issues, compiled once for all Zsim runs.
+     * The generic "error" also appears in harmless output of the simulation, so it is only a warning.
+     */
+    protected static final ErrorMessageMatcher ERROR_MESSAGES = new ErrorMessageMatcher(Map.of(
+            "Bank size must be a multiple of line size", ErrorMessageSeverity.FATAL,
+            "Number of sets must be a power of two", ErrorMessageSeverity.FATAL,
+            "error: syntax error", ErrorMessageSeverity.FATAL,
+            "Unsupported line size", ErrorMessageSeverity.FATAL,
+            "can't connect more cores to it", ErrorMessageSeverity.FATAL,
+            "error", ErrorMessageSeverity.WARNING
+    ));
+
+    /**
+     * The error messages of the compiler that compiles the program before the simulation.
+     */
+    protected static final ErrorMessageMatcher COMPILER_ERROR_MESSAGES = new ErrorMessageMatcher(Map.of(
+            "error", ErrorMessageSeverity.FATAL
+    ));
+
+    /**
+     * The name of the HDF5 file with the periodic statistics that zsim writes every "statsPhaseInterval" phases.
+     */
+    private static final String PHASE_STATISTICS_FILE_NAME = "zsim.h5";
+
+    /**
+     * The name of the file in the statistics output path that the time series of the phases is written to.
      */
-    protected static final String[] ERROR_MESSAGES = {
-            "Bank size must be a multiple of line size",
-            "Number of sets must be a power of two",
-            "error: syntax error",
-            "Unsupported line size",
-            "can't connect more cores to it",
-            "error"
-    };
+    private static final String TIME_SERIES_FILE_NAME = "generatestatsTimeSeriesZsim.jsonl";
+
+    /**
+     * Whether the address space randomization of the host kernel has already been disabled by this process.
+     */
+    private static final AtomicBoolean addressSpaceRandomizationDisabled = new AtomicBoolean(false);
 
     @Override
-    public void parse(JsonNode input) {
-        super.parse(input);
+    protected void simulate(JsonNode input) {
 
 
         String generateHardwaresimulationParameter = "zsim.cfg";
         String zsim_out = "zsim.out";
-        init("zsim");
+        // zsim is already built in the ready image, so the run goes straight to compiling the program and simulating
+        init(ZsimRuntimeImage.getReadyImage());
 
-        generateInputParametersFile.generateInputParameters(new ZsimInput(input), "../resources/" + generateHardwaresimulationParameter);
+        // The generated configuration goes straight from memory into the container, together with the program
+        host.inputFilesToContainer(containerId, new HardwaresimulationUploadManifest()
+                .addContent(new ZsimInput(input).generateInputCode(), "/usr/local/src/zsim-plusplus/tests/" + generateHardwaresimulationParameter)
+                .addFile(programPath, "/usr/local/src/zsim-plusplus/" + fileName));
 
-        hardwaresimulation.inputFileTOContainer(containerId, "../resources/" + generateHardwaresimulationParameter, "/usr/local/src/zsim-plusplus/tests/");
+        // The address space randomization is a setting of the host kernel, so it only has to be disabled once
+        if (addressSpaceRandomizationDisabled.compareAndSet(false, true)) {
+            host.outputFromHardwaresimulationConsole(hardwaresimulation.command(new String[]{"sh", "-c", "echo 0 > /proc/sys/kernel/randomize_va_space"}));
+        }
+        runHardwaresimulationCommand(COMPILER_ERROR_MESSAGES, new String[]{"gcc", "-static", "-std=c99", "-o", fileName.replaceAll("\\.c", ""), fileName});
 
-        host.outputFromHardwaresimulationConsole(hardwaresimulation.command(new String[]{"echo", "0", "|", "sudo", "tee", "/proc/sys/kernel/randomize_va_space"}));
+        runHardwaresimulationCommand(getErrorMessages(input, "zsim", ERROR_MESSAGES), new String[]{"./build/opt/zsim", "tests/" + generateHardwaresimulationParameter});
 
-        host.outputFromHardwaresimulationConsole(hardwaresimulation.command(new String[]{"scons", "-j16"}));
-        host.inputFileTOContainer(containerId, programPath, "/usr/local/src/zsim-plusplus/");
-        String outputConsoleCompile = host.outputFromHardwaresimulationConsole(hardwaresimulation.command(new String[]{"gcc", "-static", "-std=c99", "-o", fileName.replaceAll("\\.c", ""), fileName}));
+        // host.outputFromHardwaresimulationConsole(hardwaresimulation.command(new String[]{"cat", "/usr/local/src/zsim-plusplus/zsim.out"}));
 
-        handleOutputConsole(ERROR_MESSAGES,outputConsoleCompile);
-        String outputConsole = host.outputFromHardwaresimulationConsole(hardwaresimulation.command(new String[]{"./build/opt/zsim", "tests/" + generateHardwaresimulationParameter}));
 
-        handleOutputConsole(ERROR_MESSAGES,outputConsole);
+        generateOutputParametersFromContainer(new ZsimOutput(), "/usr/local/src/zsim-plusplus/zsim.out", zsim_out, statsOutputPath + "/" + getOutputFileName(), null);
 
-        // host.outputFromHardwaresimulationConsole(hardwaresimulation.command(new String[]{"cat", "/usr/local/src/zsim-plusplus/zsim.out"}));
+        if (hasPhaseStatistics(input)) {
+            generateTimeSeries();
+        }
 
+    }
 
-        hardwaresimulation.outputFileFromContainer(containerId, "/usr/local/src/zsim-plusplus/zsim.out", "../resources/" + zsim_out);
-        generateOutputParametersFile.generateOutputParameters(new ZsimOutput(), "../resources/" + zsim_out, statsOutputPath + "/generatestatsOutputZsim.json");
+    /**
+     * Writes the time series of the phases from the periodic statistics that zsim writes to zsim.h5.
+     * The HDF5 file is read with random access, so it is copied to the working path first
+     * and removed again afterwards unless "keepStatsFile" is set.
+     */
+    private void generateTimeSeries() {
+        File phaseStatisticsFile = new File(workingPath, PHASE_STATISTICS_FILE_NAME);
+        phaseStatisticsFile.getParentFile().mkdirs();
+        hardwaresimulation.outputFileFromContainer(containerId, "/usr/local/src/zsim-plusplus/" + PHASE_STATISTICS_FILE_NAME, phaseStatisticsFile.getPath());
+        if (!phaseStatisticsFile.exists()) {
+            return;
+        }
+        new ZsimOutput().generateTimeSeries(phaseStatisticsFile.toPath(), statsOutputPath + "/" + TIME_SERIES_FILE_NAME);
+        if (!keepStatsFile) {
+            phaseStatisticsFile.delete();
+        }
+    }
 
-        exit();
+    /**
+     * Checks whether the time series of the phases is written for a run.
+     *
+     * @param input the input of the run
+     * @return true if "zsim.statistics.phases" is set to true, otherwise false
+     */
+    private static boolean hasPhaseStatistics(JsonNode input) {
+        return JsonUtil.has(input, "zsim.statistics.phases") && JsonUtil.get(input, "zsim.statistics.phases").asBoolean();
+    }
 
+    /**
+     * Checks whether the result of a run can be restored from the result cache.
+     * The cache only holds the output parameters, so runs that write a time series are not cached.
+     *
+     * @param input the input of the run
+     * @return true if the run writes no time series, otherwise false
+     */
+    @Override
+    protected boolean isResultCacheable(JsonNode input) {
+        return !hasPhaseStatistics(input);
+    }
+
+    /**
+     * Gets the name of the Zsim hardware simulation.
+     *
+     * @return The name of the hardware simulation and its image.
+     */
+    @Override
+    protected String getHardwaresimulationName() {
+        return "zsim";
+    }
+
+    /**
+     * Gets the name of the file that the Zsim output parameters are written to.
+     *
+     * @return The name of the output parameters file.
+     */
+    @Override
+    protected String getOutputFileName() {
+        return "generatestatsOutputZsim.json";
+    }
+
+    /**
+     * Gets the files that a Zsim run creates in the container: the generated configuration, the program, its binary and the zsim results
+     * with fixed names.
+     *
+     * @return The absolute paths of the working files in the container.
+     */
+    @Override
+    protected String[] getWorkingFiles() {
+        return new String[]{
+                "/usr/local/src/zsim-plusplus/tests/zsim.cfg",
+                "/usr/local/src/zsim-plusplus/" + fileName,
+                "/usr/local/src/zsim-plusplus/" + fileName.replaceAll("\\.c", ""),
+                "/usr/local/src/zsim-plusplus/out.cfg",
+                "/usr/local/src/zsim-plusplus/heartbeat"
+        };
+    }
+
+    /**
+     * Gets the patterns of the zsim*.out and zsim*.h5 results that a Zsim run creates in the container.
+     *
+     * @return The absolute shell patterns of the working files in the container.
+     */
+    @Override
+    protected String[] getWorkingFilePatterns() {
+        return new String[]{
+                "/usr/local/src/zsim-plusplus/zsim*.out",
+                "/usr/local/src/zsim-plusplus/zsim*.h5"
+        };
     }
 
 
@@ -0,0 +1,109 @@
+package gihs.zsim.parser;
+
+import gihs.core.managementOfDockerfiles.HardwaresimulationDocker;
+import gihs.core.managementOfDockerfiles.HardwaresimulationResourceScheduler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The ZsimRuntimeImage class provides a zsim image in which zsim is already built and ready to run.
+ * <p>
+ * The ready image is created once by running scons in a container of the zsim image and committing the result.
+ * Its tag is derived from the hash of the zsim Dockerfile and the ID of the zsim image, so a new ready image is
+ * only prepared when the Dockerfile or the zsim sources in the image change. Later runs start from the ready image
+ * and go straight to {@code ./build/opt/zsim}.
+ */
+public class ZsimRuntimeImage {
+
+    /**
+     * The name of the zsim image that is built from the zsim Dockerfile.
+     */
+    private static final String IMAGE_NAME = "zsim";
+
+    /**
+     * The repository of the ready zsim images.
+     */
+    private static final String READY_REPOSITORY = "zsim-ready";
+
+    /**
+     * The label of a ready image that stores the ID of the zsim image it was prepared from.
+     */
+    private static final String BASE_IMAGE_LABEL = "gihs.zsim.baseImage";
+
+    /**
+     * The name of the ready image of this process, or null if it has not been determined yet.
+     */
+    private static String readyImageName;
+
+    /**
+     * The hash of the zsim Dockerfile that the ready image of this process was determined for.
+     */
+    private static String readyDockerfileHash;
+
+    /**
+     * Gets the name of the ready zsim image, preparing it first if it does not exist.
+     * The Dockerfile is hashed on every call, so a long-running process such as the daemon prepares a new ready image
+     * once the Dockerfile has changed.
+     *
+     * @return the name of the ready zsim image, including its tag
+     */
+    public static synchronized String getReadyImage() {
+        HardwaresimulationDocker docker = new HardwaresimulationDocker();
+        String dockerfileHash = docker.getDockerfileHash(IMAGE_NAME);
+        if (readyImageName != null && dockerfileHash.equals(readyDockerfileHash)) {
+            return readyImageName;
+        }
+
+        // Rebuilds the zsim image if the Dockerfile has changed since it was built
+        String baseImageId = docker.ensureImageUpToDate(IMAGE_NAME);
+        String tag = dockerfileHash.substring(0, 12) + "-" + baseImageId.replace("sha256:", "").substring(0, 12);
+
+        String candidateImageName = READY_REPOSITORY + ":" + tag;
+        if (docker.getImageId(candidateImageName) == null) {
+            prepareReadyImage(docker, tag, dockerfileHash, baseImageId);
+        }
+        readyImageName = candidateImageName;
+        readyDockerfileHash = dockerfileHash;
+        return readyImageName;
+    }
+
+    /**
+     * Builds zsim in a new container of the zsim image and commits the container as the ready image.
+     *
+     * @param docker         the instance of the HardwaresimulationDocker class used for the preparation
+     * @param tag            the tag of the ready image
+     * @param dockerfileHash the hash of the zsim Dockerfile
+     * @param baseImageId    the ID of the zsim image
+     */
+    private static void prepareReadyImage(HardwaresimulationDocker docker, String tag, String dockerfileHash, String baseImageId) {
+        System.out.println("Preparing the zsim runtime image " + READY_REPOSITORY + ":" + tag);
+        // The build is admitted like a run and uses as many jobs as the container has CPUs
+        HardwaresimulationResourceScheduler scheduler = HardwaresimulationResourceScheduler.getInstance();
+        scheduler.acquire(IMAGE_NAME);
+        String containerId = null;
+        try {
+            docker.createHardwaresimulationContainer(IMAGE_NAME);
+            containerId = docker.getContainerId();
+            docker.startHardwaresimulationContainer(containerId);
+
+            String execId = docker.command(new String[]{"scons", "-j" + scheduler.getFootprint(IMAGE_NAME).getJobs()});
+            docker.outputFromHardwaresimulationConsole(execId);
+            Long exitCode = docker.getCommandExitCode(execId);
+            if (exitCode == null || exitCode != 0) {
+                throw new IllegalStateException("Building zsim failed with exit code " + exitCode);
+            }
+
+            Map<String, String> labels = new HashMap<>();
+            labels.put(HardwaresimulationDocker.DOCKERFILE_HASH_LABEL, dockerfileHash);
+            labels.put(BASE_IMAGE_LABEL, baseImageId);
+            docker.commitContainer(containerId, READY_REPOSITORY, tag, labels);
+            System.out.println("Image created: " + READY_REPOSITORY + ":" + tag);
+        } finally {
+            if (containerId != null) {
+                docker.deleteDockerHardwaresimulation(containerId);
+            }
+            scheduler.release(IMAGE_NAME);
+        }
+    }
+}